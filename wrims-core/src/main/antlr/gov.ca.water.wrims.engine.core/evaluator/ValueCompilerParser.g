@@ -0,0 +1,429 @@
+parser grammar ValueCompilerParser;
+
+// Same rules as ValueEvaluator.g, but the actions build an immutable ValueNode
+// tree instead of evaluating the expression. The tree is evaluated later with
+// the same ValueEvaluation calls in the same order.
+
+options {
+  language = Java;
+  tokenVocab=ValueEvaluator;
+}
+
+@header {
+  package gov.ca.water.wrims.engine.core.evaluator;
+
+  import org.antlr.runtime.RecognitionException;
+  import org.antlr.runtime.TokenStream;
+
+  import java.util.ArrayList;
+  import gov.ca.water.wrims.engine.core.components.IntDouble;
+}
+
+@members {
+  public ValueNode valueNode;
+  public ValueNode conditionNode;
+  public boolean hasError=false;
+
+  @Override
+  public void reportError(RecognitionException e) {
+       hasError=true;
+  }
+}
+
+evaluator returns [String result]
+	:	expressionInput |
+		conditionInput
+	;
+
+///////////////////
+/// input rules ///
+///////////////////
+
+expressionInput: 'v:' expressionCollection{valueNode=$expressionCollection.node;};
+conditionInput: 'c:' conditionStatement {conditionNode=$conditionStatement.node;};
+
+///////////////////
+/// basic rules ///
+///////////////////
+lhsrhs: expression|CONSTRAIN;
+
+units: IDENT|(IDENT '/' IDENT);
+
+fileName
+  : (':'|';'|'.'|'|'|SYMBOLS|'-'|'+'|BACKSLASH|IDENT|IDENT1|IDENT2|INTEGER|FLOAT|usedKeywords)+{
+  }
+  ;
+
+externalFile
+  : (';'|'.'|'|'|SYMBOLS|'-'|'+'|INTEGER|FLOAT|IDENT|usedKeywords)+
+  ;
+
+text	:	LETTER (LETTER | DIGIT )*;
+
+expressionCollection returns [ValueNode node]
+	:(expression{node=$expression.node;})
+	|(tableSQL){node=$tableSQL.node;}
+	|(timeseriesWithUnits){node=new ValueNode(ValueNode.NULL);}
+	|((timeseries){node=$timeseries.node;})
+	| sumExpression {node=$sumExpression.node;}
+	|(UPPERUNBOUNDED{node=new ValueNode(new IntDouble(1e38,true));})
+	|(LOWERUNBOUNDED{node=new ValueNode(new IntDouble(-1e38,true));})
+	;
+
+func returns[ValueNode node]:
+  (max_func{node=$max_func.node;})|
+  (min_func{node=$min_func.node;})|
+  (int_func{node=$int_func.node;})|
+  (real_func{node=$real_func.node;})|
+  (abs_func{node=$abs_func.node;})|
+  (exp_func{node=$exp_func.node;})|
+  (log_func{node=$log_func.node;})|
+  (log10_func{node=$log10_func.node;})|
+  (pow_func{node=$pow_func.node;})|
+  (mod_func{node=$mod_func.node;})|
+  (round_func{node=$round_func.node;})|
+  (sin_func{node=$sin_func.node;})|
+  (cos_func{node=$cos_func.node;})|
+  (tan_func{node=$tan_func.node;})|
+  (cot_func{node=$cot_func.node;})|
+  (asin_func{node=$asin_func.node;})|
+  (acos_func{node=$acos_func.node;})|
+  (atan_func{node=$atan_func.node;})|
+  (acot_func{node=$acot_func.node;})|
+  (exceedFunc{node=$exceedFunc.node;})|
+  (exceedtsiFunc{node=$exceedtsiFunc.node;});
+
+round_func returns[ValueNode node]
+  : ROUND '(' (e1=expression) ')'{
+     node=new ValueNode(ValueNode.ROUND, $e1.node);
+  }
+  ;
+
+mod_func returns[ValueNode node]
+  : MOD '(' (e1=expression) (';' (e2=expression)) ')'{
+     node=new ValueNode(ValueNode.MOD, $e1.node, $e2.node);
+  }
+  ;
+
+max_func returns[ValueNode node]
+	: MAX '(' (e1=expression){node=$e1.node;}(';' (e2=expression{
+     node=new ValueNode(ValueNode.MAX, node, $e2.node);
+  }))+ ')'
+	;
+
+min_func returns[ValueNode node]
+	: MIN '(' (e1=expression){node=$e1.node;}(';' (e2=expression{
+     node=new ValueNode(ValueNode.MIN, node, $e2.node);
+  }))+ ')'
+	;
+
+int_func returns[ValueNode node]
+  : INT '(' (e=expression) ')'{
+     node=new ValueNode(ValueNode.INT, $e.node);
+  }
+  ;
+
+real_func returns[ValueNode node]
+  : REAL '(' (e=expression) ')'{
+    node=new ValueNode(ValueNode.REAL, $e.node);
+  }
+  ;
+
+abs_func returns[ValueNode node]
+  : ABS '(' (e=expression) ')'{
+     node=new ValueNode(ValueNode.ABS, $e.node);
+  }
+  ;
+
+exp_func returns[ValueNode node]
+  : EXP '(' (e=expression) ')'{
+     node=new ValueNode(ValueNode.EXP, $e.node);
+  }
+  ;
+
+log_func returns[ValueNode node]
+  : LOG '(' (e=expression) ')'{
+     node=new ValueNode(ValueNode.LOG, $e.node);
+  }
+  ;
+
+log10_func returns[ValueNode node]
+  : LOG10 '(' (e=expression) ')'{
+    node=new ValueNode(ValueNode.LOG10, $e.node);
+  }
+  ;
+
+pow_func returns[ValueNode node]
+  : POW '(' (e1=expression) (';' (e2=expression)) ')'{
+     node=new ValueNode(ValueNode.POW, $e1.node, $e2.node);
+  }
+  ;
+
+sin_func returns[ValueNode node]
+  : SIN '(' (e=expression) ')'{
+    node=new ValueNode(ValueNode.SIN, $e.node);
+  }
+  ;
+
+cos_func returns[ValueNode node]
+  : COS '(' (e=expression) ')'{
+    node=new ValueNode(ValueNode.COS, $e.node);
+  }
+  ;
+
+tan_func returns[ValueNode node]
+  : TAN '(' (e=expression) ')'{
+    node=new ValueNode(ValueNode.TAN, $e.node);
+  }
+  ;
+
+cot_func returns[ValueNode node]
+  : COT '(' (e=expression) ')'{
+    node=new ValueNode(ValueNode.COT, $e.node);
+  }
+  ;
+
+asin_func returns[ValueNode node]
+  : ASIN '(' (e=expression) ')'{
+    node=new ValueNode(ValueNode.ASIN, $e.node);
+  }
+  ;
+
+acos_func returns[ValueNode node]
+  : ACOS '(' (e=expression) ')'{
+    node=new ValueNode(ValueNode.ACOS, $e.node);
+  }
+  ;
+
+atan_func returns[ValueNode node]
+  : ATAN '(' (e=expression) ')'{
+    node=new ValueNode(ValueNode.ATAN, $e.node);
+  }
+  ;
+
+acot_func returns[ValueNode node]
+  : ACOT '(' (e=expression) ')'{
+    node=new ValueNode(ValueNode.ACOT, $e.node);
+  }
+  ;
+
+exceedFunc returns[ValueNode node]
+  : EXCEEDANCE '(' var=IDENT ';' exc=term ';' (mon=MONTH_CONST|mon=MONTH_RANGE|mon=ALL) ';' sy=INTEGER ';' sm=MONTH_CONST ';' sd=INTEGER ';' ey=INTEGER ';' em=MONTH_CONST ';' ed=INTEGER ')' {
+    node=new ValueNode(ValueNode.EXCEEDANCE, $var.text, new String[]{$mon.text, $sy.text, $sm.text, $sd.text, $ey.text, $em.text, $ed.text}, new ValueNode[]{$exc.node}, null, 0);
+  }
+  ;
+
+exceedtsiFunc returns[ValueNode node]
+  : EXCEEDANCE_TSI '(' var=IDENT ';' exc=term ';' (mon=MONTH_CONST|mon=MONTH_RANGE|mon=ALL) ';' sy=INTEGER ';' sm=MONTH_CONST ';' sd=INTEGER ';' ey=INTEGER ';' em=MONTH_CONST ';' ed=INTEGER ')' {
+    node=new ValueNode(ValueNode.EXCEEDANCE_TSI, $var.text, new String[]{$mon.text, $sy.text, $sm.text, $sd.text, $ey.text, $em.text, $ed.text}, new ValueNode[]{$exc.node}, null, 0);
+  }
+  ;
+
+range_func returns [ValueNode node]
+  : RANGE '(' MONTH ';' m1=MONTH_CONST ';' m2=MONTH_CONST ')' {node=new ValueNode(ValueNode.RANGE, null, new String[]{$m1.text, $m2.text}, null, null, 0);};
+
+timeseriesWithUnits
+	: 'timeseries' 'kind' '=' partC 'units' '=' IDENT
+	;
+
+timeseries returns [ValueNode node]
+	: 'timeseries' {node=new ValueNode(ValueNode.TIMESERIES);}
+	;
+
+partC: 	(IDENT|IDENT1|usedKeywords) ('-' (IDENT|IDENT1|usedKeywords))*;
+
+usedKeywords: YEAR|MONTH|MONTH_CONST|MONTH_RANGE|DAY|PASTMONTH|RANGE|TAFCFS|DAYSIN|DAYSINTIMESTEP|SUM|MAX|MIN|INT|REAL|ABS|EXP|LOG|LOG10|POW|MOD|ROUND|SELECT|FROM|GIVEN|USE|WHERE
+|CONSTRAIN|ALWAYS|NAME|DVAR|CYCLE|FILE|CONDITION|INCLUDE|LOWERBOUND|UPPERBOUND|INTEGERTYPE|UNITS|CONVERTUNITS|TYPE|OUTPUT
+|CASE|ORDER|EXPRESSION|LHSGTRHS|LHSLTRHS|WEIGHT|FUNCTION|FROM_WRESL_FILE|UPPERUNBOUNDED|LOWERUNBOUNDED|AND|OR|NOT
+|SIN|COS|TAN|COT|ASIN|ACOS|ATAN|ACOT|EXCEEDANCE|EXCEEDANCE_TSI|ALL;
+
+tableSQL returns [ValueNode node] @init{String table=null; String select=null; String use=null; String givenIdent=null; ArrayList<String> whereIdents=null; ArrayList<ValueNode> values=new ArrayList<ValueNode>();}
+	: SELECT ((i1=IDENT{select=$i1.text;})|(u1=usedKeywords{select=$u1.text;})) FROM i2=IDENT{table=$i2.text;}
+	  (GIVEN a=assignStatement{givenIdent=$a.assignIdent; values.add($a.node);})? (USE i3=IDENT{use=$i3.text;})?
+	  (where_items{whereIdents=$where_items.whereIdents; values.addAll($where_items.nodes);})? {node=ValueNode.table(table, select, givenIdent, use, whereIdents, values);}
+	;
+
+where_items returns [ArrayList<String> whereIdents, ArrayList<ValueNode> nodes]
+	:	 WHERE  (r1=whereStatement{$whereIdents=new ArrayList<String>(); $nodes=new ArrayList<ValueNode>(); $whereIdents.add($r1.whereIdent); $nodes.add($r1.node);})
+	        (';' r=whereStatement{$whereIdents.add($r.whereIdent); $nodes.add($r.node);})*
+	;
+
+
+upperbound:	IDENT|allnumber|(allnumber '*' TAFCFS);
+
+lowerbound:	IDENT|allnumber|(allnumber '*' TAFCFS);
+
+sumExpression returns [ValueNode node] @init{String s="";}
+  : SUM '(' IDENT '=' e1=expression ';' e2=expression (';' (('-'{s=s+"-";})? INTEGER {s=s+$INTEGER.text;}))? (')')  e3=expression{node=new ValueNode(ValueNode.SUM, $IDENT.text, new String[]{s}, new ValueNode[]{$e1.node, $e2.node, $e3.node.bindLoopIndex($IDENT.text)}, null, 0);}
+  ;
+
+term returns [ValueNode node]
+	:	(IDENT {node=new ValueNode(ValueNode.IDENT, $IDENT.text);})
+	| (FLOAT {node=new ValueNode(ValueEvaluation.term_FLOAT($FLOAT.text));})
+	| ('(' (e=expression) ')' {node=$e.node;})
+	| (knownTS{node=$knownTS.node;})
+	| func{node=$func.node;}
+	| (INTEGER {node=new ValueNode(ValueEvaluation.term_INTEGER($INTEGER.text));})
+	| tafcfs_term{node=$tafcfs_term.node;}
+	| YEAR{node=new ValueNode(ValueNode.YEAR);}
+	| MONTH{node=new ValueNode(ValueNode.MONTH);}
+	| DAY {node=new ValueNode(ValueNode.DAY);}
+	| MONTH_CONST{node=new ValueNode(ValueNode.MONTH_CONST, $MONTH_CONST.text);}
+	| PASTMONTH{node=new ValueNode(ValueNode.PASTMONTH, $PASTMONTH.text);}
+	| DAYSIN{node=new ValueNode(ValueNode.DAYSIN);}
+	| DAYSINTIMESTEP{node=new ValueNode(ValueNode.DAYSINTIMESTEP);}
+	| (SVAR{node=new ValueNode(ValueNode.SVAR, $SVAR.text.replace("{","").replace("}",""));})
+	| ARRAY_ITERATOR{node=new ValueNode(ValueNode.ARRAY_ITERATOR);}
+	| '(' sumExpression ')' {node=$sumExpression.node;}
+	;
+
+tafcfs_term returns [ValueNode node]: TAFCFS ('(' expression ')')? {
+    if ($expression.node==null){
+      node=new ValueNode(ValueNode.TAFCFS, $TAFCFS.text);
+    }else{
+      node=new ValueNode(ValueNode.TAFCFS, $TAFCFS.text, $expression.node);
+    }
+};
+
+knownTS returns [ValueNode node]
+  : (f=function{node=$f.node;})|(p=pastCycleValue {node=$p.node;})
+  ;
+
+pastCycleValue returns [ValueNode node]
+  : (p1=pastCycleNoTimeArray{return $p1.node;})|(p2=pastCycleTimeArray{return $p2.node;})|(p3=pastCycleIndexNoTimeArray{return $p3.node;})|(p4=pastCycleIndexTimeArray{return $p4.node;})
+  ;
+
+pastCycleNoTimeArray returns [ValueNode node]
+  : i1=IDENT '[' i2=IDENT ']'{node=new ValueNode(ValueNode.PAST_CYCLE, $i1.text, new String[]{$i2.text}, null, null, 0);}
+  ;
+
+pastCycleTimeArray returns [ValueNode node]
+  : i1=IDENT '[' i2=IDENT ']' '(' e1=expression ')' {node=new ValueNode(ValueNode.PAST_CYCLE_TIME_ARRAY, $i1.text, new String[]{$i2.text}, new ValueNode[]{$e1.node}, null, 0);}
+  ;
+
+pastCycleIndexNoTimeArray returns [ValueNode node]
+  : i1=IDENT '[' ('-' index=INTEGER) ']'{node=new ValueNode(ValueNode.PAST_CYCLE_INDEX, $i1.text, null, null, null, -Integer.parseInt($index.text));}
+  ;
+
+pastCycleIndexTimeArray returns [ValueNode node]
+  : i1=IDENT '[' '-' index=INTEGER ']' '(' e1=expression ')' {node=new ValueNode(ValueNode.PAST_CYCLE_INDEX_TIME_ARRAY, $i1.text, null, new ValueNode[]{$e1.node}, null, -Integer.parseInt($index.text));}
+  ;
+
+function returns [ValueNode node]
+  : (n=noArgFunction{node=$n.node;})|(a=argFunction{node=$a.node;})
+  ;
+
+noArgFunction returns [ValueNode node]
+  : IDENT '(' ')' {node=new ValueNode(ValueNode.NO_ARG_FUNCTION, $IDENT.text);};
+
+argFunction returns [ValueNode node] @init{ArrayList<ValueNode> args = new ArrayList<ValueNode>();}
+  : IDENT '(' (e1=expression {args.add($e1.node);}
+  | t1=trunk_timeArray{args.add($t1.node);})
+  (';' (e2=expression{args.add($e2.node);}
+  |t2=trunk_timeArray{args.add($t2.node);}))* ')' ('(' e0=expression {args.add($e0.node);} ')')?
+  {
+    if ($e0.node==null) {
+      node=new ValueNode(ValueNode.ARG_FUNCTION, $IDENT.text, args.toArray(new ValueNode[args.size()]));
+    }else{
+      node=new ValueNode(ValueNode.PAST_TSFV, $IDENT.text, args.toArray(new ValueNode[args.size()]));
+    }
+  };
+
+trunk_timeArray returns[ValueNode node] @init{ValueNode start=null; ValueNode end=null;}
+  : i0=IDENT '(' (n1=integer{start=new ValueNode(ValueEvaluation.term_INTEGER($n1.text));}|i1=IDENT{start=new ValueNode(ValueNode.IDENT, $i1.text);}) ':' (n2=integer{end=new ValueNode(ValueEvaluation.term_INTEGER($n2.text));}|i2=IDENT{end=new ValueNode(ValueNode.IDENT, $i2.text);}) ')'
+  {
+    node=new ValueNode(ValueNode.TRUNK, $i0.text, start, end);
+  }
+  ;
+
+unary returns [ValueNode node]
+	:	(s=('+'|'-'))? term{
+	  if ($s.text!=null && $s.text.equals("-")){
+	    node=new ValueNode(ValueNode.NEGATE, $term.node);
+	  }else{
+	    node=$term.node;
+	  }
+	};
+
+allnumber
+	:	('-')? number;
+
+mult returns [ValueNode node]
+	:	(u1=unary {node=$u1.node;}) (s=('*'| '/') (u2=unary){
+	   if ($s.text.equals("*")){
+	     node=new ValueNode(ValueNode.MULT, node, $u2.node);
+	   }else{
+	     node=new ValueNode(ValueNode.DIVIDE, node, $u2.node);
+	   }
+  })*
+	;
+
+add  returns [ValueNode node]
+	:	(m1=mult {node=$m1.node;}) ((s=('+'|'-')) (m2=mult){
+     if ($s.text.equals("+")){
+       node=new ValueNode(ValueNode.ADD, node, $m2.node);
+     }else{
+       node=new ValueNode(ValueNode.SUBTRACT, node, $m2.node);
+     }
+	})*
+	;
+
+expression returns [ValueNode node]
+	:	i=add {$node=$add.node;}
+	;
+
+relation
+	: '=='
+	| '<'
+	| '>'
+	| '>='
+	| '<='
+	;
+
+whereStatement returns [String whereIdent, ValueNode node]
+  : ((i=IDENT{$whereIdent=$i.text;})|(u=usedKeywords{$whereIdent=$u.text;})) '=' expression{$node=$expression.node;}
+  ;
+
+conditionStatement returns [ValueNode node]
+	:	((r=relationUnary{node=$r.node;})|ALWAYS{node=new ValueNode(ValueNode.ALWAYS);})
+	;
+
+relationUnary returns [ValueNode node]
+  : (n=NOT)? r=relationOr{
+      if ($n==null){
+        return $r.node;
+      }else{
+        return new ValueNode(ValueNode.NOT, $r.node);
+      }
+  }
+  ;
+
+relationOr returns [ValueNode node]
+  : r1=relationAnd {node=$r1.node;}
+    (s=OR r2=relationAnd {node=new ValueNode(ValueNode.OR, $s.text, node, $r2.node);})* ;
+
+relationAnd returns [ValueNode node]
+  : r1=relationRangeStatement {node=$r1.node;}
+    (s=AND r2=relationRangeStatement {node=new ValueNode(ValueNode.AND, $s.text, node, $r2.node);})* ;
+
+relationRangeStatement returns [ValueNode node]
+  : (r1=relationStatement{node=$r1.node;})|(r2=range_func{node=$r2.node;})
+  ;
+
+relationStatement returns [ValueNode node]
+	: (	( expression relation expression) => e1=expression relation e2=expression {node=new ValueNode(ValueNode.RELATION, $relation.text, $e1.node, $e2.node);} )
+	| ( ( '('relationUnary')'  ) => '('r2=relationUnary')' {node=$r2.node;} )
+	;
+
+assignStatement returns [String assignIdent, ValueNode node]
+  : IDENT '=' expression {$assignIdent=$IDENT.text; $node=$expression.node;}
+  ;
+
+number
+	: INTEGER
+	| FLOAT
+	;
+
+integer : integer_p|integer_n ;
+integer_p : INTEGER ;
+integer_n : '-' INTEGER ;
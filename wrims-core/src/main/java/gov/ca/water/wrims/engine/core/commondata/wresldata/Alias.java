@@ -5,6 +5,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.evaluator.CompiledExpression;
 import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluatorParser;
 
 
@@ -17,6 +18,7 @@ public class Alias implements Serializable {
 	public String units;
 	public String expression;
 	public ValueEvaluatorParser expressionParser;
+	public CompiledExpression expressionCompiled;
 	public String fromWresl;
 	public int line=1;
 	public IntDouble data;
@@ -28,6 +30,7 @@ public class Alias implements Serializable {
 	// default is zero
 	public String timeArraySize;
 	public ValueEvaluatorParser timeArraySizeParser;
+	public CompiledExpression timeArraySizeCompiled;
 	
 	
 	public Alias(){
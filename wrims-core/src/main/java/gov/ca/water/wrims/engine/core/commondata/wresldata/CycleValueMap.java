@@ -0,0 +1,278 @@
+package gov.ca.water.wrims.engine.core.commondata.wresldata;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoSerializable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+
+/**
+ * The values of variables by cycle, as a map of variable name to a map of
+ * cycle name to value. The values are kept in a dense [variable id][cycle id]
+ * table: the ids are given at the first put of a variable or cycle and kept
+ * by clear(), which only resets the table, so the rows of a run are allocated
+ * once. Unlike the nested HashMaps it replaces, the map put for a variable is
+ * copied, and the map of a variable got before a clear() is emptied by it;
+ * puts into it are not seen by this map until the variable is put again. The
+ * map of a variable that is removed or replaced by a put keeps its values, as
+ * with HashMaps. Like the maps it replaces, a cycle can be in the map of a
+ * variable with a null value. Kryo writes it as nested HashMaps.
+ */
+public class CycleValueMap extends AbstractMap<String, Map<String, IntDouble>> implements KryoSerializable {
+	private final HashMap<String, Integer> variableIds=new HashMap<String, Integer>();
+	private final HashMap<String, Integer> cycleIds=new HashMap<String, Integer>();
+	private final ArrayList<String> cycleNames=new ArrayList<String>();
+	private Row[] rows=new Row[16];
+	private int nRows=0;
+	private int size=0;
+
+	public CycleValueMap(){
+	}
+
+	public CycleValueMap(Map<String, Map<String, IntDouble>> values){
+		if (values!=null) putAll(values);
+	}
+
+	/**
+	 * The values of one variable. It is in this map while it is the row of its
+	 * variable id and the variable has not been cleared.
+	 */
+	private final class Row extends AbstractMap<String, IntDouble> {
+		private IntDouble[] values=new IntDouble[cycleNames.size()+4];
+		private boolean[] defined=new boolean[values.length];
+		private int count=0;
+		private boolean inMap=false;
+
+		@Override
+		public IntDouble get(Object cycle){
+			int id=find(cycle);
+			return id>=0 && id<values.length ? values[id] : null;
+		}
+
+		@Override
+		public boolean containsKey(Object cycle){
+			int id=find(cycle);
+			return id>=0 && id<values.length && defined[id];
+		}
+
+		@Override
+		public IntDouble put(String cycle, IntDouble value){
+			int id=cycleId(cycle);
+			if (id>=values.length){
+				int length=Math.max(id+1, values.length*2);
+				values=Arrays.copyOf(values, length);
+				defined=Arrays.copyOf(defined, length);
+			}
+			IntDouble old=values[id];
+			if (!defined[id]){
+				defined[id]=true;
+				count++;
+			}
+			values[id]=value;
+			return old;
+		}
+
+		@Override
+		public IntDouble remove(Object cycle){
+			int id=find(cycle);
+			if (id<0 || id>=values.length || !defined[id]) return null;
+			IntDouble old=values[id];
+			values[id]=null;
+			defined[id]=false;
+			count--;
+			return old;
+		}
+
+		@Override
+		public void clear(){
+			Arrays.fill(values, null);
+			Arrays.fill(defined, false);
+			count=0;
+		}
+
+		@Override
+		public int size(){
+			return count;
+		}
+
+		@Override
+		public Set<Map.Entry<String, IntDouble>> entrySet(){
+			return new AbstractSet<Map.Entry<String, IntDouble>>(){
+				@Override
+				public Iterator<Map.Entry<String, IntDouble>> iterator(){
+					return new Iterator<Map.Entry<String, IntDouble>>(){
+						private int next=advance(0);
+
+						private int advance(int id){
+							while (id<values.length && !defined[id]) id++;
+							return id;
+						}
+
+						@Override
+						public boolean hasNext(){
+							return next<values.length;
+						}
+
+						@Override
+						public Map.Entry<String, IntDouble> next(){
+							if (!hasNext()) throw new NoSuchElementException();
+							int id=next;
+							next=advance(id+1);
+							return new SimpleEntry<String, IntDouble>(cycleNames.get(id), values[id]);
+						}
+					};
+				}
+
+				@Override
+				public int size(){
+					return count;
+				}
+			};
+		}
+	}
+
+	private int find(Object cycle){
+		Integer id=cycleIds.get(cycle);
+		return id==null ? -1 : id;
+	}
+
+	private int cycleId(String cycle){
+		Integer id=cycleIds.get(cycle);
+		if (id==null){
+			id=cycleNames.size();
+			cycleIds.put(cycle, id);
+			cycleNames.add(cycle);
+		}
+		return id;
+	}
+
+	private Row row(Object variable){
+		Integer id=variableIds.get(variable);
+		if (id==null) return null;
+		Row row=rows[id];
+		return row!=null && row.inMap ? row : null;
+	}
+
+	@Override
+	public Map<String, IntDouble> get(Object variable){
+		return row(variable);
+	}
+
+	@Override
+	public boolean containsKey(Object variable){
+		return row(variable)!=null;
+	}
+
+	/**
+	 * Sets the values of the variable to those of the map, or to none if it
+	 * is null. A row of the variable in this map is replaced and returned with
+	 * its values; a cleared row is reused.
+	 */
+	@Override
+	public Map<String, IntDouble> put(String variable, Map<String, IntDouble> cycleValues){
+		Integer id=variableIds.get(variable);
+		if (id==null){
+			if (nRows==rows.length) rows=Arrays.copyOf(rows, nRows*2);
+			id=nRows++;
+			variableIds.put(variable, id);
+		}
+		Row previous=rows[id];
+		if (previous!=null && previous.inMap){
+			Row row=new Row();
+			if (cycleValues!=null) row.putAll(cycleValues);
+			row.inMap=true;
+			rows[id]=row;
+			previous.inMap=false;
+			return previous;
+		}
+		Row row=previous==null ? new Row() : previous;
+		// the values are copied before a cleared row is reset, as the map can
+		// be the row itself
+		if (cycleValues==row) cycleValues=new HashMap<String, IntDouble>(row);
+		row.clear();
+		if (cycleValues!=null) row.putAll(cycleValues);
+		row.inMap=true;
+		rows[id]=row;
+		size++;
+		return null;
+	}
+
+	/**
+	 * Removes the variable and returns its row with its values. The next put
+	 * of the variable makes a new row.
+	 */
+	@Override
+	public Map<String, IntDouble> remove(Object variable){
+		Row row=row(variable);
+		if (row==null) return null;
+		rows[variableIds.get(variable)]=null;
+		row.inMap=false;
+		size--;
+		return row;
+	}
+
+	/**
+	 * Removes all the variables and keeps their rows for the next puts.
+	 */
+	@Override
+	public void clear(){
+		for (int i=0; i<nRows; i++){
+			if (rows[i]!=null && rows[i].inMap){
+				rows[i].clear();
+				rows[i].inMap=false;
+			}
+		}
+		size=0;
+	}
+
+	@Override
+	public int size(){
+		return size;
+	}
+
+	@Override
+	public Set<Map.Entry<String, Map<String, IntDouble>>> entrySet(){
+		ArrayList<Map.Entry<String, Map<String, IntDouble>>> entries=new ArrayList<Map.Entry<String, Map<String, IntDouble>>>(size);
+		for (Map.Entry<String, Integer> entry: variableIds.entrySet()){
+			Row row=rows[entry.getValue()];
+			if (row!=null && row.inMap) entries.add(new SimpleEntry<String, Map<String, IntDouble>>(entry.getKey(), row));
+		}
+		return new AbstractSet<Map.Entry<String, Map<String, IntDouble>>>(){
+			@Override
+			public Iterator<Map.Entry<String, Map<String, IntDouble>>> iterator(){
+				return entries.iterator();
+			}
+
+			@Override
+			public int size(){
+				return entries.size();
+			}
+		};
+	}
+
+	@Override
+	public void write(Kryo kryo, Output output){
+		HashMap<String, HashMap<String, IntDouble>> values=new HashMap<String, HashMap<String, IntDouble>>();
+		for (Map.Entry<String, Map<String, IntDouble>> entry: entrySet()){
+			values.put(entry.getKey(), new HashMap<String, IntDouble>(entry.getValue()));
+		}
+		kryo.writeObject(output, values);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void read(Kryo kryo, Input input){
+		putAll(kryo.readObject(input, HashMap.class));
+	}
+}
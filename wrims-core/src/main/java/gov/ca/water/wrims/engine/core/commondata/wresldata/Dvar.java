@@ -5,6 +5,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.evaluator.CompiledExpression;
 import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluatorParser;
 
 
@@ -21,8 +22,10 @@ public class Dvar implements Serializable {
 	public String units;
 	public String lowerBound;
 	public ValueEvaluatorParser lowerBoundParser;
+	public CompiledExpression lowerBoundCompiled;
 	public String upperBound;
 	public ValueEvaluatorParser upperBoundParser;
+	public CompiledExpression upperBoundCompiled;
 	public String condition;
 	public Number upperBoundValue;
 	public Number lowerBoundValue;
@@ -33,6 +36,7 @@ public class Dvar implements Serializable {
 	// default is zero
 	public String timeArraySize;
 	public ValueEvaluatorParser timeArraySizeParser;
+	public CompiledExpression timeArraySizeCompiled;
 	
 	
 	public Dvar(){
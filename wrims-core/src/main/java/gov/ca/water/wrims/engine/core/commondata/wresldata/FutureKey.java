@@ -0,0 +1,113 @@
+package gov.ca.water.wrims.engine.core.commondata.wresldata;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The future index of a time array variable, as the base variable name and
+ * the index. The name of the variable at the index, base+"__fut__"+index,
+ * is made once per run and kept with the key, and a name is split back into
+ * its key once, so the evaluation, the solvers and the output look up the
+ * keys instead of making and parsing the names each time step.
+ */
+public final class FutureKey {
+	public static final String SEPARATOR="__fut__";
+
+	private static final ConcurrentHashMap<String, FutureKey[]> byBase=new ConcurrentHashMap<String, FutureKey[]>();
+	private static final ConcurrentHashMap<String, FutureKey> byName=new ConcurrentHashMap<String, FutureKey>();
+
+	public final String base;
+	public final int index;
+	public final String name;
+
+	private volatile String[] entryNames;
+	private volatile String[] baseEntryNames;
+
+	private FutureKey(String base, int index, String name){
+		this.base=base;
+		this.index=index;
+		this.name=name;
+	}
+
+	/**
+	 * @return the key of the base variable at the future index
+	 */
+	public static FutureKey key(String base, int index){
+		if (index<0) return new FutureKey(base, index, base+SEPARATOR+index);
+		FutureKey[] keys=byBase.get(base);
+		if (keys!=null && index<keys.length && keys[index]!=null) return keys[index];
+		synchronized (byBase){
+			keys=byBase.get(base);
+			if (keys==null){
+				keys=new FutureKey[index+1];
+			}else if (index>=keys.length){
+				keys=Arrays.copyOf(keys, index+1);
+			}else if (keys[index]!=null){
+				return keys[index];
+			}else{
+				keys=keys.clone();
+			}
+			FutureKey key=byName.get(base+SEPARATOR+index);
+			if (key==null || !key.base.equals(base)){
+				key=new FutureKey(base, index, base+SEPARATOR+index);
+				byName.put(key.name, key);
+			}
+			keys[index]=key;
+			byBase.put(base, keys);
+			return key;
+		}
+	}
+
+	/**
+	 * @return the name of the base variable at the future index
+	 */
+	public static String name(String base, int index){
+		return key(base, index).name;
+	}
+
+	/**
+	 * @return the key of the name, or null if it is not the name of a future
+	 *         index
+	 */
+	public static FutureKey parse(String name){
+		FutureKey key=byName.get(name);
+		if (key!=null) return key;
+		int i=name.indexOf(SEPARATOR);
+		if (i<0) return null;
+		String base=name.substring(0, i);
+		int index;
+		try{
+			index=Integer.parseInt(name.substring(i+SEPARATOR.length()));
+		}catch(NumberFormatException e){
+			return null;
+		}
+		if (index>=0 && name.equals(base+SEPARATOR+index)) return key(base, index);
+		key=new FutureKey(base, index, name);
+		byName.putIfAbsent(name, key);
+		return key;
+	}
+
+	/**
+	 * @return DssOperation.entryNameTS(name, timeStep)
+	 */
+	public String entryNameTS(String timeStep){
+		String[] entry=entryNames;
+		if (entry==null || !entry[0].equals(timeStep)){
+			entry=new String[]{timeStep, name+"@"+timeStep};
+			entryNames=entry;
+		}
+		return entry[1];
+	}
+
+	/**
+	 * @return DssOperation.entryNameTS(base, timeStep)
+	 */
+	public String baseEntryNameTS(String timeStep){
+		String[] entry=baseEntryNames;
+		if (entry==null || !entry[0].equals(timeStep)){
+			entry=new String[]{timeStep, base+"@"+timeStep};
+			baseEntryNames=entry;
+		}
+		return entry[1];
+	}
+}
@@ -7,6 +7,7 @@ import java.util.Map;
 import java.util.Set;
 
 import gov.ca.water.wrims.engine.core.evaluator.EvaluatorParser;
+import gov.ca.water.wrims.engine.core.evaluator.CompiledExpression;
 import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluatorParser;
 
 
@@ -24,6 +25,7 @@ public class Goal implements Serializable {
 	public ArrayList<String> dvarWeight; // for the slack or surplus. Negative penalty leads to positive weight
 	public ArrayList<String> caseCondition;
 	public ArrayList<ValueEvaluatorParser> caseConditionParsers;
+	public ArrayList<CompiledExpression> caseConditionCompiled;
 	public ArrayList<String> caseExpression;
 	public Set<String> expressionDependants;
 	public ArrayList<EvaluatorParser> caseExpressionParsers;
@@ -35,6 +37,7 @@ public class Goal implements Serializable {
 	// default is zero
 	public String timeArraySize;
 	public ValueEvaluatorParser timeArraySizeParser;
+	public CompiledExpression timeArraySizeCompiled;
 	
 	
 	public Goal(){
@@ -3,7 +3,6 @@ package gov.ca.water.wrims.engine.core.commondata.wresldata;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -15,18 +14,29 @@ import java.util.concurrent.ForkJoinPool;
 import gov.ca.water.wrims.engine.core.commondata.solverdata.SolverData;
 import gov.ca.water.wrims.engine.core.components.ControlData;
 import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.evaluator.CompiledExpression;
 import gov.ca.water.wrims.engine.core.evaluator.DataTimeSeries;
 import gov.ca.water.wrims.engine.core.evaluator.DssDataSetFixLength;
 import gov.ca.water.wrims.engine.core.evaluator.DssOperation;
+import gov.ca.water.wrims.engine.core.evaluator.DvarIndex;
 import gov.ca.water.wrims.engine.core.evaluator.EvalConstraint;
+import gov.ca.water.wrims.engine.core.evaluator.IdentifierSlots;
+import gov.ca.water.wrims.engine.core.evaluator.InvariantSvars;
+import gov.ca.water.wrims.engine.core.evaluator.PastCycleLinks;
+import gov.ca.water.wrims.engine.core.evaluator.SvarTracker;
 import gov.ca.water.wrims.engine.core.evaluator.TimeOperation;
+import gov.ca.water.wrims.engine.core.evaluator.TimeSeriesCache;
 import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluatorParser;
+import gov.ca.water.wrims.engine.core.external.ExternalBatch;
+import gov.ca.water.wrims.engine.core.parallel.EvaluationContext;
 import gov.ca.water.wrims.engine.core.parallel.ParallelVars;
 import gov.ca.water.wrims.engine.core.parallel.ProcessConstraint;
 import gov.ca.water.wrims.engine.core.parallel.ProcessDvar;
+import gov.ca.water.wrims.engine.core.parallel.ProcessSvar;
 import gov.ca.water.wrims.engine.core.parallel.ProcessTimeseries;
 import gov.ca.water.wrims.engine.core.parallel.ProcessWeight;
 import gov.ca.water.wrims.engine.core.parallel.ProcessWeightSurplusSlack;
+import gov.ca.water.wrims.engine.core.parallel.SvarSchedule;
 
 import org.antlr.runtime.RecognitionException;
 
@@ -112,6 +122,18 @@ public class ModelDataSet implements Serializable {
 	public Set<String> dvarTimeArrayUsedByLaterCycle = new HashSet<String>();
 	public Set<String> svarUsedByLaterCycle = new HashSet<String>();
 	public Set<String> aliasUsedByLaterCycle = new HashSet<String>();
+	
+	// / identifier slots and dvar column ids, built by PreEvaluator
+	public transient IdentifierSlots identifierSlots;
+	public transient DvarIndex dvarIndex;
+	// / svar levels of the parallel svar evaluation, built at the first use
+	public transient SvarSchedule svarSchedule;
+	public transient SvarTracker svarTracker;
+	public transient InvariantSvars invariantSvars;
+	// / svars, dvars and aliases by id, built by PreEvaluator
+	private transient VariableTable variableTable;
+	// / sources of the values of the variables used by later cycles, built at the first use
+	public transient PastCycleLinks pastCycleLinks;
 		
 	public void processModel(){
 		resetSlackSurplusWeight(); // this clears slack and surplus vars
@@ -154,8 +176,10 @@ public class ModelDataSet implements Serializable {
 		ConcurrentHashMap<String, WeightElement> solverWtMap=SolverData.getWeightMap();
 		ControlData.currEvalTypeIndex=7;
 		wtTimeArrayList = new ArrayList<String>();
-		ProcessWeight pw = new ProcessWeight(wtList, wtMap, solverWtMap, wtTimeArrayList, 0, wtList.size()-1);
+		EvaluationContext[] contexts=new EvaluationContext[wtList.size()];
+		ProcessWeight pw = new ProcessWeight(wtList, wtMap, solverWtMap, wtTimeArrayList, contexts, 0, wtList.size()-1);
 		pool.invoke(pw);
+		EvaluationContext.report(contexts);
 	}
 	
 	public void processWeightSlackSurplus(){
@@ -165,169 +189,224 @@ public class ModelDataSet implements Serializable {
 		SolverData.clearWeightSlackSurplusMap();
 		ConcurrentHashMap<String, WeightElement> solverWeightSlackSurplusMap=SolverData.getWeightSlackSurplusMap();
 		ControlData.currEvalTypeIndex=7;
-		ProcessWeightSurplusSlack pwss = new ProcessWeightSurplusSlack(usedWtSlackSurplusDvList, wtSlackSurplusMap, solverWeightSlackSurplusMap, 0, usedWtSlackSurplusDvList.size()-1);
+		EvaluationContext[] contexts=new EvaluationContext[usedWtSlackSurplusDvList.size()];
+		ProcessWeightSurplusSlack pwss = new ProcessWeightSurplusSlack(usedWtSlackSurplusDvList, wtSlackSurplusMap, solverWeightSlackSurplusMap, contexts, 0, usedWtSlackSurplusDvList.size()-1);
 		pool.invoke(pwss);
+		EvaluationContext.report(contexts);
 	}
 	
 	public void processSvar(){
-		StudyDataSet sds = ControlData.currStudyDataSet;
 		ModelDataSet mds=ControlData.currModelDataSet;
 		ArrayList<String> svList = mds.svList;
 		Map<String, Svar> svMap =mds.svMap;
 		ControlData.currEvalTypeIndex=0;
-		Map<String, Map<String, IntDouble>> varCycleValueMap=ControlData.currStudyDataSet.getVarCycleValueMap();
-		Map<String, Map<String, IntDouble>> varTimeArrayCycleValueMap=ControlData.currStudyDataSet.getVarTimeArrayCycleValueMap();
-		Set<String> svarUsedByLaterCycle = mds.svarUsedByLaterCycle;
-		ArrayList<String> varCycleIndexList = sds.getVarCycleIndexList();
-		Map<String, Map<String, IntDouble>> varCycleIndexValueMap = sds.getVarCycleIndexValueMap();
-		String model=ControlData.currCycleName;
+		if (ControlData.trackSvars && mds.svarTracker==null) mds.svarTracker=new SvarTracker(mds);
+		if (ControlData.invariantSvars && mds.invariantSvars==null) mds.invariantSvars=new InvariantSvars(mds);
+		if (ControlData.parallelSvar && ControlData.nThreads>1){
+			processSvarLevels(mds);
+			return;
+		}
 		for (String svName: svList){
 			ControlData.currEvalName=svName;
 			if (ControlData.showRunTimeMessage) System.out.println("Processing svar "+svName);
-			Svar svar=svMap.get(svName);
-			ArrayList<ValueEvaluatorParser> caseConditions=svar.caseConditionParsers;
-			ParallelVars prvs = new ParallelVars();
-			prvs.timeArrayIndex=0;
-			boolean condition=false;
-			int i=-1;
-			while(!condition && i<=caseConditions.size()-2){
-				i=i+1;
-				ValueEvaluatorParser caseCondition=caseConditions.get(i);
-				caseCondition.setParallelVars(prvs);
+			processSvar(svName, svMap.get(svName));
+		}
+	}
+
+	/**
+	 * Evaluates an svar and its time array and saves the values. If external
+	 * functions are batched, the calls of a BatchedExternalFunction in the
+	 * time array are run in one ExternalBatch.
+	 */
+	private void processSvar(String svName, Svar svar){
+		ParallelVars prvs = new ParallelVars();
+		prvs.timeArrayIndex=0;
+		boolean batch=ControlData.batchExternalFunctions && !"0".equals(svar.timeArraySize);
+		int timeArraySize=0;
+		if (batch){
+			timeArraySize=new TimeArray().getTimeArraySize(svar.timeArraySizeParser, svar.timeArraySizeCompiled);
+			ExternalBatch.open(timeArraySize);
+		}
+		try{
+			IntDouble evalValue=evaluateTrackedSvar(svName, svar, prvs);
+			if (evalValue==null){
+				svar.setData(new IntDouble(1.0, false));
+			}else{
+				saveSvarValue(svName, svar, evalValue);
+			}
+
+			if (!batch) timeArraySize=new TimeArray().getTimeArraySize(svar.timeArraySizeParser, svar.timeArraySizeCompiled);
+			for (prvs.timeArrayIndex=1; prvs.timeArrayIndex<=timeArraySize; prvs.timeArrayIndex++){
+				evalValue=evaluateSvar(svar, prvs);
+				Svar newSvar=new Svar();
+				String newSvName=FutureKey.name(svName, prvs.timeArrayIndex);
+				if (evalValue==null){
+					newSvar.setData(new IntDouble(1.0, false));
+					svFutMap.put(newSvName, newSvar);
+				}else{
+					newSvar.setData(evalValue);
+					svFutMap.put(newSvName, newSvar);
+					saveSvarFutureValue(svName, newSvName, evalValue);
+				}
+			}
+		}finally{
+			if (batch) ExternalBatch.close();
+		}
+	}
+
+	/**
+	 * Same as the serial processSvar with the svars of each level of the
+	 * SvarSchedule evaluated in parallel. The values of a level are saved after
+	 * the level, and the errors of all svars are reported at the end in the
+	 * order of the svar list.
+	 */
+	private void processSvarLevels(ModelDataSet mds){
+		ArrayList<String> svList = mds.svList;
+		Map<String, Svar> svMap =mds.svMap;
+		if (mds.svarSchedule==null) mds.svarSchedule=new SvarSchedule(mds);
+		SvarSchedule schedule=mds.svarSchedule;
+		Set<String> unloadedTables=schedule.unloadedTables();
+		IntDouble[] values=new IntDouble[svList.size()];
+		EvaluationContext[] contexts=new EvaluationContext[svList.size()];
+		for (int[] level: schedule.levels(unloadedTables)){
+			if (schedule.isSerial(level[0])){
+				String svName=svList.get(level[0]);
+				ControlData.currEvalName=svName;
+				if (ControlData.showRunTimeMessage) System.out.println("Processing svar "+svName);
+				EvaluationContext context=new EvaluationContext(0, svName);
+				contexts[level[0]]=context;
+				context.enter();
 				try{
-					caseCondition.evaluator();
-					condition=caseCondition.evalCondition;
-				}catch (Exception e){
-					Error.addEvaluationError("Case condition evaluation has error.");
-					condition=false;
+					processSvar(svName, svMap.get(svName));
+				}finally{
+					context.exit();
 				}
-				caseCondition.reset();
+				continue;
 			}
-			if (condition){
-				ArrayList<ValueEvaluatorParser> caseExpressions=svar.caseExpressionParsers;
-				ValueEvaluatorParser caseExpression=caseExpressions.get(i);
-				caseExpression.setParallelVars(prvs);
-				try {
-					caseExpression.evaluator();
-					IntDouble evalValue=caseExpression.evalValue.copyOf();
-					svar.setData(evalValue);
-					if (svarUsedByLaterCycle.contains(svName)){
-						varCycleValueMap.get(svName).put(model, evalValue);
-					}
-					if (varCycleIndexList.contains(svName)){
-						if (varCycleIndexValueMap.containsKey(svName)){
-							varCycleIndexValueMap.get(svName).put(model, evalValue);
-						}else{
-							Map<String, IntDouble> cycleValue = new HashMap<String, IntDouble>();
-							cycleValue.put(model, evalValue);
-							varCycleIndexValueMap.put(svName, cycleValue);
-						}
-					}
-				} catch (RecognitionException e) {
-					Error.addEvaluationError("Case expression evaluation has error.");
-					IntDouble evalValue=new IntDouble(1.0, false);
-					svar.setData(evalValue);
-					if (svarUsedByLaterCycle.contains(svName)){
-						varCycleValueMap.get(svName).put(model, evalValue);
-					}
-					if (varCycleIndexList.contains(svName)){
-						if (varCycleIndexValueMap.containsKey(svName)){
-							varCycleIndexValueMap.get(svName).put(model, evalValue);
-						}else{
-							Map<String, IntDouble> cycleValue = new HashMap<String, IntDouble>();
-							cycleValue.put(model, evalValue);
-							varCycleIndexValueMap.put(svName, cycleValue);
-						}
-					}
+			ArrayList<Integer> loaders=new ArrayList<Integer>();
+			int[] positions=new int[level.length];
+			int n=0;
+			for (int p: level){
+				if (schedule.loadsTable(p, unloadedTables)){
+					loaders.add(p);
+				}else{
+					positions[n++]=p;
 				}
-				caseExpression.reset();
-			}else{
-				Error.addEvaluationError("None of the case conditions is satisfied.");
-				svar.setData(new IntDouble(1.0, false));
 			}
-			
-			int timeArraySize=new TimeArray().getTimeArraySize(svar.timeArraySizeParser);
-			for (prvs.timeArrayIndex=1; prvs.timeArrayIndex<=timeArraySize; prvs.timeArrayIndex++){
-				condition=false;
-				i=-1;
-				while(!condition && i<=caseConditions.size()-2){
-					i=i+1;
-					ValueEvaluatorParser caseCondition=caseConditions.get(i);
-					caseCondition.setParallelVars(prvs);
-					try{
-						caseCondition.evaluator();
-						condition=caseCondition.evalCondition;
-					}catch (Exception e){
-						Error.addEvaluationError("Case condition evaluation has error.");
-						condition=false;
-					}
-					caseCondition.reset();
+			if (n>1){
+				pool.invoke(new ProcessSvar(svList, svMap, positions, values, contexts, 0, n-1));
+			}else if (n==1){
+				ProcessSvar.evaluate(positions[0], svList, svMap, values, contexts);
+			}
+			for (int p: loaders){
+				ProcessSvar.evaluate(p, svList, svMap, values, contexts);
+			}
+			for (int p: level){
+				String svName=svList.get(p);
+				Svar svar=svMap.get(svName);
+				if (values[p]==null){
+					svar.setData(new IntDouble(1.0, false));
+				}else{
+					saveSvarValue(svName, svar, values[p]);
 				}
-				if (condition){
-					ArrayList<ValueEvaluatorParser> caseExpressions=svar.caseExpressionParsers;
-					ValueEvaluatorParser caseExpression=caseExpressions.get(i);
-					caseExpression.setParallelVars(prvs);
-					try {
-						caseExpression.evaluator();
-						IntDouble evalValue=caseExpression.evalValue.copyOf();
-						Svar newSvar=new Svar();
-						String newSvName=svName+"__fut__"+prvs.timeArrayIndex;
-						newSvar.setData(evalValue);
-						svFutMap.put(newSvName, newSvar);
-						if (svarUsedByLaterCycle.contains(svName)){
-							if (varTimeArrayCycleValueMap.containsKey(newSvName)){
-								varTimeArrayCycleValueMap.get(newSvName).put(model, evalValue);
-							}else{
-								Map<String, IntDouble> cycleValue = new HashMap<String, IntDouble>();
-								cycleValue.put(model, evalValue);
-								varTimeArrayCycleValueMap.put(newSvName, cycleValue);
-							}
-						}
-						if (varCycleIndexList.contains(svName)){
-							if (varCycleIndexValueMap.containsKey(newSvName)){
-								varCycleIndexValueMap.get(newSvName).put(model, evalValue);
-							}else{
-								Map<String, IntDouble> cycleValue = new HashMap<String, IntDouble>();
-								cycleValue.put(model, evalValue);
-								varCycleIndexValueMap.put(newSvName, cycleValue);
-							}
-						}
-					} catch (RecognitionException e) {
-						Error.addEvaluationError("Case expression evaluation has error.");
-						IntDouble evalValue=new IntDouble(1.0, false);
-						Svar newSvar=new Svar();
-						String newSvName=svName+"__fut__"+prvs.timeArrayIndex;
-						newSvar.setData(evalValue);
-						svFutMap.put(newSvName, newSvar);
-						if (svarUsedByLaterCycle.contains(svName)){
-							if (varTimeArrayCycleValueMap.containsKey(newSvName)){
-								varTimeArrayCycleValueMap.get(newSvName).put(model, evalValue);
-							}else{
-								Map<String, IntDouble> cycleValue = new HashMap<String, IntDouble>();
-								cycleValue.put(model, evalValue);
-								varTimeArrayCycleValueMap.put(newSvName, cycleValue);
-							}
-						}
-						if (varCycleIndexList.contains(svName)){
-							if (varCycleIndexValueMap.containsKey(newSvName)){
-								varCycleIndexValueMap.get(newSvName).put(model, evalValue);
-							}else{
-								Map<String, IntDouble> cycleValue = new HashMap<String, IntDouble>();
-								cycleValue.put(model, evalValue);
-								varCycleIndexValueMap.put(newSvName, cycleValue);
-							}
-						}
-					}
-					caseExpression.reset();
+			}
+		}
+		EvaluationContext.report(contexts);
+	}
+
+	/**
+	 * evaluateSvar through the InvariantSvars of the current model, which
+	 * returns the value of the same calendar key, or else through its
+	 * SvarTracker, which returns the value of the last evaluation if the inputs
+	 * of the svar are the same.
+	 */
+	public static IntDouble evaluateTrackedSvar(String svName, Svar svar, ParallelVars prvs){
+		InvariantSvars invariant=ControlData.currModelDataSet.invariantSvars;
+		if (ControlData.invariantSvars && invariant!=null && invariant.isInvariant(svName)) return invariant.evaluate(svName, svar, prvs);
+		SvarTracker tracker=ControlData.currModelDataSet.svarTracker;
+		if (!ControlData.trackSvars || tracker==null) return evaluateSvar(svar, prvs);
+		return tracker.evaluate(svName, svar, prvs);
+	}
+
+	/**
+	 * @return the value of the first case of the svar whose condition is true,
+	 *         or null if none of the conditions is true
+	 */
+	public static IntDouble evaluateSvar(Svar svar, ParallelVars prvs){
+		ArrayList<ValueEvaluatorParser> caseConditions=svar.caseConditionParsers;
+		boolean condition=false;
+		int i=-1;
+		while(!condition && i<=caseConditions.size()-2){
+			i=i+1;
+			ValueEvaluatorParser caseCondition=caseConditions.get(i);
+			CompiledExpression compiledCondition=svar.caseConditionCompiled.get(i);
+			caseCondition.setParallelVars(prvs);
+			try{
+				if (compiledCondition!=null){
+					condition=compiledCondition.evaluateCondition(prvs);
 				}else{
-					Error.addEvaluationError("None of the case conditions is satisfied.");
-					IntDouble evalValue=new IntDouble(1.0, false);
-					Svar newSvar=new Svar();
-					String newSvName=svName+"__fut__"+prvs.timeArrayIndex;
-					newSvar.setData(evalValue);
-					svFutMap.put(newSvName, newSvar);
+					caseCondition.evaluator();
+					condition=caseCondition.evalCondition;
 				}
+			}catch (Exception e){
+				Error.addEvaluationError("Case condition evaluation has error.");
+				condition=false;
+			}
+			caseCondition.reset();
+		}
+		if (!condition){
+			Error.addEvaluationError("None of the case conditions is satisfied.");
+			return null;
+		}
+		ValueEvaluatorParser caseExpression=svar.caseExpressionParsers.get(i);
+		CompiledExpression compiledExpression=svar.caseExpressionCompiled.get(i);
+		caseExpression.setParallelVars(prvs);
+		IntDouble evalValue;
+		try {
+			if (compiledExpression!=null){
+				evalValue=compiledExpression.evaluateValue(prvs).copyOf();
+			}else{
+				caseExpression.evaluator();
+				evalValue=caseExpression.evalValue.copyOf();
 			}
+		} catch (RecognitionException e) {
+			Error.addEvaluationError("Case expression evaluation has error.");
+			evalValue=new IntDouble(1.0, false);
+		}
+		caseExpression.reset();
+		return evalValue;
+	}
+
+	private void saveSvarValue(String svName, Svar svar, IntDouble evalValue){
+		StudyDataSet sds = ControlData.currStudyDataSet;
+		String model=ControlData.currCycleName;
+		svar.setData(evalValue);
+		if (ControlData.currModelDataSet.svarUsedByLaterCycle.contains(svName)){
+			sds.getVarCycleValueMap().get(svName).put(model, evalValue);
+		}
+		if (sds.getVarCycleIndexList().contains(svName)){
+			putCycleValue(sds.getVarCycleIndexValueMap(), svName, model, evalValue);
+		}
+	}
+
+	private void saveSvarFutureValue(String svName, String newSvName, IntDouble evalValue){
+		StudyDataSet sds = ControlData.currStudyDataSet;
+		String model=ControlData.currCycleName;
+		if (ControlData.currModelDataSet.svarUsedByLaterCycle.contains(svName)){
+			putCycleValue(sds.getVarTimeArrayCycleValueMap(), newSvName, model, evalValue);
+		}
+		if (sds.getVarCycleIndexList().contains(svName)){
+			putCycleValue(sds.getVarCycleIndexValueMap(), newSvName, model, evalValue);
+		}
+	}
+
+	private static void putCycleValue(Map<String, Map<String, IntDouble>> cycleValueMap, String name, String model, IntDouble value){
+		if (cycleValueMap.containsKey(name)){
+			cycleValueMap.get(name).put(model, value);
+		}else{
+			Map<String, IntDouble> cycleValue = new HashMap<String, IntDouble>();
+			cycleValue.put(model, value);
+			cycleValueMap.put(name, cycleValue);
 		}
 	}
 		
@@ -336,8 +415,10 @@ public class ModelDataSet implements Serializable {
 		ArrayList<String> tsList = mds.tsList;
 		Map<String, Timeseries> tsMap =mds.tsMap;
 		ControlData.currEvalTypeIndex=5;
-		ProcessTimeseries pt = new ProcessTimeseries(tsList, tsMap, 0, tsList.size()-1);
+		EvaluationContext[] contexts=new EvaluationContext[tsList.size()];
+		ProcessTimeseries pt = new ProcessTimeseries(tsList, tsMap, contexts, 0, tsList.size()-1);
 		pool.invoke(pt);
+		EvaluationContext.report(contexts);
 	}
 	
 	public void processDvar(){
@@ -354,8 +435,10 @@ public class ModelDataSet implements Serializable {
 		StudyDataSet sds = ControlData.currStudyDataSet;
 		ArrayList<String> varCycleIndexList = sds.getVarCycleIndexList();
 		ArrayList<String> dvarTimeArrayCycleIndexList = sds.getDvarTimeArrayCycleIndexList();
-		ProcessDvar pd = new ProcessDvar(dvList, dvMap, solverDvarMap, timeArrayDvList, dvTimeArrayList, dvarUsedByLaterCycle, dvarTimeArrayUsedByLaterCycle, varCycleIndexList, dvarTimeArrayCycleIndexList, 0, dvList.size()-1);
+		EvaluationContext[] contexts=new EvaluationContext[dvList.size()];
+		ProcessDvar pd = new ProcessDvar(dvList, dvMap, solverDvarMap, timeArrayDvList, dvTimeArrayList, dvarUsedByLaterCycle, dvarTimeArrayUsedByLaterCycle, varCycleIndexList, dvarTimeArrayCycleIndexList, contexts, 0, dvList.size()-1);
 		pool.invoke(pd);
+		EvaluationContext.report(contexts);
 	}
 	
 	public void processGoal(){
@@ -366,8 +449,10 @@ public class ModelDataSet implements Serializable {
 		SolverData.clearConstraintDataMap();
 		ConcurrentHashMap<String, EvalConstraint> solverGMap=SolverData.getConstraintDataMap();
 		gTimeArrayList = new ArrayList<String>();
-		ProcessConstraint pc = new ProcessConstraint(gList, gMap, solverGMap, gTimeArrayList, usedWtSlackSurplusList, usedWtSlackSurplusDvList, 0, gList.size()-1);
+		EvaluationContext[] contexts=new EvaluationContext[gList.size()];
+		ProcessConstraint pc = new ProcessConstraint(gList, gMap, solverGMap, gTimeArrayList, usedWtSlackSurplusList, usedWtSlackSurplusDvList, contexts, 0, gList.size()-1);
 		pool.invoke(pc);
+		EvaluationContext.report(contexts);
 	}
 	
 	public void processAlias(){
@@ -389,12 +474,18 @@ public class ModelDataSet implements Serializable {
 			Alias alias=asMap.get(asName);
 			
 			ValueEvaluatorParser evaluator = alias.expressionParser;
+			CompiledExpression compiledExpression=alias.expressionCompiled;
 			ParallelVars prvs = new ParallelVars();
 			evaluator.setParallelVars(prvs);
 			prvs.timeArrayIndex=0;
 			try {
-				evaluator.evaluator();
-				IntDouble id=evaluator.evalValue;
+				IntDouble id;
+				if (compiledExpression!=null){
+					id=compiledExpression.evaluateValue(prvs);
+				}else{
+					evaluator.evaluator();
+					id=evaluator.evalValue;
+				}
 				alias.data=id.copyOf();
 				if (aliasUsedByLaterCycle.contains(asName)){
 					varCycleValueMap.get(asName).put(model, alias.data);
@@ -421,11 +512,9 @@ public class ModelDataSet implements Serializable {
 				}
 				DssDataSetFixLength ddsfl = DataTimeSeries.dvAliasTS.get(entryNameTS);
 				double[] dataList=ddsfl.getData();
-				//dataList[ControlData.currTimeStep.get(ControlData.currCycleIndex)]=id.getData().doubleValue();
-				//Date memStartDate = new Date(ControlData.memStartYear-1900, ControlData.memStartMonth-1, ControlData.memStartDay);
-				Date currDate =  new Date(ControlData.currYear-1900, ControlData.currMonth-1, ControlData.currDay);
-				int index=TimeOperation.getNumberOfTimestep(ControlData.memStartDate, currDate, ddsfl.getTimeStep())-1;
-				dataList[index]=id.getData().doubleValue();
+				//dataList[ControlData.currTimeStep.get(ControlData.currCycleIndex)]=id.doubleValue();
+				int index=TimeOperation.getNumberOfTimestep(ControlData.memStartDate, ddsfl.getTimeStep())-1;
+				dataList[index]=id.doubleValue();
 				
 				//if (ControlData.outputCycleToDss){
 				HashMap<String, DssDataSetFixLength> dvAliasTSCycle = DataTimeSeries.dvAliasTSCycles.get(ControlData.currCycleIndex);
@@ -440,8 +529,8 @@ public class ModelDataSet implements Serializable {
 					dvAliasTSCycle.put(entryNameTS,dds1);
 				}
 				double[] dataList1=dvAliasTSCycle.get(entryNameTS).getData();
-				//dataList1[ControlData.currTimeStep.get(ControlData.currCycleIndex)]=id.getData().doubleValue();
-				dataList1[index]=id.getData().doubleValue();
+				//dataList1[ControlData.currTimeStep.get(ControlData.currCycleIndex)]=id.doubleValue();
+				dataList1[index]=id.doubleValue();
 				//}
 			} catch (RecognitionException e) {
 				Error.addEvaluationError("Alias evaluation has error.");
@@ -463,9 +552,7 @@ public class ModelDataSet implements Serializable {
 				DssDataSetFixLength ddsfl = DataTimeSeries.dvAliasTS.get(entryNameTS);
 				double[] dataList=ddsfl.getData();
 				//dataList[ControlData.currTimeStep.get(ControlData.currCycleIndex)]=-901.0;
-				//Date memStartDate = new Date(ControlData.memStartYear-1900, ControlData.memStartMonth-1, ControlData.memStartDay);
-				Date currDate =  new Date(ControlData.currYear-1900, ControlData.currMonth-1, ControlData.currDay);
-				int index=TimeOperation.getNumberOfTimestep(ControlData.memStartDate, currDate, ddsfl.getTimeStep())-1;
+				int index=TimeOperation.getNumberOfTimestep(ControlData.memStartDate, ddsfl.getTimeStep())-1;
 				dataList[index]=-901.0;
 				
 				//if (ControlData.outputCycleToDss){
@@ -478,7 +565,7 @@ public class ModelDataSet implements Serializable {
 			evaluator.reset();
 			
 			if (!alias.timeArraySize.equals("0")){
-				String newAsName=asName+"__fut__0";
+				String newAsName=FutureKey.name(asName, 0);
 				String entryNameTS=DssOperation.entryNameTS(newAsName, ControlData.timeStep);
 				if (!DataTimeSeries.dvAliasTS.containsKey(entryNameTS)){
 					DssDataSetFixLength dds=new DssDataSetFixLength(ControlData.totalTimeStep.get(ControlData.currCycleIndex));
@@ -492,11 +579,9 @@ public class ModelDataSet implements Serializable {
 				}
 				DssDataSetFixLength ddsfl = DataTimeSeries.dvAliasTS.get(entryNameTS);
 				double[] dataList=ddsfl.getData();
-				//Date memStartDate = new Date(ControlData.memStartYear-1900, ControlData.memStartMonth-1, ControlData.memStartDay);
-				Date currDate =  new Date(ControlData.currYear-1900, ControlData.currMonth-1, ControlData.currDay);
-				int index=TimeOperation.getNumberOfTimestep(ControlData.memStartDate, currDate, ddsfl.getTimeStep())-1;
-				//dataList[ControlData.currTimeStep.get(ControlData.currCycleIndex)]=alias.data.getData().doubleValue();
-				dataList[index]=alias.data.getData().doubleValue();
+				int index=TimeOperation.getNumberOfTimestep(ControlData.memStartDate, ddsfl.getTimeStep())-1;
+				//dataList[ControlData.currTimeStep.get(ControlData.currCycleIndex)]=alias.data.doubleValue();
+				dataList[index]=alias.data.doubleValue();
 				
 				//if (ControlData.outputCycleToDss){
 				HashMap<String, DssDataSetFixLength> dvAliasTSCycle = DataTimeSeries.dvAliasTSCycles.get(ControlData.currCycleIndex);
@@ -511,17 +596,22 @@ public class ModelDataSet implements Serializable {
 					dvAliasTSCycle.put(entryNameTS,dds1);
 				}
 				double[] dataList1=dvAliasTSCycle.get(entryNameTS).getData();
-				//dataList1[ControlData.currTimeStep.get(ControlData.currCycleIndex)]=alias.data.getData().doubleValue();
-				dataList1[index]=alias.data.getData().doubleValue();
+				//dataList1[ControlData.currTimeStep.get(ControlData.currCycleIndex)]=alias.data.doubleValue();
+				dataList1[index]=alias.data.doubleValue();
 				//}
 			}
 			
-			int timeArraySize=new TimeArray().getTimeArraySize(alias.timeArraySizeParser);
+			int timeArraySize=new TimeArray().getTimeArraySize(alias.timeArraySizeParser, alias.timeArraySizeCompiled);
 			for (prvs.timeArrayIndex=1; prvs.timeArrayIndex<=timeArraySize; prvs.timeArrayIndex++){
-				String newAsName=asName+"__fut__"+prvs.timeArrayIndex;
+				String newAsName=FutureKey.name(asName, prvs.timeArrayIndex);
 				try {
-					evaluator.evaluator();
-					IntDouble id=evaluator.evalValue;
+					IntDouble id;
+					if (compiledExpression!=null){
+						id=compiledExpression.evaluateValue(prvs);
+					}else{
+						evaluator.evaluator();
+						id=evaluator.evalValue;
+					}
 					Alias newAlias=new Alias();
 					newAlias.data=id.copyOf();
 					asFutMap.put(newAsName, newAlias);
@@ -556,11 +646,9 @@ public class ModelDataSet implements Serializable {
 					}
 					DssDataSetFixLength ddsfl = DataTimeSeries.dvAliasTS.get(entryNameTS);
 					double[] dataList=ddsfl.getData();
-					//Date memStartDate = new Date(ControlData.memStartYear-1900, ControlData.memStartMonth-1, ControlData.memStartDay);
-					Date currDate =  new Date(ControlData.currYear-1900, ControlData.currMonth-1, ControlData.currDay);
-					int indext=TimeOperation.getNumberOfTimestep(ControlData.memStartDate, currDate, ddsfl.getTimeStep())-1;
-					//dataList[ControlData.currTimeStep.get(ControlData.currCycleIndex)]=id.getData().doubleValue();
-					dataList[indext]=id.getData().doubleValue();
+					int indext=TimeOperation.getNumberOfTimestep(ControlData.memStartDate, ddsfl.getTimeStep())-1;
+					//dataList[ControlData.currTimeStep.get(ControlData.currCycleIndex)]=id.doubleValue();
+					dataList[indext]=id.doubleValue();
 					
 					//if (ControlData.outputCycleToDss){
 					HashMap<String, DssDataSetFixLength> dvAliasTSCycle = DataTimeSeries.dvAliasTSCycles.get(ControlData.currCycleIndex);
@@ -575,22 +663,22 @@ public class ModelDataSet implements Serializable {
 						dvAliasTSCycle.put(entryNameTS,dds1);
 					}
 					double[] dataList1=dvAliasTSCycle.get(entryNameTS).getData();
-					//dataList1[ControlData.currTimeStep.get(ControlData.currCycleIndex)]=id.getData().doubleValue();
-					dataList1[indext]=id.getData().doubleValue();
+					//dataList1[ControlData.currTimeStep.get(ControlData.currCycleIndex)]=id.doubleValue();
+					dataList1[indext]=id.doubleValue();
 					//}
 					
 					String asEntryNameTS=DssOperation.entryNameTS(asName, ControlData.timeStep);
 					double[] asDataList=DataTimeSeries.dvAliasTS.get(asEntryNameTS).getData();
 					//int index=ControlData.currTimeStep.get(ControlData.currCycleIndex)+ParallelVars.timeArrayIndex;
 					int index=indext+prvs.timeArrayIndex;
-					if (index<asDataList.length) asDataList[index]=id.getData().doubleValue();
+					if (index<asDataList.length) asDataList[index]=id.doubleValue();
 					
 					//if (ControlData.outputCycleToDss){
 					//dvAliasTSCycle = DataTimeSeries.dvAliasTSCycles.get(ControlData.currCycleIndex);
 					double[] asDataList1=dvAliasTSCycle.get(asEntryNameTS).getData();
 					//int index1=ControlData.currTimeStep.get(ControlData.currCycleIndex)+ParallelVars.timeArrayIndex;
 					int index1=indext+prvs.timeArrayIndex;
-					if (index1<asDataList1.length) asDataList1[index1]=id.getData().doubleValue();
+					if (index1<asDataList1.length) asDataList1[index1]=id.doubleValue();
 					//}
 				} catch (RecognitionException e) {
 					Error.addEvaluationError("Alias evaluation has error.");
@@ -618,9 +706,7 @@ public class ModelDataSet implements Serializable {
 					String entryNameTS=DssOperation.entryNameTS(newAsName, ControlData.timeStep);
 					DssDataSetFixLength ddsfl = DataTimeSeries.dvAliasTS.get(entryNameTS);
 					double[] dataList=ddsfl.getData();
-					//Date memStartDate = new Date(ControlData.memStartYear-1900, ControlData.memStartMonth-1, ControlData.memStartDay);
-					Date currDate =  new Date(ControlData.currYear-1900, ControlData.currMonth-1, ControlData.currDay);
-					int indext=TimeOperation.getNumberOfTimestep(ControlData.memStartDate, currDate, ddsfl.getTimeStep())-1;
+					int indext=TimeOperation.getNumberOfTimestep(ControlData.memStartDate, ddsfl.getTimeStep())-1;
 					//dataList[ControlData.currTimeStep.get(ControlData.currCycleIndex)]=-901.0;
 					dataList[indext]=-901.0;
 					
@@ -633,11 +719,21 @@ public class ModelDataSet implements Serializable {
 				}
 				evaluator.reset();
 			}
+			TimeSeriesCache.dvarAlias.invalidate(asName);
 		}
 		long t2 = Calendar.getInstance().getTimeInMillis();
 		ControlData.t_as=ControlData.t_as+(int) (t2-t1);
 	}
 	
+	/**
+	 * @return the variable table of the model, built again if the svar, dvar
+	 *         or alias list has changed
+	 */
+	public VariableTable variableTable(){
+		if (variableTable==null || !variableTable.isCurrent(this)) variableTable=new VariableTable(this);
+		return variableTable;
+	}
+
 	public void clearFutureSvMap(){
 		svFutMap = new HashMap<String, Svar>();
 	}
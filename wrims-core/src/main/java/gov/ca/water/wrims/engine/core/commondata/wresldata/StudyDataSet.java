@@ -7,7 +7,9 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 
+import gov.ca.water.wrims.engine.core.components.Error;
 import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.evaluator.CompiledExpression;
 import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluatorParser;
 
 
@@ -25,6 +27,7 @@ public class StudyDataSet implements Serializable {
 	private ArrayList<String> modelConditionList = new ArrayList<String>();
 	private ArrayList<String> modelTimeStepList = new ArrayList<String>();
 	private ArrayList<ValueEvaluatorParser> modelConditionParsers=new ArrayList<ValueEvaluatorParser>();
+	private ArrayList<CompiledExpression> modelConditionCompiled=new ArrayList<CompiledExpression>();
 	
 	///  < timeseries name, timeseries object > 
 	private Map<String, Timeseries> timeseriesMap = new HashMap<String, Timeseries>();
@@ -35,9 +38,9 @@ public class StudyDataSet implements Serializable {
 
 	/// this map contains value of vars needed for WRESL syntax: varName[cycleName] 
 	/// < VarName, < CycleName, Value >>		
-	private Map<String, Map<String, IntDouble>> varCycleValueMap = new HashMap<String, Map<String, IntDouble>>();
-	private Map<String, Map<String, IntDouble>> varTimeArrayCycleValueMap = new HashMap<String, Map<String, IntDouble>>();
-	private Map<String, Map<String, IntDouble>> varCycleIndexValueMap = new HashMap<String, Map<String, IntDouble>>();
+	private CycleValueMap varCycleValueMap = new CycleValueMap();
+	private CycleValueMap varTimeArrayCycleValueMap = new CycleValueMap();
+	private CycleValueMap varCycleIndexValueMap = new CycleValueMap();
 	private ArrayList<String> varCycleIndexList = new ArrayList<String>();
 	private ArrayList<String> dvarTimeArrayCycleIndexList = new ArrayList<String>();
 	
@@ -115,6 +118,38 @@ public class StudyDataSet implements Serializable {
 	public void setModelConditionParsers(ArrayList<ValueEvaluatorParser> modelConditionParsers) {
 		this.modelConditionParsers=modelConditionParsers;
 	}
+	
+	public ArrayList<CompiledExpression> getModelConditionCompiled() {
+		return modelConditionCompiled;
+	}
+	
+	public void setModelConditionCompiled(ArrayList<CompiledExpression> modelConditionCompiled) {
+		this.modelConditionCompiled=modelConditionCompiled;
+	}
+
+	/**
+	 * Evaluates the condition of the model at the current time step, compiled
+	 * if it is compiled and parsed otherwise. An evaluation error is reported
+	 * and the condition is false.
+	 */
+	public boolean evaluateModelCondition(int modelIndex) {
+		ValueEvaluatorParser modelCondition=modelConditionParsers.get(modelIndex);
+		CompiledExpression compiledCondition=modelConditionCompiled.get(modelIndex);
+		boolean condition=false;
+		try{
+			if (compiledCondition!=null){
+				condition=compiledCondition.evaluateCondition(null);
+			}else{
+				modelCondition.evaluator();
+				condition=modelCondition.evalCondition;
+			}
+		}catch (Exception e){
+			Error.addEvaluationError("Model condition evaluation has error.");
+			condition=false;
+		}
+		modelCondition.reset();
+		return condition;
+	}
 
 	public Map<String, ModelDataSet> getModelDataSetMap() {
 		return new HashMap<String, ModelDataSet>(modelDataSetMap);
@@ -129,7 +164,7 @@ public class StudyDataSet implements Serializable {
 	}
 	
 	public void setVarCycleValueMap(Map<String, Map<String, IntDouble>> varCycleValueMap) {
-		this.varCycleValueMap = varCycleValueMap;
+		this.varCycleValueMap = new CycleValueMap(varCycleValueMap);
 	}
 	
 	public Map<String, Map<String, IntDouble>> getVarTimeArrayCycleValueMap() {
@@ -141,15 +176,15 @@ public class StudyDataSet implements Serializable {
 	}
 	
 	public void setVarCycleIndexValueMap(Map<String, Map<String, IntDouble>> varCycleIndexValueMap) {
-		this.varCycleIndexValueMap = varCycleIndexValueMap;
+		this.varCycleIndexValueMap = new CycleValueMap(varCycleIndexValueMap);
 	}
 	
 	public void clearVarTimeArrayCycleValueMap(){
-		varTimeArrayCycleValueMap=new HashMap<String, Map<String, IntDouble>>();
+		varTimeArrayCycleValueMap.clear();
 	}
 	
 	public void clearVarCycleIndexByTimeStep(){
-		varCycleIndexValueMap = new HashMap<String, Map<String, IntDouble>>();
+		varCycleIndexValueMap.clear();
 		dvarTimeArrayCycleIndexList = new ArrayList<String> ();
 	}
 	
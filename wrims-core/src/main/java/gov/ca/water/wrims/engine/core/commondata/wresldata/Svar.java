@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.Set;
 
 import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.evaluator.CompiledExpression;
 import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluatorParser;
 import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluatorTreeWalker;
 
@@ -36,6 +37,7 @@ public class Svar implements Serializable {
 	// default is zero
 	public String timeArraySize;
 	public ValueEvaluatorParser timeArraySizeParser;
+	public CompiledExpression timeArraySizeCompiled;
 	
 	// These are for: 
 	// (1) normal Svar if timeArraySize=0
@@ -46,9 +48,11 @@ public class Svar implements Serializable {
 	public ArrayList<String> caseName;
 	public ArrayList<String> caseCondition;
 	public ArrayList<ValueEvaluatorParser> caseConditionParsers;
+	public ArrayList<CompiledExpression> caseConditionCompiled;
 	public ArrayList<ValueEvaluatorTreeWalker> caseConditionWalkers;
 	public ArrayList<String> caseExpression;
 	public ArrayList<ValueEvaluatorParser> caseExpressionParsers;
+	public ArrayList<CompiledExpression> caseExpressionCompiled;
 	public ArrayList<ValueEvaluatorTreeWalker> caseExpressionWalkers;
 	
 
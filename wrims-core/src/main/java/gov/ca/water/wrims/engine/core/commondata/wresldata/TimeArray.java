@@ -4,19 +4,29 @@ import org.antlr.runtime.RecognitionException;
 
 import gov.ca.water.wrims.engine.core.components.Error;
 import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.evaluator.CompiledExpression;
 import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluatorParser;
 
 public class TimeArray {
 	public int getTimeArraySize(ValueEvaluatorParser timeArraySizeParser){
+		return getTimeArraySize(timeArraySizeParser, null);
+	}
+	
+	public int getTimeArraySize(ValueEvaluatorParser timeArraySizeParser, CompiledExpression timeArraySizeCompiled){
 		int timeArraySize;
 		try{
-			timeArraySizeParser.evaluator();
-			IntDouble timeArrayEvalValue=timeArraySizeParser.evalValue;
-			timeArraySizeParser.reset();
+			IntDouble timeArrayEvalValue;
+			if (timeArraySizeCompiled!=null){
+				timeArrayEvalValue=timeArraySizeCompiled.evaluateValue(null);
+			}else{
+				timeArraySizeParser.evaluator();
+				timeArrayEvalValue=timeArraySizeParser.evalValue;
+				timeArraySizeParser.reset();
+			}
 			if (!timeArrayEvalValue.isInt()){
 				Error.addEvaluationError("the time array size is not an integer.");
 			}
-			timeArraySize=timeArrayEvalValue.getData().intValue();
+			timeArraySize=timeArrayEvalValue.intValue();
 		}catch(RecognitionException e) {
 			Error.addEvaluationError("weight time array definition has error");
 			timeArraySize=0;
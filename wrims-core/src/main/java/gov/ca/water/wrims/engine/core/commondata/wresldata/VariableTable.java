@@ -0,0 +1,68 @@
+package gov.ca.water.wrims.engine.core.commondata.wresldata;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * The svars, dvars and aliases of one model in arrays, in the order of the
+ * svar, dvar and alias lists, so that the values of a model are cleared
+ * without a map lookup per name. The values stay in the variables, which are
+ * shared with the name maps of the model, so the maps and the debugger see
+ * the same values.
+ */
+public class VariableTable {
+	public final Svar[] svars;
+	public final Dvar[] dvars;
+	public final Alias[] aliases;
+
+	private final ArrayList<String> svList;
+	private final ArrayList<String> dvList;
+	private final ArrayList<String> asList;
+	private final int[] listSizes;
+
+	public VariableTable(ModelDataSet mds){
+		svList=mds.svList;
+		dvList=mds.dvList;
+		asList=mds.asList;
+		listSizes=new int[]{svList.size(), dvList.size(), asList.size()};
+		svars=variables(svList, mds.svMap).toArray(new Svar[0]);
+		dvars=variables(dvList, mds.dvMap).toArray(new Dvar[0]);
+		aliases=variables(asList, mds.asMap).toArray(new Alias[0]);
+	}
+
+	private static <T> ArrayList<T> variables(ArrayList<String> names, Map<String, T> map){
+		ArrayList<T> variables=new ArrayList<T>(names.size());
+		HashSet<String> added=new HashSet<String>(names.size()*2);
+		for (String name: names){
+			T variable=map.get(name);
+			if (variable==null || !added.add(name)) continue;
+			variables.add(variable);
+		}
+		return variables;
+	}
+
+	/**
+	 * Clears the values of all the svars, dvars and aliases of the model.
+	 */
+	public void clear(){
+		for (Dvar dvar: dvars){
+			dvar.data=null;
+		}
+		for (Svar svar: svars){
+			svar.setData(null);
+		}
+		for (Alias alias: aliases){
+			alias.data=null;
+		}
+	}
+
+	/**
+	 * @return true if the lists of the model have not changed since the table
+	 *         was built
+	 */
+	public boolean isCurrent(ModelDataSet mds){
+		return svList==mds.svList && dvList==mds.dvList && asList==mds.asList
+				&& listSizes[0]==svList.size() && listSizes[1]==dvList.size() && listSizes[2]==asList.size();
+	}
+}
@@ -1,6 +1,7 @@
 package gov.ca.water.wrims.engine.core.commondata.wresldata;
 
 import java.io.Serializable;
+import gov.ca.water.wrims.engine.core.evaluator.CompiledExpression;
 import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluatorParser;
 
 
@@ -10,6 +11,7 @@ public class WeightElement implements Serializable {
 	public String weight;
 	public String condition;
 	public ValueEvaluatorParser weightParser;
+	public CompiledExpression weightCompiled;
 	public ValueEvaluatorParser conditionParser;
 	public String fromWresl;
 	public int line=1;
@@ -18,6 +20,7 @@ public class WeightElement implements Serializable {
 	// default is zero
 	public String timeArraySize;
 	public ValueEvaluatorParser timeArraySizeParser;
+	public CompiledExpression timeArraySizeCompiled;
 	
 	public double min=-1;
 	public double max=-1;
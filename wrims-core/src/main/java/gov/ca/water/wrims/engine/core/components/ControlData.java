@@ -178,6 +178,21 @@ public class ControlData {
 	public static Date memStartDate;
 	public static Date prevOutputDate;
 	public static int nThreads=1;
+	public static boolean parallelSvar=false;
+	public static boolean cacheTimeSeriesLookups=true;
+	public static boolean cacheLookupTables=true;
+	public static boolean memoizeExternalFunctions=true;
+	public static boolean batchExternalFunctions=false;
+	public static boolean trackSvars=false;
+	public static boolean verifySvarTracking=false;
+	public static boolean invariantSvars=false;
+	public static boolean pruneVariables=false;
+	public static String pythonRuntime="jep";
+	public static String pythonModules="external_python_process";
+	public static boolean useCompiledExpression=true;
+	public static int compiledChainThreshold=1000;
+	public static boolean dumpCompiledChain=false;
+	public static boolean optimizeExpressions=true;
 	public static boolean unchangeGWRestart=false;
 	public static boolean genSVCatalog=true;
 	public static boolean showTimeUsage=true;
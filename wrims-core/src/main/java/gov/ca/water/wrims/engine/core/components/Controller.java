@@ -16,7 +16,7 @@ import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
 import gov.ca.water.wrims.engine.core.evaluator.AssignPastCycleVariable;
 import gov.ca.water.wrims.engine.core.evaluator.DssOperation;
 import gov.ca.water.wrims.engine.core.evaluator.PreEvaluator;
-import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluatorParser;
+import gov.ca.water.wrims.engine.core.external.PythonRuntimes;
 import gov.ca.water.wrims.engine.core.ilp.ILP;
 import gov.ca.water.wrims.engine.core.solver.LPSolveSolver;
 import gov.ca.water.wrims.engine.core.solver.XASolver;
@@ -212,7 +212,6 @@ public class Controller {
 			System.out.println("Model run exits due to error.");
 			System.exit(1);
 		}
-		ArrayList<ValueEvaluatorParser> modelConditionParsers=sds.getModelConditionParsers();
 		boolean noError=true;
 		VariableTimeStep.initialCurrTimeStep(modelList);
 		VariableTimeStep.initialCycleStartDate();
@@ -234,16 +233,7 @@ public class Controller {
 				VariableTimeStep.setCurrentDate(sds, ControlData.cycleStartDay, ControlData.cycleStartMonth, ControlData.cycleStartYear);
 
 				while(VariableTimeStep.checkEndDate(ControlData.currDay, ControlData.currMonth, ControlData.currYear, ControlData.cycleEndDay, ControlData.cycleEndMonth, ControlData.cycleEndYear)<0 && noError){
-					ValueEvaluatorParser modelCondition=modelConditionParsers.get(i);
-					boolean condition=false;
-					try{
-						modelCondition.evaluator();
-						condition=modelCondition.evalCondition;
-					}catch (Exception e){
-						Error.addEvaluationError("Model condition evaluation has error.");
-						condition=false;
-					}
-					modelCondition.reset();
+					boolean condition=sds.evaluateModelCondition(i);
 					
 					if (condition){				
 						ClearValue.clearCycleLoopValue(modelList, modelDataSetMap);
@@ -308,6 +298,7 @@ public class Controller {
 			DssOperation.writeInitDvarAliasToDSS();
 		}
 		DssOperation.writeDVAliasToDSS();
+		PythonRuntimes.close();
 		ControlData.dvDss.close();
 	}
 
@@ -315,7 +306,6 @@ public class Controller {
 		ArrayList<String> modelList=sds.getModelList();
 		Map<String, ModelDataSet> modelDataSetMap=sds.getModelDataSetMap();
 
-		ArrayList<ValueEvaluatorParser> modelConditionParsers=sds.getModelConditionParsers();
 		boolean noError=true;
 		VariableTimeStep.initialCurrTimeStep(modelList);
 		VariableTimeStep.initialCycleStartDate();
@@ -339,16 +329,7 @@ public class Controller {
 				VariableTimeStep.setCurrentDate(sds, ControlData.cycleStartDay, ControlData.cycleStartMonth, ControlData.cycleStartYear);
 				
 				while(VariableTimeStep.checkEndDate(ControlData.currDay, ControlData.currMonth, ControlData.currYear, ControlData.cycleEndDay, ControlData.cycleEndMonth, ControlData.cycleEndYear)<0 && noError){
-					ValueEvaluatorParser modelCondition=modelConditionParsers.get(i);
-					boolean condition=false;
-					try{
-						modelCondition.evaluator();
-						condition=modelCondition.evalCondition;
-					}catch (Exception e){
-						Error.addEvaluationError("Model condition evaluation has error.");
-						condition=false;
-					}
-					modelCondition.reset();
+					boolean condition=sds.evaluateModelCondition(i);
 				
 					if (condition){
 						ClearValue.clearCycleLoopValue(modelList, modelDataSetMap);
@@ -427,6 +408,7 @@ public class Controller {
 		DssOperation.writeInitDvarAliasToDSS();
 		}
 		DssOperation.writeDVAliasToDSS();
+		PythonRuntimes.close();
 		ControlData.dvDss.close();
 	}
 
@@ -462,7 +444,6 @@ public class Controller {
 			Error.writeErrorLog();
 		}
 		
-		ArrayList<ValueEvaluatorParser> modelConditionParsers=sds.getModelConditionParsers();
 		boolean noError=true;
 		VariableTimeStep.initialCurrTimeStep(modelList);
 		VariableTimeStep.initialCycleStartDate();
@@ -483,16 +464,7 @@ public class Controller {
 				VariableTimeStep.setCurrentDate(sds, ControlData.cycleStartDay, ControlData.cycleStartMonth, ControlData.cycleStartYear);
 				
 				while(VariableTimeStep.checkEndDate(ControlData.currDay, ControlData.currMonth, ControlData.currYear, ControlData.cycleEndDay, ControlData.cycleEndMonth, ControlData.cycleEndYear)<0 && noError){
-					ValueEvaluatorParser modelCondition=modelConditionParsers.get(i);
-					boolean condition=false;
-					try{
-						modelCondition.evaluator();
-						condition=modelCondition.evalCondition;
-					}catch (Exception e){
-						Error.addEvaluationError("Model condition evaluation has error.");
-						condition=false;
-					}
-					modelCondition.reset();
+					boolean condition=sds.evaluateModelCondition(i);
 				
 					if (condition){
 						ClearValue.clearCycleLoopValue(modelList, modelDataSetMap);
@@ -594,6 +566,7 @@ public class Controller {
 		DssOperation.writeInitDvarAliasToDSS();
 		}
 		DssOperation.writeDVAliasToDSS();
+		PythonRuntimes.close();
 		ControlData.dvDss.close();
 	}
 }
\ No newline at end of file
@@ -24,8 +24,8 @@ import gov.ca.water.wrims.engine.core.evaluator.CsvOperation;
 import gov.ca.water.wrims.engine.core.evaluator.DssOperation;
 import gov.ca.water.wrims.engine.core.evaluator.PreEvaluator;
 import gov.ca.water.wrims.engine.core.evaluator.TimeOperation;
-import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluatorParser;
 import gov.ca.water.wrims.engine.core.evaluator.WeightEval;
+import gov.ca.water.wrims.engine.core.external.PythonRuntimes;
 import gov.ca.water.wrims.engine.core.hdf5.HDF5Writer;
 import gov.ca.water.wrims.engine.core.ilp.ILP;
 import gov.ca.water.wrims.engine.core.launch.LaunchConfiguration;
@@ -300,7 +300,6 @@ public class ControllerBatch {
 		TimeOperation.initOutputDate(ControlData.yearOutputSection);
 		TimeOperation.initMemDate(ControlData.monMemSection);
 		
-		ArrayList<ValueEvaluatorParser> modelConditionParsers=sds.getModelConditionParsers();
 		boolean noError=true;
 		VariableTimeStep.initialCurrTimeStep(modelList);
 		VariableTimeStep.initialCycleStartDate();
@@ -324,16 +323,7 @@ public class ControllerBatch {
 				VariableTimeStep.setCurrentDate(sds, ControlData.cycleStartDay, ControlData.cycleStartMonth, ControlData.cycleStartYear);
 				
 				while(VariableTimeStep.checkEndDate(ControlData.currDay, ControlData.currMonth, ControlData.currYear, ControlData.cycleEndDay, ControlData.cycleEndMonth, ControlData.cycleEndYear)<0 && noError){
-					ValueEvaluatorParser modelCondition=modelConditionParsers.get(i);
-					boolean condition=false;
-					try{
-						modelCondition.evaluator();
-						condition=modelCondition.evalCondition;
-					}catch (Exception e){
-						Error.addEvaluationError("Model condition evaluation has error.");
-						condition=false;
-					}
-					modelCondition.reset();
+					boolean condition=sds.evaluateModelCondition(i);
 				
 					if (condition){
 						ClearValue.clearCycleLoopValue(modelList, modelDataSetMap);
@@ -454,6 +444,7 @@ public class ControllerBatch {
 		
 		if (ControlData.yearOutputSection<0 && ControlData.writeInitToDVOutput) DssOperation.writeInitDvarAliasToDSS();
 		if (ControlData.yearOutputSection<0) DssOperation.writeDVAliasToDSS();
+		PythonRuntimes.close();
 		ControlData.dvDss.close();
 		if (ControlData.outputType==1){
 			HDF5Writer.createDvarAliasLookup();
@@ -557,7 +548,6 @@ public class ControllerBatch {
 		TimeOperation.initOutputDate(ControlData.yearOutputSection);
 		TimeOperation.initMemDate(ControlData.monMemSection);
 		
-		ArrayList<ValueEvaluatorParser> modelConditionParsers=sds.getModelConditionParsers();
 		boolean noError=true;
 		VariableTimeStep.initialCurrTimeStep(modelList);
 		VariableTimeStep.initialCycleStartDate();
@@ -584,16 +574,7 @@ public class ControllerBatch {
 				VariableTimeStep.setCurrentDate(sds, ControlData.cycleStartDay, ControlData.cycleStartMonth, ControlData.cycleStartYear);
 				
 				while(VariableTimeStep.checkEndDate(ControlData.currDay, ControlData.currMonth, ControlData.currYear, ControlData.cycleEndDay, ControlData.cycleEndMonth, ControlData.cycleEndYear)<0 && noError){
-					ValueEvaluatorParser modelCondition=modelConditionParsers.get(i);
-					boolean condition=false;
-					try{
-						modelCondition.evaluator();
-						condition=modelCondition.evalCondition;
-					}catch (Exception e){
-						Error.addEvaluationError("Model condition evaluation has error.");
-						condition=false;
-					}
-					modelCondition.reset();
+					boolean condition=sds.evaluateModelCondition(i);
 				
 					if (condition){
 						ClearValue.clearCycleLoopValue(modelList, modelDataSetMap);
@@ -862,6 +843,7 @@ public class ControllerBatch {
 		
 		if (ControlData.yearOutputSection<0 && ControlData.writeInitToDVOutput) DssOperation.writeInitDvarAliasToDSS();
 		if (ControlData.yearOutputSection<0) DssOperation.writeDVAliasToDSS();
+		PythonRuntimes.close();
 		ControlData.dvDss.close();
 		if (ControlData.outputType==1){
 			HDF5Writer.createDvarAliasLookup();
@@ -906,7 +888,6 @@ public class ControllerBatch {
 		ArrayList<String> modelList=sds.getModelList();
 		Map<String, ModelDataSet> modelDataSetMap=sds.getModelDataSetMap();		
 		
-		ArrayList<ValueEvaluatorParser> modelConditionParsers=sds.getModelConditionParsers();
 		boolean noError=true;
 		VariableTimeStep.initialCurrTimeStep(modelList);
 		VariableTimeStep.initialCycleStartDate();
@@ -936,16 +917,7 @@ public class ControllerBatch {
 				VariableTimeStep.setCurrentDate(sds, ControlData.cycleStartDay, ControlData.cycleStartMonth, ControlData.cycleStartYear);
 				
 				while(VariableTimeStep.checkEndDate(ControlData.currDay, ControlData.currMonth, ControlData.currYear, ControlData.cycleEndDay, ControlData.cycleEndMonth, ControlData.cycleEndYear)<0 && noError){
-					ValueEvaluatorParser modelCondition=modelConditionParsers.get(i);
-					boolean condition=false;
-					try{
-						modelCondition.evaluator();
-						condition=modelCondition.evalCondition;
-					}catch (Exception e){
-						Error.addEvaluationError("Model condition evaluation has error.");
-						condition=false;
-					}
-					modelCondition.reset();
+					boolean condition=sds.evaluateModelCondition(i);
 				
 					if (condition){
 						ClearValue.clearCycleLoopValue(modelList, modelDataSetMap);
@@ -1080,6 +1052,7 @@ public class ControllerBatch {
 
 		if (ControlData.yearOutputSection<0 && ControlData.writeInitToDVOutput) DssOperation.writeInitDvarAliasToDSS();
 		if (ControlData.yearOutputSection<0) DssOperation.writeDVAliasToDSS();
+		PythonRuntimes.close();
 		ControlData.dvDss.close();
 		if (ControlData.outputType==1){
 			HDF5Writer.createDvarAliasLookup();
@@ -1176,7 +1149,6 @@ public class ControllerBatch {
 		ArrayList<String> modelList=sds.getModelList();
 		Map<String, ModelDataSet> modelDataSetMap=sds.getModelDataSetMap();		
 		
-		ArrayList<ValueEvaluatorParser> modelConditionParsers=sds.getModelConditionParsers();
 		boolean noError=true;
 		VariableTimeStep.initialCurrTimeStep(modelList);
 		VariableTimeStep.initialCycleStartDate();
@@ -1203,16 +1175,7 @@ public class ControllerBatch {
 				VariableTimeStep.setCurrentDate(sds, ControlData.cycleStartDay, ControlData.cycleStartMonth, ControlData.cycleStartYear);
 				
 				while(VariableTimeStep.checkEndDate(ControlData.currDay, ControlData.currMonth, ControlData.currYear, ControlData.cycleEndDay, ControlData.cycleEndMonth, ControlData.cycleEndYear)<0 && noError){
-					ValueEvaluatorParser modelCondition=modelConditionParsers.get(i);
-					boolean condition=false;
-					try{
-						modelCondition.evaluator();
-						condition=modelCondition.evalCondition;
-					}catch (Exception e){
-						Error.addEvaluationError("Model condition evaluation has error.");
-						condition=false;
-					}
-					modelCondition.reset();
+					boolean condition=sds.evaluateModelCondition(i);
 				
 					if (condition){
 						ClearValue.clearCycleLoopValue(modelList, modelDataSetMap);
@@ -1329,6 +1292,7 @@ public class ControllerBatch {
 			DssOperation.writeInitDvarAliasToDSS();
 		}
 		DssOperation.writeDVAliasToDSS();
+		PythonRuntimes.close();
 		ControlData.dvDss.close();
 		if (ControlData.outputType==1){
 			HDF5Writer.createDvarAliasLookup();
@@ -1357,7 +1321,6 @@ public class ControllerBatch {
 			System.out.println("Model run exits due to error.");
 			System.exit(1);
 		}
-		ArrayList<ValueEvaluatorParser> modelConditionParsers=sds.getModelConditionParsers();
 		boolean noError=true;
 		VariableTimeStep.initialCurrTimeStep(modelList);
 		VariableTimeStep.initialCycleStartDate();
@@ -1384,16 +1347,7 @@ public class ControllerBatch {
 						
 					}
 					
-					ValueEvaluatorParser modelCondition=modelConditionParsers.get(i);
-					boolean condition=false;
-					try{
-						modelCondition.evaluator();
-						condition=modelCondition.evalCondition;
-					}catch (Exception e){
-						Error.addEvaluationError("Model condition evaluation has error.");
-						condition=false;
-					}
-					modelCondition.reset();
+					boolean condition=sds.evaluateModelCondition(i);
 				
 					if (condition){
 						ClearValue.clearCycleLoopValue(modelList, modelDataSetMap);
@@ -1504,6 +1458,7 @@ public class ControllerBatch {
 			DssOperation.writeInitDvarAliasToDSS();
 		}
 		DssOperation.writeDVAliasToDSS();
+		PythonRuntimes.close();
 		ControlData.dvDss.close();
 		if (ControlData.outputType==1){
 			HDF5Writer.createDvarAliasLookup();
@@ -1558,7 +1513,6 @@ public class ControllerBatch {
 		TimeOperation.initOutputDate(ControlData.yearOutputSection);
 		TimeOperation.initMemDate(ControlData.monMemSection);
 		
-		ArrayList<ValueEvaluatorParser> modelConditionParsers=sds.getModelConditionParsers();
 		boolean noError=true;
 		VariableTimeStep.initialCurrTimeStep(modelList);
 		VariableTimeStep.initialCycleStartDate();
@@ -1581,16 +1535,7 @@ public class ControllerBatch {
 				VariableTimeStep.setCurrentDate(sds, ControlData.cycleStartDay, ControlData.cycleStartMonth, ControlData.cycleStartYear);
 				time_marching:
 				while(VariableTimeStep.checkEndDate(ControlData.currDay, ControlData.currMonth, ControlData.currYear, ControlData.cycleEndDay, ControlData.cycleEndMonth, ControlData.cycleEndYear)<0 && noError){
-					ValueEvaluatorParser modelCondition=modelConditionParsers.get(i);
-					boolean condition=false;
-					try{
-						modelCondition.evaluator();
-						condition=modelCondition.evalCondition;
-					}catch (Exception e){
-						Error.addEvaluationError("Model condition evaluation has error.");
-						condition=false;
-					}
-					modelCondition.reset();
+					boolean condition=sds.evaluateModelCondition(i);
 				
 					if (condition){
 						ClearValue.clearCycleLoopValue(modelList, modelDataSetMap);
@@ -1753,6 +1698,7 @@ public class ControllerBatch {
 		
 		if (ControlData.yearOutputSection<0 && ControlData.writeInitToDVOutput) DssOperation.writeInitDvarAliasToDSS();
 		if (ControlData.yearOutputSection<0) DssOperation.writeDVAliasToDSS();
+		PythonRuntimes.close();
 		ControlData.dvDss.close();
 		if (ControlData.outputType==1){
 			HDF5Writer.createDvarAliasLookup();
@@ -32,6 +32,7 @@ import gov.ca.water.wrims.engine.core.evaluator.TimeOperation;
 import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluation;
 import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluatorParser;
 import gov.ca.water.wrims.engine.core.evaluator.WeightEval;
+import gov.ca.water.wrims.engine.core.external.PythonRuntimes;
 import gov.ca.water.wrims.engine.core.hdf5.HDF5Writer;
 import gov.ca.water.wrims.engine.core.ilp.ILP;
 import gov.ca.water.wrims.engine.core.launch.LaunchConfiguration;
@@ -296,7 +297,6 @@ public class ControllerDebug extends Thread {
 		TimeOperation.initOutputDate(ControlData.yearOutputSection);
 		TimeOperation.initMemDate(ControlData.monMemSection);
 		
-		ArrayList<ValueEvaluatorParser> modelConditionParsers=sds.getModelConditionParsers();
 		boolean noError=true;
 		VariableTimeStep.initialCurrTimeStep(modelList);
 		VariableTimeStep.initialCycleStartDate();
@@ -324,16 +324,7 @@ public class ControllerDebug extends Thread {
 				VariableTimeStep.setCurrentDate(sds, ControlData.cycleStartDay, ControlData.cycleStartMonth, ControlData.cycleStartYear);
 				
 				while(VariableTimeStep.checkEndDate(ControlData.currDay, ControlData.currMonth, ControlData.currYear, ControlData.cycleEndDay, ControlData.cycleEndMonth, ControlData.cycleEndYear)<0 && noError && !terminated.get()){
-					ValueEvaluatorParser modelCondition=modelConditionParsers.get(modelIndex);
-					boolean condition=false;
-					try{
-						modelCondition.evaluator();
-						condition=modelCondition.evalCondition;
-					}catch (Exception e){
-						Error.addEvaluationError("Model condition evaluation has error.");
-						condition=false;
-					}
-					modelCondition.reset();
+					boolean condition=sds.evaluateModelCondition(modelIndex);
 				
 					if (condition){
 						ClearValue.clearCycleLoopValue(modelList, modelDataSetMap);
@@ -519,7 +510,6 @@ public class ControllerDebug extends Thread {
 				sds=ControlData.currStudyDataSet;
 				modelList=sds.getModelList();
 				modelDataSetMap=sds.getModelDataSetMap();		
-				modelConditionParsers=sds.getModelConditionParsers();
 				new ReProcessExternal(sds);
 				resetStartDate(sds);
 			}
@@ -527,6 +517,7 @@ public class ControllerDebug extends Thread {
 			VariableTimeStep.setCycleEndDate(sds);
 		}
 		new CloseCurrentSolver(ControlData.solverName);
+		PythonRuntimes.close();
 		
 		if (!terminated.get()) {
 			if (ControlData.yearOutputSection<0 && ControlData.writeInitToDVOutput) DssOperation.writeInitDvarAliasToDSS();
@@ -18,7 +18,7 @@ import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
 import gov.ca.water.wrims.engine.core.evaluator.AssignPastCycleVariable;
 import gov.ca.water.wrims.engine.core.evaluator.DssOperation;
 import gov.ca.water.wrims.engine.core.evaluator.PreEvaluator;
-import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluatorParser;
+import gov.ca.water.wrims.engine.core.external.PythonRuntimes;
 import gov.ca.water.wrims.engine.core.hdf5.HDF5Writer;
 import gov.ca.water.wrims.engine.core.ilp.ILP;
 import gov.ca.water.wrims.engine.core.solver.CbcSolver;
@@ -214,7 +214,6 @@ public class ControllerSG {
 			System.out.println("Model run exits due to error.");
 			System.exit(1);
 		}
-		ArrayList<ValueEvaluatorParser> modelConditionParsers=sds.getModelConditionParsers();
 		boolean noError=true;
 		VariableTimeStep.initialCurrTimeStep(modelList);
 		VariableTimeStep.initialCycleStartDate();
@@ -236,16 +235,7 @@ public class ControllerSG {
 				VariableTimeStep.setCurrentDate(sds, ControlData.cycleStartDay, ControlData.cycleStartMonth, ControlData.cycleStartYear);
 
 				while(VariableTimeStep.checkEndDate(ControlData.currDay, ControlData.currMonth, ControlData.currYear, ControlData.cycleEndDay, ControlData.cycleEndMonth, ControlData.cycleEndYear)<0 && noError){
-					ValueEvaluatorParser modelCondition=modelConditionParsers.get(i);
-					boolean condition=false;
-					try{
-						modelCondition.evaluator();
-						condition=modelCondition.evalCondition;
-					}catch (Exception e){
-						Error.addEvaluationError("Model condition evaluation has error.");
-						condition=false;
-					}
-					modelCondition.reset();
+					boolean condition=sds.evaluateModelCondition(i);
 				
 					if (condition){
 						ClearValue.clearCycleLoopValue(modelList, modelDataSetMap);
@@ -322,6 +312,7 @@ public class ControllerSG {
 			VariableTimeStep.setCycleEndDate(sds);
 		}
 		ControlData.xasolver.close();
+		PythonRuntimes.close();
 		if (ControlData.outputType==1){
 			HDF5Writer.createDvarAliasLookup();
 			HDF5Writer.writeTimestepData();
@@ -346,7 +337,6 @@ public class ControllerSG {
 			System.out.println("Model run exits due to error.");
 			System.exit(1);
 		}
-		ArrayList<ValueEvaluatorParser> modelConditionParsers=sds.getModelConditionParsers();
 		boolean noError=true;
 		VariableTimeStep.initialCurrTimeStep(modelList);
 		VariableTimeStep.initialCycleStartDate();
@@ -368,16 +358,7 @@ public class ControllerSG {
 				VariableTimeStep.setCurrentDate(sds, ControlData.cycleStartDay, ControlData.cycleStartMonth, ControlData.cycleStartYear);
 				
 				while(VariableTimeStep.checkEndDate(ControlData.currDay, ControlData.currMonth, ControlData.currYear, ControlData.cycleEndDay, ControlData.cycleEndMonth, ControlData.cycleEndYear)<0 && noError){
-					ValueEvaluatorParser modelCondition=modelConditionParsers.get(i);
-					boolean condition=false;
-					try{
-						modelCondition.evaluator();
-						condition=modelCondition.evalCondition;
-					}catch (Exception e){
-						Error.addEvaluationError("Model condition evaluation has error.");
-						condition=false;
-					}
-					modelCondition.reset();
+					boolean condition=sds.evaluateModelCondition(i);
 				
 					if (condition){
 						ClearValue.clearCycleLoopValue(modelList, modelDataSetMap);
@@ -591,6 +572,7 @@ public class ControllerSG {
 			VariableTimeStep.setCycleEndDate(sds);
 		}
 		CbcSolver.close(); if (ControlData.cbc_debug_routeXA || ControlData.cbc_debug_routeCbc) {ControlData.xasolver.close();}
+		PythonRuntimes.close();
 		
 		if (ControlData.outputType==1){
 			HDF5Writer.createDvarAliasLookup();
@@ -53,6 +53,7 @@ import gov.ca.water.wrims.engine.core.evaluator.LookUpTable;
 import gov.ca.water.wrims.engine.core.evaluator.PreEvaluator;
 import gov.ca.water.wrims.engine.core.evaluator.TableSeries;
 import gov.ca.water.wrims.engine.core.evaluator.TimeOperation;
+import gov.ca.water.wrims.engine.core.evaluator.TimeSeriesCache;
 import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluation;
 import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluatorLexer;
 import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluatorParser;
@@ -1198,7 +1199,7 @@ public class DebugInterface {
 								if (id==null){
 									hasData=false;
 								}else{
-									double variableValue=id.getData().doubleValue();
+									double variableValue=id.doubleValue();
 									lhs=lhs+value1*variableValue;
 								}
 							}
@@ -1331,7 +1332,7 @@ public class DebugInterface {
 							if (id==null){
 								hasData=false;
 							}else{
-								double variableValue=id.getData().doubleValue();
+								double variableValue=id.doubleValue();
 								lhs=lhs+value1*variableValue;
 							}
 						}
@@ -1416,7 +1417,7 @@ public class DebugInterface {
 									if (id==null){
 										hasData=false;
 									}else{
-										double variableValue=id.getData().doubleValue();
+										double variableValue=id.doubleValue();
 										lhs=lhs+value1*variableValue;
 									}
 								}
@@ -2057,7 +2058,7 @@ public class DebugInterface {
 							if (id==null){
 								hasData=false;
 							}else{
-								double variableValue=id.getData().doubleValue();
+								double variableValue=id.doubleValue();
 								lhs=lhs+value1*variableValue;
 							}
 						}
@@ -2115,18 +2116,18 @@ public class DebugInterface {
 				boolean hasData = true;
 				while (mi.hasNext()){
 					String variable=mi.next();
-					double value1=multiplier.get(variable).getData().doubleValue();
+					double value1=multiplier.get(variable).doubleValue();
 					if (!(variable.startsWith("surplus__") || variable.startsWith("slack__"))){
 						IntDouble id = dvMap.get(variable).getData();
 						if (id ==null){
 							hasData=false;
 						}else{
-							double variableValue=id.getData().doubleValue();
+							double variableValue=id.doubleValue();
 							lhs=lhs+variableValue*value1;
 						}
 					}
 				}
-				double value1=ee.getValue().getData().doubleValue();
+				double value1=ee.getValue().doubleValue();
 				lhs=lhs+value1;
 				if (Math.abs(lhs)<=0.00001 && hasData) goalNames=goalNames+goalName+":";
 			}
@@ -2347,9 +2348,11 @@ public class DebugInterface {
 				ParallelVars prvs = TimeOperation.findTime(index);
 				int tsIndex=ValueEvaluation.timeSeriesIndex(dds, prvs);
 				dataArrayList.set(tsIndex, value);
+				dds.clearExceedanceIndex();
 				isModified=true;
 			}
 		}
+		if (isModified) TimeSeriesCache.clearAll();
 		return isModified;
 	}
 	
@@ -15,6 +15,7 @@ import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Timeseries;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.WeightElement;
 import gov.ca.water.wrims.engine.core.ilp.ILP;
+import gov.ca.water.wrims.engine.core.parallel.EvaluationContext;
 import gov.ca.water.wrims.engine.core.wreslparser.elements.StudyUtils;
 import gov.ca.water.wrims.engine.core.wreslparser.elements.Tools;
 
@@ -146,7 +147,20 @@ public class Error {
 		}
 	}
 	
+	/**
+	 * @return the number of evaluation errors of the current thread so far
+	 */
+	public static int evaluationErrorCount(){
+		EvaluationContext context=EvaluationContext.current();
+		return context==null ? error_evaluation.size() : context.errorCount();
+	}
+
 	public static void addEvaluationError(String error){
+		EvaluationContext context=EvaluationContext.current();
+		if (context!=null){
+			context.addError(error);
+			return;
+		}
 		ModelDataSet mds = ControlData.currModelDataSet;
 		String sourceLocation="";
 		if (ControlData.currEvalTypeIndex == 0){
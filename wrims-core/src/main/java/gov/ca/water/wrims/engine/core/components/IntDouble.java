@@ -1,7 +1,23 @@
 package gov.ca.water.wrims.engine.core.components;
 
+/**
+ * A WRESL value. The number is kept as a tagged long (an int or long value,
+ * or the bits of a float or double); getData() and setData(Number) box and
+ * unbox it for callers that still work with Number. getData() returns a
+ * number of the type setData(Number) was given: Integer, Long, Short, Byte,
+ * Float, or else Double.
+ */
 public class IntDouble{
-	private Number data;
+	private static final byte NONE=0;
+	private static final byte INTEGER=1;
+	private static final byte LONG=2;
+	private static final byte DOUBLE=3;
+	private static final byte FLOAT=4;
+	private static final byte SHORT=5;
+	private static final byte BYTE=6;
+	
+	private byte dataType=NONE;
+	private long bits;
 	private boolean isInteger;
 	private String argName="";
 	private int index;
@@ -10,24 +26,195 @@ public class IntDouble{
 	}
 	
 	public IntDouble(Number value, boolean isInt) {
-		data=value;
+		setData(value);
 		isInteger=isInt;
 		argName="";
 	}
 	
 	public IntDouble(Number value, boolean isInt, String name, int index) {
-		data=value;
+		setData(value);
+		isInteger=isInt;
+		argName=name;
+		this.index=index;
+	}
+	
+	public IntDouble(int value, boolean isInt) {
+		setData(value);
+		isInteger=isInt;
+	}
+	
+	public IntDouble(long value, boolean isInt) {
+		setData(value);
+		isInteger=isInt;
+	}
+	
+	public IntDouble(double value, boolean isInt) {
+		setData(value);
+		isInteger=isInt;
+	}
+	
+	public IntDouble(int value, boolean isInt, String name, int index) {
+		setData(value);
+		isInteger=isInt;
+		argName=name;
+		this.index=index;
+	}
+	
+	public IntDouble(long value, boolean isInt, String name, int index) {
+		setData(value);
+		isInteger=isInt;
+		argName=name;
+		this.index=index;
+	}
+	
+	public IntDouble(double value, boolean isInt, String name, int index) {
+		setData(value);
 		isInteger=isInt;
 		argName=name;
 		this.index=index;
 	}
 	
 	public Number getData(){
-		return data;
+		switch (dataType){
+		case INTEGER:
+			return Integer.valueOf((int)bits);
+		case LONG:
+			return Long.valueOf(bits);
+		case DOUBLE:
+			return Double.valueOf(Double.longBitsToDouble(bits));
+		case FLOAT:
+			return Float.valueOf(Float.intBitsToFloat((int)bits));
+		case SHORT:
+			return Short.valueOf((short)bits);
+		case BYTE:
+			return Byte.valueOf((byte)bits);
+		default:
+			return null;
+		}
 	}
 	
 	public void setData (Number value){
-		data=value;
+		if (value==null){
+			dataType=NONE;
+		}else if (value instanceof Integer){
+			setData(value.intValue());
+		}else if (value instanceof Short){
+			dataType=SHORT;
+			bits=value.shortValue();
+		}else if (value instanceof Byte){
+			dataType=BYTE;
+			bits=value.byteValue();
+		}else if (value instanceof Long){
+			setData(value.longValue());
+		}else if (value instanceof Float){
+			dataType=FLOAT;
+			bits=Float.floatToRawIntBits(value.floatValue());
+		}else{
+			setData(value.doubleValue());
+		}
+	}
+	
+	public void setData (int value){
+		dataType=INTEGER;
+		bits=value;
+	}
+	
+	public void setData (long value){
+		dataType=LONG;
+		bits=value;
+	}
+	
+	public void setData (double value){
+		dataType=DOUBLE;
+		bits=Double.doubleToRawLongBits(value);
+	}
+	
+	/**
+	 * Same as getData().intValue() without boxing.
+	 */
+	public int intValue(){
+		switch (dataType){
+		case INTEGER:
+		case LONG:
+		case SHORT:
+		case BYTE:
+			return (int)bits;
+		case DOUBLE:
+			return (int)Double.longBitsToDouble(bits);
+		case FLOAT:
+			return (int)Float.intBitsToFloat((int)bits);
+		default:
+			throw new NullPointerException("IntDouble has no data.");
+		}
+	}
+	
+	/**
+	 * Same as getData().doubleValue() without boxing.
+	 */
+	public double doubleValue(){
+		switch (dataType){
+		case INTEGER:
+		case LONG:
+		case SHORT:
+		case BYTE:
+			return bits;
+		case DOUBLE:
+			return Double.longBitsToDouble(bits);
+		case FLOAT:
+			return Float.intBitsToFloat((int)bits);
+		default:
+			throw new NullPointerException("IntDouble has no data.");
+		}
+	}
+	
+	/**
+	 * Makes this the value new IntDouble(value, isInt) would be, without a
+	 * name and index. Used by the kernels that write their result to a value
+	 * they own.
+	 *
+	 * @return this
+	 */
+	public IntDouble set(int value, boolean isInt){
+		setData(value);
+		isInteger=isInt;
+		argName="";
+		index=0;
+		return this;
+	}
+	
+	/**
+	 * Same as set(int, boolean) for a double value.
+	 */
+	public IntDouble set(double value, boolean isInt){
+		setData(value);
+		isInteger=isInt;
+		argName="";
+		index=0;
+		return this;
+	}
+	
+	/**
+	 * @return getData().toString() without boxing the number
+	 */
+	public String dataString(){
+		switch (dataType){
+		case INTEGER:
+		case SHORT:
+		case BYTE:
+			return Integer.toString((int)bits);
+		case LONG:
+			return Long.toString(bits);
+		case DOUBLE:
+			return Double.toString(Double.longBitsToDouble(bits));
+		case FLOAT:
+			return Float.toString(Float.intBitsToFloat((int)bits));
+		default:
+			throw new NullPointerException("IntDouble has no data.");
+		}
+	}
+	
+	public boolean hasData(){
+		return dataType!=NONE;
 	}
 	
 	public boolean isInt(){
@@ -41,13 +228,26 @@ public class IntDouble{
 	public IntDouble copyOf(){
 		IntDouble newIntDouble;
 		if (isInteger){
-			newIntDouble= new IntDouble(data.intValue(), isInteger);
+			newIntDouble= new IntDouble(intValue(), isInteger);
 		}else{
-			newIntDouble= new IntDouble(data.doubleValue(), isInteger);
+			newIntDouble= new IntDouble(doubleValue(), isInteger);
 		}
 		return newIntDouble;
 	}
 	
+	/**
+	 * Same as new IntDouble(getData(), isInt(), name, index) without boxing.
+	 */
+	public IntDouble copyWithName(String name, int index){
+		IntDouble newIntDouble=new IntDouble();
+		newIntDouble.dataType=dataType;
+		newIntDouble.bits=bits;
+		newIntDouble.isInteger=isInteger;
+		newIntDouble.argName=name;
+		newIntDouble.index=index;
+		return newIntDouble;
+	}
+	
 	public String getName(){
 		return argName;
 	}
@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import gov.ca.water.wrims.engine.core.commondata.wresldata.External;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
@@ -32,6 +33,8 @@ import gov.ca.water.wrims.engine.core.evaluator.DataTimeSeries;
 import gov.ca.water.wrims.engine.core.evaluator.DssDataSetFixLength;
 import gov.ca.water.wrims.engine.core.evaluator.DssOperation;
 import gov.ca.water.wrims.engine.core.evaluator.TimeOperation;
+import gov.ca.water.wrims.engine.core.evaluator.TimeSeriesCache;
+import gov.ca.water.wrims.engine.core.external.ExternalFunctions;
 import gov.ca.water.wrims.engine.core.external.LoadAllDll;
 import gov.ca.water.wrims.engine.core.hdf5.HDF5Reader;
 import gov.ca.water.wrims.engine.core.hdf5.HDF5Writer;
@@ -116,7 +119,9 @@ public class PreRunModel {
 			processExternal();
 		}
 		new LoadAllDll(ControlData.allDll);
+		ExternalFunctions.bindAll(new TreeSet<String>(ControlData.allExternalFunction.keySet()));
 		System.out.println("Loading dlls done");
+		if (ControlData.pruneVariables) new PruneVariables(sds);
 
 		if (ControlData.outputType==1){
 			System.out.println("Create HDF5 output data structure.");
@@ -155,6 +160,7 @@ public class PreRunModel {
 
 	public void	initialDvarAliasTS(){
 		DataTimeSeries.dvAliasTS=new HashMap<String, DssDataSetFixLength>();
+		TimeSeriesCache.clearAll();
 		//if (ControlData.outputCycleToDss) {
 		ControlData.cycleDataStartYear=ControlData.startYear;
 		ControlData.cycleDataStartMonth=ControlData.startMonth;
@@ -0,0 +1,281 @@
+package gov.ca.water.wrims.engine.core.components;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.Token;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Alias;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Goal;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.WeightElement;
+import gov.ca.water.wrims.engine.core.evaluator.CompiledExpression;
+import gov.ca.water.wrims.engine.core.evaluator.DssOperation;
+import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluatorLexer;
+import gov.ca.water.wrims.engine.core.evaluator.ValueNode;
+import gov.ca.water.wrims.engine.core.ilp.ILP;
+
+/**
+ * Removes from svList and asList of each model the svars and aliases that
+ * nothing of the run reads. A model keeps the variables named in its goals,
+ * dvars and weights, the aliases written to the output, the variables used by
+ * other cycles or by the model conditions, the svars and aliases that call
+ * external functions, and the variables these read. The variables read are
+ * those of the dependency sets of the WRESL compiler and of the expressions
+ * compiled by PreEvaluator; an expression that is not compiled is split into
+ * its identifier tokens. The variables stay in the model maps and the removed
+ * ones are listed in Pruned_Variables.txt.
+ *
+ * Svars are kept when their values are written, to HDF5 or to the ILP files,
+ * and aliases are kept unless the output is a DSS file limited by the output
+ * variable file and the aliases are not sent to the solver as dvars.
+ */
+public class PruneVariables {
+	private int nSvars=0;
+	private int nAliases=0;
+	private int nPrunedSvars=0;
+	private int nPrunedAliases=0;
+
+	public PruneVariables(StudyDataSet sds){
+		boolean pruneSvars=ControlData.outputType!=1 && !ILP.logging && !ILP.loggingVariableValue;
+		boolean pruneAliases=ControlData.outputType==0 && ControlData.ovOption!=0 && !ControlData.sendAliasToDvar && !ILP.loggingVariableValue;
+		if (!pruneSvars && !pruneAliases){
+			System.out.println("Variable pruning: all the svars and aliases are output.");
+			return;
+		}
+
+		ArrayList<String> modelList=sds.getModelList();
+		Map<String, ModelDataSet> modelDataSetMap=sds.getModelDataSetMap();
+		HashSet<String> study=new HashSet<String>();
+		for (String model: modelList){
+			ModelDataSet mds=modelDataSetMap.get(model);
+			study.addAll(mds.varUsedByLaterCycle);
+			study.addAll(mds.svarUsedByLaterCycle);
+			study.addAll(mds.aliasUsedByLaterCycle);
+			study.addAll(mds.dvarUsedByLaterCycle);
+			study.addAll(mds.dvarTimeArrayUsedByLaterCycle);
+		}
+		study.addAll(sds.getVarCycleValueMap().keySet());
+		study.addAll(sds.getVarCycleIndexList());
+		addReads(study, sds.getModelConditionCompiled(), sds.getModelConditionList());
+
+		try{
+			PrintWriter out=new PrintWriter(new FileWriter(FilePaths.mainDirectory+"Pruned_Variables.txt"));
+			for (String model: modelList){
+				prune(model, modelDataSetMap.get(model), study, pruneSvars, pruneAliases, out);
+			}
+			out.close();
+		} catch (IOException e){
+			e.printStackTrace();
+		}
+		System.out.println("Variable pruning: removed "+nPrunedSvars+" of "+nSvars+" svars and "+nPrunedAliases+" of "+nAliases+" aliases.");
+	}
+
+	private void prune(String model, ModelDataSet mds, HashSet<String> study, boolean pruneSvars, boolean pruneAliases, PrintWriter out){
+		HashSet<String> externals=new HashSet<String>(mds.exList);
+		externals.addAll(ControlData.allExternalFunction.keySet());
+		HashSet<String> roots=new HashSet<String>(study);
+		for (String gName: mds.gList){
+			Goal goal=mds.gMap.get(gName);
+			addNames(roots, goal.expressionDependants);
+			addNames(roots, goal.neededVarInCycleSet);
+			addReads(roots, goal.caseConditionCompiled, goal.caseCondition);
+			addTokens(roots, goal.lhs);
+			addTokens(roots, goal.caseExpression);
+			addNames(roots, goal.dvarName);
+			addTokens(roots, goal.dvarWeight);
+			addReads(roots, goal.timeArraySizeCompiled, goal.timeArraySize);
+			if (goal.dvarWeightMapList!=null){
+				for (Map<String, String> dvarWeightMap: goal.dvarWeightMapList){
+					if (dvarWeightMap==null) continue;
+					addNames(roots, dvarWeightMap.keySet());
+					addTokens(roots, dvarWeightMap.values());
+				}
+			}
+		}
+		for (String dvName: mds.dvList){
+			Dvar dvar=mds.dvMap.get(dvName);
+			addNames(roots, dvar.dependants);
+			addReads(roots, dvar.lowerBoundCompiled, dvar.lowerBound);
+			addReads(roots, dvar.upperBoundCompiled, dvar.upperBound);
+			addTokens(roots, dvar.condition);
+			addTokens(roots, dvar.expression);
+			addReads(roots, dvar.timeArraySizeCompiled, dvar.timeArraySize);
+		}
+		addWeights(roots, mds.wtMap.values());
+		addWeights(roots, mds.wtSlackSurplusMap.values());
+		for (String svName: mds.svList){
+			if (!pruneSvars || callsExternal(mds.svMap.get(svName), externals)) roots.add(svName);
+		}
+		for (String asName: mds.asList){
+			Alias alias=mds.asMap.get(asName);
+			if (!pruneAliases || alias.kind==null || DssOperation.isToWrite(asName, alias.kind) || callsExternal(alias, externals)) roots.add(asName);
+		}
+
+		HashSet<String> used=new HashSet<String>();
+		ArrayDeque<String> names=new ArrayDeque<String>(roots);
+		while (!names.isEmpty()){
+			String name=names.poll();
+			if (!used.add(name)) continue;
+			HashSet<String> read=new HashSet<String>();
+			Svar svar=mds.svMap.get(name);
+			if (svar!=null) addNames(read, svar);
+			Alias alias=mds.asMap.get(name);
+			if (alias!=null) addNames(read, alias);
+			for (String readName: read){
+				if (!used.contains(readName)) names.add(readName);
+			}
+		}
+
+		nSvars=nSvars+mds.svList.size();
+		nAliases=nAliases+mds.asList.size();
+		if (pruneSvars){
+			ArrayList<String> pruned=removeUnused(mds.svList, used);
+			nPrunedSvars=nPrunedSvars+pruned.size();
+			for (String svName: pruned){
+				out.println(model+", svar, "+svName);
+			}
+		}
+		if (pruneAliases){
+			ArrayList<String> pruned=removeUnused(mds.asList, used);
+			nPrunedAliases=nPrunedAliases+pruned.size();
+			for (String asName: pruned){
+				out.println(model+", alias, "+asName);
+			}
+		}
+	}
+
+	private static ArrayList<String> removeUnused(ArrayList<String> list, HashSet<String> used){
+		ArrayList<String> pruned=new ArrayList<String>();
+		ArrayList<String> kept=new ArrayList<String>(list.size());
+		for (String name: list){
+			if (used.contains(name)){
+				kept.add(name);
+			}else{
+				pruned.add(name);
+			}
+		}
+		if (!pruned.isEmpty()){
+			list.clear();
+			list.addAll(kept);
+		}
+		return pruned;
+	}
+
+	private static boolean callsExternal(Svar svar, HashSet<String> externals){
+		HashSet<String> read=new HashSet<String>();
+		addNames(read, svar);
+		read.retainAll(externals);
+		return !read.isEmpty();
+	}
+
+	private static boolean callsExternal(Alias alias, HashSet<String> externals){
+		HashSet<String> read=new HashSet<String>();
+		addNames(read, alias);
+		read.retainAll(externals);
+		return !read.isEmpty();
+	}
+
+	private static void addNames(HashSet<String> names, Svar svar){
+		addNames(names, svar.dependants);
+		addNames(names, svar.neededVarInCycleSet);
+		addReads(names, svar.caseConditionCompiled, svar.caseCondition);
+		addReads(names, svar.caseExpressionCompiled, svar.caseExpression);
+		addReads(names, svar.timeArraySizeCompiled, svar.timeArraySize);
+		if (svar.timeMap_caseCondition!=null){
+			for (ArrayList<String> texts: svar.timeMap_caseCondition.values()) addTokens(names, texts);
+		}
+		if (svar.timeMap_caseExpression!=null){
+			for (ArrayList<String> texts: svar.timeMap_caseExpression.values()) addTokens(names, texts);
+		}
+	}
+
+	private static void addNames(HashSet<String> names, Alias alias){
+		addNames(names, alias.dependants);
+		addNames(names, alias.neededVarInCycleSet);
+		addReads(names, alias.expressionCompiled, alias.expression);
+		addTokens(names, alias.condition);
+		addReads(names, alias.timeArraySizeCompiled, alias.timeArraySize);
+	}
+
+	private static void addWeights(HashSet<String> names, Collection<WeightElement> weights){
+		for (WeightElement weight: weights){
+			addReads(names, weight.weightCompiled, weight.weight);
+			addTokens(names, weight.condition);
+			addReads(names, weight.timeArraySizeCompiled, weight.timeArraySize);
+		}
+	}
+
+	/**
+	 * Adds the names of a dependency set, in lower case and as written.
+	 */
+	private static void addNames(HashSet<String> names, Collection<String> dependants){
+		if (dependants==null) return;
+		for (String name: dependants){
+			names.add(name);
+			names.add(name.toLowerCase());
+		}
+	}
+
+	private static void addReads(HashSet<String> names, ArrayList<CompiledExpression> expressions, ArrayList<String> texts){
+		if (texts==null) return;
+		for (int i=0; i<texts.size(); i++){
+			CompiledExpression expression = expressions!=null && i<expressions.size() ? expressions.get(i) : null;
+			addReads(names, expression, texts.get(i));
+		}
+	}
+
+	/**
+	 * Adds the names read by the compiled expression, or the identifier tokens
+	 * of the text if it is not compiled. The other texts of the nodes are table
+	 * columns, cycle names and constants.
+	 */
+	private static void addReads(HashSet<String> names, CompiledExpression expression, String text){
+		if (expression==null){
+			addTokens(names, text);
+		}else{
+			addReads(names, expression.node);
+		}
+	}
+
+	private static void addReads(HashSet<String> names, ValueNode node){
+		if (node.text!=null) addName(names, node.text);
+		if (node.shared!=null) addReads(names, node.shared.node);
+		for (ValueNode child: node.children){
+			addReads(names, child);
+		}
+	}
+
+	private static void addTokens(HashSet<String> names, Collection<String> texts){
+		if (texts==null) return;
+		for (String text: texts){
+			addTokens(names, text);
+		}
+	}
+
+	/**
+	 * Adds the identifier tokens of the text, in lower case and as written.
+	 */
+	private static void addTokens(HashSet<String> names, String text){
+		if (text==null) return;
+		ValueEvaluatorLexer lexer=new ValueEvaluatorLexer(new ANTLRStringStream(text));
+		for (Token token=lexer.nextToken(); token.getType()!=Token.EOF; token=lexer.nextToken()){
+			if (token.getType()==ValueEvaluatorLexer.IDENT) addName(names, token.getText());
+		}
+	}
+
+	private static void addName(HashSet<String> names, String name){
+		names.add(name);
+		names.add(name.toLowerCase());
+	}
+}
@@ -4,6 +4,11 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import gov.ca.water.wrims.engine.core.evaluator.InvariantSvars;
+import gov.ca.water.wrims.engine.core.evaluator.SvarTracker;
+import gov.ca.water.wrims.engine.core.evaluator.TimeSeriesCache;
+import gov.ca.water.wrims.engine.core.external.ExternalBatch;
+import gov.ca.water.wrims.engine.core.external.MemoizedFunction;
 import gov.ca.water.wrims.engine.core.ilp.ILP;
 
 public class TimeUsage {
@@ -39,6 +44,17 @@ public class TimeUsage {
 		System.out.println("ANN Get NDO X2 Number of Calls: "+ControlData.n_anngetndo_x2);
 		System.out.println("ANN Get NDO X2 Split Time Usage: "+ControlData.t_anngetndo_x2_curmonndosplit/60000+"min "+Math.round((ControlData.t_anngetndo_x2_curmonndosplit/60000.0-ControlData.t_anngetndo_x2_curmonndosplit/60000)*60)+"sec");
 		System.out.println("ANN Get NDO X2 Split Number of Calls: "+ControlData.n_anngetndo_x2_curmonndosplit);
+		System.out.println("Timeseries Lookup Cache Hits: "+TimeSeriesCache.hits.sum());
+		System.out.println("Timeseries Lookup Cache Misses: "+TimeSeriesCache.misses.sum());
+		System.out.println("External Function Memo Hits: "+MemoizedFunction.hits.sum());
+		System.out.println("External Function Memo Misses: "+MemoizedFunction.misses.sum());
+		System.out.println("External Function Memo Hit Rate: "+memoHitRate());
+		System.out.println("External Function Batches: "+ExternalBatch.batches.sum());
+		System.out.println("External Function Batched Calls: "+ExternalBatch.batchedCalls.sum());
+		System.out.println("Tracked Svars Evaluated: "+SvarTracker.evaluated.sum());
+		System.out.println("Tracked Svars Kept: "+SvarTracker.skipped.sum());
+		System.out.println("Invariant Svars Evaluated: "+InvariantSvars.evaluated.sum());
+		System.out.println("Invariant Svars Served: "+InvariantSvars.served.sum());
 		Iterator<String> it = cpuTimeMap.keySet().iterator();
 		while (it.hasNext()){
 			String pi=it.next();
@@ -77,6 +93,17 @@ public class TimeUsage {
 		ILP.writeNoteLn("ANN Get NDO X2 Number of Calls", String.valueOf(ControlData.n_anngetndo_x2), ILP._noteFile_timeusage);
 		ILP.writeNoteLn("ANN Get NDO X2 Split Time Usage", ControlData.t_anngetndo_x2_curmonndosplit/60000+"min "+Math.round((ControlData.t_anngetndo_x2_curmonndosplit/60000.0-ControlData.t_anngetndo_x2_curmonndosplit/60000)*60)+"sec", ILP._noteFile_timeusage);
 		ILP.writeNoteLn("ANN Get NDO X2 Split Number of Calls", String.valueOf(ControlData.n_anngetndo_x2_curmonndosplit), ILP._noteFile_timeusage);
+		ILP.writeNoteLn("Timeseries Lookup Cache Hits", String.valueOf(TimeSeriesCache.hits.sum()), ILP._noteFile_timeusage);
+		ILP.writeNoteLn("Timeseries Lookup Cache Misses", String.valueOf(TimeSeriesCache.misses.sum()), ILP._noteFile_timeusage);
+		ILP.writeNoteLn("External Function Memo Hits", String.valueOf(MemoizedFunction.hits.sum()), ILP._noteFile_timeusage);
+		ILP.writeNoteLn("External Function Memo Misses", String.valueOf(MemoizedFunction.misses.sum()), ILP._noteFile_timeusage);
+		ILP.writeNoteLn("External Function Memo Hit Rate", memoHitRate(), ILP._noteFile_timeusage);
+		ILP.writeNoteLn("External Function Batches", String.valueOf(ExternalBatch.batches.sum()), ILP._noteFile_timeusage);
+		ILP.writeNoteLn("External Function Batched Calls", String.valueOf(ExternalBatch.batchedCalls.sum()), ILP._noteFile_timeusage);
+		ILP.writeNoteLn("Tracked Svars Evaluated", String.valueOf(SvarTracker.evaluated.sum()), ILP._noteFile_timeusage);
+		ILP.writeNoteLn("Tracked Svars Kept", String.valueOf(SvarTracker.skipped.sum()), ILP._noteFile_timeusage);
+		ILP.writeNoteLn("Invariant Svars Evaluated", String.valueOf(InvariantSvars.evaluated.sum()), ILP._noteFile_timeusage);
+		ILP.writeNoteLn("Invariant Svars Served", String.valueOf(InvariantSvars.served.sum()), ILP._noteFile_timeusage);
 		it = cpuTimeMap.keySet().iterator();
 		while (it.hasNext()){
 			String pi=it.next();
@@ -88,5 +115,11 @@ public class TimeUsage {
 			}
 		}
 	}
-	
+
+	private static String memoHitRate(){
+		long hits=MemoizedFunction.hits.sum();
+		long calls=hits+MemoizedFunction.misses.sum();
+		if (calls==0) return "0%";
+		return Math.round(hits*1000.0/calls)/10.0+"%";
+	}
 }
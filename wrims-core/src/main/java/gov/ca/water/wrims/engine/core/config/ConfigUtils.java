@@ -1029,6 +1029,74 @@ public class ConfigUtils {
         ControlData.isNameSorting = readBoolean(configMap, k, false);
         logValue(k, ControlData.isNameSorting);
 
+        k = "CompiledExpression"; //default is true
+        ControlData.useCompiledExpression = readBoolean(configMap, k, true);
+        logValue(k, ControlData.useCompiledExpression);
+
+        k = "CompiledChainThreshold"; //default is 1000, 0 keeps case chains interpreted
+        ControlData.compiledChainThreshold = (int)Math.round(readDouble(configMap, k, 1000));
+        logValue(k, ControlData.compiledChainThreshold);
+
+        k = "CompiledChainDump"; //default is false
+        ControlData.dumpCompiledChain = readBoolean(configMap, k, false);
+        logValue(k, ControlData.dumpCompiledChain);
+
+        k = "ExpressionOptimization"; //default is true
+        ControlData.optimizeExpressions = readBoolean(configMap, k, true);
+        logValue(k, ControlData.optimizeExpressions);
+
+        k = "NumberOfThreads"; //default is 1, the number of tasks the variables of a model are evaluated in
+        ControlData.nThreads = Math.max(1, (int)Math.round(readDouble(configMap, k, 1)));
+        logValue(k, ControlData.nThreads);
+
+        k = "ParallelSvar"; //default is false, svars are evaluated in parallel if the number of threads is more than 1
+        ControlData.parallelSvar = readBoolean(configMap, k, false);
+        logValue(k, ControlData.parallelSvar);
+
+        k = "TimeseriesLookupCache"; //default is true
+        ControlData.cacheTimeSeriesLookups = readBoolean(configMap, k, true);
+        logValue(k, ControlData.cacheTimeSeriesLookups);
+
+        k = "LookupTableCache"; //default is true, keeps the parsed lookup tables in lookup/cache of the run folder
+        ControlData.cacheLookupTables = readBoolean(configMap, k, true);
+        logValue(k, ControlData.cacheLookupTables);
+
+        k = "ExternalFunctionMemo"; //default is true, reuses the results of pure external functions in a cycle
+        ControlData.memoizeExternalFunctions = readBoolean(configMap, k, true);
+        logValue(k, ControlData.memoizeExternalFunctions);
+
+        k = "ExternalFunctionBatch"; //default is false, evaluates the surrogate calls of a time array svar in one batch
+        ControlData.batchExternalFunctions = readBoolean(configMap, k, false);
+        logValue(k, ControlData.batchExternalFunctions);
+
+        k = "SvarTracking"; //default is false, keeps the value of an svar whose inputs have not changed
+        ControlData.trackSvars = readBoolean(configMap, k, false);
+        logValue(k, ControlData.trackSvars);
+
+        k = "SvarTrackingVerify"; //default is false, evaluates the tracked svars anyway and reports a changed value as an error
+        ControlData.verifySvarTracking = readBoolean(configMap, k, false);
+        logValue(k, ControlData.verifySvarTracking);
+
+        k = "InvariantSvars"; //default is false, evaluates the svars that only depend on the month and day once per calendar key
+        ControlData.invariantSvars = readBoolean(configMap, k, false);
+        logValue(k, ControlData.invariantSvars);
+
+        k = "PruneVariables"; //default is false, skips the svars and aliases that are not read or output, listed in Pruned_Variables.txt
+        ControlData.pruneVariables = readBoolean(configMap, k, false);
+        logValue(k, ControlData.pruneVariables);
+
+        k = "pythonruntime"; //default is jep, or graalpy, the interpreter of the Python external functions
+        if (configMap.containsKey(k)){
+            ControlData.pythonRuntime = configMap.get(k);
+        }
+        logValue("PythonRuntime", ControlData.pythonRuntime);
+
+        k = "pythonmodules"; //default is external_python_process, the modules imported when an interpreter is made
+        if (configMap.containsKey(k)){
+            ControlData.pythonModules = configMap.get(k);
+        }
+        logValue("PythonModules", ControlData.pythonModules);
+
         k = "YearOutputSection";
         ControlData.yearOutputSection = (int)Math.round(readDouble(configMap, k, -1));
         logValue(k, ControlData.yearOutputSection);
@@ -2,11 +2,13 @@ package gov.ca.water.wrims.engine.core.debug;
 
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.TreeSet;
 
 import gov.ca.water.wrims.engine.core.commondata.wresldata.External;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
 import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.external.ExternalFunctions;
 import gov.ca.water.wrims.engine.core.external.LoadAllDll;
 
 public class ReProcessExternal {
@@ -39,5 +41,6 @@ public class ReProcessExternal {
 			}
 		}
 		new LoadAllDll(ControlData.allDll);
+		ExternalFunctions.bindAll(new TreeSet<String>(ControlData.allExternalFunction.keySet()));
 	}
 }
@@ -1,110 +1,51 @@
 package gov.ca.water.wrims.engine.core.evaluator;
 
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
 
-import gov.ca.water.wrims.engine.core.commondata.wresldata.Alias;
-import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
-import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
 import gov.ca.water.wrims.engine.core.components.ControlData;
 import gov.ca.water.wrims.engine.core.components.IntDouble;
 
 public class AssignPastCycleVariable {
 	
-	private ArrayList<String> modelList;
-	private Map<String, ModelDataSet> mdsMap;
 	private Map<String, Map<String, IntDouble>> varCycleValueMap;
 	private String cycleName;
+	private PastCycleLinks links;
 	
 
 	public AssignPastCycleVariable(){
 		StudyDataSet sds = ControlData.currStudyDataSet;
-		mdsMap=sds.getModelDataSetMap();
-		modelList=sds.getModelList();
 		varCycleValueMap=sds.getVarCycleValueMap();
 		cycleName=ControlData.currCycleName;
 		
+		ModelDataSet mds = ControlData.currModelDataSet;
+		links=mds.pastCycleLinks;
+		if (links==null || !links.isCurrent(mds, ControlData.currCycleIndex)){
+			links=new PastCycleLinks(mds, sds.getModelDataSetMap(), sds.getModelList(), ControlData.currCycleIndex);
+			mds.pastCycleLinks=links;
+		}
+		
 		assignSvar();
 		assignAlias();
 		assignDvar();
 	}
 	
 	public void assignSvar(){
-		Set<String> svarUsedByLaterCycle = ControlData.currModelDataSet.svarUsedByLaterCycle;
-		Iterator iterator = svarUsedByLaterCycle.iterator();
-		while (iterator.hasNext()){
-			String svName=(String)iterator.next();
-			boolean isAssigned=false;
-			int i=ControlData.currCycleIndex-1;
-			while (!isAssigned && i>=0){
-				ModelDataSet mds = mdsMap.get(modelList.get(i));
-				Map<String, Svar> svMap = mds.svMap;
-				if (svMap.containsKey(svName)){
-					IntDouble id=svMap.get(svName).getData();
-					if (id !=null){
-						varCycleValueMap.get(svName).put(cycleName, id);
-						isAssigned=true;
-					}
-				}
-				i=i-1;
-			}
-			if (!isAssigned){
-				varCycleValueMap.get(svName).put(cycleName, null);
-			}
+		for (int k=0; k<links.svarNames.length; k++){
+			varCycleValueMap.get(links.svarNames[k]).put(cycleName, PastCycleLinks.svarValue(links.svars[k]));
 		}
 	}
 	
 	public void assignAlias(){
-		Set<String> aliasUsedByLaterCycle = ControlData.currModelDataSet.aliasUsedByLaterCycle;
-		Iterator iterator = aliasUsedByLaterCycle.iterator();
-		while (iterator.hasNext()){
-			String asName=(String)iterator.next();
-			boolean isAssigned=false;
-			int i=ControlData.currCycleIndex-1;
-			while (!isAssigned && i>=0){
-				ModelDataSet mds = mdsMap.get(modelList.get(i));
-				Map<String, Alias> asMap = mds.asMap;
-				if (asMap.containsKey(asName)){
-					IntDouble id=asMap.get(asName).getData();
-					if (id !=null){
-						varCycleValueMap.get(asName).put(cycleName, id);
-						isAssigned=true;
-					}
-				}
-				i=i-1;
-			}
-			if (!isAssigned){
-				varCycleValueMap.get(asName).put(cycleName, null);
-			}
+		for (int k=0; k<links.aliasNames.length; k++){
+			varCycleValueMap.get(links.aliasNames[k]).put(cycleName, PastCycleLinks.aliasValue(links.aliases[k]));
 		}
 	}
 	
 	public void assignDvar(){
-		Set<String> dvarUsedByLaterCycle = ControlData.currModelDataSet.dvarUsedByLaterCycle;
-		Iterator iterator = dvarUsedByLaterCycle.iterator();
-		while (iterator.hasNext()){
-			String dvName=(String)iterator.next();
-			boolean isAssigned=false;
-			int i=ControlData.currCycleIndex-1;
-			while (!isAssigned && i>=0){
-				ModelDataSet mds = mdsMap.get(modelList.get(i));
-				Map<String, Dvar> dvMap = mds.dvMap;
-				if (dvMap.containsKey(dvName)){
-					IntDouble id=dvMap.get(dvName).getData();
-					if (id !=null){
-						varCycleValueMap.get(dvName).put(cycleName, id);
-						isAssigned=true;
-					}
-				}
-				i=i-1;
-			}
-			if (!isAssigned){
-				varCycleValueMap.get(dvName).put(cycleName, null);
-			}
+		for (int k=0; k<links.dvarNames.length; k++){
+			varCycleValueMap.get(links.dvarNames[k]).put(cycleName, PastCycleLinks.dvarValue(links.dvars[k]));
 		}
 	}
 }
@@ -0,0 +1,81 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.util.ArrayList;
+import java.util.Stack;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.parallel.ParallelVars;
+
+/**
+ * The compiled expressions of one variable (the case conditions and case
+ * expressions of a svar, the case conditions of a goal, the bounds of a dvar).
+ * The chain is interpreted until it has been evaluated
+ * ControlData.compiledChainThreshold times, then the whole chain is compiled
+ * to bytecode by ChainCompiler. If that fails the chain stays interpreted. The
+ * evaluations are counted across the evaluation threads and the chain is
+ * compiled once.
+ */
+public class CaseChain {
+	private static final int INTERPRETED=0;
+	private static final int COMPILED=1;
+	private static final int FAILED=2;
+
+	public final String name;
+	private ArrayList<CompiledExpression> members=new ArrayList<CompiledExpression>();
+	private final AtomicInteger evaluations=new AtomicInteger();
+	private volatile int state=INTERPRETED;
+	private volatile CompiledChain compiled;
+
+	public CaseChain(String name){
+		this.name=name;
+	}
+
+	public void add(CompiledExpression expression){
+		if (expression==null) return;
+		expression.setChain(this, members.size());
+		members.add(expression);
+	}
+
+	public void addAll(ArrayList<CompiledExpression> expressions){
+		for (CompiledExpression expression: expressions){
+			add(expression);
+		}
+	}
+
+	public ArrayList<CompiledExpression> getMembers(){
+		return members;
+	}
+
+	public boolean isCompiled(){
+		return state==COMPILED;
+	}
+
+	IntDouble evaluateValue(int member, ValueNode node, ParallelVars prvs, Stack<LoopIndex> sumIndex){
+		CompiledChain chain=tier();
+		if (chain!=null) return chain.evaluateValue(member, prvs, sumIndex);
+		return node.evaluate(prvs, sumIndex);
+	}
+
+	boolean evaluateCondition(int member, ValueNode node, ParallelVars prvs, Stack<LoopIndex> sumIndex){
+		CompiledChain chain=tier();
+		if (chain!=null) return chain.evaluateCondition(member, prvs, sumIndex);
+		return node.evaluateCondition(prvs, sumIndex);
+	}
+
+	private CompiledChain tier(){
+		if (state!=INTERPRETED) return compiled;
+		int threshold=ControlData.compiledChainThreshold;
+		if (threshold<=0 || evaluations.incrementAndGet()<threshold) return null;
+		return compile();
+	}
+
+	private synchronized CompiledChain compile(){
+		if (state==INTERPRETED){
+			compiled=ChainCompiler.compile(this);
+			state = compiled==null ? FAILED : COMPILED;
+		}
+		return compiled;
+	}
+}
@@ -0,0 +1,450 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+
+import org.objectweb.asm.ClassTooLargeException;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodTooLargeException;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.FilePaths;
+
+/**
+ * Generates a hidden class implementing CompiledChain for the expressions of a
+ * CaseChain. Every member becomes a static method that calls the same
+ * ValueEvaluation methods, in the same order, as ValueNode.evaluate and
+ * ValueNode.evaluateCondition. Nodes that build argument lists or loop (table,
+ * sum and function calls) and shared sub-expressions are delegated to the
+ * ValueNode interpreter.
+ */
+public class ChainCompiler implements Opcodes {
+	private static final Logger logger = LoggerFactory.getLogger(ChainCompiler.class);
+	private static final String PACKAGE="gov/ca/water/wrims/engine/core/evaluator/";
+	private static final String VALUE_EVALUATION=PACKAGE+"ValueEvaluation";
+	private static final String VALUE_NODE=PACKAGE+"ValueNode";
+	private static final String INT_DOUBLE_CLASS="gov/ca/water/wrims/engine/core/components/IntDouble";
+	private static final String INT_DOUBLE="L"+INT_DOUBLE_CLASS+";";
+	private static final String PRVS="Lgov/ca/water/wrims/engine/core/parallel/ParallelVars;";
+	private static final String STACK="Ljava/util/Stack;";
+	private static final String STRING="Ljava/lang/String;";
+	private static final String SLOTS="L"+PACKAGE+"IdentifierSlots;";
+	private static final String NODES="[L"+VALUE_NODE+";";
+	private static final String MEMBER_ARGS="("+NODES+PRVS+STACK+")";
+	private static final String DUMP_DIRECTORY="compiledChains";
+
+	private String className;
+	private ArrayList<ValueNode> nodes=new ArrayList<ValueNode>();
+
+	private ChainCompiler(String className){
+		this.className=className;
+	}
+
+	/**
+	 * @return the compiled chain, or null if the chain has a node type that is
+	 *         not generated, or ASM or the VM rejects the generated class
+	 */
+	public static CompiledChain compile(CaseChain chain){
+		String simpleName="CompiledChain$"+chain.name.replaceAll("[^A-Za-z0-9_]", "_");
+		ChainCompiler compiler=new ChainCompiler(PACKAGE+simpleName);
+		try{
+			byte[] bytes=compiler.generate(chain.getMembers());
+			if (ControlData.dumpCompiledChain) dump(simpleName, bytes);
+			Class<?> generated=MethodHandles.lookup().defineHiddenClass(bytes, true).lookupClass();
+			Object instance=generated.getConstructor(ValueNode[].class)
+				.newInstance((Object)compiler.nodes.toArray(new ValueNode[compiler.nodes.size()]));
+			return (CompiledChain)instance;
+		}catch (IllegalStateException | IllegalArgumentException | MethodTooLargeException | ClassTooLargeException | LinkageError | ReflectiveOperationException e){
+			logger.warn("Case chain {} is not compiled to bytecode: {}", chain.name, e.getMessage());
+			return null;
+		}
+	}
+
+	private static void dump(String name, byte[] bytes){
+		File dir=new File(FilePaths.mainDirectory, DUMP_DIRECTORY);
+		dir.mkdirs();
+		try (FileOutputStream out=new FileOutputStream(new File(dir, name+".class"))){
+			out.write(bytes);
+		}catch (IOException e){
+			logger.warn("Failed to dump compiled case chain {}: {}", name, e.getMessage());
+		}
+	}
+
+	private byte[] generate(ArrayList<CompiledExpression> members){
+		ClassWriter cw=new ClassWriter(ClassWriter.COMPUTE_FRAMES){
+			@Override
+			protected String getCommonSuperClass(String type1, String type2){
+				return "java/lang/Object";
+			}
+		};
+		cw.visit(V21, ACC_PUBLIC|ACC_FINAL|ACC_SUPER, className, null, "java/lang/Object", new String[]{PACKAGE+"CompiledChain"});
+		cw.visitField(ACC_PRIVATE|ACC_FINAL, "nodes", NODES, null, null).visitEnd();
+
+		MethodVisitor mv=cw.visitMethod(ACC_PUBLIC, "<init>", "("+NODES+")V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitFieldInsn(PUTFIELD, className, "nodes", NODES);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		for (int i=0; i<members.size(); i++){
+			CompiledExpression member=members.get(i);
+			mv=cw.visitMethod(ACC_PRIVATE|ACC_STATIC, "member"+i, MEMBER_ARGS+(member.isCondition ? "Z" : INT_DOUBLE), null, null);
+			mv.visitCode();
+			if (member.isCondition){
+				condition(mv, member.node);
+				mv.visitInsn(IRETURN);
+			}else{
+				value(mv, member.node);
+				mv.visitInsn(ARETURN);
+			}
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+
+		dispatch(cw, members, false);
+		dispatch(cw, members, true);
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	private void dispatch(ClassWriter cw, ArrayList<CompiledExpression> members, boolean isCondition){
+		String name = isCondition ? "evaluateCondition" : "evaluateValue";
+		String result = isCondition ? "Z" : INT_DOUBLE;
+		MethodVisitor mv=cw.visitMethod(ACC_PUBLIC, name, "(I"+PRVS+STACK+")"+result, null, null);
+		mv.visitCode();
+		Label notMember=new Label();
+		Label[] labels=new Label[members.size()];
+		for (int i=0; i<labels.length; i++){
+			labels[i] = members.get(i).isCondition==isCondition ? new Label() : notMember;
+		}
+		mv.visitVarInsn(ILOAD, 1);
+		mv.visitTableSwitchInsn(0, labels.length-1, notMember, labels);
+		for (int i=0; i<labels.length; i++){
+			if (labels[i]==notMember) continue;
+			mv.visitLabel(labels[i]);
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitFieldInsn(GETFIELD, className, "nodes", NODES);
+			mv.visitVarInsn(ALOAD, 2);
+			mv.visitVarInsn(ALOAD, 3);
+			mv.visitMethodInsn(INVOKESTATIC, className, "member"+i, MEMBER_ARGS+result, false);
+			mv.visitInsn(isCondition ? IRETURN : ARETURN);
+		}
+		mv.visitLabel(notMember);
+		mv.visitTypeInsn(NEW, "java/lang/IllegalStateException");
+		mv.visitInsn(DUP);
+		mv.visitLdcInsn("Not a "+(isCondition ? "condition" : "value")+" of the compiled case chain.");
+		mv.visitMethodInsn(INVOKESPECIAL, "java/lang/IllegalStateException", "<init>", "("+STRING+")V", false);
+		mv.visitInsn(ATHROW);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private void value(MethodVisitor mv, ValueNode node){
+		switch (node.type){
+		case ValueNode.CONSTANT:
+			loadNode(mv, node);
+			mv.visitFieldInsn(GETFIELD, VALUE_NODE, "value", INT_DOUBLE);
+			break;
+		case ValueNode.IDENT:
+			string(mv, node.text);
+			mv.visitVarInsn(ALOAD, 2);
+			call(mv, "term_IDENT", "("+STRING+STACK+")"+INT_DOUBLE);
+			break;
+		case ValueNode.LOOP_INDEX:
+			string(mv, node.text);
+			mv.visitVarInsn(ALOAD, 2);
+			call(mv, "term_LOOP_INDEX", "("+STRING+STACK+")"+INT_DOUBLE);
+			break;
+		case ValueNode.SLOT:
+			loadNode(mv, node);
+			mv.visitFieldInsn(GETFIELD, VALUE_NODE, "slots", SLOTS);
+			mv.visitLdcInsn(node.index);
+			string(mv, node.text);
+			mv.visitVarInsn(ALOAD, 2);
+			call(mv, "term_SLOT", "("+SLOTS+"I"+STRING+STACK+")"+INT_DOUBLE);
+			break;
+		case ValueNode.SVAR:
+			string(mv, node.text);
+			call(mv, "term_SVAR", "("+STRING+")"+INT_DOUBLE);
+			break;
+		case ValueNode.YEAR:
+			call(mv, "term_YEAR", "()"+INT_DOUBLE);
+			break;
+		case ValueNode.MONTH:
+			call(mv, "term_MONTH", "()"+INT_DOUBLE);
+			break;
+		case ValueNode.DAY:
+			call(mv, "term_DAY", "()"+INT_DOUBLE);
+			break;
+		case ValueNode.MONTH_CONST:
+			string(mv, node.text);
+			call(mv, "term_MONTH_CONST", "("+STRING+")"+INT_DOUBLE);
+			break;
+		case ValueNode.PASTMONTH:
+			string(mv, node.text);
+			call(mv, "term_PASTMONTH", "("+STRING+")"+INT_DOUBLE);
+			break;
+		case ValueNode.DAYSIN:
+			call(mv, "daysIn", "()"+INT_DOUBLE);
+			break;
+		case ValueNode.DAYSINTIMESTEP:
+			call(mv, "daysInTimeStep", "()"+INT_DOUBLE);
+			break;
+		case ValueNode.ARRAY_ITERATOR:
+			mv.visitVarInsn(ALOAD, 1);
+			call(mv, "term_ARRAY_ITERATOR", "("+PRVS+")"+INT_DOUBLE);
+			break;
+		case ValueNode.TAFCFS:
+			string(mv, node.text);
+			if (node.children.length==0){
+				mv.visitInsn(ACONST_NULL);
+			}else{
+				value(mv, node.children[0]);
+			}
+			call(mv, "tafcfs_term", "("+STRING+INT_DOUBLE+")"+INT_DOUBLE);
+			break;
+		case ValueNode.NEGATE:
+			string(mv, "-");
+			value(mv, node.children[0]);
+			if (node.children[0].isTemporary()){
+				mv.visitInsn(DUP);
+			}else{
+				newIntDouble(mv);
+			}
+			call(mv, "unary", "("+STRING+INT_DOUBLE+INT_DOUBLE+")"+INT_DOUBLE);
+			break;
+		case ValueNode.MULT:
+			binaryToResult(mv, node, "mult");
+			break;
+		case ValueNode.DIVIDE:
+			binaryToResult(mv, node, "divide");
+			break;
+		case ValueNode.ADD:
+			binaryToResult(mv, node, "add");
+			break;
+		case ValueNode.SUBTRACT:
+			binaryToResult(mv, node, "substract");
+			break;
+		case ValueNode.MAX:
+			binaryToResult(mv, node, "max");
+			break;
+		case ValueNode.MIN:
+			binaryToResult(mv, node, "min");
+			break;
+		case ValueNode.POW:
+			binary(mv, node, "pow");
+			break;
+		case ValueNode.MOD:
+			binary(mv, node, "mod");
+			break;
+		case ValueNode.INT:
+			unary(mv, node, "intFunc");
+			break;
+		case ValueNode.REAL:
+			unary(mv, node, "realFunc");
+			break;
+		case ValueNode.ABS:
+			unary(mv, node, "abs");
+			break;
+		case ValueNode.EXP:
+			unary(mv, node, "exp");
+			break;
+		case ValueNode.LOG:
+			unary(mv, node, "log");
+			break;
+		case ValueNode.LOG10:
+			unary(mv, node, "log10");
+			break;
+		case ValueNode.ROUND:
+			unary(mv, node, "round");
+			break;
+		case ValueNode.SIN:
+			unary(mv, node, "sin");
+			break;
+		case ValueNode.COS:
+			unary(mv, node, "cos");
+			break;
+		case ValueNode.TAN:
+			unary(mv, node, "tan");
+			break;
+		case ValueNode.COT:
+			unary(mv, node, "cot");
+			break;
+		case ValueNode.ASIN:
+			unary(mv, node, "asin");
+			break;
+		case ValueNode.ACOS:
+			unary(mv, node, "acos");
+			break;
+		case ValueNode.ATAN:
+			unary(mv, node, "atan");
+			break;
+		case ValueNode.ACOT:
+			unary(mv, node, "acot");
+			break;
+		case ValueNode.EXCEEDANCE:
+		case ValueNode.EXCEEDANCE_TSI:
+			string(mv, node.text);
+			value(mv, node.children[0]);
+			for (int i=0; i<7; i++){
+				string(mv, node.texts[i]);
+			}
+			call(mv, node.type==ValueNode.EXCEEDANCE ? "exceedance" : "exceedance_tsi",
+					"("+STRING+INT_DOUBLE+STRING+STRING+STRING+STRING+STRING+STRING+STRING+")"+INT_DOUBLE);
+			break;
+		case ValueNode.TIMESERIES:
+			call(mv, "timeseries", "()"+INT_DOUBLE);
+			break;
+		case ValueNode.NULL:
+			mv.visitInsn(ACONST_NULL);
+			break;
+		case ValueNode.PAST_CYCLE:
+			string(mv, node.text);
+			string(mv, node.texts[0]);
+			call(mv, "pastCycleNoTimeArray", "("+STRING+STRING+")"+INT_DOUBLE);
+			break;
+		case ValueNode.PAST_CYCLE_TIME_ARRAY:
+			string(mv, node.text);
+			string(mv, node.texts[0]);
+			value(mv, node.children[0]);
+			call(mv, "pastCycleTimeArray", "("+STRING+STRING+INT_DOUBLE+")"+INT_DOUBLE);
+			break;
+		case ValueNode.PAST_CYCLE_INDEX:
+			string(mv, node.text);
+			mv.visitLdcInsn(node.index);
+			call(mv, "pastCycleIndexNoTimeArray", "("+STRING+"I)"+INT_DOUBLE);
+			break;
+		case ValueNode.PAST_CYCLE_INDEX_TIME_ARRAY:
+			string(mv, node.text);
+			mv.visitLdcInsn(node.index);
+			value(mv, node.children[0]);
+			call(mv, "pastCycleIndexTimeArray", "("+STRING+"I"+INT_DOUBLE+")"+INT_DOUBLE);
+			break;
+		case ValueNode.NO_ARG_FUNCTION:
+			string(mv, node.text);
+			call(mv, "noArgFunction", "("+STRING+")"+INT_DOUBLE);
+			break;
+		case ValueNode.TABLE:
+		case ValueNode.SUM:
+		case ValueNode.ARG_FUNCTION:
+		case ValueNode.PAST_TSFV:
+		case ValueNode.SHARED:
+			loadNode(mv, node);
+			mv.visitVarInsn(ALOAD, 1);
+			mv.visitVarInsn(ALOAD, 2);
+			mv.visitMethodInsn(INVOKEVIRTUAL, VALUE_NODE, "evaluate", "("+PRVS+STACK+")"+INT_DOUBLE, false);
+			break;
+		default:
+			throw new IllegalStateException("Node type "+node.type+" is not a value.");
+		}
+	}
+
+	private void condition(MethodVisitor mv, ValueNode node){
+		switch (node.type){
+		case ValueNode.ALWAYS:
+			mv.visitInsn(ICONST_1);
+			break;
+		case ValueNode.NOT:
+			condition(mv, node.children[0]);
+			mv.visitInsn(ICONST_1);
+			mv.visitInsn(IXOR);
+			break;
+		case ValueNode.AND:
+		case ValueNode.OR:
+			condition(mv, node.children[0]);
+			condition(mv, node.children[1]);
+			string(mv, node.text);
+			call(mv, "relationStatementSeries", "(ZZ"+STRING+")Z");
+			break;
+		case ValueNode.RELATION:
+			value(mv, node.children[0]);
+			value(mv, node.children[1]);
+			string(mv, node.text);
+			call(mv, "relationStatement", "("+INT_DOUBLE+INT_DOUBLE+STRING+")Z");
+			break;
+		case ValueNode.RANGE:
+			string(mv, node.texts[0]);
+			string(mv, node.texts[1]);
+			call(mv, "range", "("+STRING+STRING+")Z");
+			break;
+		case ValueNode.SHARED_CONDITION:
+			loadNode(mv, node);
+			mv.visitVarInsn(ALOAD, 1);
+			mv.visitVarInsn(ALOAD, 2);
+			mv.visitMethodInsn(INVOKEVIRTUAL, VALUE_NODE, "evaluateCondition", "("+PRVS+STACK+")Z", false);
+			break;
+		default:
+			throw new IllegalStateException("Node type "+node.type+" is not a condition.");
+		}
+	}
+
+	private void binary(MethodVisitor mv, ValueNode node, String method){
+		value(mv, node.children[0]);
+		value(mv, node.children[1]);
+		call(mv, method, "("+INT_DOUBLE+INT_DOUBLE+")"+INT_DOUBLE);
+	}
+
+	/**
+	 * Calls the kernel with a result argument, which is the operand that is
+	 * temporary, as in ValueNode.evaluate, or else a new IntDouble.
+	 */
+	private void binaryToResult(MethodVisitor mv, ValueNode node, String method){
+		value(mv, node.children[0]);
+		if (node.children[0].isTemporary()){
+			mv.visitInsn(DUP);
+			value(mv, node.children[1]);
+			mv.visitInsn(SWAP);
+		}else{
+			value(mv, node.children[1]);
+			if (node.children[1].isTemporary()){
+				mv.visitInsn(DUP);
+			}else{
+				newIntDouble(mv);
+			}
+		}
+		call(mv, method, "("+INT_DOUBLE+INT_DOUBLE+INT_DOUBLE+")"+INT_DOUBLE);
+	}
+
+	private void newIntDouble(MethodVisitor mv){
+		mv.visitTypeInsn(NEW, INT_DOUBLE_CLASS);
+		mv.visitInsn(DUP);
+		mv.visitMethodInsn(INVOKESPECIAL, INT_DOUBLE_CLASS, "<init>", "()V", false);
+	}
+
+	private void unary(MethodVisitor mv, ValueNode node, String method){
+		value(mv, node.children[0]);
+		call(mv, method, "("+INT_DOUBLE+")"+INT_DOUBLE);
+	}
+
+	private void call(MethodVisitor mv, String method, String descriptor){
+		mv.visitMethodInsn(INVOKESTATIC, VALUE_EVALUATION, method, descriptor, false);
+	}
+
+	private void string(MethodVisitor mv, String s){
+		if (s==null){
+			mv.visitInsn(ACONST_NULL);
+		}else{
+			mv.visitLdcInsn(s);
+		}
+	}
+
+	private void loadNode(MethodVisitor mv, ValueNode node){
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitLdcInsn(nodes.size());
+		mv.visitInsn(AALOAD);
+		nodes.add(node);
+	}
+}
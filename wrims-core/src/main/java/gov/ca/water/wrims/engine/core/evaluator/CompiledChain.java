@@ -0,0 +1,16 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.util.Stack;
+
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.parallel.ParallelVars;
+
+/**
+ * Bytecode of all the expressions of a CaseChain, generated by ChainCompiler.
+ * The member index is the position of the expression in the chain.
+ */
+public interface CompiledChain {
+	public IntDouble evaluateValue(int member, ParallelVars prvs, Stack<LoopIndex> sumIndex);
+
+	public boolean evaluateCondition(int member, ParallelVars prvs, Stack<LoopIndex> sumIndex);
+}
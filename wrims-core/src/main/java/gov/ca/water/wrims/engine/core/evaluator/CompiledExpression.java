@@ -0,0 +1,88 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.util.Stack;
+
+import org.antlr.runtime.TokenStream;
+
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.parallel.ParallelVars;
+
+/**
+ * A WRESL expression ("v: ...") or condition ("c: ...") compiled once into a
+ * ValueNode tree. It replaces re-parsing the expression with ValueEvaluatorParser
+ * on every evaluation. Expressions that can not be compiled are left to the parser.
+ *
+ * The tree is only replaced by ExpressionOptimizer and joined to a CaseChain
+ * while PreEvaluator prepares the models, before the expression is evaluated.
+ * Each evaluation has a sum index stack of its own, as each ValueEvaluatorParser
+ * has, so the expression can be evaluated by several threads at once.
+ */
+public class CompiledExpression {
+	public ValueNode node;
+	public final boolean isCondition;
+	private CaseChain chain;
+	private int chainIndex;
+
+	public CompiledExpression(ValueNode node, boolean isCondition){
+		this.node=node;
+		this.isCondition=isCondition;
+	}
+
+	public IntDouble evaluateValue(ParallelVars prvs){
+		if (chain!=null) return chain.evaluateValue(chainIndex, node, prvs, new Stack<LoopIndex>());
+		return node.evaluate(prvs, new Stack<LoopIndex>());
+	}
+
+	public boolean evaluateCondition(ParallelVars prvs){
+		if (chain!=null) return chain.evaluateCondition(chainIndex, node, prvs, new Stack<LoopIndex>());
+		return node.evaluateCondition(prvs, new Stack<LoopIndex>());
+	}
+
+	void setNode(ValueNode node){
+		this.node=node;
+	}
+
+	void setChain(CaseChain chain, int chainIndex){
+		this.chain=chain;
+		this.chainIndex=chainIndex;
+	}
+
+	/**
+	 * Compiles the tokens of a ValueEvaluatorLexer. The token stream is rewound
+	 * afterwards so that it can still be used by a ValueEvaluatorParser.
+	 *
+	 * @return the compiled expression, or null if the expression has a syntax
+	 *         error or compiling is turned off
+	 */
+	public static CompiledExpression compile(TokenStream tokenStream){
+		return compile(tokenStream, null);
+	}
+
+	/**
+	 * Same as compile(tokenStream) with the identifiers bound to the slots of
+	 * a model.
+	 */
+	public static CompiledExpression compile(TokenStream tokenStream, IdentifierSlots slots){
+		if (!ControlData.useCompiledExpression) return null;
+		ValueCompilerParser compiler = new ValueCompilerParser(tokenStream);
+		try{
+			compiler.evaluator();
+		}catch (Exception e){
+			compiler.hasError=true;
+		}
+		compiler.reset();
+		if (compiler.hasError){
+			return null;
+		}else if (compiler.valueNode!=null){
+			return new CompiledExpression(bind(compiler.valueNode, slots), false);
+		}else if (compiler.conditionNode!=null){
+			return new CompiledExpression(bind(compiler.conditionNode, slots), true);
+		}
+		return null;
+	}
+
+	private static ValueNode bind(ValueNode node, IdentifierSlots slots){
+		return slots==null ? node : node.bindSlots(slots);
+	}
+}
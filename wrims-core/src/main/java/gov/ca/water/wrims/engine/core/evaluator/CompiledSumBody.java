@@ -0,0 +1,246 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.CommonTokenStream;
+
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+
+/**
+ * The body of a sum loop in a goal or weight expression, compiled once by
+ * ValueCompilerParser into a ValueNode tree with the loop index bound to
+ * LOOP_INDEX nodes. Every index of the loop evaluates the tree with the same
+ * Evaluation calls, in the same order, as the actions of EvaluatorParser do
+ * when the body is re-parsed. Bodies that can not be compiled are left to the
+ * parser.
+ */
+public class CompiledSumBody {
+	private static final ConcurrentHashMap<String, CompiledSumBody> bodies=new ConcurrentHashMap<String, CompiledSumBody>();
+	private static final CompiledSumBody NOT_COMPILED=new CompiledSumBody(null);
+
+	public final ValueNode node;
+
+	CompiledSumBody(ValueNode node){
+		this.node=node;
+	}
+
+	/**
+	 * @return the compiled body of the loop over the index, or null if the
+	 *         body can not be compiled or compiling is turned off
+	 */
+	public static CompiledSumBody get(String ident, String expression){
+		if (!ControlData.useCompiledExpression) return null;
+		String key=ident+":"+expression;
+		CompiledSumBody body=bodies.get(key);
+		if (body==null){
+			body=compile(ident, expression);
+			bodies.put(key, body);
+		}
+		return body==NOT_COMPILED ? null : body;
+	}
+
+	private static CompiledSumBody compile(String ident, String expression){
+		ValueEvaluatorLexer lexer = new ValueEvaluatorLexer(new ANTLRStringStream("v: "+expression));
+		ValueCompilerParser compiler = new ValueCompilerParser(new CommonTokenStream(lexer));
+		try{
+			compiler.evaluator();
+		}catch (Exception e){
+			compiler.hasError=true;
+		}
+		if (compiler.hasError || compiler.valueNode==null || !isLinear(compiler.valueNode)) return NOT_COMPILED;
+		return new CompiledSumBody(compiler.valueNode.bindLoopIndex(ident));
+	}
+
+	/**
+	 * @return true if the nodes of the tree are all evaluated by evaluate()
+	 */
+	private static boolean isLinear(ValueNode node){
+		switch (node.type){
+		case ValueNode.SLOT:
+		case ValueNode.SHARED:
+		case ValueNode.SHARED_CONDITION:
+			return false;
+		default:
+			if (node.type>=ValueNode.ALWAYS) return false;
+		}
+		for (ValueNode child: node.children){
+			if (!isLinear(child)) return false;
+		}
+		return true;
+	}
+
+	public EvalExpression evaluate(Stack<LoopIndex> sumIndex){
+		return evaluate(node, sumIndex);
+	}
+
+	private static EvalExpression evaluate(ValueNode node, Stack<LoopIndex> sumIndex){
+		ValueNode[] children=node.children;
+		switch (node.type){
+		case ValueNode.CONSTANT:
+			return new EvalExpression(node.value.copyOf());
+		case ValueNode.IDENT:
+			return Evaluation.term_IDENT(node.text, sumIndex);
+		case ValueNode.LOOP_INDEX:
+			if (sumIndex.size()>0){
+				LoopIndex li=sumIndex.peek();
+				if (li.getName().equals(node.text) && li.getIndexStart()){
+					EvalExpression ee = new EvalExpression();
+					ee.setValue(new IntDouble(li.getValue(), true, node.text, 0));
+					return ee;
+				}
+			}
+			return Evaluation.term_IDENT(node.text, sumIndex);
+		case ValueNode.SVAR:
+			return Evaluation.term_SVAR(node.text);
+		case ValueNode.YEAR:
+			return Evaluation.term_YEAR();
+		case ValueNode.MONTH:
+			return Evaluation.term_MONTH();
+		case ValueNode.DAY:
+			return Evaluation.term_DAY();
+		case ValueNode.MONTH_CONST:
+			return Evaluation.term_MONTH_CONST(node.text);
+		case ValueNode.PASTMONTH:
+			return Evaluation.term_PASTMONTH(node.text);
+		case ValueNode.DAYSIN:
+			return Evaluation.daysIn();
+		case ValueNode.DAYSINTIMESTEP:
+			return Evaluation.daysInTimeStep();
+		case ValueNode.ARRAY_ITERATOR:
+			// the parser of a sum body has no ParallelVars
+			return Evaluation.term_ARRAY_ITERATOR(null);
+		case ValueNode.TAFCFS:
+			return Evaluation.tafcfs_term(node.text, children.length==0 ? null : evaluate(children[0], sumIndex), sumIndex);
+		case ValueNode.NEGATE:
+			return Evaluation.unary("-", evaluate(children[0], sumIndex));
+		case ValueNode.MULT:
+			return Evaluation.mult(evaluate(children[0], sumIndex), evaluate(children[1], sumIndex));
+		case ValueNode.DIVIDE:
+			return Evaluation.divide(evaluate(children[0], sumIndex), evaluate(children[1], sumIndex));
+		case ValueNode.ADD:
+			return Evaluation.add(evaluate(children[0], sumIndex), evaluate(children[1], sumIndex));
+		case ValueNode.SUBTRACT:
+			return Evaluation.substract(evaluate(children[0], sumIndex), evaluate(children[1], sumIndex));
+		case ValueNode.MAX:
+			return Evaluation.max(evaluate(children[0], sumIndex), evaluate(children[1], sumIndex));
+		case ValueNode.MIN:
+			return Evaluation.min(evaluate(children[0], sumIndex), evaluate(children[1], sumIndex));
+		case ValueNode.INT:
+			return Evaluation.intFunc(evaluate(children[0], sumIndex));
+		case ValueNode.REAL:
+			return Evaluation.realFunc(evaluate(children[0], sumIndex));
+		case ValueNode.ABS:
+			return Evaluation.abs(evaluate(children[0], sumIndex));
+		case ValueNode.EXP:
+			return Evaluation.exp(evaluate(children[0], sumIndex));
+		case ValueNode.LOG:
+			return Evaluation.log(evaluate(children[0], sumIndex));
+		case ValueNode.LOG10:
+			return Evaluation.log10(evaluate(children[0], sumIndex));
+		case ValueNode.POW:
+			return Evaluation.pow(evaluate(children[0], sumIndex), evaluate(children[1], sumIndex));
+		case ValueNode.MOD:
+			return Evaluation.mod(evaluate(children[0], sumIndex), evaluate(children[1], sumIndex));
+		case ValueNode.ROUND:
+			return Evaluation.round(evaluate(children[0], sumIndex));
+		case ValueNode.SIN:
+			return Evaluation.sin(evaluate(children[0], sumIndex));
+		case ValueNode.COS:
+			return Evaluation.cos(evaluate(children[0], sumIndex));
+		case ValueNode.TAN:
+			return Evaluation.tan(evaluate(children[0], sumIndex));
+		case ValueNode.COT:
+			return Evaluation.cot(evaluate(children[0], sumIndex));
+		case ValueNode.ASIN:
+			return Evaluation.asin(evaluate(children[0], sumIndex));
+		case ValueNode.ACOS:
+			return Evaluation.acos(evaluate(children[0], sumIndex));
+		case ValueNode.ATAN:
+			return Evaluation.atan(evaluate(children[0], sumIndex));
+		case ValueNode.ACOT:
+			return Evaluation.acot(evaluate(children[0], sumIndex));
+		case ValueNode.EXCEEDANCE:{
+			String[] t=node.texts;
+			return Evaluation.exceedance(node.text, evaluate(children[0], sumIndex), t[0], t[1], t[2], t[3], t[4], t[5], t[6]);
+		}
+		case ValueNode.EXCEEDANCE_TSI:{
+			String[] t=node.texts;
+			return Evaluation.exceedance_tsi(node.text, evaluate(children[0], sumIndex), t[0], t[1], t[2], t[3], t[4], t[5], t[6]);
+		}
+		case ValueNode.TIMESERIES:
+			return Evaluation.timeseries();
+		case ValueNode.NULL:
+			return null;
+		case ValueNode.TABLE:
+			return evaluateTable(node, sumIndex);
+		case ValueNode.SUM:{
+			Evaluation.sumExpression_IDENT(node.text, sumIndex);
+			EvalExpression ee1=evaluate(children[0], sumIndex);
+			EvalExpression ee2=evaluate(children[1], sumIndex);
+			Evaluation.initSumExpression(ee1, ee2, node.texts[0], sumIndex);
+			EvalExpression ee3=evaluate(children[2], sumIndex);
+			return Evaluation.sumExpression(ee3, new CompiledSumBody(children[2]), sumIndex);
+		}
+		case ValueNode.PAST_CYCLE:
+			return Evaluation.term_knownTS(Evaluation.pastCycleNoTimeArray(node.text, node.texts[0]));
+		case ValueNode.PAST_CYCLE_TIME_ARRAY:
+			return Evaluation.term_knownTS(Evaluation.pastCycleTimeArray(node.text, node.texts[0], evaluate(children[0], sumIndex)));
+		case ValueNode.PAST_CYCLE_INDEX:
+			return Evaluation.term_knownTS(Evaluation.pastCycleIndexNoTimeArray(node.text, node.index));
+		case ValueNode.PAST_CYCLE_INDEX_TIME_ARRAY:
+			return Evaluation.term_knownTS(Evaluation.pastCycleIndexTimeArray(node.text, node.index, evaluate(children[0], sumIndex)));
+		case ValueNode.NO_ARG_FUNCTION:
+			return Evaluation.noArgFunction(node.text);
+		case ValueNode.ARG_FUNCTION:
+			return Evaluation.argFunction(node.text, evaluateArguments(node, children.length, sumIndex), sumIndex);
+		case ValueNode.PAST_TSFV:{
+			ArrayList<ArrayList<EvalExpression>> eeArray=evaluateArguments(node, children.length-1, sumIndex);
+			EvalExpression ee0=evaluate(children[children.length-1], sumIndex);
+			return Evaluation.pastTSFV(node.text, ee0, eeArray, null);
+		}
+		default:
+			throw new IllegalStateException("Node type "+node.type+" is not a sum body value.");
+		}
+	}
+
+	private static ArrayList<ArrayList<EvalExpression>> evaluateArguments(ValueNode node, int n, Stack<LoopIndex> sumIndex){
+		ArrayList<ArrayList<EvalExpression>> eeArray = new ArrayList<ArrayList<EvalExpression>>();
+		for (int i=0; i<n; i++){
+			ValueNode arg=node.children[i];
+			if (arg.type==ValueNode.TRUNK){
+				IntDouble start=arg.children[0].evaluate(null, sumIndex);
+				IntDouble end=arg.children[1].evaluate(null, sumIndex);
+				eeArray.add(Evaluation.trunk_timeArray(arg.text, start, end));
+			}else{
+				ArrayList<EvalExpression> eeArray1=new ArrayList<EvalExpression>();
+				eeArray1.add(evaluate(arg, sumIndex));
+				eeArray.add(eeArray1);
+			}
+		}
+		return eeArray;
+	}
+
+	private static EvalExpression evaluateTable(ValueNode node, Stack<LoopIndex> sumIndex){
+		String[] texts=node.texts;
+		HashMap<String, Number> given=null;
+		HashMap<String, Number> where=null;
+		int c=0;
+		if (texts[2]!=null){
+			Number value=Evaluation.assignWhereStatement(evaluate(node.children[c++], sumIndex));
+			given=new HashMap<String, Number>();
+			given.put(texts[2], value);
+		}
+		if (texts.length>4){
+			where=new HashMap<String, Number>();
+			for (int i=4; i<texts.length; i++){
+				where.put(texts[i], Evaluation.assignWhereStatement(evaluate(node.children[c++], sumIndex)));
+			}
+		}
+		return Evaluation.tableSQL(texts[0], texts[1], where, given, texts[3]);
+	}
+}
@@ -0,0 +1,246 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A LookUpTable in primitive columns, with hash indexes of the rows by the
+ * values of the where fields and the given columns of the rows presorted for
+ * interpolation. The indexes are built on first use and not changed after,
+ * so a table can be read by several threads.
+ */
+public class CompiledTable {
+	private final double[][] columns;
+	private final int nRows;
+	private final ConcurrentHashMap<String, HashMap<RowKey, Rows>> whereIndexes=new ConcurrentHashMap<String, HashMap<RowKey, Rows>>();
+	private volatile Rows allRows;
+
+	public CompiledTable(LookUpTable lut){
+		if (lut.getColumns()!=null){
+			columns=lut.getColumns();
+			nRows = columns.length==0 ? 0 : columns[0].length;
+		}else{
+			columns=columns(lut);
+			nRows=lut.getData().size();
+		}
+	}
+
+	/**
+	 * @return the data of the table by field and row
+	 */
+	public static double[][] columns(LookUpTable lut){
+		ArrayList<Number[]> data=lut.getData();
+		int fieldSize=lut.getField().size();
+		int nRows=data.size();
+		double[][] columns=new double[fieldSize][nRows];
+		for (int r=0; r<nRows; r++){
+			Number[] values=data.get(r);
+			for (int c=0; c<fieldSize; c++){
+				columns[c][r]=values[c].doubleValue();
+			}
+		}
+		return columns;
+	}
+
+	/**
+	 * @return the rows whose values of the where fields equal the where
+	 *         values, in table order, or null if there is no such row
+	 */
+	public Rows rows(int[] whereIndex, double[] whereValue){
+		int n=whereIndex.length;
+		int[] order=new int[n];
+		for (int k=0; k<n; k++){
+			order[k]=k;
+			if (Double.isNaN(whereValue[k])) return null;
+		}
+		for (int k=1; k<n; k++){
+			for (int j=k; j>0 && whereIndex[order[j]]<whereIndex[order[j-1]]; j--){
+				int o=order[j];
+				order[j]=order[j-1];
+				order[j-1]=o;
+			}
+		}
+		int[] fields=new int[n];
+		double[] values=new double[n];
+		StringBuilder indexName=new StringBuilder();
+		for (int k=0; k<n; k++){
+			fields[k]=whereIndex[order[k]];
+			values[k]=whereValue[order[k]]+0.0;
+			indexName.append(fields[k]).append(',');
+		}
+		HashMap<RowKey, Rows> index=whereIndexes.get(indexName.toString());
+		if (index==null){
+			index=buildWhereIndex(fields);
+			HashMap<RowKey, Rows> previous=whereIndexes.putIfAbsent(indexName.toString(), index);
+			if (previous!=null) index=previous;
+		}
+		return index.get(new RowKey(values));
+	}
+
+	public Rows allRows(){
+		Rows rows=allRows;
+		if (rows==null){
+			int[] all=new int[nRows];
+			for (int r=0; r<nRows; r++){
+				all[r]=r;
+			}
+			rows=new Rows(all);
+			allRows=rows;
+		}
+		return rows;
+	}
+
+	private HashMap<RowKey, Rows> buildWhereIndex(int[] fields){
+		HashMap<RowKey, ArrayList<Integer>> rowLists=new HashMap<RowKey, ArrayList<Integer>>();
+		for (int r=0; r<nRows; r++){
+			double[] values=new double[fields.length];
+			boolean hasNaN=false;
+			for (int k=0; k<fields.length; k++){
+				values[k]=columns[fields[k]][r]+0.0;
+				hasNaN = hasNaN || Double.isNaN(values[k]);
+			}
+			if (hasNaN) continue;
+			RowKey key=new RowKey(values);
+			ArrayList<Integer> rowList=rowLists.get(key);
+			if (rowList==null){
+				rowList=new ArrayList<Integer>();
+				rowLists.put(key, rowList);
+			}
+			rowList.add(r);
+		}
+		HashMap<RowKey, Rows> index=new HashMap<RowKey, Rows>(rowLists.size()*2);
+		for (Map.Entry<RowKey, ArrayList<Integer>> entry: rowLists.entrySet()){
+			ArrayList<Integer> rowList=entry.getValue();
+			int[] rows=new int[rowList.size()];
+			for (int i=0; i<rows.length; i++){
+				rows[i]=rowList.get(i);
+			}
+			index.put(entry.getKey(), new Rows(rows));
+		}
+		return index;
+	}
+
+	/**
+	 * Values of the where fields of a row. -0.0 is stored as 0.0 and rows with
+	 * NaN are not indexed, so that equal keys are the rows that findData
+	 * compares equal.
+	 */
+	private static final class RowKey {
+		private final double[] values;
+		private final int hash;
+
+		private RowKey(double[] values){
+			this.values=values;
+			hash=Arrays.hashCode(values);
+		}
+
+		@Override
+		public int hashCode(){
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o){
+			return o instanceof RowKey && Arrays.equals(values, ((RowKey)o).values);
+		}
+	}
+
+	/**
+	 * Rows of the table in table order and their given columns by given and
+	 * select field.
+	 */
+	public class Rows {
+		private final int[] rows;
+		private final ConcurrentHashMap<Long, Given> givens=new ConcurrentHashMap<Long, Given>();
+
+		private Rows(int[] rows){
+			this.rows=rows;
+		}
+
+		public int size(){
+			return rows.length;
+		}
+
+		/**
+		 * @return the value of the field in the first row
+		 */
+		public double first(int field){
+			return columns[field][rows[0]];
+		}
+
+		public Given given(int givenIndex, int selectIndex){
+			Long key=((long)givenIndex<<32)+selectIndex;
+			Given given=givens.get(key);
+			if (given==null){
+				given=new Given(rows, columns[givenIndex], columns[selectIndex]);
+				Given previous=givens.putIfAbsent(key, given);
+				if (previous!=null) given=previous;
+			}
+			return given;
+		}
+	}
+
+	/**
+	 * The given and select values of rows sorted by the given values. If a
+	 * given value of the rows is NaN or two are equal, sorted is false and the
+	 * values are kept as lists in table order instead.
+	 */
+	public static class Given {
+		public final Double duplicate;
+		public final boolean sorted;
+		public final double[] givenValues;
+		public final double[] selectValues;
+		public final ArrayList<Number> gVList;
+		public final Map<Number, Number> gVMap;
+
+		private Given(int[] rows, double[] givenColumn, double[] selectColumn){
+			HashSet<Double> seen=new HashSet<Double>();
+			Double duplicate=null;
+			boolean hasNaN=false;
+			for (int r: rows){
+				if (!seen.add(givenColumn[r])){
+					duplicate=givenColumn[r];
+					break;
+				}
+				hasNaN = hasNaN || Double.isNaN(givenColumn[r]);
+			}
+			this.duplicate=duplicate;
+			int n=rows.length;
+			Integer[] order=new Integer[n];
+			for (int i=0; i<n; i++){
+				order[i]=rows[i];
+			}
+			if (!hasNaN) Arrays.sort(order, (a, b) -> Double.compare(givenColumn[a], givenColumn[b]));
+			boolean increasing=!hasNaN && duplicate==null;
+			for (int i=1; i<n && increasing; i++){
+				increasing = givenColumn[order[i-1]]<givenColumn[order[i]];
+			}
+			sorted=increasing;
+			if (sorted){
+				givenValues=new double[n];
+				selectValues=new double[n];
+				for (int i=0; i<n; i++){
+					givenValues[i]=givenColumn[order[i]];
+					selectValues[i]=selectColumn[order[i]];
+				}
+				gVList=null;
+				gVMap=null;
+			}else{
+				givenValues=null;
+				selectValues=null;
+				gVList=new ArrayList<Number>();
+				gVMap=new HashMap<Number, Number>();
+				if (duplicate==null){
+					for (int r: rows){
+						gVList.add(givenColumn[r]);
+						gVMap.put(givenColumn[r], selectColumn[r]);
+					}
+				}
+			}
+		}
+	}
+}
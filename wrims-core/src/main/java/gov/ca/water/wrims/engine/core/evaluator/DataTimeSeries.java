@@ -1,10 +1,10 @@
 package gov.ca.water.wrims.engine.core.evaluator;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.FutureKey;
 import gov.ca.water.wrims.engine.core.components.ControlData;
 
 public class DataTimeSeries {
@@ -18,20 +18,14 @@ public class DataTimeSeries {
 	
 	public static void saveDataToTimeSeries(String dvName, String entryNameTS, double value, Dvar dvar){
 		saveDataToTimeSeries(entryNameTS, value, dvar, 0);
-		if (dvName.contains("__fut__")){
-			String[] dvNameParts = dvName.split("__fut__");
-			if (dvNameParts.length==2){
-				try{
-					int offset=Integer.parseInt(dvNameParts[1]);
-					String newEntryNameTS=DssOperation.entryNameTS(dvNameParts[0], ControlData.timeStep);
-					saveDataToTimeSeries(newEntryNameTS, value, dvar, offset);
-				}catch(NumberFormatException e){
-				}
-			}
+		FutureKey key=FutureKey.parse(dvName);
+		if (key!=null){
+			saveDataToTimeSeries(key.baseEntryNameTS(ControlData.timeStep), value, dvar, key.index);
 		}
 	}
 	
 	public static void saveDataToTimeSeries(String entryNameTS, double value, Dvar dvar, int offset){
+		TimeSeriesCache.dvarAlias.clear();
 		if (!dvAliasTS.containsKey(entryNameTS)){
 			DssDataSetFixLength dds=new DssDataSetFixLength(ControlData.totalTimeStep.get(ControlData.currCycleIndex));
 			//double[] data=new double[ControlData.totalTimeStep.get(ControlData.currCycleIndex)];
@@ -44,10 +38,8 @@ public class DataTimeSeries {
 		}
 		DssDataSetFixLength ddsfl = dvAliasTS.get(entryNameTS);
 		double[] dataList=ddsfl.getData();
-		//dataList[ControlData.currTimeStep.get(ControlData.currCycleIndex)]=id.getData().doubleValue();
-		Date memStartDate = ddsfl.getStartTime();
-		Date currDate =  new Date(ControlData.currYear-1900, ControlData.currMonth-1, ControlData.currDay);
-		int index=TimeOperation.getNumberOfTimestep(memStartDate, currDate, ddsfl.getTimeStep())-1+offset;
+		//dataList[ControlData.currTimeStep.get(ControlData.currCycleIndex)]=id.doubleValue();
+		int index=TimeOperation.getNumberOfTimestep(ddsfl)-1+offset;
 		if (index<dataList.length)	dataList[index]=value;
 		
 		//if (ControlData.outputCycleToDss){
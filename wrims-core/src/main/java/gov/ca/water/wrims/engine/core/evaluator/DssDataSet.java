@@ -1,28 +1,41 @@
 package gov.ca.water.wrims.engine.core.evaluator;
 
-import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import gov.ca.water.wrims.engine.core.components.ControlData;
-import gov.ca.water.wrims.engine.core.components.Error;
 
 public class DssDataSet {
+	/**
+	 * The number of exceedance indexes kept per timeseries. The time window of
+	 * an exceedance call usually moves with the time step, so the indexes of
+	 * older windows are dropped, least recently used first.
+	 */
+	static final int MAX_EXCEEDANCE_INDEXES=16;
+
 	private ArrayList<Double> data;
 	private String timeStep;
 	private String units;
 	private String convertToUnits="";
 	private String kind;
 	private Date startTime;
+	private int startEpochMonth;
+	private int startEpochDay;
 	private boolean fromDssFile=false;
 	private int studyStartIndex=-1;
-	private static HashMap<Double, Date> selDataMap=new HashMap<Double, Date>();
+	private LinkedHashMap<String, ExceedanceIndex> exceedanceIndexMap=new LinkedHashMap<String, ExceedanceIndex>(MAX_EXCEEDANCE_INDEXES*2, 0.75f, true){
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ExceedanceIndex> eldest){
+			return size()>MAX_EXCEEDANCE_INDEXES;
+		}
+	};
 	
 	public void setData(ArrayList<Double> data){
 		this.data=data;
+		clearExceedanceIndex();
 	}
 	
 	public ArrayList<Double> getData(){
@@ -35,12 +48,24 @@ public class DssDataSet {
 	
 	public void setStartTime(Date st){
 		startTime=st;
+		if (st!=null){
+			startEpochMonth=EpochCalendar.epochMonth(st);
+			startEpochDay=EpochCalendar.epochDay(st);
+		}
 	}
 	
 	public Date getStartTime(){
 		return startTime;
 	}
 	
+	public int getStartEpochMonth(){
+		return startEpochMonth;
+	}
+	
+	public int getStartEpochDay(){
+		return startEpochDay;
+	}
+	
 	public String getTimeStep(){
 		return timeStep;
 	}
@@ -78,21 +103,10 @@ public class DssDataSet {
 	}
 	
 	public void generateStudyStartIndex(){
-		Date st=getStartTime();
-		//long sTime=st.getTime();
-		int sYear=st.getYear()+1900;
-		int sMonth=st.getMonth()+1; //Originally it should be getMonth()-1. However, dss data store at 24:00 Jan31, 1921 is considered to store at 0:00 Feb 1, 1921 
-		Date studyStart=new Date(ControlData.startYear-1900, ControlData.startMonth-1, ControlData.startDay);
 		if (TimeOperation.isMonthlyInterval(getTimeStep())){
-			studyStartIndex=ControlData.startYear*12+ControlData.startMonth-(sYear*12+sMonth);
+			studyStartIndex=EpochCalendar.epochMonth(ControlData.startYear, ControlData.startMonth)-startEpochMonth;
 		}else{
-			//double indexValue=(studyStartTime-sTime)/(1000*60*60*24);
-			Calendar c1=Calendar.getInstance();
-			c1.setTime(st);
-			Calendar c2=Calendar.getInstance();
-			c2.setTime(studyStart);
-			long indexValue = Duration.between(c1.toInstant(), c2.toInstant()).toDays();
-			studyStartIndex=(int)indexValue+1;
+			studyStartIndex=EpochCalendar.epochDay(ControlData.startYear, ControlData.startMonth, ControlData.startDay)-startEpochDay+1;
 		}
 	}
 	
@@ -100,9 +114,32 @@ public class DssDataSet {
 		return studyStartIndex;
 	}
 	
-	public ArrayList<Double> getTimeseriesDataWithOptions(String selMon, Date selSd, Date selEd){
+	/**
+	 * @return the sorted values of the time window and month selection, which
+	 *         are kept until the data are changed or MAX_EXCEEDANCE_INDEXES
+	 *         other selections are used after it
+	 */
+	public synchronized ExceedanceIndex getExceedanceIndex(String selMon, Date selSd, Date selEd){
+		String key=selMon+":"+EpochCalendar.epochDay(selSd)+":"+EpochCalendar.epochDay(selEd)+":"+data.size();
+		ExceedanceIndex index=exceedanceIndexMap.get(key);
+		if (index==null){
+			HashMap<Double, Date> selDataMap=new HashMap<Double, Date>();
+			index=new ExceedanceIndex(getTimeseriesDataWithOptions(selMon, selSd, selEd, selDataMap), selDataMap);
+			exceedanceIndexMap.put(key, index);
+		}
+		return index;
+	}
+	
+	public synchronized void clearExceedanceIndex(){
+		exceedanceIndexMap.clear();
+	}
+	
+	synchronized int exceedanceIndexCount(){
+		return exceedanceIndexMap.size();
+	}
+	
+	public ArrayList<Double> getTimeseriesDataWithOptions(String selMon, Date selSd, Date selEd, HashMap<Double, Date> selDataMap){
 		ArrayList<Double> selData=new ArrayList<Double>();
-		selDataMap=new HashMap<Double, Date>();
 		String m1="all";
 		String m2="all";
 		double sum=0;
@@ -153,59 +190,4 @@ public class DssDataSet {
 		}
 		return selData;	
 	}
-	
-	public static double getExceedance(ArrayList<Double> optedData, double exc) {
-		int size = optedData.size();
-		if (size==0){
-			Error.addEvaluationError("The data in the specified time period and selected month(s) from the timeseries doesn't exist in the Exceedance function.");
-			return 1.0;
-		}
-		Double[] values =optedData.toArray(new Double[size]);
-		Arrays.sort(values);
-		if (exc==1){
-			return values[0];
-		}
-		double excIndex = (1.0-exc)*size;
-		if (excIndex>=1.0){
-			int index = (int) Math.floor(excIndex);
-			double fract = excIndex-index;
-			double value = values[index-1]+fract*(values[index]-values[index-1]);
-			return value;
-		}else{
-			double value=values[0]-(1.0-excIndex)*(values[1]-values[0]);
-			return value;
-		}
-	}
-	
-	public static int getExceedance_tsi(ArrayList<Double> optedData, double exc) {
-		int size = optedData.size();
-		if (size==0){
-			Error.addEvaluationError("The data in the specified time period and selected month(s) from the timeseries doesn't exist in the Exceedance function.");
-			return 0;
-		}
-		Double[] values =optedData.toArray(new Double[size]);
-		Arrays.sort(values);
-		double excIndex = (1.0-exc)*size;
-		int index=(int)Math.round(excIndex)-1;
-		if (index<0) index=0;
-		Date dataDate=selDataMap.get(values[index]);
-		int dataYear=dataDate.getYear()+1900;
-		int dataMonth=dataDate.getMonth()+1; //HEC DSS7 uses getMonth()+1. However, Vista/HecDSS6 uses getMonth() because dss data store at 24:00 Jan31, 1921 is considered to store at 0:00 Feb 1, 1921 
-		int dataDay = dataDate.getDate();
-		if (TimeOperation.isMonthlyInterval(ControlData.timeStep)){
-			return (dataYear-ControlData.currYear)*12+(dataMonth-ControlData.currMonth);
-		}else{
-			Date currDate=new Date (ControlData.currYear-1900, ControlData.currMonth-1, ControlData.currDay);
-			//long dataTime=dataDate.getTime();
-			//long currTime=currDate.getTime();
-			//double tsi=(dataTime-currTime)/(24*60*60*1000l);
-			Calendar c1=Calendar.getInstance();
-			c1.setTime(currDate);
-			Calendar c2=Calendar.getInstance();
-			c2.setTime(dataDate);
-			long tsi = Duration.between(c1.toInstant(), c2.toInstant()).toDays();
-			return (int)tsi;
-		}
-		
-	}
 }
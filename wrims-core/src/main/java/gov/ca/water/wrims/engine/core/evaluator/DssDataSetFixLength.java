@@ -8,6 +8,8 @@ public class DssDataSetFixLength {
 	private String units;
 	private String kind;
 	private Date startTime;
+	private int startEpochMonth;
+	private int startEpochDay;
 	private boolean fromDssFile=false;
 	
 	public DssDataSetFixLength(){
@@ -35,12 +37,24 @@ public class DssDataSetFixLength {
 	
 	public void setStartTime(Date st){
 		startTime=st;
+		if (st!=null){
+			startEpochMonth=EpochCalendar.epochMonth(st);
+			startEpochDay=EpochCalendar.epochDay(st);
+		}
 	}
 	
 	public Date getStartTime(){
 		return startTime;
 	}
 	
+	public int getStartEpochMonth(){
+		return startEpochMonth;
+	}
+	
+	public int getStartEpochDay(){
+		return startEpochDay;
+	}
+	
 	public String getTimeStep(){
 		return timeStep;
 	}
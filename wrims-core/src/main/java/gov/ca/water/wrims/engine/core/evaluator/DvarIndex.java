@@ -0,0 +1,97 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Param;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+
+/**
+ * Column ids of the dvars of one model, in the order of the dvar list. The
+ * linear part of an EvalExpression refers to its dvars by these ids. Dvars that
+ * are created at run time (time array and slack/surplus dvars) get the next
+ * ids when a term of them is first made, by findOrAdd. The goals of a model can
+ * be evaluated by several threads, so these ids are added under a lock and
+ * read without one.
+ */
+public class DvarIndex {
+	private final Map<String, Dvar> dvMap;
+	private final HashMap<String, Integer> idMap;
+	private final String[] names;
+	private final boolean[] integers;
+	private final ConcurrentHashMap<String, Integer> addedIdMap=new ConcurrentHashMap<String, Integer>();
+	private volatile String[] addedNames=new String[16];
+
+	public DvarIndex(ModelDataSet mds){
+		dvMap=mds.dvMap;
+		ArrayList<String> dvList=mds.dvList;
+		idMap=new HashMap<String, Integer>(dvList.size()*2);
+		names=new String[dvList.size()];
+		integers=new boolean[dvList.size()];
+		int n=0;
+		for (String dvName: dvList){
+			Dvar dvar=dvMap.get(dvName);
+			if (dvar==null || idMap.containsKey(dvName)) continue;
+			idMap.put(dvName, n);
+			names[n]=dvName;
+			integers[n]=dvar.integer.equals(Param.yes);
+			n++;
+		}
+	}
+
+	/**
+	 * @return the column id of the dvar, or -1
+	 */
+	public int find(String dvName){
+		Integer id=idMap.get(dvName);
+		return id==null ? -1 : id;
+	}
+
+	/**
+	 * @return the column id of the dvar, given a new id if it is not in the
+	 *         dvar list and has none yet
+	 */
+	public int findOrAdd(String dvName){
+		int id=find(dvName);
+		if (id>=0) return id;
+		Integer added=addedIdMap.get(dvName);
+		if (added!=null) return added;
+		synchronized (this){
+			added=addedIdMap.get(dvName);
+			if (added!=null) return added;
+			int n=addedIdMap.size();
+			String[] newNames=addedNames;
+			if (n==newNames.length) newNames=Arrays.copyOf(newNames, n*2);
+			newNames[n]=dvName;
+			addedNames=newNames;
+			addedIdMap.put(dvName, names.length+n);
+			return names.length+n;
+		}
+	}
+
+	public String name(int id){
+		return id<names.length ? names[id] : addedNames[id-names.length];
+	}
+
+	/**
+	 * @return true if the dvar is an integer dvar of the dvar list
+	 */
+	public boolean isInteger(int id){
+		return id<integers.length && integers[id];
+	}
+
+	/**
+	 * @return the dvar index of the current model, or null if the current dvar
+	 *         map is not the map of a model
+	 */
+	public static DvarIndex current(){
+		DvarIndex index=ControlData.currModelDataSet.dvarIndex;
+		if (index==null || index.dvMap!=ControlData.currDvMap) return null;
+		return index;
+	}
+}
@@ -0,0 +1,107 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.util.Date;
+
+import gov.ca.water.wrims.engine.core.parallel.ParallelVars;
+
+/**
+ * Dates as int counts of calendar months (epoch month, year*12+month-1) and of
+ * calendar days since 1970-01-01 (epoch day), so that the time step offsets of
+ * 1MON and 1DAY time series are found without Date and Calendar objects. The
+ * days between two dates are calendar days; they do not depend on the time
+ * zone and its daylight saving time.
+ */
+public class EpochCalendar {
+	private static final int[][] DAYS_IN_MONTH={
+		{0, 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31},
+		{0, 31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31}
+	};
+	private static final int[][] DAYS_BEFORE_MONTH=new int[2][14];
+	private static final int FIRST_YEAR=1800;
+	private static final int LAST_YEAR=2400;
+	private static final boolean[] LEAP=new boolean[LAST_YEAR-FIRST_YEAR+1];
+	private static final int[] DAYS_BEFORE_YEAR=new int[LAST_YEAR-FIRST_YEAR+2];
+
+	static{
+		for (int l=0; l<2; l++){
+			for (int m=1; m<=12; m++){
+				DAYS_BEFORE_MONTH[l][m+1]=DAYS_BEFORE_MONTH[l][m]+DAYS_IN_MONTH[l][m];
+			}
+		}
+		for (int y=FIRST_YEAR; y<=LAST_YEAR; y++){
+			LEAP[y-FIRST_YEAR]=TimeOperation.isLeapYear(y);
+		}
+		DAYS_BEFORE_YEAR[0]=daysFromCivil(FIRST_YEAR, 1, 1);
+		for (int y=FIRST_YEAR; y<=LAST_YEAR; y++){
+			DAYS_BEFORE_YEAR[y-FIRST_YEAR+1]=DAYS_BEFORE_YEAR[y-FIRST_YEAR]+(LEAP[y-FIRST_YEAR] ? 366 : 365);
+		}
+	}
+
+	public static boolean isLeapYear(int year){
+		if (year>=FIRST_YEAR && year<=LAST_YEAR) return LEAP[year-FIRST_YEAR];
+		return TimeOperation.isLeapYear(year);
+	}
+
+	public static int daysInMonth(int month, int year){
+		return DAYS_IN_MONTH[isLeapYear(year) ? 1 : 0][month];
+	}
+
+	public static int epochMonth(int year, int month){
+		return year*12+month-1;
+	}
+
+	public static int epochMonth(Date date){
+		return epochMonth(date.getYear()+1900, date.getMonth()+1);
+	}
+
+	public static int epochDay(int year, int month, int day){
+		if (year>=FIRST_YEAR && year<=LAST_YEAR && month>=1 && month<=12){
+			return DAYS_BEFORE_YEAR[year-FIRST_YEAR]+DAYS_BEFORE_MONTH[LEAP[year-FIRST_YEAR] ? 1 : 0][month]+day-1;
+		}
+		return daysFromCivil(year, month, day);
+	}
+
+	public static int epochDay(Date date){
+		return epochDay(date.getYear()+1900, date.getMonth()+1, date.getDate());
+	}
+
+	/**
+	 * Sets the data year, month and day of prvs to the date of the epoch month,
+	 * on the last day of the month.
+	 */
+	public static void setMonth(ParallelVars prvs, int epochMonth){
+		prvs.dataYear=Math.floorDiv(epochMonth, 12);
+		prvs.dataMonth=Math.floorMod(epochMonth, 12)+1;
+		prvs.dataDay=daysInMonth(prvs.dataMonth, prvs.dataYear);
+	}
+
+	/**
+	 * Sets the data year, month and day of prvs to the date of the epoch day.
+	 */
+	public static void setDay(ParallelVars prvs, int epochDay){
+		int z=epochDay+719468;
+		int era=Math.floorDiv(z, 146097);
+		int doe=z-era*146097;
+		int yoe=(doe-doe/1460+doe/36524-doe/146096)/365;
+		int doy=doe-(365*yoe+yoe/4-yoe/100);
+		int mp=(5*doy+2)/153;
+		prvs.dataDay=doy-(153*mp+2)/5+1;
+		prvs.dataMonth=mp<10 ? mp+3 : mp-9;
+		prvs.dataYear=yoe+era*400+(prvs.dataMonth<=2 ? 1 : 0);
+	}
+
+	/**
+	 * Days from 1970-01-01 of a date of the proleptic Gregorian calendar. Days
+	 * past the end of the month roll over into the next months, as in Date.
+	 */
+	private static int daysFromCivil(int year, int month, int day){
+		int y=year+Math.floorDiv(month-1, 12);
+		int m=Math.floorMod(month-1, 12)+1;
+		if (m<=2) y=y-1;
+		int era=Math.floorDiv(y, 400);
+		int yoe=y-era*400;
+		int doy=(153*(m>2 ? m-3 : m+9)+2)/5+day-1;
+		int doe=yoe*365+yoe/4-yoe/100+doy;
+		return era*146097+doe-719468;
+	}
+}
@@ -1,64 +1,489 @@
 package gov.ca.water.wrims.engine.core.evaluator;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import gov.ca.water.wrims.engine.core.components.IntDouble;
 
+/**
+ * The value and the linear part of an expression. The linear part is kept as
+ * a sparse vector: dvar column ids of a DvarIndex, sorted, with their
+ * coefficients and the rank in which each term was added. Expressions
+ * evaluated without a DvarIndex keep it in a multiplier map instead.
+ *
+ * getMultiplier() gives the linear part as a read-only map. Its terms are in
+ * the order of the ranks, which is the order the multiplier map had when all
+ * expressions were kept as maps, so the solvers and the LP/MPS writers get
+ * the same rows.
+ */
 public class EvalExpression {
+	private static final int[] NO_IDS=new int[0];
+	private static final double[] NO_COEFS=new double[0];
+	private static final boolean[] NO_INTS=new boolean[0];
+	private static final long[] NO_RANKS=new long[0];
+
 	private IntDouble intDouble;
+	private boolean ownsValue=false;
 	private LinkedHashMap<String, IntDouble> multiplier;
-	
+	private Multiplier view;
+	private DvarIndex index;
+	private int[] ids=NO_IDS;
+	private double[] coefs=NO_COEFS;
+	private boolean[] ints=NO_INTS;
+	private long[] ranks=NO_RANKS;
+	private long nextRank=0;
+	private int size=0;
+
 	public EvalExpression(){
 		intDouble=new IntDouble(0, true);
-		multiplier = new LinkedHashMap<String, IntDouble>();
 	}
-	
+
 	public EvalExpression(IntDouble id){
 		intDouble=id;
-		multiplier = new LinkedHashMap<String, IntDouble>();
 	}
-	
+
+	/**
+	 * An expression with the single term 1*dvar.
+	 */
+	public EvalExpression(IntDouble id, DvarIndex index, int dvarId){
+		this(id, index, dvarId, index.isInteger(dvarId));
+	}
+
+	/**
+	 * An expression with the single term 1*dvar, where the 1 is an int if isInt.
+	 */
+	public EvalExpression(IntDouble id, DvarIndex index, int dvarId, boolean isInt){
+		intDouble=id;
+		this.index=index;
+		ids=new int[]{dvarId};
+		coefs=new double[]{1};
+		ints=new boolean[]{isInt};
+		ranks=new long[]{0};
+		nextRank=1;
+		size=1;
+	}
+
+	/**
+	 * @return an expression with value 0 and the single term 1*name: sparse if
+	 *         the current model has a DvarIndex, else in a multiplier map
+	 */
+	public static EvalExpression term(String name, boolean isInt){
+		DvarIndex dvarIndex=DvarIndex.current();
+		if (dvarIndex!=null){
+			return new EvalExpression(new IntDouble(0, true), dvarIndex, dvarIndex.findOrAdd(name), isInt);
+		}
+		EvalExpression ee=new EvalExpression();
+		LinkedHashMap<String, IntDouble> multiplier=new LinkedHashMap<String, IntDouble>();
+		multiplier.put(name, isInt ? new IntDouble(1, true) : new IntDouble(1.0, false));
+		ee.setMultiplier(multiplier);
+		return ee;
+	}
+
 	public IntDouble getValue(){
 		return intDouble;
 	}
-	
+
 	public void setValue(IntDouble intDouble){
 		this.intDouble=intDouble;
+		ownsValue=false;
 	}
-	
+
+	/**
+	 * Sets the value made by an operation on the expression. The next
+	 * operation writes its result to it.
+	 */
+	void setResult(IntDouble intDouble){
+		this.intDouble=intDouble;
+		ownsValue=true;
+	}
+
+	/**
+	 * @return the value to write the result of an operation to: the value of
+	 *         the expression if an operation made it, else a new value
+	 */
+	IntDouble resultSlot(){
+		return ownsValue ? intDouble : new IntDouble();
+	}
+
+	/**
+	 * @return the linear part as a map of dvar name to coefficient, which can
+	 *         not be changed. It is kept until the expression changes.
+	 */
 	public LinkedHashMap<String, IntDouble> getMultiplier(){
+		if (view==null){
+			view=new Multiplier();
+			if (multiplier==null){
+				fillTerms(view.terms);
+			}else{
+				for (Map.Entry<String, IntDouble> entry: multiplier.entrySet()){
+					IntDouble id=entry.getValue();
+					view.terms.put(entry.getKey(), id.copyWithName(id.getName(), id.getIndex()));
+				}
+			}
+		}
+		return view;
+	}
+
+	/**
+	 * @return the multiplier map of the expression, to be changed in place. A
+	 *         sparse expression is turned into the map form for good; the
+	 *         operations of Evaluation only do it when the other operand is in
+	 *         the map form.
+	 */
+	LinkedHashMap<String, IntDouble> multiplierMap(){
+		if (multiplier==null){
+			multiplier=new LinkedHashMap<String, IntDouble>();
+			fillTerms(multiplier);
+			clearTerms();
+		}
+		view=null;
 		return multiplier;
 	}
-	
+
 	public void setMultiplier(LinkedHashMap<String, IntDouble> multiplier){
 		this.multiplier=multiplier;
+		clearTerms();
 	}
-	
+
+	private void fillTerms(LinkedHashMap<String, IntDouble> map){
+		for (int i: rankOrder()){
+			if (ints[i]){
+				map.put(index.name(ids[i]), new IntDouble((int)coefs[i], true));
+			}else{
+				map.put(index.name(ids[i]), new IntDouble(coefs[i], false));
+			}
+		}
+	}
+
+	/**
+	 * @return the positions of the terms by rank
+	 */
+	private int[] rankOrder(){
+		int[] order=new int[size];
+		for (int i=0; i<size; i++){
+			int j=i;
+			while (j>0 && ranks[order[j-1]]>ranks[i]){
+				order[j]=order[j-1];
+				j--;
+			}
+			order[j]=i;
+		}
+		return order;
+	}
+
 	public boolean isNumeric(){
-		if (multiplier.size()==0){
+		if (multiplier==null){
+			return size==0;
+		}else if (multiplier.size()==0){
 			return true;
 		}else{
 			return false;
 		}
 	}
-	
+
 	public EvalExpression copyOf(){
 		EvalExpression evalExpression = new EvalExpression();
-		evalExpression.setMultiplier(copyOfMultiplier());
+		if (multiplier==null){
+			evalExpression.index=index;
+			evalExpression.ids=Arrays.copyOf(ids, size);
+			evalExpression.coefs=Arrays.copyOf(coefs, size);
+			evalExpression.ints=Arrays.copyOf(ints, size);
+			evalExpression.ranks=Arrays.copyOf(ranks, size);
+			evalExpression.nextRank=nextRank;
+			evalExpression.size=size;
+		}else{
+			evalExpression.setMultiplier(copyOfMultiplier());
+		}
 		evalExpression.setValue(intDouble.copyOf());
 		return evalExpression;
 	}
-	
+
 	public LinkedHashMap<String, IntDouble> copyOfMultiplier(){
 		LinkedHashMap<String, IntDouble> newMultiplier=new LinkedHashMap<String, IntDouble>();
+		LinkedHashMap<String, IntDouble> multiplier=this.multiplier==null ? getMultiplier() : this.multiplier;
 		Set multCollection = multiplier.keySet();
 		Iterator multIterator = multCollection.iterator();
-		
+
 		while(multIterator.hasNext()){
 			String multName=(String)multIterator.next();
 			newMultiplier.put(multName, multiplier.get(multName).copyOf());
 		}
 		return newMultiplier;
 	}
+
+	private void clearTerms(){
+		view=null;
+		index=null;
+		ids=NO_IDS;
+		coefs=NO_COEFS;
+		ints=NO_INTS;
+		ranks=NO_RANKS;
+		nextRank=0;
+		size=0;
+	}
+
+	/**
+	 * @return true if the linear part of both expressions is in the sparse form
+	 *         of the same DvarIndex
+	 */
+	boolean isSparseWith(EvalExpression ee){
+		if (multiplier!=null || ee.multiplier!=null) return false;
+		return index==null || ee.index==null || index==ee.index;
+	}
+
+	boolean isSparse(){
+		return multiplier==null;
+	}
+
+	// The coefficient operations below give the same results and the same
+	// term order as the operations of Evaluation on the multiplier map.
+
+	void negateTerms(){
+		view=null;
+		for (int i=0; i<size; i++){
+			coefs[i] = ints[i] ? -(int)coefs[i] : -coefs[i];
+		}
+	}
+
+	void multiplyTerms(IntDouble factor){
+		boolean isInt=factor.isInt();
+		double f = isInt ? factor.intValue() : factor.doubleValue();
+		view=null;
+		int n=0;
+		for (int i=0; i<size; i++){
+			double c = isInt && ints[i] ? (int)f*(int)coefs[i] : f*coefs[i];
+			if (c==0.0) continue;
+			ids[n]=ids[i];
+			coefs[n]=c;
+			ints[n]=isInt && ints[i];
+			ranks[n]=ranks[i];
+			n++;
+		}
+		size=n;
+	}
+
+	void divideTerms(IntDouble divisor){
+		boolean isInt=divisor.isInt();
+		double d = isInt ? divisor.intValue() : divisor.doubleValue();
+		view=null;
+		for (int i=0; i<size; i++){
+			coefs[i] = isInt && ints[i] ? (int)coefs[i]/(int)d : coefs[i]/d;
+			ints[i] = isInt && ints[i];
+		}
+	}
+
+	/**
+	 * Adds (or subtracts) the linear part of ee by merging the sorted ids.
+	 * Terms that become 0 are removed. The terms new to this expression rank
+	 * after its own terms, in their order in ee, as a map put would add them.
+	 */
+	void mergeTerms(EvalExpression ee, boolean subtract){
+		if (ee.size==0) return;
+		view=null;
+		int[] newIds=new int[size+ee.size];
+		double[] newCoefs=new double[size+ee.size];
+		boolean[] newInts=new boolean[size+ee.size];
+		long[] newRanks=new long[size+ee.size];
+		int i=0, j=0, n=0;
+		while (i<size || j<ee.size){
+			if (j==ee.size || (i<size && ids[i]<ee.ids[j])){
+				newIds[n]=ids[i];
+				newCoefs[n]=coefs[i];
+				newInts[n]=ints[i];
+				newRanks[n]=ranks[i];
+				i++;
+				n++;
+			}else if (i==size || ee.ids[j]<ids[i]){
+				newIds[n]=ee.ids[j];
+				if (!subtract){
+					newCoefs[n]=ee.coefs[j];
+				}else{
+					newCoefs[n] = ee.ints[j] ? 0-(int)ee.coefs[j] : 0-ee.coefs[j];
+				}
+				newInts[n]=ee.ints[j];
+				newRanks[n]=nextRank+ee.ranks[j];
+				j++;
+				n++;
+			}else{
+				boolean isInt=ints[i] && ee.ints[j];
+				double c;
+				if (isInt){
+					c = subtract ? (int)coefs[i]-(int)ee.coefs[j] : (int)coefs[i]+(int)ee.coefs[j];
+				}else{
+					c = subtract ? coefs[i]-ee.coefs[j] : coefs[i]+ee.coefs[j];
+				}
+				if (c!=0.0){
+					newIds[n]=ids[i];
+					newCoefs[n]=c;
+					newInts[n]=isInt;
+					newRanks[n]=ranks[i];
+					n++;
+				}
+				i++;
+				j++;
+			}
+		}
+		if (index==null) index=ee.index;
+		ids=newIds;
+		coefs=newCoefs;
+		ints=newInts;
+		ranks=newRanks;
+		nextRank=nextRank+ee.nextRank;
+		size=n;
+	}
+
+	/**
+	 * The map given by getMultiplier(). The reads go to a map of its own, and
+	 * the methods that would change it throw UnsupportedOperationException.
+	 */
+	private static final class Multiplier extends LinkedHashMap<String, IntDouble> {
+		private final LinkedHashMap<String, IntDouble> terms=new LinkedHashMap<String, IntDouble>();
+		private final Map<String, IntDouble> readOnly=Collections.unmodifiableMap(terms);
+
+		@Override
+		public int size(){
+			return terms.size();
+		}
+
+		@Override
+		public boolean isEmpty(){
+			return terms.isEmpty();
+		}
+
+		@Override
+		public IntDouble get(Object key){
+			return terms.get(key);
+		}
+
+		@Override
+		public IntDouble getOrDefault(Object key, IntDouble defaultValue){
+			return terms.getOrDefault(key, defaultValue);
+		}
+
+		@Override
+		public boolean containsKey(Object key){
+			return terms.containsKey(key);
+		}
+
+		@Override
+		public boolean containsValue(Object value){
+			return terms.containsValue(value);
+		}
+
+		@Override
+		public Set<String> keySet(){
+			return readOnly.keySet();
+		}
+
+		@Override
+		public Collection<IntDouble> values(){
+			return readOnly.values();
+		}
+
+		@Override
+		public Set<Map.Entry<String, IntDouble>> entrySet(){
+			return readOnly.entrySet();
+		}
+
+		@Override
+		public void forEach(BiConsumer<? super String, ? super IntDouble> action){
+			terms.forEach(action);
+		}
+
+		@Override
+		public boolean equals(Object o){
+			return terms.equals(o);
+		}
+
+		@Override
+		public int hashCode(){
+			return terms.hashCode();
+		}
+
+		@Override
+		public String toString(){
+			return terms.toString();
+		}
+
+		@Override
+		public Object clone(){
+			return new LinkedHashMap<String, IntDouble>(terms);
+		}
+
+		@Override
+		public IntDouble put(String key, IntDouble value){
+			throw readOnly();
+		}
+
+		@Override
+		public void putAll(Map<? extends String, ? extends IntDouble> m){
+			throw readOnly();
+		}
+
+		@Override
+		public IntDouble remove(Object key){
+			throw readOnly();
+		}
+
+		@Override
+		public boolean remove(Object key, Object value){
+			throw readOnly();
+		}
+
+		@Override
+		public void clear(){
+			throw readOnly();
+		}
+
+		@Override
+		public IntDouble putIfAbsent(String key, IntDouble value){
+			throw readOnly();
+		}
+
+		@Override
+		public IntDouble replace(String key, IntDouble value){
+			throw readOnly();
+		}
+
+		@Override
+		public boolean replace(String key, IntDouble oldValue, IntDouble newValue){
+			throw readOnly();
+		}
+
+		@Override
+		public void replaceAll(BiFunction<? super String, ? super IntDouble, ? extends IntDouble> function){
+			throw readOnly();
+		}
+
+		@Override
+		public IntDouble computeIfAbsent(String key, Function<? super String, ? extends IntDouble> mappingFunction){
+			throw readOnly();
+		}
+
+		@Override
+		public IntDouble computeIfPresent(String key, BiFunction<? super String, ? super IntDouble, ? extends IntDouble> remappingFunction){
+			throw readOnly();
+		}
+
+		@Override
+		public IntDouble compute(String key, BiFunction<? super String, ? super IntDouble, ? extends IntDouble> remappingFunction){
+			throw readOnly();
+		}
+
+		@Override
+		public IntDouble merge(String key, IntDouble value, BiFunction<? super IntDouble, ? super IntDouble, ? extends IntDouble> remappingFunction){
+			throw readOnly();
+		}
+
+		private static UnsupportedOperationException readOnly(){
+			return new UnsupportedOperationException("The multiplier of an expression is read-only.");
+		}
+	}
 }
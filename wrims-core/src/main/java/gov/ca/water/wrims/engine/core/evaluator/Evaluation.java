@@ -6,19 +6,22 @@ import org.antlr.runtime.TokenStream;
 
 import gov.ca.water.wrims.engine.core.commondata.solverdata.SolverData;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.FutureKey;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Param;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Timeseries;
 import gov.ca.water.wrims.engine.core.components.ControlData;
 import gov.ca.water.wrims.engine.core.components.Error;
 import gov.ca.water.wrims.engine.core.components.IntDouble;
-import gov.ca.water.wrims.engine.core.external.ExternalFunction;
+import gov.ca.water.wrims.engine.core.external.ExternalArgs;
+import gov.ca.water.wrims.engine.core.external.ExternalFunctions;
 import gov.ca.water.wrims.engine.core.hdf5.HDF5Reader;
+import gov.ca.water.wrims.engine.core.parallel.EvaluationContext;
 import gov.ca.water.wrims.engine.core.parallel.ParallelVars;
 import gov.ca.water.wrims.engine.core.solver.CbcSolver;
 
-import java.time.Duration;
-import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -50,8 +53,8 @@ public class Evaluation {
 			Error.addEvaluationError("Decision variable can't be used in define condition");
 		}
 		
-		double value1=ee1.getValue().getData().doubleValue();
-		double value2=ee2.getValue().getData().doubleValue();
+		double value1=ee1.getValue().doubleValue();
+		double value2=ee2.getValue().doubleValue();
 		
 		if (relation.equals("==")) {
 			if (ControlData.solverName.equalsIgnoreCase("Cbc") && CbcSolver.cbcSolutionRounding){
@@ -146,22 +149,30 @@ public class Evaluation {
 			}
 			sumIndex.push(li);
 		}
+		IdentifierSlots slots=IdentifierSlots.current();
+		if (slots!=null){
+			int slot=slots.find(ident);
+			if (slot>=0){
+				EvalExpression ee=slotExpression(slots, slot, ident);
+				if (ee!=null) return ee;
+			}
+		}
 		if (ControlData.currSvMap.containsKey(ident)){
 			EvalExpression ee=new EvalExpression();
 			IntDouble id0 = ControlData.currSvMap.get(ident).getData();
-			IntDouble id1 = new IntDouble(id0.getData(), id0.isInt(), ident, 0);
+			IntDouble id1 = id0.copyWithName(ident, 0);
 			ee.setValue(id1);
 			return ee;
 		}else if (ControlData.currTsMap.containsKey(ident)){
 			EvalExpression ee=new EvalExpression();
 			IntDouble id0 = ControlData.currTsMap.get(ident).getData();
-			IntDouble id1 = new IntDouble(id0.getData(), id0.isInt(), ident, 0);
+			IntDouble id1 = id0.copyWithName(ident, 0);
 			ee.setValue(id1);
 			return ee;
 		}else if (ControlData.isPostProcessing && ControlData.currDvMap.containsKey(ident)){
 			EvalExpression ee=new EvalExpression();
 			IntDouble id0 = ControlData.currDvMap.get(ident).getData();
-			IntDouble id1 = new IntDouble(id0.getData(), id0.isInt(), ident, 0);
+			IntDouble id1 = id0.copyWithName(ident, 0);
 			ee.setValue(id1);
 			return ee;
 		}else if (ControlData.isPostProcessing && ControlData.currAliasMap.containsKey(ident)){
@@ -173,7 +184,7 @@ public class Evaluation {
 				ee.setValue(id1);
 				return ee;
 			}
-			IntDouble id1 = new IntDouble(id0.getData(), id0.isInt(), ident, 0);
+			IntDouble id1 = id0.copyWithName(ident, 0);
 			ee.setValue(id1);
 			return ee;
 		}else if (!ControlData.isPostProcessing && ControlData.currAliasMap.containsKey(ident) && !ControlData.currDvMap.containsKey(ident)){
@@ -195,24 +206,60 @@ public class Evaluation {
 			return ee;				
 		}
 		
+		boolean isInt=false;
+		if (ControlData.currDvMap.containsKey(ident)){
+			Dvar dv = ControlData.currDvMap.get(ident);
+			isInt=dv.integer.equals(Param.yes);
+		}
+		return dvarTerm(ident, isInt);
+	}
+
+	/**
+	 * @return the expression 1*ident of a dvar, sparse if the current model has
+	 *         a DvarIndex
+	 */
+	private static EvalExpression dvarTerm(String ident, boolean isInt){
+		DvarIndex dvarIndex=DvarIndex.current();
+		if (dvarIndex!=null){
+			return new EvalExpression(new IntDouble (0, true, ident, 0), dvarIndex, dvarIndex.findOrAdd(ident), isInt);
+		}
 		EvalExpression ee=new EvalExpression();
 		IntDouble id0 = new IntDouble (0, true, ident, 0);
 		ee.setValue(id0);
-		HashMap<String, IntDouble> multiplier=ee.getMultiplier();
-		IntDouble id;
-		if (ControlData.currDvMap.containsKey(ident)){
-			Dvar dv = ControlData.currDvMap.get(ident);
-			if (dv.integer.equals(Param.yes)){
-				id= new IntDouble(1,true, ident, 0);
-			}else{
-				id= new IntDouble(1.0,false, ident, 0);
-			}
+		LinkedHashMap<String, IntDouble> multiplier=new LinkedHashMap<String, IntDouble>();
+		if (isInt){
+			multiplier.put(ident, new IntDouble(1,true, ident, 0));
 		}else{
-			id= new IntDouble(1.0,false, ident, 0);
+			multiplier.put(ident, new IntDouble(1.0,false, ident, 0));
 		}
-		multiplier.put(ident, id);
+		ee.setMultiplier(multiplier);
 		return ee;
 	}
+
+	/**
+	 * term_IDENT of an identifier bound to a slot of the current model, or null
+	 * if the slot kind needs the full lookup of term_IDENT or the variable is no
+	 * longer in its model map.
+	 */
+	private static EvalExpression slotExpression(IdentifierSlots slots, int slot, String ident){
+		Object variable=slots.boundVariable(slot, ident);
+		if (variable==null) return null;
+		switch (slots.kind(slot)){
+		case IdentifierSlots.SVAR:
+			return new EvalExpression(((Svar)variable).getData().copyWithName(ident, 0));
+		case IdentifierSlots.TIMESERIES:
+			return new EvalExpression(((Timeseries)variable).getData().copyWithName(ident, 0));
+		case IdentifierSlots.DVAR:
+			Dvar dv=(Dvar)variable;
+			if (ControlData.isPostProcessing){
+				return new EvalExpression(dv.getData().copyWithName(ident, 0));
+			}else if (ControlData.parameterMap.containsKey(ident)){
+				return null;
+			}
+			return dvarTerm(ident, dv.integer.equals(Param.yes));
+		}
+		return null;
+	}
 	
 	public static EvalExpression term_SVAR (String ident){
 		IntDouble data;
@@ -233,7 +280,7 @@ public class Evaluation {
 			IntDouble id=new IntDouble(1.0, false, ident, 0);
 			return new EvalExpression(id);
 		}
-		return new EvalExpression(new IntDouble(data.getData(), data.isInt(), ident, 0));
+		return new EvalExpression(data.copyWithName(ident, 0));
 	}
 	
 	public static EvalExpression term_INTEGER (String integer){
@@ -249,19 +296,23 @@ public class Evaluation {
 	public static EvalExpression unary (String s, EvalExpression ee){
 		if (s !=null && s.equals("-")){
 			if (ee.getValue().isInt()){
-				int value=-ee.getValue().getData().intValue();
+				int value=-ee.getValue().intValue();
 				ee.getValue().setData(value);
 			}else{
-				double value=-ee.getValue().getData().doubleValue();
+				double value=-ee.getValue().doubleValue();
 				ee.getValue().setData(value);
 			}
-			Map<String, IntDouble> multiplier=ee.getMultiplier();
+			if (ee.isSparse()){
+				ee.negateTerms();
+				return ee;
+			}
+			Map<String, IntDouble> multiplier=ee.multiplierMap();
 			for (String dvar : multiplier.keySet()) {
 				IntDouble id=multiplier.get(dvar);
 				if (id.isInt()){
-					id.setData(-id.getData().intValue());
+					id.setData(-id.intValue());
 				}else{
-					id.setData(-id.getData().doubleValue());
+					id.setData(-id.doubleValue());
 				}
 				multiplier.put(dvar, id);				
 			}
@@ -273,14 +324,18 @@ public class Evaluation {
 		if (ee1.isNumeric()){
 			IntDouble id1=ee1.getValue();
 			IntDouble id2=ee2.getValue();
-			ee2.setValue(multiplyOperation(id1,id2));
-			Map<String, IntDouble> multiplier=ee2.getMultiplier();
+			ee2.setResult(multiplyOperation(id1,id2,ee2.resultSlot()));
+			if (ee2.isSparse()){
+				ee2.multiplyTerms(id1);
+				return ee2;
+			}
+			Map<String, IntDouble> multiplier=ee2.multiplierMap();
 			Set<String> keySet=multiplier.keySet();
 			Iterator iterator=(Iterator) keySet.iterator();
 			while (iterator.hasNext()) {
 				String dvar=(String) iterator.next();
 				IntDouble id3=multiplyOperation(id1,multiplier.get(dvar));
-				if (id3.getData().doubleValue()==0.0){
+				if (id3.doubleValue()==0.0){
 					iterator.remove();
 				}else{
 					multiplier.put(dvar, id3);
@@ -291,14 +346,18 @@ public class Evaluation {
 			if (ee2.isNumeric()){
 				IntDouble id2=ee2.getValue();
 				IntDouble id1=ee1.getValue();
-				ee1.setValue(multiplyOperation(id2,id1));
-				Map<String, IntDouble> multiplier=ee1.getMultiplier();
+				ee1.setResult(multiplyOperation(id2,id1,ee1.resultSlot()));
+				if (ee1.isSparse()){
+					ee1.multiplyTerms(id2);
+					return ee1;
+				}
+				Map<String, IntDouble> multiplier=ee1.multiplierMap();
 				Set<String> keySet=multiplier.keySet();
 				Iterator iterator=(Iterator) keySet.iterator();
 				while (iterator.hasNext()) {
 					String dvar=(String) iterator.next();
 					IntDouble id3=multiplyOperation(id2,multiplier.get(dvar));
-					if (id3.getData().doubleValue()==0.0){
+					if (id3.doubleValue()==0.0){
 						iterator.remove();
 					}else{
 						multiplier.put(dvar, id3);
@@ -313,33 +372,42 @@ public class Evaluation {
 	}
 	
 	public static IntDouble multiplyOperation(IntDouble id1, IntDouble id2){
-		IntDouble id;
+		return multiplyOperation(id1, id2, new IntDouble());
+	}
+	
+	/**
+	 * Writes the result to result, which can be an operand the caller owns.
+	 */
+	public static IntDouble multiplyOperation(IntDouble id1, IntDouble id2, IntDouble result){
 		if (id1.isInt() && id2.isInt()){
-			id=new IntDouble(id1.getData().intValue()*id2.getData().intValue(), true);
+			return result.set(id1.intValue()*id2.intValue(), true);
 		}else if (id1.isInt() && !id2.isInt()){
-			id=new IntDouble(id1.getData().intValue()*id2.getData().doubleValue(), false);
+			return result.set(id1.intValue()*id2.doubleValue(), false);
 		}else if (!id1.isInt() && id2.isInt()){
-			id=new IntDouble(id1.getData().doubleValue()*id2.getData().intValue(), false);
+			return result.set(id1.doubleValue()*id2.intValue(), false);
 		}else{
-			id=new IntDouble(id1.getData().doubleValue()*id2.getData().doubleValue(), false);
+			return result.set(id1.doubleValue()*id2.doubleValue(), false);
 		}
-		return id;
 	}
 	
 	public static EvalExpression divide(EvalExpression ee1, EvalExpression ee2){
 		if (ee2.isNumeric()){
 			IntDouble id2=ee2.getValue();
 			IntDouble id1=ee1.getValue();
-			if (id2.getData().doubleValue() ==0.0){
-				if (id1.getData().doubleValue()==0.0 && ee1.isNumeric()){
+			if (id2.doubleValue() ==0.0){
+				if (id1.doubleValue()==0.0 && ee1.isNumeric()){
 					return ee1;
 				}else{
 					Error.addEvaluationError("0.0 appears in divisor");
 				}
 				return ee1;
 			}
-			ee1.setValue(divideOperation(id1,id2));
-			Map<String, IntDouble> multiplier=ee1.getMultiplier();
+			ee1.setResult(divideOperation(id1,id2,ee1.resultSlot()));
+			if (ee1.isSparse()){
+				ee1.divideTerms(id2);
+				return ee1;
+			}
+			Map<String, IntDouble> multiplier=ee1.multiplierMap();
 			for (String dvar : multiplier.keySet()) {
 				multiplier.put(dvar, divideOperation(multiplier.get(dvar),id2));				
 			}
@@ -351,17 +419,22 @@ public class Evaluation {
 	}
 	
 	public static IntDouble divideOperation(IntDouble id1, IntDouble id2){
-		IntDouble id;
+		return divideOperation(id1, id2, new IntDouble());
+	}
+	
+	/**
+	 * Writes the result to result, which can be an operand the caller owns.
+	 */
+	public static IntDouble divideOperation(IntDouble id1, IntDouble id2, IntDouble result){
 		if (id1.isInt() && id2.isInt()){
-			id=new IntDouble(id1.getData().intValue()/id2.getData().intValue(), true);
+			return result.set(id1.intValue()/id2.intValue(), true);
 		}else if (id1.isInt() && !id2.isInt()){
-			id=new IntDouble(id1.getData().intValue()/id2.getData().doubleValue(), false);
+			return result.set(id1.intValue()/id2.doubleValue(), false);
 		}else if (!id1.isInt() && id2.isInt()){
-			id=new IntDouble(id1.getData().doubleValue()/id2.getData().intValue(), false);
+			return result.set(id1.doubleValue()/id2.intValue(), false);
 		}else{
-			id=new IntDouble(id1.getData().doubleValue()/id2.getData().doubleValue(), false);
+			return result.set(id1.doubleValue()/id2.doubleValue(), false);
 		}
-		return id;		
 	}
 	
 	public static EvalExpression mod(EvalExpression ee1, EvalExpression ee2){
@@ -378,18 +451,18 @@ public class Evaluation {
 	
 	public static IntDouble modOperation(IntDouble id1, IntDouble id2){
 		IntDouble id;
-		if (id2.getData().doubleValue()==0.0){
+		if (id2.doubleValue()==0.0){
 			Error.addEvaluationError("Mod function uses 0 as divider.");
 			return new IntDouble(1.0, false);
 		}
 		if (id1.isInt() && id2.isInt()){
-			id=new IntDouble(id1.getData().intValue()%id2.getData().intValue(), true);
+			id=new IntDouble(id1.intValue()%id2.intValue(), true);
 		}else if (id1.isInt() && !id2.isInt()){
-			id=new IntDouble(id1.getData().intValue()%id2.getData().doubleValue(), false);
+			id=new IntDouble(id1.intValue()%id2.doubleValue(), false);
 		}else if (!id1.isInt() && id2.isInt()){
-			id=new IntDouble(id1.getData().doubleValue()%id2.getData().intValue(), false);
+			id=new IntDouble(id1.doubleValue()%id2.intValue(), false);
 		}else{
-			id=new IntDouble(id1.getData().doubleValue()%id2.getData().doubleValue(), false);
+			id=new IntDouble(id1.doubleValue()%id2.doubleValue(), false);
 		}
 		return id;		
 	}
@@ -408,48 +481,62 @@ public class Evaluation {
 	public static EvalExpression add(EvalExpression ee1, EvalExpression ee2){
 		IntDouble id1=ee1.getValue();
 		IntDouble id2=ee2.getValue();
-		ee1.setValue(addOperation(id1,id2));
-		Map<String, IntDouble> multiplier1=ee1.getMultiplier();
+		ee1.setResult(addOperation(id1,id2,ee1.resultSlot()));
+		if (ee1.isSparseWith(ee2)){
+			ee1.mergeTerms(ee2, false);
+			return ee1;
+		}
+		Map<String, IntDouble> multiplier1=ee1.multiplierMap();
 		Map<String, IntDouble> multiplier2=ee2.getMultiplier();
 		for (String dvar : multiplier2.keySet()) {
 			if (multiplier1.containsKey(dvar)){
 				IntDouble id3=addOperation(multiplier1.get(dvar),multiplier2.get(dvar));
-				if (id3.getData().doubleValue()==0.0){
+				if (id3.doubleValue()==0.0){
 					multiplier1.remove(dvar);
 				}else{
 					multiplier1.put(dvar, id3);
 				}
 			}else{
-				multiplier1.put(dvar, multiplier2.get(dvar));
+				IntDouble id=multiplier2.get(dvar);
+				multiplier1.put(dvar, id.copyWithName(id.getName(), id.getIndex()));
 			}
 		}
 		return ee1;
 	}
 	
 	public static IntDouble addOperation(IntDouble id1, IntDouble id2){
-		IntDouble id;
+		return addOperation(id1, id2, new IntDouble());
+	}
+	
+	/**
+	 * Writes the result to result, which can be an operand the caller owns.
+	 */
+	public static IntDouble addOperation(IntDouble id1, IntDouble id2, IntDouble result){
 		if (id1.isInt() && id2.isInt()){
-			id=new IntDouble(id1.getData().intValue()+id2.getData().intValue(), true);
+			return result.set(id1.intValue()+id2.intValue(), true);
 		}else if (id1.isInt() && !id2.isInt()){
-			id=new IntDouble(id1.getData().intValue()+id2.getData().doubleValue(), false);
+			return result.set(id1.intValue()+id2.doubleValue(), false);
 		}else if (!id1.isInt() && id2.isInt()){
-			id=new IntDouble(id1.getData().doubleValue()+id2.getData().intValue(), false);
+			return result.set(id1.doubleValue()+id2.intValue(), false);
 		}else{
-			id=new IntDouble(id1.getData().doubleValue()+id2.getData().doubleValue(), false);
+			return result.set(id1.doubleValue()+id2.doubleValue(), false);
 		}
-		return id;		
 	}
 	
 	public static EvalExpression substract(EvalExpression ee1, EvalExpression ee2){
 		IntDouble id1=ee1.getValue();
 		IntDouble id2=ee2.getValue();
-		ee1.setValue(substractOperation(id1,id2));
-		Map<String, IntDouble> multiplier1=ee1.getMultiplier();
+		ee1.setResult(substractOperation(id1,id2,ee1.resultSlot()));
+		if (ee1.isSparseWith(ee2)){
+			ee1.mergeTerms(ee2, true);
+			return ee1;
+		}
+		Map<String, IntDouble> multiplier1=ee1.multiplierMap();
 		Map<String, IntDouble> multiplier2=ee2.getMultiplier();
 		for (String dvar : multiplier2.keySet()) {
 			if (multiplier1.containsKey(dvar)){
 				IntDouble id3=substractOperation(multiplier1.get(dvar),multiplier2.get(dvar));
-				if (id3.getData().doubleValue()==0.0){
+				if (id3.doubleValue()==0.0){
 					multiplier1.remove(dvar);
 				}else{
 					multiplier1.put(dvar, id3);
@@ -463,51 +550,26 @@ public class Evaluation {
 	}
 	
 	public static IntDouble substractOperation(IntDouble id1, IntDouble id2){
-		IntDouble id;
+		return substractOperation(id1, id2, new IntDouble());
+	}
+	
+	/**
+	 * Writes the result to result, which can be an operand the caller owns.
+	 */
+	public static IntDouble substractOperation(IntDouble id1, IntDouble id2, IntDouble result){
 		if (id1.isInt() && id2.isInt()){
-			id=new IntDouble(id1.getData().intValue()-id2.getData().intValue(), true);
+			return result.set(id1.intValue()-id2.intValue(), true);
 		}else if (id1.isInt() && !id2.isInt()){
-			id=new IntDouble(id1.getData().intValue()-id2.getData().doubleValue(), false);
+			return result.set(id1.intValue()-id2.doubleValue(), false);
 		}else if (!id1.isInt() && id2.isInt()){
-			id=new IntDouble(id1.getData().doubleValue()-id2.getData().intValue(), false);
+			return result.set(id1.doubleValue()-id2.intValue(), false);
 		}else{
-			id=new IntDouble(id1.getData().doubleValue()-id2.getData().doubleValue(), false);
+			return result.set(id1.doubleValue()-id2.doubleValue(), false);
 		}
-		return id;		
 	}
 	
 	public static EvalExpression noArgFunction(String ident){
-		Class function;
-		IntDouble result;
-		try {
-			function = Class.forName("wrimsv2.external.Function"+ident);
-		
-			Stack stack = new Stack();
-
-			ExternalFunction ef;
-			if (ControlData.allExternalFunctionMap.containsKey(ident)){
-				ef=ControlData.allExternalFunctionMap.get(ident);
-			}else{
-				ef = (ExternalFunction)function.newInstance();
-				ControlData.allExternalFunctionMap.put(ident, ef);
-			}
-			ef.execute(stack);
-			String valueString=stack.pop().toString();
-			
-			if (valueString.contains(".")){       
-				result = new IntDouble(Double.parseDouble(valueString), false);
-				return new EvalExpression(result);
-			}else{
-				result = new IntDouble(Integer.parseInt(valueString), true);
-				return new EvalExpression(result);
-			}
-			
-		} catch (Exception e) {
-			Error.addEvaluationError("The function " +ident+" has an error.");
-			e.printStackTrace();
-			result=new IntDouble (1.0,false);
-			return new EvalExpression(result);
-		}
+		return new EvalExpression(ValueEvaluation.noArgFunction(ident));
 	}
 	
 	public static EvalExpression argFunction(String ident, ArrayList<ArrayList<EvalExpression>> eeArray, Stack<LoopIndex> sumIndex){
@@ -531,60 +593,9 @@ public class Evaluation {
 			}
 		}
 			
-		Class function;
 		try {
-			function = Class.forName("wrimsv2.external.Function"+ident);
-		
-			Stack stack = new Stack();
-			for (int i=0; i<eeArray.size(); i++){
-				ArrayList<EvalExpression> eeArray1=eeArray.get(i);
-				int size=eeArray1.size();
-				if (size ==1){
-					EvalExpression ee = eeArray1.get(0);
-					if (!ee.isNumeric()){
-						int ai=i+1;
-						Error.addEvaluationError("The function " +ident+" has an unkown argument at argument index of "+ai+".");
-						result=new IntDouble (0.0,false);
-						return new EvalExpression(result);
-					}
-			
-					IntDouble id=ee.getValue();
-					if (id.isInt()){
-						int value=id.getData().intValue();
-						stack.push(value);
-					}else{
-						double value=id.getData().doubleValue();
-						stack.push(value);
-					}
-				}else if (size>1){
-					Number[] valueArray = new Number[size];
-					for (int j=0; j<size; j++){
-						EvalExpression ee = eeArray1.get(j);
-						if (!ee.isNumeric()){
-							int ai=i+1;
-							Error.addEvaluationError("The function " +ident+" has an unkown argument at argument index of "+ai+".");
-							return new EvalExpression(new IntDouble (0.0,false));
-						}
-						valueArray[j]=ee.getValue().getData();
-					}
-					stack.push(valueArray);
-				}else{
-					int ai=i+1;
-					Error.addEvaluationError("The No. "+ai+" argument of function "+ident+" has no data.");	
-					return new EvalExpression(new IntDouble (0.0,false));
-				}
-			}
-
-			ExternalFunction ef;
-			if (ControlData.allExternalFunctionMap.containsKey(ident)){
-				ef=ControlData.allExternalFunctionMap.get(ident);
-			}else{
-				ef = (ExternalFunction)function.newInstance();
-				ControlData.allExternalFunctionMap.put(ident, ef);
-			}
-			ef.execute(stack);
-
-			if (stack.size()>1){
+			ExternalArgs args=ExternalArgs.acquire(eeArray.size());
+			try{
 				for (int i=0; i<eeArray.size(); i++){
 					ArrayList<EvalExpression> eeArray1=eeArray.get(i);
 					int size=eeArray1.size();
@@ -599,43 +610,59 @@ public class Evaluation {
 				
 						IntDouble id=ee.getValue();
 						if (id.isInt()){
-							int value=(Integer) stack.pop();
-							ValueEvaluation.setSvarIntValue(id, value);
+							args.set(i, id.intValue(), true);
 						}else{
-							double value=(Double) stack.pop();
-							ValueEvaluation.setSvarDoubleValue(id, value);
+							args.set(i, id.doubleValue(), false);
 						}
 					}else if (size>1){
-						IntDouble id=eeArray1.get(0).getValue();
-						if (id.isInt()){
-							int[] valueArray = new int[size];
-							valueArray=(int[])stack.pop();
-							for (int j=0; j<size; j++){
-								EvalExpression ee = eeArray1.get(j);
-								ValueEvaluation.setSvarIntValue(ee.getValue(), valueArray[j]);
+						double[] valueArray=args.array(i, size, eeArray1.get(0).getValue().isInt());
+						for (int j=0; j<size; j++){
+							EvalExpression ee = eeArray1.get(j);
+							if (!ee.isNumeric()){
+								int ai=i+1;
+								Error.addEvaluationError("The function " +ident+" has an unkown argument at argument index of "+ai+".");
+								return new EvalExpression(new IntDouble (0.0,false));
+							}
+							IntDouble id=ee.getValue();
+							valueArray[j]=id.doubleValue();
+							args.arrayIsInt[i][j]=id.isInt();
+						}
+					}else{
+						int ai=i+1;
+						Error.addEvaluationError("The No. "+ai+" argument of function "+ident+" has no data.");	
+						return new EvalExpression(new IntDouble (0.0,false));
+					}
+				}
+
+				double value=ExternalFunctions.get(ident).call(args);
+				if (args.writesBack){
+					for (int i=0; i<eeArray.size(); i++){
+						ArrayList<EvalExpression> eeArray1=eeArray.get(i);
+						int size=eeArray1.size();
+						if (size ==1){
+							IntDouble id=eeArray1.get(0).getValue();
+							if (id.isInt()){
+								ValueEvaluation.setSvarIntValue(id, (int)args.values[i]);
+							}else{
+								ValueEvaluation.setSvarDoubleValue(id, args.values[i]);
 							}
 						}else{
-							double[] valueArray = new double[size];
-							valueArray=(double[])stack.pop();
+							double[] valueArray=args.arrays[i];
 							for (int j=0; j<size; j++){
 								EvalExpression ee = eeArray1.get(j);
-								ValueEvaluation.setSvarDoubleValue(ee.getValue(), valueArray[j]);
+								if (ee.getValue().isInt()){
+									ValueEvaluation.setSvarIntValue(ee.getValue(), (int)valueArray[j]);
+								}else{
+									ValueEvaluation.setSvarDoubleValue(ee.getValue(), valueArray[j]);
+								}
 							}
 						}
 					}
-				}			
-			}
-			
-			String valueString=stack.pop().toString();
-			
-			if (valueString.contains(".")){       
-				result=new IntDouble(Double.parseDouble(valueString), false);
-				return new EvalExpression(result);
-			}else{
-				result=new IntDouble(Integer.parseInt(valueString), true);
-				return new EvalExpression(result);
+				}
+				return new EvalExpression(ValueEvaluation.externalResult(value, args));
+			}finally{
+				args.release();
 			}
-			
 		} catch (Exception e) {
 			Error.addEvaluationError("The function " +ident+" has an error.");
 			e.printStackTrace();
@@ -649,7 +676,7 @@ public class Evaluation {
 		boolean isSumIndex=false;
 		int indexValue=0;
 		boolean isIndexStart=true;
-		ParallelVars prvs;
+		ParallelVars prvs=null;
 		
 		EvalExpression ee=eeArray.get(0);	
 		
@@ -661,7 +688,7 @@ public class Evaluation {
 				indexValue=li.getValue();
 				isIndexStart=li.getIndexStart();
 				sumIndex.push(li);
-				if (!(multiplier.containsKey(indexName) && multiplier.get(indexName).getData().doubleValue()==1.0 && ee.getValue().getData().doubleValue()==0.0)){
+				if (!(multiplier.containsKey(indexName) && multiplier.get(indexName).doubleValue()==1.0 && ee.getValue().doubleValue()==0.0)){
 					Error.addEvaluationError("The index of "+ident+" contains decision variable.");
 					result=new IntDouble (0.0,false);
 					return new EvalExpression(result);
@@ -689,29 +716,19 @@ public class Evaluation {
 				result=new IntDouble (1.0,false);
 				return new EvalExpression(result);
 			}
-		}else{
-			prvs=TimeOperation.findTime(id.getData().intValue());
 		}
 		
 		double value;
-		int idValue=id.getData().intValue();
+		int idValue=id.intValue();
 		if (ControlData.currDvMap.containsKey(ident)){
 			if (idValue<0){
-				value=dvarAliasTimeSeries(ident,idValue, prvs);
+				value=isSumIndex ? dvarAliasTimeSeries(ident,idValue, prvs) : ValueEvaluation.cachedDvarAliasTimeSeries(ident, idValue);
 			}else if (idValue==0){
-				LinkedHashMap<String, IntDouble> multiplier = new LinkedHashMap<String, IntDouble>();
-				multiplier.put(ident, new IntDouble(1, true));
-				EvalExpression eeResult=new EvalExpression();
-				eeResult.setMultiplier(multiplier);
-				return eeResult;
+				return EvalExpression.term(ident, true);
 			}else{
-				String futDvName=ident+"__fut__"+idValue;
+				String futDvName=FutureKey.name(ident, idValue);
 				if (SolverData.getDvarMap().containsKey(futDvName)){
-					LinkedHashMap<String, IntDouble> multiplier = new LinkedHashMap<String, IntDouble>();
-					multiplier.put(futDvName, new IntDouble(1, true));
-					EvalExpression eeResult=new EvalExpression();
-					eeResult.setMultiplier(multiplier);
-					return eeResult;
+					return EvalExpression.term(futDvName, true);
 				}else{
 					Error.addEvaluationError("Time Array Dvar "+futDvName+" is used without definition.");
 					result=new IntDouble (1.0, false);
@@ -720,43 +737,39 @@ public class Evaluation {
 			}
 		}else if (ControlData.currDvSlackSurplusMap.containsKey(ident)){
 			if (idValue==0){
-				LinkedHashMap<String, IntDouble> multiplier = new LinkedHashMap<String, IntDouble>();
-				multiplier.put(ident, new IntDouble(1, true));
-				EvalExpression eeResult=new EvalExpression();
-				eeResult.setMultiplier(multiplier);
-				return eeResult;
+				return EvalExpression.term(ident, true);
 			}else if (idValue>0){
-				String futDvSlackSurplusName=ident+"__fut__"+idValue;
-				LinkedHashMap<String, IntDouble> multiplier = new LinkedHashMap<String, IntDouble>();
-				multiplier.put(futDvSlackSurplusName, new IntDouble(1, true));
-				EvalExpression eeResult=new EvalExpression();
-				eeResult.setMultiplier(multiplier);
-				return eeResult;
+				String futDvSlackSurplusName=FutureKey.name(ident, idValue);
+				return EvalExpression.term(futDvSlackSurplusName, true);
 			}else{
 				Error.addEvaluationError("Slack surplus index of "+ident+", "+idValue+"<0. THe index has to be larger than 0.");
 				result=new IntDouble (1.0,false);
 				return new EvalExpression(result);
 			}
 		}else if (ControlData.currAliasMap.containsKey(ident)){
-			value=dvarAliasTimeSeries(ident,idValue, prvs);
+			if (isSumIndex || idValue>0){
+				value=dvarAliasTimeSeries(ident,idValue, prvs);
+			}else{
+				value=ValueEvaluation.cachedDvarAliasTimeSeries(ident, idValue);
+			}
 		}else{
 			if (ControlData.currSvMap.containsKey(ident)){ 
 				if (idValue==0)	{
 					result = ControlData.currSvMap.get(ident).getData();
 					return new EvalExpression(result.copyOf());
 				}else if(idValue>0){
-					String futSvName=ident+"__fut__"+idValue;
+					String futSvName=FutureKey.name(ident, idValue);
 					if (ControlData.currSvFutMap.containsKey(futSvName)){
 						result=ControlData.currSvFutMap.get(futSvName).getData();
 						return new EvalExpression(result.copyOf());
 					}else{
-						if (!ControlData.ignoreError) Error.addEvaluationError(futSvName+", the future value of "+ident+" is used before defined.");
+						if (!EvaluationContext.ignoreError()) Error.addEvaluationError(futSvName+", the future value of "+ident+" is used before defined.");
 						result=new IntDouble (1.0,false);
 						return new EvalExpression(result);
 					}
 				}
 			}
-			value=svarTimeSeries(ident, idValue, prvs);
+			value=isSumIndex ? svarTimeSeries(ident, idValue, prvs) : ValueEvaluation.cachedSvarTimeSeries(ident, idValue);
 		}
 		
 		result=new IntDouble (value, false);
@@ -836,17 +849,17 @@ public class Evaluation {
 	public static double dvarAliasTimeSeries(String ident, ParallelVars prvs){
 		String entryNameTS=DssOperation.entryNameTS(ident, ControlData.timeStep);
 		int index;
-		long dataTime;
-		long startTime;
-		long currTime;
+		int dataTime;
+		int startTime;
+		int currTime;
 		if (TimeOperation.isMonthlyInterval(ControlData.timeStep)){
-			dataTime=new Date(prvs.dataYear-1900, prvs.dataMonth-1, 1).getTime();
-			startTime=new Date(ControlData.startYear-1900, ControlData.startMonth-1, 1).getTime();
-			currTime=new Date(ControlData.currYear-1900, ControlData.currMonth-1, 1).getTime();
+			dataTime=EpochCalendar.epochMonth(prvs.dataYear, prvs.dataMonth);
+			startTime=EpochCalendar.epochMonth(ControlData.startYear, ControlData.startMonth);
+			currTime=EpochCalendar.epochMonth(ControlData.currYear, ControlData.currMonth);
 		}else{
-			dataTime=new Date(prvs.dataYear-1900, prvs.dataMonth-1, prvs.dataDay).getTime();
-			startTime=new Date(ControlData.startYear-1900, ControlData.startMonth-1, ControlData.startDay).getTime();
-			currTime=new Date(ControlData.currYear-1900, ControlData.currMonth-1, ControlData.currDay).getTime();
+			dataTime=EpochCalendar.epochDay(prvs.dataYear, prvs.dataMonth, prvs.dataDay);
+			startTime=EpochCalendar.epochDay(ControlData.startYear, ControlData.startMonth, ControlData.startDay);
+			currTime=EpochCalendar.epochDay(ControlData.currYear, ControlData.currMonth, ControlData.currDay);
 		}
 		
 		if (dataTime>=currTime){
@@ -891,7 +904,7 @@ public class Evaluation {
 		/*
 		int index=indexValue+ControlData.currTimeStep.get(ControlData.currCycleIndex);
 		if (index>=0){
-			if (indexValue>=0 && (ControlData.currEvalTypeIndex==0 || ControlData.currEvalTypeIndex==7)){
+			if (indexValue>=0 && (EvaluationContext.evalTypeIndex()==0 || EvaluationContext.evalTypeIndex()==7)){
 				Error.addEvaluationError(ident + " at timestep " +indexValue+" doesn't have value");
 				return 1.0;
 			}else{
@@ -908,9 +921,7 @@ public class Evaluation {
 		
 		DssDataSetFixLength ddsfl=DataTimeSeries.dvAliasTS.get(entryNameTS);
 		if (ddsfl!=null){
-			Date memStartDate = ddsfl.getStartTime();
-			Date currDate =  new Date(ControlData.currYear-1900, ControlData.currMonth-1, ControlData.currDay);
-			int index=TimeOperation.getNumberOfTimestep(memStartDate, currDate, ddsfl.getTimeStep())+indexValue-1;
+			int index=TimeOperation.getNumberOfTimestep(ddsfl)+indexValue-1;
 			double[] datafl=ddsfl.getData();
 			if (index>=datafl.length){
 				Error.addEvaluationError(ident + " at timestep " +indexValue+" doesn't have value");
@@ -964,9 +975,7 @@ public class Evaluation {
 		
 		DssDataSetFixLength ddsfl=DataTimeSeries.dvAliasTSCycles.get(ci).get(entryNameTS);
 		if (ddsfl!=null){
-			Date memStartDate = ddsfl.getStartTime();
-			Date currDate =  new Date(ControlData.currYear-1900, ControlData.currMonth-1, ControlData.currDay);
-			int index=TimeOperation.getNumberOfTimestep(memStartDate, currDate, ddsfl.getTimeStep())+indexValue-1;
+			int index=TimeOperation.getNumberOfTimestep(ddsfl)+indexValue-1;
 			double[] datafl=ddsfl.getData();
 			if (index>=datafl.length){
 				Error.addEvaluationError(ident + " at timestep " +indexValue+" doesn't have value");
@@ -1008,58 +1017,34 @@ public class Evaluation {
 	}
 	
 	public static int timeSeriesIndex(DssDataSet dds, ParallelVars prvs){
-		Date st=dds.getStartTime();
-		long sTime=st.getTime();
-		int sYear=st.getYear()+1900;
-		int sMonth=st.getMonth()+1; //HEC DSS7 uses getMonth()+1. However, Vista/HecDSS6 uses getMonth() because dss data store at 24:00 Jan31, 1921 is considered to store at 0:00 Feb 1, 1921
-		Date dataDate=new Date(prvs.dataYear-1900, prvs.dataMonth-1, prvs.dataDay);
 		int index;
 		if (TimeOperation.isMonthlyInterval(dds.getTimeStep())){
-			index=prvs.dataYear*12+prvs.dataMonth-(sYear*12+sMonth);
+			index=EpochCalendar.epochMonth(prvs.dataYear, prvs.dataMonth)-dds.getStartEpochMonth();
 		}else{
-			//double indexValue=(dataTime-sTime)/(1000*60*60*24);
-			Calendar c1=Calendar.getInstance();
-			c1.setTime(st);
-			Calendar c2=Calendar.getInstance();
-			c2.setTime(dataDate);
-			long indexValue = Duration.between(c1.toInstant(), c2.toInstant()).toDays();
-			index=(int)indexValue+1;  //HEC DSS7 uses indexValue+1; Vista/Hec DSS6 uses indexValue+2
+			index=EpochCalendar.epochDay(prvs.dataYear, prvs.dataMonth, prvs.dataDay)-dds.getStartEpochDay()+1;  //HEC DSS7 uses indexValue+1; Vista/Hec DSS6 uses indexValue+2
 		}
 		return index;
 	}
 	
 	public static int timeSeriesIndex(DssDataSetFixLength dds, ParallelVars prvs){
-		Date st=dds.getStartTime();
-		long sTime=st.getTime();
-		int sYear=st.getYear()+1900;
-		int sMonth=st.getMonth()+1; //HEC DSS7 uses getMonth()+1. However, Vista/HecDSS6 uses getMonth() because dss data store at 24:00 Jan31, 1921 is considered to store at 0:00 Feb 1, 1921
-		Date dataDate=new Date(prvs.dataYear-1900, prvs.dataMonth-1, prvs.dataDay);
 		int index;
 		if (TimeOperation.isMonthlyInterval(dds.getTimeStep())){
-			index=prvs.dataYear*12+prvs.dataMonth-(sYear*12+sMonth);
+			index=EpochCalendar.epochMonth(prvs.dataYear, prvs.dataMonth)-dds.getStartEpochMonth();
 		}else{
-			//double indexValue=(dataTime-sTime)/(1000*60*60*24);
-			Calendar c1=Calendar.getInstance();
-			c1.setTime(st);
-			Calendar c2=Calendar.getInstance();
-			c2.setTime(dataDate);
-			long indexValue = Duration.between(c1.toInstant(), c2.toInstant()).toDays();
-			index=(int)indexValue+1; //HEC DSS7 uses indexValue+1; Vista/Hec DSS6 uses indexValue+2
+			index=EpochCalendar.epochDay(prvs.dataYear, prvs.dataMonth, prvs.dataDay)-dds.getStartEpochDay()+1;  //HEC DSS7 uses indexValue+1; Vista/Hec DSS6 uses indexValue+2
 		}
 		return index;
 	}
 	
 	public static EvalExpression timeseries(){
-		String svName=ControlData.currEvalName;
-		ParallelVars prvs=TimeOperation.findTime(0);
-		double value=svarTimeSeries(svName, 0, prvs);
+		String svName=EvaluationContext.evalName();
+		double value=ValueEvaluation.cachedSvarTimeSeries(svName, 0);
 		IntDouble id=new IntDouble(value,false);
 		return new EvalExpression(id);
 	}
 	
 	public static double timeseries(String tsName){
-		ParallelVars prvs=TimeOperation.findTime(0);
-		return svarTimeSeries(tsName, 0, prvs);
+		return ValueEvaluation.cachedSvarTimeSeries(tsName, 0);
 	}
 	
 	public static EvalExpression pastTSFV(String ident, EvalExpression ee1, ArrayList<ArrayList<EvalExpression>> eeArray,  ParallelVars prvs){
@@ -1087,19 +1072,15 @@ public class Evaluation {
 			Error.addEvaluationError("The index of array variable "+ident+" has to be an integer.");
 			return new EvalExpression(new IntDouble(1.0,false));
 		}
-		int i1 = id1.getData().intValue();
-		int i2 = id2.getData().intValue();
+		int i1 = id1.intValue();
+		int i2 = id2.intValue();
 		
 		if (i1==0){
-			EvalExpression ee = new EvalExpression();
-			LinkedHashMap<String, IntDouble> multiplier = ee.getMultiplier();
 			if (i2==0){
-				multiplier.put(ident, new IntDouble(1, true));
-				return ee;
+				return EvalExpression.term(ident, true);
 			}else if (i2>0){
-				String vn = ident+"__fut__"+id2;
-				multiplier.put(vn, new IntDouble(1, true));
-				return ee;
+				String vn = FutureKey.name(ident, i2);
+				return EvalExpression.term(vn, true);
 			}
 		}
 		
@@ -1115,14 +1096,12 @@ public class Evaluation {
 			Error.addEvaluationError("The array variable "+ident+" is not a dvar or alias. The value from the past time step could not be retrieved.");
 			return new EvalExpression(new IntDouble(1.0,false));
 		}
-		String vn=ident+"__fut__"+i2;
+		String vn=FutureKey.name(ident, i2);
 		String entryNameTS=DssOperation.entryNameTS(vn, ControlData.timeStep);
 		if (DataTimeSeries.dvAliasTS.containsKey(entryNameTS)){
 			DssDataSetFixLength ddsfl = DataTimeSeries.dvAliasTS.get(entryNameTS);
 			if (ddsfl!=null){
-				Date memStartDate = ddsfl.getStartTime();
-				Date currDate =  new Date(ControlData.currYear-1900, ControlData.currMonth-1, ControlData.currDay);
-				int index=TimeOperation.getNumberOfTimestep(memStartDate, currDate, ddsfl.getTimeStep())+i1-1;
+				int index=TimeOperation.getNumberOfTimestep(ddsfl)+i1-1;
 				double[] datafl=ddsfl.getData();
 				if (index>=datafl.length){
 					Error.addEvaluationError(vn + " at timestep " +i1+" doesn't have value.");
@@ -1184,7 +1163,7 @@ public class Evaluation {
 			Error.addEvaluationError("The variable "+ident+" is not defined in the past cycle of "+cycle+".");
 			return new IntDouble(1.0,false);
 		}
-		return new IntDouble(data.getData(),data.isInt());
+		return data.copyWithName("", 0);
 	}
 	
 	public static IntDouble pastCycleIndexNoTimeArray(String ident, int index){
@@ -1217,7 +1196,7 @@ public class Evaluation {
 			Error.addEvaluationError("Time array index of "+ident+" is not an integer.");
 			return data;
 		}
-		int index=id.getData().intValue();
+		int index=id.intValue();
 		if (index<0){
 			ArrayList<EvalExpression> eeArray=new ArrayList<EvalExpression>();
 			eeArray.add(ee);
@@ -1249,7 +1228,7 @@ public class Evaluation {
 			return pastCycleNoTimeArray(ident, cycle);
 		}
 		Map<String, Map<String, IntDouble>> varTimeArrayCycleValueMap=ControlData.currStudyDataSet.getVarTimeArrayCycleValueMap();
-	    String varTimeArrayName=ident+"__fut__"+index;
+	    String varTimeArrayName=FutureKey.name(ident, index);
 		if (varTimeArrayCycleValueMap.containsKey(varTimeArrayName)){
 			Map<String, IntDouble> var= varTimeArrayCycleValueMap.get(varTimeArrayName);
 			if (var.containsKey(cycle)){
@@ -1266,7 +1245,7 @@ public class Evaluation {
 			Error.addEvaluationError("The variable "+ident+" is not defined in the past cycle of "+cycle+".");
 			return new IntDouble(1.0,false);
 		}
-		return new IntDouble(data.getData(),data.isInt());
+		return data.copyWithName("", 0);
 	}
 	
 	public static IntDouble pastCycleIndexTimeArray(String ident, int pci, EvalExpression ee){
@@ -1285,7 +1264,7 @@ public class Evaluation {
 			Error.addEvaluationError("Time array index of "+ident+" is not an integer.");
 			return data;
 		}
-		int index=id.getData().intValue();
+		int index=id.intValue();
 		StudyDataSet sds = ControlData.currStudyDataSet;
 		String cycle=sds.getModelList().get(ci);
 		if (index<0){
@@ -1308,7 +1287,7 @@ public class Evaluation {
 			return pastCycleIndexNoTimeArray(ident, pci);
 		}
 		Map<String, Map<String, IntDouble>> varCycleIndexValueMap=sds.getVarCycleIndexValueMap();
-	    String varTimeArrayName=ident+"__fut__"+index;
+	    String varTimeArrayName=FutureKey.name(ident, index);
 		if (varCycleIndexValueMap.containsKey(varTimeArrayName)){
 			Map<String, IntDouble> var= varCycleIndexValueMap.get(varTimeArrayName);
 			if (var.containsKey(cycle)){
@@ -1325,7 +1304,7 @@ public class Evaluation {
 			Error.addEvaluationError("The variable "+ident+" is not defined in the past cycle of "+cycle+".");
 			return new IntDouble(1.0,false);
 		}
-		return new IntDouble(data.getData(),data.isInt());
+		return data.copyWithName("", 0);
 	}
 	
 	public static ArrayList<EvalExpression> trunk_timeArray(String ident, IntDouble start, IntDouble end){
@@ -1341,8 +1320,8 @@ public class Evaluation {
 			eeArray.add(ee);
 			return eeArray;
 		}
-		int si=start.getData().intValue();
-		int ei=end.getData().intValue();
+		int si=start.intValue();
+		int ei=end.intValue();
 		
 		if (si>ei){
 			for (int i=si; i>=ei; i--){
@@ -1382,13 +1361,13 @@ public class Evaluation {
 	public static IntDouble maxOperation(IntDouble id1, IntDouble id2){
 		IntDouble id;
 		if (id1.isInt() && id2.isInt()){
-			id=new IntDouble(Math.max(id1.getData().intValue(),id2.getData().intValue()), true);
+			id=new IntDouble(Math.max(id1.intValue(),id2.intValue()), true);
 		}else if (id1.isInt() && !id2.isInt()){
-			id=new IntDouble(Math.max(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
+			id=new IntDouble(Math.max(id1.doubleValue(),id2.doubleValue()), false);
 		}else if (!id1.isInt() && id2.isInt()){
-			id=new IntDouble(Math.max(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
+			id=new IntDouble(Math.max(id1.doubleValue(),id2.doubleValue()), false);
 		}else{
-			id=new IntDouble(Math.max(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
+			id=new IntDouble(Math.max(id1.doubleValue(),id2.doubleValue()), false);
 		}
 		return id;
 	}
@@ -1403,13 +1382,13 @@ public class Evaluation {
 	public static IntDouble minOperation(IntDouble id1, IntDouble id2){
 		IntDouble id;
 		if (id1.isInt() && id2.isInt()){
-			id=new IntDouble(Math.min(id1.getData().intValue(),id2.getData().intValue()), true);
+			id=new IntDouble(Math.min(id1.intValue(),id2.intValue()), true);
 		}else if (id1.isInt() && !id2.isInt()){
-			id=new IntDouble(Math.min(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
+			id=new IntDouble(Math.min(id1.doubleValue(),id2.doubleValue()), false);
 		}else if (!id1.isInt() && id2.isInt()){
-			id=new IntDouble(Math.min(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
+			id=new IntDouble(Math.min(id1.doubleValue(),id2.doubleValue()), false);
 		}else{
-			id=new IntDouble(Math.min(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
+			id=new IntDouble(Math.min(id1.doubleValue(),id2.doubleValue()), false);
 		}
 		return id;
 	}
@@ -1424,7 +1403,7 @@ public class Evaluation {
 	public static IntDouble intOperation(IntDouble id1){
 		IntDouble id;
 		if (!id1.isInt()){
-			id=new IntDouble(((int)id1.getData().doubleValue()), true);
+			id=new IntDouble(((int)id1.doubleValue()), true);
 			return id;
 		}
 		return id1;
@@ -1440,7 +1419,7 @@ public class Evaluation {
 	public static IntDouble realOperation(IntDouble id1){
 		IntDouble id;
 		if (id1.isInt()){
-			id=new IntDouble((id1.getData().doubleValue()), false);
+			id=new IntDouble((id1.doubleValue()), false);
 			return id;
 		}
 		return id1;
@@ -1456,9 +1435,9 @@ public class Evaluation {
 	public static IntDouble absOperation(IntDouble id1){
 		IntDouble id;
 		if (id1.isInt()){
-			id=new IntDouble(Math.abs(id1.getData().intValue()), true);
+			id=new IntDouble(Math.abs(id1.intValue()), true);
 		}else{
-			id=new IntDouble(Math.abs(id1.getData().doubleValue()), false);
+			id=new IntDouble(Math.abs(id1.doubleValue()), false);
 		}
 		return id;
 	}
@@ -1473,9 +1452,9 @@ public class Evaluation {
 	public static IntDouble expOperation(IntDouble id1){
 		IntDouble id;
 		if (id1.isInt()){
-			id=new IntDouble(Math.exp(id1.getData().intValue()), false);
+			id=new IntDouble(Math.exp(id1.intValue()), false);
 		}else{
-			id=new IntDouble(Math.exp(id1.getData().doubleValue()), false);
+			id=new IntDouble(Math.exp(id1.doubleValue()), false);
 		}
 		return id;
 	}
@@ -1490,9 +1469,9 @@ public class Evaluation {
 	public static IntDouble logOperation(IntDouble id1){
 		IntDouble id;
 		if (id1.isInt()){
-			id=new IntDouble(Math.log(id1.getData().intValue()), false);
+			id=new IntDouble(Math.log(id1.intValue()), false);
 		}else{
-			id=new IntDouble(Math.log(id1.getData().doubleValue()), false);
+			id=new IntDouble(Math.log(id1.doubleValue()), false);
 		}
 		return id;
 	}
@@ -1507,9 +1486,9 @@ public class Evaluation {
 	public static IntDouble log10Operation(IntDouble id1){
 		IntDouble id;
 		if (id1.isInt()){
-			id=new IntDouble(Math.log10(id1.getData().intValue()), false);
+			id=new IntDouble(Math.log10(id1.intValue()), false);
 		}else{
-			id=new IntDouble(Math.log10(id1.getData().doubleValue()), false);
+			id=new IntDouble(Math.log10(id1.doubleValue()), false);
 		}
 		return id;
 	}
@@ -1524,13 +1503,13 @@ public class Evaluation {
 	public static IntDouble powOperation(IntDouble id1, IntDouble id2){
 		IntDouble id;
 		if (id1.isInt() && id2.isInt()){
-			id=new IntDouble(Math.pow(id1.getData().intValue(),id2.getData().intValue()), false);
+			id=new IntDouble(Math.pow(id1.intValue(),id2.intValue()), false);
 		}else if (id1.isInt() && !id2.isInt()){
-			id=new IntDouble(Math.pow(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
+			id=new IntDouble(Math.pow(id1.doubleValue(),id2.doubleValue()), false);
 		}else if (!id1.isInt() && id2.isInt()){
-			id=new IntDouble(Math.pow(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
+			id=new IntDouble(Math.pow(id1.doubleValue(),id2.doubleValue()), false);
 		}else{
-			id=new IntDouble(Math.pow(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
+			id=new IntDouble(Math.pow(id1.doubleValue(),id2.doubleValue()), false);
 		}
 		return id;
 	}
@@ -1540,7 +1519,7 @@ public class Evaluation {
 			Error.addEvaluationError("variable inside sin function should not contain decision variable.");
 		}
 		
-		double degrees = ee1.getValue().getData().doubleValue();
+		double degrees = ee1.getValue().doubleValue();
 		double radians = Math.toRadians(degrees);
 		return new EvalExpression(new IntDouble(Math.sin(radians), false));		
 	}
@@ -1550,7 +1529,7 @@ public class Evaluation {
 			Error.addEvaluationError("variable inside cos function should not contain decision variable.");
 		}
 		
-		double degrees = ee1.getValue().getData().doubleValue();
+		double degrees = ee1.getValue().doubleValue();
 		double radians = Math.toRadians(degrees);
 		return new EvalExpression(new IntDouble(Math.cos(radians), false));		
 	}
@@ -1560,7 +1539,7 @@ public class Evaluation {
 			Error.addEvaluationError("variable inside tan function should not contain decision variable.");
 		}
 		
-		double degrees = ee1.getValue().getData().doubleValue();
+		double degrees = ee1.getValue().doubleValue();
 		double radians = Math.toRadians(degrees);
 		return new EvalExpression(new IntDouble(Math.tan(radians), false));		
 	}
@@ -1570,7 +1549,7 @@ public class Evaluation {
 			Error.addEvaluationError("variable inside cot function should not contain decision variable.");
 		}
 		
-		double degrees = ee1.getValue().getData().doubleValue();
+		double degrees = ee1.getValue().doubleValue();
 		if (degrees==90.0){
 			return new EvalExpression(new IntDouble(0.0, false));
 		}
@@ -1583,7 +1562,7 @@ public class Evaluation {
 			Error.addEvaluationError("variable inside asin function should not contain decision variable.");
 		}
 		
-		double value = ee1.getValue().getData().doubleValue();
+		double value = ee1.getValue().doubleValue();
 		double radians = Math.asin(value);
 		return new EvalExpression(new IntDouble(Math.toDegrees(radians), false));		
 	}
@@ -1593,7 +1572,7 @@ public class Evaluation {
 			Error.addEvaluationError("variable inside acos function should not contain decision variable.");
 		}
 		
-		double value = ee1.getValue().getData().doubleValue();
+		double value = ee1.getValue().doubleValue();
 		double radians = Math.acos(value);
 		return new EvalExpression(new IntDouble(Math.toDegrees(radians), false));		
 	}
@@ -1603,7 +1582,7 @@ public class Evaluation {
 			Error.addEvaluationError("variable inside atan function should not contain decision variable.");
 		}
 		
-		double value = ee1.getValue().getData().doubleValue();
+		double value = ee1.getValue().doubleValue();
 		double radians = Math.atan(value);
 		return new EvalExpression(new IntDouble(Math.toDegrees(radians), false));		
 	}
@@ -1613,7 +1592,7 @@ public class Evaluation {
 			Error.addEvaluationError("variable inside acot function should not contain decision variable.");
 		}
 		
-		double value = ee1.getValue().getData().doubleValue();
+		double value = ee1.getValue().doubleValue();
 		if (value == 0.){
 			return new EvalExpression(new IntDouble(90.0, false));
 		}
@@ -1634,7 +1613,7 @@ public class Evaluation {
 			
 			double exc=1.0;
 			if (exc_ee.isNumeric()){
-				exc=exc_ee.getValue().getData().doubleValue();
+				exc=exc_ee.getValue().doubleValue();
 			}else{
 				Error.addEvaluationError("Exceedance level has unknown variable.");
 				return new EvalExpression(new IntDouble (1.0, false));
@@ -1654,8 +1633,7 @@ public class Evaluation {
 				selEd=new Date(ey-1900, em-1, ed);
 			}
 			
-			ArrayList<Double> optedData=dds.getTimeseriesDataWithOptions(selMon, selSd, selEd);
-			double value=DssDataSet.getExceedance(optedData, exc);
+			double value=dds.getExceedanceIndex(selMon, selSd, selEd).getExceedance(exc);
 			return new EvalExpression(new IntDouble (value, false));
 		}else{
 			Error.addEvaluationError(tsName+" is not a timeseries variable used in the Exceendance funciton for the time step of "+ControlData.timeStep+".");
@@ -1676,7 +1654,7 @@ public class Evaluation {
 			
 			double exc=1.0;
 			if (exc_ee.isNumeric()){
-				exc=exc_ee.getValue().getData().doubleValue();
+				exc=exc_ee.getValue().doubleValue();
 			}else{
 				Error.addEvaluationError("Exceedance level has unknown variable.");
 				return new EvalExpression(new IntDouble (0, true));
@@ -1696,8 +1674,7 @@ public class Evaluation {
 				selEd=new Date(ey-1900, em-1, ed);
 			}
 			
-			ArrayList<Double> optedData=dds.getTimeseriesDataWithOptions(selMon, selSd, selEd);
-			int tsi=DssDataSet.getExceedance_tsi(optedData, exc);
+			int tsi=dds.getExceedanceIndex(selMon, selSd, selEd).getExceedance_tsi(exc);
 			return new EvalExpression(new IntDouble (tsi, true));
 		}else{
 			Error.addEvaluationError(tsName+" is not a timeseries variable used in the Exceendance_TSI funciton for the time step of "+ControlData.timeStep+".");
@@ -1748,7 +1725,7 @@ public class Evaluation {
 			if (!id.isInt()){
 				Error.addEvaluationError("The index of "+ident+" should be integer.");
 			}
-			prvs=TimeOperation.findTime(id.getData().intValue());
+			prvs=TimeOperation.findTime(id.intValue());
 		}
 		double convert = tafcfs(ident, prvs);
 		IntDouble id1=new IntDouble(convert, false);
@@ -1840,20 +1817,34 @@ public class Evaluation {
 		if (!ee2.isNumeric() || !ee2.getValue().isInt()){
 			Error.addEvaluationError("the ending index should be integer");
 		}
-		li.start=ee1.getValue().getData().intValue();
-		li.end=ee2.getValue().getData().intValue();
+		li.start=ee1.getValue().intValue();
+		li.end=ee2.getValue().intValue();
 		li.setValue(li.start);
 		li.setIndexStart(true);
 		sumIndex.push(li);
 		if (li.start>li.end && li.step>0){
-			ControlData.ignoreError=true;
+			EvaluationContext.setIgnoreError(true);
 		}else if (li.start<li.end && li.step<0){
-			ControlData.ignoreError=true;
+			EvaluationContext.setIgnoreError(true);
 		}
 	}
 	
-	public static EvalExpression sumExpression(EvalExpression ee, String expression, Stack<LoopIndex> sumIndex){	
-		ControlData.ignoreError=false;
+	public static EvalExpression sumExpression(EvalExpression ee, String expression, Stack<LoopIndex> sumIndex){
+		CompiledSumBody body=sumIndex.size()==0 ? null : CompiledSumBody.get(sumIndex.peek().getName(), expression);
+		return sumExpression(ee, body, expression, sumIndex);
+	}
+
+	static EvalExpression sumExpression(EvalExpression ee, CompiledSumBody body, Stack<LoopIndex> sumIndex){
+		return sumExpression(ee, body, null, sumIndex);
+	}
+
+	/**
+	 * Adds the body of the loop for the indexes after the first one, which the
+	 * caller has evaluated. The body is evaluated from its compiled tree, or
+	 * re-parsed from the expression if it has none.
+	 */
+	private static EvalExpression sumExpression(EvalExpression ee, CompiledSumBody body, String expression, Stack<LoopIndex> sumIndex){
+		EvaluationContext.setIgnoreError(false);
 		LoopIndex li=sumIndex.pop();
 		if (li.step>=0){
 			if (li.start>li.end) {
@@ -1862,53 +1853,58 @@ public class Evaluation {
 			li.start=li.start+li.step;
 			if (li.start>li.end) return ee;
 			sumIndex.push(li);
+			EvaluatorParser evaluator=body==null ? sumBodyParser(expression, sumIndex) : null;
 			for (int i=li.start; i<=li.end; i=i+li.step){
 				li=sumIndex.pop();
 				li.setValue(i);
 				li.setIndexStart(true);
 				sumIndex.push(li);
-				ANTLRStringStream stream = new ANTLRStringStream("s: "+expression); 
-				EvaluatorLexer lexer = new EvaluatorLexer(stream);
-				TokenStream tokenStream = new CommonTokenStream(lexer);
-				EvaluatorParser evaluator = new EvaluatorParser(tokenStream);
-				evaluator.setSumIndex(sumIndex);
-				try{
-					evaluator.evaluator();
-				}catch (RecognitionException e){
-					Error.addEvaluationError(e.toString());
-				}
-			
-				EvalExpression ee0=evaluator.evalExpression;
-				ee=add(ee, ee0);
+				ee=add(ee, sumBody(body, evaluator, sumIndex));
 			}
 		}else{
 			if (li.start<li.end) return new EvalExpression(new IntDouble(0.0, false));
 			li.start=li.start+li.step;
 			if (li.start<li.end) return ee;
 			sumIndex.push(li);
+			EvaluatorParser evaluator=body==null ? sumBodyParser(expression, sumIndex) : null;
 			for (int i=li.start; i>=li.end; i=i+li.step){
 				li=sumIndex.pop();
 				li.setValue(i);
 				li.setIndexStart(true);
 				sumIndex.push(li);
-				ANTLRStringStream stream = new ANTLRStringStream("s: "+expression); 
-				EvaluatorLexer lexer = new EvaluatorLexer(stream);
-				TokenStream tokenStream = new CommonTokenStream(lexer);
-				EvaluatorParser evaluator = new EvaluatorParser(tokenStream);
-				evaluator.setSumIndex(sumIndex);
-				try{
-					evaluator.evaluator();
-				}catch (RecognitionException e){
-					Error.addEvaluationError(e.toString());
-				}
-			
-				EvalExpression ee0=evaluator.evalExpression;
-				ee=add(ee, ee0);
+				ee=add(ee, sumBody(body, evaluator, sumIndex));
 			}
 		}
 		sumIndex.pop();
 		return ee;
 	}
+
+	private static EvalExpression sumBody(CompiledSumBody body, EvaluatorParser evaluator, Stack<LoopIndex> sumIndex){
+		if (body!=null) return body.evaluate(sumIndex);
+		evaluator.reset();
+		evaluator.evalExpression=null;
+		try{
+			evaluator.evaluator();
+		}catch (RecognitionException e){
+			Error.addEvaluationError(e.toString());
+		}
+		return evaluator.evalExpression;
+	}
+	
+	/**
+	 * The body of a sum loop is lexed once; every iteration re-runs the parser
+	 * on the same tokens. The tokens are buffered here because the reset of the
+	 * parser before the first iteration does not fill the stream.
+	 */
+	private static EvaluatorParser sumBodyParser(String expression, Stack<LoopIndex> sumIndex){
+		ANTLRStringStream stream = new ANTLRStringStream("s: "+expression); 
+		EvaluatorLexer lexer = new EvaluatorLexer(stream);
+		CommonTokenStream tokenStream = new CommonTokenStream(lexer);
+		tokenStream.fill();
+		EvaluatorParser evaluator = new EvaluatorParser(tokenStream);
+		evaluator.setSumIndex(sumIndex);
+		return evaluator;
+	}
 	
 	public static Number assignWhereStatement(EvalExpression ee){
 		if (ee.isNumeric()){
@@ -0,0 +1,86 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+
+/**
+ * The values of a timeseries in a time window and month selection of the
+ * exceedance functions, sorted once, and the dates of the values by rank.
+ * DssDataSet keeps the index of each selection until its data are changed.
+ */
+public class ExceedanceIndex {
+	private final double[] values;
+	private final int[] epochMonths;
+	private final int[] epochDays;
+	private final boolean[] hasDate;
+
+	public ExceedanceIndex(ArrayList<Double> optedData, HashMap<Double, Date> dates){
+		int size=optedData.size();
+		values=new double[size];
+		for (int i=0; i<size; i++){
+			values[i]=optedData.get(i);
+		}
+		Arrays.sort(values);
+		epochMonths=new int[size];
+		epochDays=new int[size];
+		hasDate=new boolean[size];
+		for (int i=0; i<size; i++){
+			Date dataDate=dates.get(values[i]);
+			if (dataDate!=null){
+				epochMonths[i]=EpochCalendar.epochMonth(dataDate);
+				epochDays[i]=EpochCalendar.epochDay(dataDate);
+				hasDate[i]=true;
+			}
+		}
+	}
+
+	public int size(){
+		return values.length;
+	}
+
+	public double getExceedance(double exc) {
+		int size = values.length;
+		if (size==0){
+			Error.addEvaluationError("The data in the specified time period and selected month(s) from the timeseries doesn't exist in the Exceedance function.");
+			return 1.0;
+		}
+		if (exc==1){
+			return values[0];
+		}
+		double excIndex = (1.0-exc)*size;
+		if (excIndex>=1.0){
+			int index = (int) Math.floor(excIndex);
+			double fract = excIndex-index;
+			double value = values[index-1]+fract*(values[index]-values[index-1]);
+			return value;
+		}else{
+			double value=values[0]-(1.0-excIndex)*(values[1]-values[0]);
+			return value;
+		}
+	}
+
+	public int getExceedance_tsi(double exc) {
+		int size = values.length;
+		if (size==0){
+			Error.addEvaluationError("The data in the specified time period and selected month(s) from the timeseries doesn't exist in the Exceedance function.");
+			return 0;
+		}
+		double excIndex = (1.0-exc)*size;
+		int index=(int)Math.round(excIndex)-1;
+		if (index<0) index=0;
+		if (!hasDate[index]){
+			Error.addEvaluationError("The date of the data of the exceedance level "+exc+" is not found in the Exceedance_TSI function.");
+			return 0;
+		}
+		if (TimeOperation.isMonthlyInterval(ControlData.timeStep)){
+			return epochMonths[index]-EpochCalendar.epochMonth(ControlData.currYear, ControlData.currMonth);
+		}else{
+			return epochDays[index]-EpochCalendar.epochDay(ControlData.currYear, ControlData.currMonth, ControlData.currDay);
+		}
+	}
+}
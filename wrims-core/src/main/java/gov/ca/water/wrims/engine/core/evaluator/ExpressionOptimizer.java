@@ -0,0 +1,274 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Stack;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Alias;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Goal;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.WeightElement;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.parallel.EvaluationContext;
+
+/**
+ * Optimizes the compiled expressions of the models of a study after they are
+ * bound to the identifier slots. Sub-expressions of constants and parameters
+ * are folded to constants. Sub-expressions that only read svars, timeseries,
+ * tables and the current date and that appear more than once in a model are
+ * replaced by one SharedExpression.
+ *
+ * Both use the slot kinds and variables as PreEvaluator bound them, which holds
+ * because the model maps are not changed after PreEvaluator (see
+ * IdentifierSlots): a folded PARAMETER slot has to stay a parameter, and the
+ * svars a shared expression depends on have to stay the same objects.
+ */
+public class ExpressionOptimizer {
+	private static final Logger logger = LoggerFactory.getLogger(ExpressionOptimizer.class);
+	private static final int MIN_SHARED_SIZE=5;
+
+	private int foldedNodes=0;
+	private int foldedParameters=0;
+	private int sharedExpressions=0;
+	private int sharedUses=0;
+	private int eliminatedNodes=0;
+
+	private IdentifierSlots slots;
+	private IdentityHashMap<ValueNode, String> keys;
+	private IdentityHashMap<ValueNode, Integer> sizes;
+	private HashMap<String, Integer> counts;
+	private HashMap<String, SharedExpression> shared;
+
+	public void optimize(ModelDataSet mds){
+		slots=mds.identifierSlots;
+		if (slots==null) return;
+		ArrayList<CompiledExpression> expressions=collect(mds);
+
+		for (CompiledExpression expression: expressions){
+			expression.setNode(fold(expression.node));
+		}
+
+		keys=new IdentityHashMap<ValueNode, String>();
+		sizes=new IdentityHashMap<ValueNode, Integer>();
+		counts=new HashMap<String, Integer>();
+		for (CompiledExpression expression: expressions){
+			count(expression.node);
+		}
+		shared=new HashMap<String, SharedExpression>();
+		for (CompiledExpression expression: expressions){
+			expression.setNode(share(expression.node));
+		}
+		keys=null;
+		sizes=null;
+		counts=null;
+		shared=null;
+	}
+
+	public void report(){
+		logger.info("Expression optimization: folded {} parameters, removed {} nodes by constant folding, shared {} sub-expressions at {} places ({} nodes no longer evaluated).",
+				foldedParameters, foldedNodes, sharedExpressions, sharedUses, eliminatedNodes);
+	}
+
+	private ArrayList<CompiledExpression> collect(ModelDataSet mds){
+		LinkedHashSet<CompiledExpression> expressions=new LinkedHashSet<CompiledExpression>();
+		for (String svName: mds.svList){
+			Svar svar=mds.svMap.get(svName);
+			addAll(expressions, svar.caseConditionCompiled);
+			addAll(expressions, svar.caseExpressionCompiled);
+			add(expressions, svar.timeArraySizeCompiled);
+		}
+		for (String gName: mds.gList){
+			Goal goal=mds.gMap.get(gName);
+			addAll(expressions, goal.caseConditionCompiled);
+			add(expressions, goal.timeArraySizeCompiled);
+		}
+		for (String dvName: mds.dvList){
+			Dvar dvar=mds.dvMap.get(dvName);
+			add(expressions, dvar.upperBoundCompiled);
+			add(expressions, dvar.lowerBoundCompiled);
+			add(expressions, dvar.timeArraySizeCompiled);
+		}
+		for (String asName: mds.asList){
+			Alias alias=mds.asMap.get(asName);
+			add(expressions, alias.expressionCompiled);
+			add(expressions, alias.timeArraySizeCompiled);
+		}
+		for (String wtName: mds.wtList){
+			WeightElement weight=mds.wtMap.get(wtName);
+			add(expressions, weight.weightCompiled);
+			add(expressions, weight.timeArraySizeCompiled);
+		}
+		for (String wtName: mds.wtSlackSurplusList){
+			WeightElement weight=mds.wtSlackSurplusMap.get(wtName);
+			add(expressions, weight.weightCompiled);
+			add(expressions, weight.timeArraySizeCompiled);
+		}
+		return new ArrayList<CompiledExpression>(expressions);
+	}
+
+	private void addAll(LinkedHashSet<CompiledExpression> expressions, ArrayList<CompiledExpression> list){
+		if (list==null) return;
+		for (CompiledExpression expression: list){
+			add(expressions, expression);
+		}
+	}
+
+	private void add(LinkedHashSet<CompiledExpression> expressions, CompiledExpression expression){
+		if (expression!=null) expressions.add(expression);
+	}
+
+	private ValueNode fold(ValueNode node){
+		if (node.type==ValueNode.SLOT){
+			return foldParameter(node);
+		}
+		if (node.children.length==0){
+			return node.type==ValueNode.MONTH_CONST ? evaluateConstant(node) : node;
+		}
+		ValueNode[] folded=new ValueNode[node.children.length];
+		boolean changed=false;
+		boolean constant=ValueNode.isOperator(node.type);
+		for (int i=0; i<folded.length; i++){
+			folded[i]=fold(node.children[i]);
+			changed = changed || folded[i]!=node.children[i];
+			constant = constant && folded[i].type==ValueNode.CONSTANT;
+		}
+		ValueNode result = changed ? new ValueNode(node.type, node.text, node.texts, folded, node.value, node.index) : node;
+		return constant ? evaluateConstant(result) : result;
+	}
+
+	private ValueNode foldParameter(ValueNode node){
+		if (slots.kind(node.index)!=IdentifierSlots.PARAMETER || !ControlData.parameterMap.containsKey(node.text)) return node;
+		IntDouble data=ControlData.parameterMap.get(node.text).getData();
+		if (data==null || !data.hasData()) return node;
+		foldedParameters++;
+		return new ValueNode(data.copyWithName(node.text, 0));
+	}
+
+	/**
+	 * Evaluates a node of constants. The errors of the evaluation go to a
+	 * scratch context and are dropped; the node is kept if there are any, so
+	 * that the error is reported where the expression is used.
+	 */
+	private ValueNode evaluateConstant(ValueNode node){
+		EvaluationContext context=EvaluationContext.current();
+		EvaluationContext scratch=new EvaluationContext(EvaluationContext.evalTypeIndex(), EvaluationContext.evalName());
+		scratch.enter();
+		IntDouble value;
+		try{
+			value=node.evaluate(null, new Stack<LoopIndex>());
+		}catch (Exception e){
+			value=null;
+		}finally{
+			if (context==null){
+				scratch.exit();
+			}else{
+				context.enter();
+			}
+		}
+		if (scratch.errorCount()>0) return node;
+		if (value==null || !value.hasData()) return node;
+		foldedNodes+=size(node)-1;
+		return new ValueNode(value);
+	}
+
+	/**
+	 * @return true if the value of the node only depends on its children, the
+	 *         date, the svars, the timeseries and the tables
+	 */
+	private static boolean isPure(ValueNode node){
+		return ValueNode.isPure(node.type) || ValueNode.readsDate(node.type) || ValueNode.readsSvarOrTimeseries(node);
+	}
+
+	private String count(ValueNode node){
+		StringBuilder key=new StringBuilder();
+		key.append(node.type);
+		if (node.text!=null) key.append('\'').append(node.text);
+		if (node.texts!=null){
+			for (String text: node.texts){
+				key.append('\'').append(text);
+			}
+		}
+		if (node.value!=null){
+			key.append('=').append(node.value.isInt()).append(node.value.doubleValue()).append(node.value.getName());
+		}
+		key.append('#').append(node.index);
+		boolean pure=isPure(node);
+		boolean table=node.type==ValueNode.TABLE;
+		int size=1;
+		key.append('(');
+		for (ValueNode child: node.children){
+			String childKey=count(child);
+			key.append(childKey).append(',');
+			size+=sizes.get(child);
+			pure = pure && childKey.charAt(0)!='!';
+			table = table || childKey.charAt(0)=='*';
+		}
+		key.append(')');
+		String result=key.toString();
+		if (!pure){
+			result="!"+result;
+		}else if (table){
+			result="*"+result;
+		}
+		keys.put(node, result);
+		sizes.put(node, size);
+		if (pure && (size>=MIN_SHARED_SIZE || table)){
+			Integer n=counts.get(result);
+			counts.put(result, n==null ? 1 : n+1);
+		}
+		return result;
+	}
+
+	private ValueNode share(ValueNode node){
+		String key=keys.get(node);
+		Integer n=counts.get(key);
+		if (n!=null && n>1){
+			SharedExpression expression=shared.get(key);
+			if (expression==null){
+				LinkedHashSet<Object> dependencies=new LinkedHashSet<Object>();
+				collectDependencies(node, dependencies);
+				expression=new SharedExpression(node, slots, dependencies.toArray());
+				shared.put(key, expression);
+				sharedExpressions++;
+			}else{
+				eliminatedNodes+=sizes.get(node);
+			}
+			sharedUses++;
+			return new ValueNode(expression);
+		}
+		if (node.children.length==0) return node;
+		ValueNode[] children=new ValueNode[node.children.length];
+		boolean changed=false;
+		for (int i=0; i<children.length; i++){
+			children[i]=share(node.children[i]);
+			changed = changed || children[i]!=node.children[i];
+		}
+		if (!changed) return node;
+		return new ValueNode(node.type, node.text, node.texts, children, node.value, node.index);
+	}
+
+	private void collectDependencies(ValueNode node, LinkedHashSet<Object> dependencies){
+		if (node.type==ValueNode.SLOT){
+			dependencies.add(slots.variable(node.index));
+		}
+		for (ValueNode child: node.children){
+			collectDependencies(child, dependencies);
+		}
+	}
+
+	private static int size(ValueNode node){
+		int size=1;
+		for (ValueNode child: node.children){
+			size+=size(child);
+		}
+		return size;
+	}
+}
@@ -0,0 +1,138 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Alias;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Timeseries;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+
+/**
+ * The identifiers of the expressions of one model, resolved once by
+ * PreEvaluator to the svar, timeseries, dvar or alias they refer to. A slot
+ * keeps the first match in the order that term_IDENT searches the model maps.
+ * Identifiers that are in none of the model maps are PARAMETER slots; they are
+ * resolved at run time as loop index or parameter. The slots are only used
+ * while the current maps of ControlData are the maps of this model.
+ *
+ * The model maps are not changed after PreEvaluator: the variables made at run
+ * time (future values, time array and slack/surplus dvars) go to other maps.
+ * The compile-time uses of the slots rely on this: ExpressionOptimizer and
+ * InvariantSvars read the kind and the variable of a slot once. At run time
+ * boundVariable checks the variable against the map, so that a variable put
+ * into a model map under its name anyway is looked up as term_IDENT would.
+ */
+public class IdentifierSlots {
+	public static final int SVAR=0;
+	public static final int TIMESERIES=1;
+	public static final int DVAR=2;
+	public static final int ALIAS=3;
+	public static final int PARAMETER=4;
+
+	private final Map<String, Svar> svMap;
+	private final Map<String, Timeseries> tsMap;
+	private final Map<String, Dvar> dvMap;
+	private final Map<String, Alias> asMap;
+	private HashMap<String, Integer> slotMap=new HashMap<String, Integer>();
+	private int[] kinds=new int[16];
+	private Object[] variables=new Object[16];
+	private int size=0;
+
+	public IdentifierSlots(ModelDataSet mds){
+		svMap=mds.svMap;
+		tsMap=mds.tsMap;
+		dvMap=mds.dvMap;
+		asMap=mds.asMap;
+	}
+
+	/**
+	 * @return the slot of the identifier, added if it is not bound yet
+	 */
+	public int bind(String ident){
+		Integer slot=slotMap.get(ident);
+		if (slot!=null) return slot;
+		if (size==kinds.length){
+			kinds=Arrays.copyOf(kinds, size*2);
+			variables=Arrays.copyOf(variables, size*2);
+		}
+		if (svMap.containsKey(ident)){
+			kinds[size]=SVAR;
+			variables[size]=svMap.get(ident);
+		}else if (tsMap.containsKey(ident)){
+			kinds[size]=TIMESERIES;
+			variables[size]=tsMap.get(ident);
+		}else if (dvMap.containsKey(ident)){
+			kinds[size]=DVAR;
+			variables[size]=dvMap.get(ident);
+		}else if (asMap.containsKey(ident)){
+			kinds[size]=ALIAS;
+			variables[size]=asMap.get(ident);
+		}else{
+			kinds[size]=PARAMETER;
+		}
+		slotMap.put(ident, size);
+		return size++;
+	}
+
+	/**
+	 * @return the slot of a bound identifier, or -1
+	 */
+	public int find(String ident){
+		Integer slot=slotMap.get(ident);
+		return slot==null ? -1 : slot;
+	}
+
+	public int kind(int slot){
+		return kinds[slot];
+	}
+
+	/**
+	 * @return the variable bound to the slot by PreEvaluator
+	 */
+	public Object variable(int slot){
+		return variables[slot];
+	}
+
+	/**
+	 * @return the variable of the slot if its model map still has it under the
+	 *         name, else null. The caller then looks the name up in the maps.
+	 *         PARAMETER slots have no variable.
+	 */
+	public Object boundVariable(int slot, String ident){
+		Object variable=variables[slot];
+		switch (kinds[slot]){
+		case SVAR:
+			return svMap.get(ident)==variable ? variable : null;
+		case TIMESERIES:
+			return tsMap.get(ident)==variable ? variable : null;
+		case DVAR:
+			return dvMap.get(ident)==variable ? variable : null;
+		case ALIAS:
+			return asMap.get(ident)==variable ? variable : null;
+		default:
+			return null;
+		}
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public boolean isCurrent(){
+		return svMap==ControlData.currSvMap && tsMap==ControlData.currTsMap && dvMap==ControlData.currDvMap && asMap==ControlData.currAliasMap;
+	}
+
+	/**
+	 * @return the slots of the current model, or null if the current maps are
+	 *         not the maps of a model
+	 */
+	public static IdentifierSlots current(){
+		IdentifierSlots slots=ControlData.currModelDataSet.identifierSlots;
+		if (slots==null || !slots.isCurrent()) return null;
+		return slots;
+	}
+}
@@ -0,0 +1,138 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.parallel.ParallelVars;
+
+/**
+ * The svars of a model whose compiled cases only read constants, parameters,
+ * lookup tables, the month and the day, and the svars of this kind before
+ * them in the svar list. Their value only depends on the calendar key of the
+ * time step, the month and, if the svar or an svar it reads reads it, the
+ * day, so each svar is evaluated once per calendar key and its value is
+ * served from a table in the later time steps with the same key. A value is not kept if its
+ * evaluation has errors or none of the case conditions is true.
+ *
+ * The svars are classified by the slot kinds and variables as PreEvaluator
+ * bound them; the model maps are not changed after PreEvaluator.
+ */
+public class InvariantSvars {
+	public static final LongAdder served=new LongAdder();
+	public static final LongAdder evaluated=new LongAdder();
+
+	private static final int KEYS=13*32;
+
+	private final HashMap<String, Integer> positions=new HashMap<String, Integer>();
+	private final boolean[] readsDay;
+	private final IntDouble[][] values;
+
+	public InvariantSvars(ModelDataSet mds){
+		ArrayList<String> svList=mds.svList;
+		int n=svList.size();
+		readsDay=new boolean[n];
+		values=new IntDouble[n][];
+		HashMap<Svar, Boolean> invariant=new HashMap<Svar, Boolean>();
+		for (int p=0; p<n; p++){
+			String svName=svList.get(p);
+			Svar svar=mds.svMap.get(svName);
+			if (positions.containsKey(svName) || !"0".equals(svar.timeArraySize)) continue;
+			boolean[] day=new boolean[1];
+			if (classify(svar.caseConditionCompiled, mds, invariant, day) && classify(svar.caseExpressionCompiled, mds, invariant, day)){
+				positions.put(svName, p);
+				readsDay[p]=day[0];
+				values[p]=new IntDouble[KEYS];
+				invariant.put(svar, day[0]);
+			}
+		}
+	}
+
+	public boolean isInvariant(String svName){
+		return positions.containsKey(svName);
+	}
+
+	public int size(){
+		return positions.size();
+	}
+
+	/**
+	 * @return the value of the svar as ModelDataSet.evaluateSvar returns it
+	 */
+	public IntDouble evaluate(String svName, Svar svar, ParallelVars prvs){
+		Integer position=positions.get(svName);
+		if (position==null) return ModelDataSet.evaluateSvar(svar, prvs);
+		int p=position;
+		int key=ControlData.currMonth*32+(readsDay[p] ? ControlData.currDay : 0);
+		if (key<0 || key>=KEYS) return ModelDataSet.evaluateSvar(svar, prvs);
+		IntDouble kept=values[p][key];
+		if (kept!=null){
+			served.increment();
+			return kept.copyOf();
+		}
+		evaluated.increment();
+		int nErrors=Error.evaluationErrorCount();
+		IntDouble value=ModelDataSet.evaluateSvar(svar, prvs);
+		if (value!=null && Error.evaluationErrorCount()==nErrors) values[p][key]=value.copyOf();
+		return value;
+	}
+
+	private static boolean classify(ArrayList<CompiledExpression> expressions, ModelDataSet mds, HashMap<Svar, Boolean> invariant, boolean[] day){
+		if (expressions==null) return false;
+		for (CompiledExpression expression: expressions){
+			if (expression==null || !classify(expression.node, mds, invariant, day)) return false;
+		}
+		return true;
+	}
+
+	private static boolean classify(ValueNode node, ModelDataSet mds, HashMap<Svar, Boolean> invariant, boolean[] day){
+		switch (node.type){
+		case ValueNode.SLOT:
+			switch (node.slots.kind(node.index)){
+			case IdentifierSlots.SVAR:
+				if (!readsSvar(invariant, node.slots.variable(node.index), day)) return false;
+				break;
+			case IdentifierSlots.PARAMETER:
+				if (!ControlData.parameterMap.containsKey(node.text)) return false;
+				break;
+			default:
+				return false;
+			}
+			break;
+		case ValueNode.SVAR:
+			if (!readsSvar(invariant, mds.svMap.get(node.text), day)) return false;
+			break;
+		case ValueNode.SHARED:
+		case ValueNode.SHARED_CONDITION:
+			return classify(node.shared.node, mds, invariant, day);
+		case ValueNode.DAY:
+			day[0]=true;
+			break;
+		case ValueNode.MONTH:
+		case ValueNode.RANGE:
+			break;
+		default:
+			if (!ValueNode.isPure(node.type)) return false;
+		}
+		for (ValueNode child: node.children){
+			if (!classify(child, mds, invariant, day)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return whether the svar read is invariant; the reader also reads the day
+	 *         if the svar read does
+	 */
+	private static boolean readsSvar(HashMap<Svar, Boolean> invariant, Object svar, boolean[] day){
+		Boolean readsDay=invariant.get(svar);
+		if (readsDay==null) return false;
+		if (readsDay) day[0]=true;
+		return true;
+	}
+}
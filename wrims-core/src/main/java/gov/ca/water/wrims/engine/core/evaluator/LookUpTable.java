@@ -7,6 +7,8 @@ public class LookUpTable {
 	private String name=null;
 	private HashMap<String, Integer> field = new HashMap<String, Integer>();
 	private ArrayList<Number[]> data=new ArrayList<Number[]>();
+	private double[][] columns=null;
+	private volatile CompiledTable compiled=null;
 	
 	public String getName(){
 		return name;
@@ -24,7 +26,43 @@ public class LookUpTable {
 		this.field=field;
 	}
 	
-	public ArrayList<Number[]> getData(){
+	public synchronized ArrayList<Number[]> getData(){
+		if (data.isEmpty() && columns!=null){
+			int nRows = columns.length==0 ? 0 : columns[0].length;
+			for (int r=0; r<nRows; r++){
+				Number[] dataLine=new Number[columns.length];
+				for (int c=0; c<columns.length; c++){
+					dataLine[c]=columns[c][r];
+				}
+				data.add(dataLine);
+			}
+		}
 		return data;
 	}
+	
+	/**
+	 * @return the data by field and row if the table was loaded from
+	 *         TableCache, or null
+	 */
+	public double[][] getColumns(){
+		return columns;
+	}
+	
+	public void setColumns(double[][] columns){
+		this.columns=columns;
+	}
+	
+	/**
+	 * @return the table in primitive columns, built on first use
+	 */
+	public CompiledTable getCompiled(){
+		CompiledTable table=compiled;
+		if (table==null){
+			synchronized (this){
+				if (compiled==null) compiled=new CompiledTable(this);
+				table=compiled;
+			}
+		}
+		return table;
+	}
 }
@@ -0,0 +1,101 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Alias;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+
+/**
+ * The svars, aliases and dvars of the earlier cycles that define the variables
+ * of a cycle used by the later cycles, from the most recent cycle back. The
+ * value of a variable in the cycle is the first of them with data.
+ */
+public class PastCycleLinks {
+	final int cycleIndex;
+	final String[] svarNames;
+	final Svar[][] svars;
+	final String[] aliasNames;
+	final Alias[][] aliases;
+	final String[] dvarNames;
+	final Dvar[][] dvars;
+
+	public PastCycleLinks(ModelDataSet mds, Map<String, ModelDataSet> mdsMap, ArrayList<String> modelList, int cycleIndex){
+		this.cycleIndex=cycleIndex;
+		svarNames=mds.svarUsedByLaterCycle.toArray(new String[0]);
+		svars=new Svar[svarNames.length][];
+		for (int k=0; k<svarNames.length; k++){
+			ArrayList<Svar> sources=new ArrayList<Svar>();
+			for (int i=cycleIndex-1; i>=0; i--){
+				Svar svar=mdsMap.get(modelList.get(i)).svMap.get(svarNames[k]);
+				if (svar!=null) sources.add(svar);
+			}
+			svars[k]=sources.toArray(new Svar[sources.size()]);
+		}
+		aliasNames=mds.aliasUsedByLaterCycle.toArray(new String[0]);
+		aliases=new Alias[aliasNames.length][];
+		for (int k=0; k<aliasNames.length; k++){
+			ArrayList<Alias> sources=new ArrayList<Alias>();
+			for (int i=cycleIndex-1; i>=0; i--){
+				Alias alias=mdsMap.get(modelList.get(i)).asMap.get(aliasNames[k]);
+				if (alias!=null) sources.add(alias);
+			}
+			aliases[k]=sources.toArray(new Alias[sources.size()]);
+		}
+		dvarNames=mds.dvarUsedByLaterCycle.toArray(new String[0]);
+		dvars=new Dvar[dvarNames.length][];
+		for (int k=0; k<dvarNames.length; k++){
+			ArrayList<Dvar> sources=new ArrayList<Dvar>();
+			for (int i=cycleIndex-1; i>=0; i--){
+				Dvar dvar=mdsMap.get(modelList.get(i)).dvMap.get(dvarNames[k]);
+				if (dvar!=null) sources.add(dvar);
+			}
+			dvars[k]=sources.toArray(new Dvar[sources.size()]);
+		}
+	}
+
+	/**
+	 * @return true if the links were built for the cycle and the variables
+	 *         used by the later cycles have not changed since
+	 */
+	public boolean isCurrent(ModelDataSet mds, int cycleIndex){
+		return this.cycleIndex==cycleIndex && sameNames(svarNames, mds.svarUsedByLaterCycle)
+				&& sameNames(aliasNames, mds.aliasUsedByLaterCycle) && sameNames(dvarNames, mds.dvarUsedByLaterCycle);
+	}
+
+	private static boolean sameNames(String[] names, Set<String> used){
+		if (names.length!=used.size()) return false;
+		for (String name: names){
+			if (!used.contains(name)) return false;
+		}
+		return true;
+	}
+
+	static IntDouble svarValue(Svar[] sources){
+		for (Svar svar: sources){
+			IntDouble id=svar.getData();
+			if (id!=null) return id;
+		}
+		return null;
+	}
+
+	static IntDouble aliasValue(Alias[] sources){
+		for (Alias alias: sources){
+			IntDouble id=alias.getData();
+			if (id!=null) return id;
+		}
+		return null;
+	}
+
+	static IntDouble dvarValue(Dvar[] sources){
+		for (Dvar dvar: sources){
+			IntDouble id=dvar.getData();
+			if (id!=null) return id;
+		}
+		return null;
+	}
+}
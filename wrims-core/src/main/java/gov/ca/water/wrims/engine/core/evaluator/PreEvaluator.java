@@ -5,6 +5,7 @@ import java.util.Map;
 
 import org.antlr.runtime.ANTLRStringStream;
 import org.antlr.runtime.CommonTokenStream;
+import org.antlr.runtime.Token;
 import org.antlr.runtime.TokenStream;
 
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Alias;
@@ -14,6 +15,7 @@ import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.WeightElement;
+import gov.ca.water.wrims.engine.core.components.ControlData;
 
 public class PreEvaluator {
 	private ArrayList<String> svList;
@@ -29,8 +31,10 @@ public class PreEvaluator {
 	private ArrayList<String> wtSlackSurplusList;
 	private Map<String, WeightElement> wtSlackSurplusMap;	
 	private ArrayList<String> modelConditionList;
+	private IdentifierSlots slots;
 
 	public PreEvaluator(StudyDataSet sds ){
+		ExpressionOptimizer optimizer=new ExpressionOptimizer();
 		ArrayList<String> modelList=sds.getModelList();
 		Map<String, ModelDataSet> modelDataSetMap=sds.getModelDataSetMap();
 		for (int i=0; i<modelList.size(); i++){
@@ -48,6 +52,10 @@ public class PreEvaluator {
 			wtMap=mds.wtMap;
 			wtSlackSurplusList=mds.wtSlackSurplusList;
 			wtSlackSurplusMap=mds.wtSlackSurplusMap;
+			slots=new IdentifierSlots(mds);
+			mds.identifierSlots=slots;
+			mds.dvarIndex=new DvarIndex(mds);
+			mds.variableTable();
 			
 			preEvaluateSvar();
 			preEvaluateGoal();
@@ -55,13 +63,16 @@ public class PreEvaluator {
 			preEvaluateAlias();
 			preEvaluateWeight();
 			preEvaluateWeightSlackSurplus();
+			if (ControlData.useCompiledExpression && ControlData.optimizeExpressions) optimizer.optimize(mds);
 		}
+		if (ControlData.useCompiledExpression && ControlData.optimizeExpressions) optimizer.report();
 		modelConditionList=sds.getModelConditionList();
 		preEvaluateModelCondition(sds);
 	}
 	
 	public void preEvaluateModelCondition(StudyDataSet sds){
 		 ArrayList<ValueEvaluatorParser> modelConditionParsers=new ArrayList<ValueEvaluatorParser>(); 
+		 ArrayList<CompiledExpression> modelConditionCompiled=new ArrayList<CompiledExpression>(); 
 		for (String modelCondition: modelConditionList){
 			//System.out.println("PreEvaluate model condition"+modelCondition);
 			String evalString="c: "+modelCondition;
@@ -69,8 +80,10 @@ public class PreEvaluator {
 			ValueEvaluatorLexer lexer = new ValueEvaluatorLexer(stream);
 			TokenStream tokenStream = new CommonTokenStream(lexer);
 			modelConditionParsers.add(new ValueEvaluatorParser(tokenStream));
+			modelConditionCompiled.add(CompiledExpression.compile(tokenStream));
 		}
 		sds.setModelConditionParsers(modelConditionParsers);
+		sds.setModelConditionCompiled(modelConditionCompiled);
 	}
 	
 	public void preEvaluateWeight(){
@@ -83,12 +96,14 @@ public class PreEvaluator {
 			ValueEvaluatorLexer lexer = new ValueEvaluatorLexer(stream);
 			TokenStream tokenStream = new CommonTokenStream(lexer);
 			weight.weightParser = new ValueEvaluatorParser(tokenStream);
+			weight.weightCompiled = CompiledExpression.compile(tokenStream, slots);
 			
 			evalString="v: "+weight.timeArraySize;
 			stream = new ANTLRStringStream(evalString);
 			lexer = new ValueEvaluatorLexer(stream);
 			tokenStream = new CommonTokenStream(lexer);
 			weight.timeArraySizeParser = new ValueEvaluatorParser(tokenStream);
+			weight.timeArraySizeCompiled = CompiledExpression.compile(tokenStream, slots);
 		}
 	}
 	
@@ -102,12 +117,14 @@ public class PreEvaluator {
 			ValueEvaluatorLexer lexer = new ValueEvaluatorLexer(stream);
 			TokenStream tokenStream = new CommonTokenStream(lexer);
 			weightSlackSurplus.weightParser = new ValueEvaluatorParser(tokenStream);
+			weightSlackSurplus.weightCompiled = CompiledExpression.compile(tokenStream, slots);
 			
 			evalString="v: "+weightSlackSurplus.timeArraySize;
 			stream = new ANTLRStringStream(evalString);
 			lexer = new ValueEvaluatorLexer(stream);
 			tokenStream = new CommonTokenStream(lexer);
 			weightSlackSurplus.timeArraySizeParser = new ValueEvaluatorParser(tokenStream);
+			weightSlackSurplus.timeArraySizeCompiled = CompiledExpression.compile(tokenStream, slots);
 		}
 	}
 	
@@ -121,12 +138,14 @@ public class PreEvaluator {
 			ValueEvaluatorLexer lexer = new ValueEvaluatorLexer(stream);
 			TokenStream tokenStream = new CommonTokenStream(lexer);
 			alias.expressionParser = new ValueEvaluatorParser(tokenStream);
+			alias.expressionCompiled = CompiledExpression.compile(tokenStream, slots);
 			
 			evalString="v: "+alias.timeArraySize;
 			stream = new ANTLRStringStream(evalString);
 			lexer = new ValueEvaluatorLexer(stream);
 			tokenStream = new CommonTokenStream(lexer);
 			alias.timeArraySizeParser = new ValueEvaluatorParser(tokenStream);
+			alias.timeArraySizeCompiled = CompiledExpression.compile(tokenStream, slots);
 		}
 	}
 	
@@ -140,18 +159,25 @@ public class PreEvaluator {
 			ValueEvaluatorLexer lexer = new ValueEvaluatorLexer(stream);
 			TokenStream tokenStream = new CommonTokenStream(lexer);
 			dvar.upperBoundParser = new ValueEvaluatorParser(tokenStream);
+			dvar.upperBoundCompiled = CompiledExpression.compile(tokenStream, slots);
 			
 			evalString="v: "+dvar.lowerBound;
 			stream = new ANTLRStringStream(evalString);
 			lexer = new ValueEvaluatorLexer(stream);
 			tokenStream = new CommonTokenStream(lexer);
 			dvar.lowerBoundParser = new ValueEvaluatorParser(tokenStream);
+			dvar.lowerBoundCompiled = CompiledExpression.compile(tokenStream, slots);
 			
 			evalString="v: "+dvar.timeArraySize;
 			stream = new ANTLRStringStream(evalString);
 			lexer = new ValueEvaluatorLexer(stream);
 			tokenStream = new CommonTokenStream(lexer);
 			dvar.timeArraySizeParser = new ValueEvaluatorParser(tokenStream);
+			dvar.timeArraySizeCompiled = CompiledExpression.compile(tokenStream, slots);
+
+			CaseChain chain=new CaseChain("dvar_"+dvName);
+			chain.add(dvar.upperBoundCompiled);
+			chain.add(dvar.lowerBoundCompiled);
 		}
 	}
 
@@ -162,6 +188,7 @@ public class PreEvaluator {
 			ArrayList<String> caseCondition=goal.caseCondition;
 			int i=-1;
 			goal.caseConditionParsers=new ArrayList<ValueEvaluatorParser>();
+			goal.caseConditionCompiled=new ArrayList<CompiledExpression>();
 			goal.caseExpressionParsers=new ArrayList<EvaluatorParser>();
 			while(i<=caseCondition.size()-2){
 				i=i+1;
@@ -171,6 +198,7 @@ public class PreEvaluator {
 				TokenStream tokenStream = new CommonTokenStream(lexer);
 				ValueEvaluatorParser evaluator = new ValueEvaluatorParser(tokenStream);
 				goal.caseConditionParsers.add(evaluator);
+				goal.caseConditionCompiled.add(CompiledExpression.compile(tokenStream, slots));
 
 				String evalString1="g: "+goal.caseExpression.get(i);
 				ANTLRStringStream stream1 = new ANTLRStringStream(evalString1);
@@ -178,12 +206,26 @@ public class PreEvaluator {
 				TokenStream tokenStream1 = new CommonTokenStream(lexer1);
 				EvaluatorParser evaluator1 = new EvaluatorParser(tokenStream1);
 				goal.caseExpressionParsers.add(evaluator1);
+				bindIdentifiers(evalString1);
 			}
 			String evalString="v: "+goal.timeArraySize;
 			ANTLRStringStream stream = new ANTLRStringStream(evalString);
 			ValueEvaluatorLexer lexer = new ValueEvaluatorLexer(stream);
 			CommonTokenStream tokenStream = new CommonTokenStream(lexer);
 			goal.timeArraySizeParser = new ValueEvaluatorParser(tokenStream);
+			goal.timeArraySizeCompiled = CompiledExpression.compile(tokenStream, slots);
+			new CaseChain("goal_"+gName).addAll(goal.caseConditionCompiled);
+		}
+	}
+	
+	/**
+	 * Binds the identifiers of an expression that is evaluated by EvaluatorParser.
+	 */
+	private void bindIdentifiers(String evalString){
+		CommonTokenStream tokenStream = new CommonTokenStream(new EvaluatorLexer(new ANTLRStringStream(evalString)));
+		tokenStream.fill();
+		for (Token token: tokenStream.getTokens()){
+			if (token.getType()==EvaluatorLexer.IDENT) slots.bind(token.getText());
 		}
 	}
 	
@@ -195,6 +237,8 @@ public class PreEvaluator {
 			int i=-1;
 			svar.caseConditionParsers=new ArrayList<ValueEvaluatorParser>();
 			svar.caseExpressionParsers=new ArrayList<ValueEvaluatorParser>();
+			svar.caseConditionCompiled=new ArrayList<CompiledExpression>();
+			svar.caseExpressionCompiled=new ArrayList<CompiledExpression>();
 			while(i<=caseCondition.size()-2){
 				i=i+1;
 				String evalString="c: "+caseCondition.get(i);
@@ -203,6 +247,7 @@ public class PreEvaluator {
 				TokenStream tokenStream = new CommonTokenStream(lexer);
 				ValueEvaluatorParser evaluator = new ValueEvaluatorParser(tokenStream);
 				svar.caseConditionParsers.add(evaluator);
+				svar.caseConditionCompiled.add(CompiledExpression.compile(tokenStream, slots));
 
 				evalString="v: "+svar.caseExpression.get(i);
 				stream = new ANTLRStringStream(evalString);
@@ -210,12 +255,18 @@ public class PreEvaluator {
 				tokenStream = new CommonTokenStream(lexer);
 				evaluator = new ValueEvaluatorParser(tokenStream);
 				svar.caseExpressionParsers.add(evaluator);
+				svar.caseExpressionCompiled.add(CompiledExpression.compile(tokenStream, slots));
 			}
 			String evalString="v: "+svar.timeArraySize;
 			ANTLRStringStream stream = new ANTLRStringStream(evalString);
 			ValueEvaluatorLexer lexer = new ValueEvaluatorLexer(stream);
 			CommonTokenStream tokenStream = new CommonTokenStream(lexer);
 			svar.timeArraySizeParser = new ValueEvaluatorParser(tokenStream);
+			svar.timeArraySizeCompiled = CompiledExpression.compile(tokenStream, slots);
+
+			CaseChain chain=new CaseChain("svar_"+svName);
+			chain.addAll(svar.caseConditionCompiled);
+			chain.addAll(svar.caseExpressionCompiled);
 		}
 	}
 }
@@ -0,0 +1,113 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.util.Stack;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Timeseries;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.parallel.ParallelVars;
+
+/**
+ * A sub-expression that appears more than once in the expressions of a model,
+ * found by ExpressionOptimizer. It is evaluated once and the result is reused
+ * for the same time step and cycle as long as the svars and timeseries it
+ * reads still have the same values. A result is not kept if its evaluation
+ * reported errors, so that every use reports them as before.
+ */
+public class SharedExpression {
+	public final ValueNode node;
+	private final IdentifierSlots slots;
+	private final Object[] dependencies;
+	private volatile Result last;
+
+	private static final class Result {
+		private int year;
+		private int month;
+		private int day;
+		private int cycle;
+		private double[] values;
+		private boolean[] ints;
+		private IntDouble value;
+		private boolean condition;
+	}
+
+	SharedExpression(ValueNode node, IdentifierSlots slots, Object[] dependencies){
+		this.node=node;
+		this.slots=slots;
+		this.dependencies=dependencies;
+	}
+
+	IntDouble evaluate(ParallelVars prvs, Stack<LoopIndex> sumIndex){
+		if (!slots.isCurrent()) return node.evaluate(prvs, sumIndex);
+		Result result=last;
+		if (result==null || !isValid(result)){
+			result=snapshot();
+			if (result==null) return node.evaluate(prvs, sumIndex);
+			int nErrors=Error.evaluationErrorCount();
+			result.value=node.evaluate(prvs, sumIndex);
+			if (Error.evaluationErrorCount()>nErrors) return result.value;
+			last=result;
+		}
+		IntDouble value=result.value;
+		return value==null ? null : value.copyWithName(value.getName(), value.getIndex());
+	}
+
+	boolean evaluateCondition(ParallelVars prvs, Stack<LoopIndex> sumIndex){
+		if (!slots.isCurrent()) return node.evaluateCondition(prvs, sumIndex);
+		Result result=last;
+		if (result==null || !isValid(result)){
+			result=snapshot();
+			if (result==null) return node.evaluateCondition(prvs, sumIndex);
+			int nErrors=Error.evaluationErrorCount();
+			result.condition=node.evaluateCondition(prvs, sumIndex);
+			if (Error.evaluationErrorCount()>nErrors) return result.condition;
+			last=result;
+		}
+		return result.condition;
+	}
+
+	private boolean isValid(Result result){
+		if (result.year!=ControlData.currYear || result.month!=ControlData.currMonth || result.day!=ControlData.currDay || result.cycle!=ControlData.currCycleIndex){
+			return false;
+		}
+		for (int i=0; i<dependencies.length; i++){
+			IntDouble data=data(dependencies[i]);
+			if (data==null || data.isInt()!=result.ints[i] || data.doubleValue()!=result.values[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the time step and dependency values, or null if a dependency has
+	 *         no value
+	 */
+	private Result snapshot(){
+		Result result=new Result();
+		result.year=ControlData.currYear;
+		result.month=ControlData.currMonth;
+		result.day=ControlData.currDay;
+		result.cycle=ControlData.currCycleIndex;
+		result.values=new double[dependencies.length];
+		result.ints=new boolean[dependencies.length];
+		for (int i=0; i<dependencies.length; i++){
+			IntDouble data=data(dependencies[i]);
+			if (data==null) return null;
+			result.values[i]=data.doubleValue();
+			result.ints[i]=data.isInt();
+		}
+		return result;
+	}
+
+	private static IntDouble data(Object dependency){
+		IntDouble data;
+		if (dependency instanceof Svar){
+			data=((Svar)dependency).getData();
+		}else{
+			data=((Timeseries)dependency).getData();
+		}
+		if (data==null || !data.hasData()) return null;
+		return data;
+	}
+}
@@ -0,0 +1,193 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.atomic.LongAdder;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Timeseries;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.parallel.ParallelVars;
+
+/**
+ * The inputs of the svars of a model whose compiled cases only read svars,
+ * timeseries, tables and the current date, like a SharedExpression. After an
+ * svar is evaluated without errors, the values of its inputs are kept with its
+ * value, and the date if it reads the date. The next evaluation, in a later
+ * time step or cycle loop, returns the kept value without evaluating the
+ * svar if its inputs still have the same values.
+ *
+ * The kept value is a copy, and a kept value is returned as a copy, since the
+ * value becomes the data of the svar, which external functions can write
+ * their arguments back to.
+ *
+ * With ControlData.verifySvarTracking the svar is evaluated anyway and an
+ * evaluation error is reported if the value differs from the kept one.
+ */
+public class SvarTracker {
+	public static final LongAdder skipped=new LongAdder();
+	public static final LongAdder evaluated=new LongAdder();
+
+	private final HashMap<String, Integer> positions=new HashMap<String, Integer>();
+	private final Object[][] inputs;
+	private final boolean[] readsDate;
+	private final Inputs[] last;
+
+	private static final class Inputs {
+		private int year;
+		private int month;
+		private int day;
+		private double[] values;
+		private boolean[] ints;
+		private IntDouble value;
+	}
+
+	public SvarTracker(ModelDataSet mds){
+		ArrayList<String> svList=mds.svList;
+		int n=svList.size();
+		inputs=new Object[n][];
+		readsDate=new boolean[n];
+		last=new Inputs[n];
+		for (int p=0; p<n; p++){
+			String svName=svList.get(p);
+			if (!positions.containsKey(svName)) positions.put(svName, p);
+			Svar svar=mds.svMap.get(svName);
+			if (!"0".equals(svar.timeArraySize)) continue;
+			LinkedHashSet<Object> read=new LinkedHashSet<Object>();
+			boolean[] date=new boolean[1];
+			if (collect(svar.caseConditionCompiled, mds, read, date) && collect(svar.caseExpressionCompiled, mds, read, date)){
+				inputs[p]=read.toArray();
+				readsDate[p]=date[0];
+			}
+		}
+	}
+
+	/**
+	 * @return the value of the svar as ModelDataSet.evaluateSvar returns it
+	 */
+	public IntDouble evaluate(String svName, Svar svar, ParallelVars prvs){
+		Integer position=positions.get(svName);
+		if (position==null || inputs[position]==null) return ModelDataSet.evaluateSvar(svar, prvs);
+		int p=position;
+		Inputs kept=last[p];
+		boolean same=kept!=null && isSame(p, kept);
+		if (same && !ControlData.verifySvarTracking){
+			skipped.increment();
+			return kept.value==null ? null : kept.value.copyOf();
+		}
+		evaluated.increment();
+		int nErrors=Error.evaluationErrorCount();
+		IntDouble value=ModelDataSet.evaluateSvar(svar, prvs);
+		if (same && !isSame(value, kept.value)){
+			Error.addEvaluationError("The value of "+svName+" differs from its value of the last evaluation with the same inputs.");
+		}
+		if (Error.evaluationErrorCount()>nErrors){
+			last[p]=null;
+		}else{
+			last[p]=snapshot(p, value);
+		}
+		return value;
+	}
+
+	private boolean isSame(int p, Inputs kept){
+		if (readsDate[p] && (kept.year!=ControlData.currYear || kept.month!=ControlData.currMonth || kept.day!=ControlData.currDay)){
+			return false;
+		}
+		Object[] read=inputs[p];
+		for (int i=0; i<read.length; i++){
+			IntDouble data=data(read[i]);
+			if (data==null || data.isInt()!=kept.ints[i] || data.doubleValue()!=kept.values[i]) return false;
+		}
+		return true;
+	}
+
+	private static boolean isSame(IntDouble value, IntDouble kept){
+		if (value==null || kept==null) return value==kept;
+		return value.isInt()==kept.isInt() && Double.compare(value.doubleValue(), kept.doubleValue())==0;
+	}
+
+	/**
+	 * @return the date and input values with the value, or null if an input
+	 *         has no value
+	 */
+	private Inputs snapshot(int p, IntDouble value){
+		Object[] read=inputs[p];
+		Inputs kept=new Inputs();
+		kept.year=ControlData.currYear;
+		kept.month=ControlData.currMonth;
+		kept.day=ControlData.currDay;
+		kept.values=new double[read.length];
+		kept.ints=new boolean[read.length];
+		for (int i=0; i<read.length; i++){
+			IntDouble data=data(read[i]);
+			if (data==null) return null;
+			kept.values[i]=data.doubleValue();
+			kept.ints[i]=data.isInt();
+		}
+		kept.value=value==null ? null : value.copyOf();
+		return kept;
+	}
+
+	private static IntDouble data(Object input){
+		IntDouble data;
+		if (input instanceof Svar){
+			data=((Svar)input).getData();
+		}else{
+			data=((Timeseries)input).getData();
+		}
+		if (data==null || !data.hasData()) return null;
+		return data;
+	}
+
+	/**
+	 * Adds the svars and timeseries read by the expressions.
+	 *
+	 * @return false if an expression reads anything else
+	 */
+	private static boolean collect(ArrayList<CompiledExpression> expressions, ModelDataSet mds, LinkedHashSet<Object> read, boolean[] date){
+		if (expressions==null) return false;
+		for (CompiledExpression expression: expressions){
+			if (expression==null || !collect(expression.node, mds, read, date)) return false;
+		}
+		return true;
+	}
+
+	private static boolean collect(ValueNode node, ModelDataSet mds, LinkedHashSet<Object> read, boolean[] date){
+		switch (node.type){
+		case ValueNode.SLOT:
+			if (!ValueNode.readsSvarOrTimeseries(node)) return false;
+			read.add(node.slots.variable(node.index));
+			break;
+		case ValueNode.SVAR:
+			if (mds.svMap.containsKey(node.text)){
+				read.add(mds.svMap.get(node.text));
+			}else if (mds.tsMap.containsKey(node.text)){
+				read.add(mds.tsMap.get(node.text));
+			}else{
+				return false;
+			}
+			break;
+		case ValueNode.SHARED:
+		case ValueNode.SHARED_CONDITION:
+			return collect(node.shared.node, mds, read, date);
+		case ValueNode.YEAR:
+		case ValueNode.MONTH:
+		case ValueNode.DAY:
+		case ValueNode.DAYSIN:
+		case ValueNode.DAYSINTIMESTEP:
+		case ValueNode.RANGE:
+			date[0]=true;
+			break;
+		default:
+			if (!ValueNode.isPure(node.type)) return false;
+		}
+		for (ValueNode child: node.children){
+			if (!collect(child, mds, read, date)) return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,199 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import gov.ca.water.wrims.engine.core.components.FilePaths;
+import gov.ca.water.wrims.engine.core.parallel.EvaluationContext;
+
+/**
+ * Parsed lookup tables in binary files under lookup/cache of the run folder,
+ * one <name>.tbc file per .table file. A cache file has the size, the last
+ * modified time and the CRC32 of the .table file it was made from, the field
+ * names and the data by field, and is loaded by memory mapping without
+ * parsing. It is used only if the .table file has not changed.
+ *
+ * Tables are only cached if they were parsed without errors, so that the
+ * errors of a table are reported on every run.
+ *
+ * main() builds the cache files of all tables of a study in parallel:
+ * TableCache <run folder> [lookup subfolder] [number of threads]
+ */
+public class TableCache {
+	private static final int MAGIC=0x57544243;
+	private static final int VERSION=1;
+
+	public static File cacheFile(String name){
+		return new File(FilePaths.mainDirectory+"lookup"+File.separator+"cache"+File.separator+FilePaths.lookupSubDirectory+File.separator+name+".tbc");
+	}
+
+	/**
+	 * @return the table of the cache file of the .table file, or null if there
+	 *         is no valid cache file
+	 */
+	public static LookUpTable load(String name, File tableFile){
+		File file=cacheFile(name);
+		if (!file.isFile()) return null;
+		try (FileChannel channel=FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+			MappedByteBuffer buffer=channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt()!=MAGIC || buffer.getInt()!=VERSION) return null;
+			if (buffer.getLong()!=tableFile.length() || buffer.getLong()!=tableFile.lastModified()) return null;
+			if (buffer.getLong()!=checksum(tableFile)) return null;
+			LookUpTable lut=new LookUpTable();
+			lut.setName(name);
+			int fieldSize=buffer.getInt();
+			for (int i=0; i<fieldSize; i++){
+				byte[] bytes=new byte[buffer.getInt()];
+				buffer.get(bytes);
+				lut.getField().put(new String(bytes, StandardCharsets.UTF_8), i);
+			}
+			int nRows=buffer.getInt();
+			if (nRows<1 || lut.getField().size()!=fieldSize || buffer.remaining()!=(long)fieldSize*nRows*8) return null;
+			double[][] columns=new double[fieldSize][nRows];
+			for (int c=0; c<fieldSize; c++){
+				buffer.asDoubleBuffer().get(columns[c]);
+				buffer.position(buffer.position()+nRows*8);
+			}
+			lut.setColumns(columns);
+			return lut;
+		}catch (Exception e){
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the cache file of a table parsed from the .table file. The file is
+	 * written under a temporary name and then renamed, so that other runs
+	 * never see a part of it.
+	 */
+	public static void save(String name, File tableFile, LookUpTable lut){
+		File file=cacheFile(name);
+		File temp=null;
+		try{
+			long size=tableFile.length();
+			long lastModified=tableFile.lastModified();
+			long checksum=checksum(tableFile);
+			file.getParentFile().mkdirs();
+			temp=File.createTempFile("tbc_"+name, ".tmp", file.getParentFile());
+			String[] fieldNames=new String[lut.getField().size()];
+			for (Map.Entry<String, Integer> entry: lut.getField().entrySet()){
+				fieldNames[entry.getValue()]=entry.getKey();
+			}
+			double[][] columns = lut.getColumns()!=null ? lut.getColumns() : CompiledTable.columns(lut);
+			int nRows = columns.length==0 ? 0 : columns[0].length;
+			try (DataOutputStream out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))){
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(size);
+				out.writeLong(lastModified);
+				out.writeLong(checksum);
+				out.writeInt(fieldNames.length);
+				for (String fieldName: fieldNames){
+					byte[] bytes=fieldName.getBytes(StandardCharsets.UTF_8);
+					out.writeInt(bytes.length);
+					out.write(bytes);
+				}
+				out.writeInt(nRows);
+				for (double[] column: columns){
+					for (double value: column){
+						out.writeDouble(value);
+					}
+				}
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}catch (Exception e){
+			if (temp!=null) temp.delete();
+		}
+	}
+
+	private static long checksum(File tableFile) throws IOException{
+		CRC32 crc=new CRC32();
+		crc.update(Files.readAllBytes(tableFile.toPath()));
+		return crc.getValue();
+	}
+
+	/**
+	 * Parses the .table file and writes its cache file if the table has no
+	 * errors and the cache file is not valid.
+	 *
+	 * @return the errors of the table
+	 */
+	public static ArrayList<String> build(String name, File tableFile){
+		EvaluationContext context=new EvaluationContext(0, name);
+		context.enter();
+		try{
+			if (load(name, tableFile)==null){
+				LookUpTable lut=TableOperation.readLookUpData(name, tableFile.getPath());
+				if (lut!=null && context.errorCount()==0) save(name, tableFile, lut);
+			}
+		}catch (IOException e){
+			context.addError(e.getMessage());
+		}finally{
+			context.exit();
+		}
+		return context.errors();
+	}
+
+	public static void main(String[] args) throws Exception{
+		if (args.length<1){
+			System.out.println("Usage: TableCache <run folder> [lookup subfolder] [number of threads]");
+			return;
+		}
+		FilePaths.mainDirectory=new File(args[0]).getCanonicalPath()+File.separator;
+		FilePaths.lookupSubDirectory = args.length>1 ? args[1] : "";
+		int nThreads = args.length>2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+		File lookupDir=new File(FilePaths.mainDirectory+"lookup"+File.separator+FilePaths.lookupSubDirectory);
+		File[] tableFiles=lookupDir.listFiles((dir, fileName) -> fileName.toLowerCase().endsWith(".table"));
+		if (tableFiles==null){
+			System.out.println("The lookup folder "+lookupDir+" could not be found.");
+			return;
+		}
+		Arrays.sort(tableFiles);
+		HashMap<String, ArrayList<String>> errors=new HashMap<String, ArrayList<String>>();
+		AtomicInteger nBuilt=new AtomicInteger();
+		ForkJoinPool pool=new ForkJoinPool(Math.max(1, nThreads));
+		try{
+			pool.submit(() -> Arrays.stream(tableFiles).parallel().forEach(tableFile -> {
+				String fileName=tableFile.getName();
+				String name=fileName.substring(0, fileName.length()-".table".length()).toLowerCase();
+				ArrayList<String> tableErrors=build(name, tableFile);
+				if (tableErrors.isEmpty()){
+					nBuilt.incrementAndGet();
+				}else{
+					synchronized (errors){
+						errors.put(name, tableErrors);
+					}
+				}
+			})).get();
+		}finally{
+			pool.shutdown();
+		}
+		for (File tableFile: tableFiles){
+			String fileName=tableFile.getName();
+			String name=fileName.substring(0, fileName.length()-".table".length()).toLowerCase();
+			if (errors.containsKey(name)){
+				for (String error: errors.get(name)){
+					System.out.println(name+": "+error);
+				}
+			}
+		}
+		System.out.println(nBuilt.get()+" of "+tableFiles.length+" tables are cached in "+cacheFile("").getParent());
+	}
+}
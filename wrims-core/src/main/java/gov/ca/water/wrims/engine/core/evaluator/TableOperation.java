@@ -1,5 +1,6 @@
 package gov.ca.water.wrims.engine.core.evaluator;
 
+import gov.ca.water.wrims.engine.core.components.ControlData;
 import gov.ca.water.wrims.engine.core.components.FilePaths;
 import gov.ca.water.wrims.engine.core.components.Error;
 import gov.ca.water.wrims.engine.core.components.IntDouble;
@@ -8,13 +9,13 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.DataInputStream;
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 
 import java.util.HashMap;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -29,103 +30,122 @@ public class TableOperation {
 					Error.addEvaluationError("Table "+name+" could not be found.");
 					return false;
 				}
-			
-				FileInputStream fstream = new FileInputStream(tableFullPath);
-			    DataInputStream in = new DataInputStream(fstream);
-			    BufferedReader br = new BufferedReader(new InputStreamReader(in));
-			    
-			    String strLine;
-			    boolean isComment =true;
-			    boolean isEnd=false;
-			    int line=0;
-			    strLine="";
-			    
-			    while (!isEnd && isComment){
-			    	strLine=br.readLine();
-			    	strLine=removeLeadingTailingSpace(strLine);
-			    	line=line+1;
-			    	if (strLine==null){
-			    		isEnd=true;
-			    	}else{
-			    		if (!strLine.startsWith("!")) isComment=false;
-			    	}
-			    }	
-			    if (strLine==null){
-			    	Error.addEvaluationError("No data exists in the table "+name);
-			    	in.close();
-			    	return false;
-			    }
-			    
-			    if (strLine.contains("!")) strLine=removeComment(strLine);
-			    strLine=removeLeadingTailingSpace(strLine);
-			    if (!(strLine.toLowerCase().equals(name))){
-			    	Error.addEvaluationError("The first line after comments in the table "+name+".table should be the file name without extension: "+name);
-			    }
-			    
-			    if ((strLine=br.readLine())==null){
-			    	Error.addEvaluationError("No data exists in the table "+name);
-			    	in.close();
-			    	return false;
-			    }
-			    line=line+1;
-			    LookUpTable lut=new LookUpTable();
-			    if (strLine.contains("!")) strLine=removeComment(strLine);
-		    	strLine=removeLeadingTailingSpace(strLine);
-			    String[] fieldNames=strLine.toLowerCase().split("\\s+");
-			    int fieldSize=fieldNames.length;
-			    for (int i=0; i<fieldSize; i++){
-			    	if (!isFieldNameRight(fieldNames[i])){
-			    		Error.addEvaluationError("The No. " +(i+1)+" field name in the table "+name+" line"+line+" has a wrong format");
-				    	in.close();
-				    	return false;
-			    	}
-			    	lut.getField().put(fieldNames[i], i);
-			    }
-			    
-			    while ((strLine=br.readLine())!=null){
-			    	line=line+1;
-			    	if (strLine.contains("!")) strLine=removeComment(strLine);
-			    	strLine=removeLeadingTailingSpace(strLine);
-			    	String[] values=strLine.split("\\s+");
-			    	if (values.length!=fieldSize){
-			    		if (values[0].equals("") && lut.getData().size()>0) {
-			    			TableSeries.tableSeries.put(name,lut);
-			    			in.close();
-			    			return true;
-			    		}
-				    	Error.addEvaluationError("The number of data in the table "+name+" line "+line+" doesn't agree with the number of the field");
-				    	in.close();
-				    	return false;
-			    	}
-			    	
-			    	Number[] dataLine=new Number[fieldSize];
-			    	for (int i=0; i<fieldSize; i++){
-			    		try{        
-			    			dataLine[i]=Double.parseDouble(values[i]);
-			    		} catch(NumberFormatException nfe1) {        
-			    	        Error.addEvaluationError("The No. " +(i+1)+" data in the table "+name+" line"+line+" is not numeric");
-						    in.close();
-						    return false;
-			    		}   
-			    	}
-			    	lut.getData().add(dataLine);
-			    }
-
-			    if (lut.getData().size()<1){
-			    	Error.addEvaluationError("No data exists in the table "+name);
-			    	in.close();
-			    	return false;
-			    }else{
-			    	TableSeries.tableSeries.put(name,lut);
-			    }
-			    
-			    in.close();
+				
+				if (ControlData.cacheLookupTables){
+					LookUpTable lut=TableCache.load(name, f);
+					if (lut!=null){
+						TableSeries.tableSeries.put(name,lut);
+						return true;
+					}
+				}
+				
+				int nErrors=Error.evaluationErrorCount();
+				LookUpTable lut=readLookUpData(name, tableFullPath);
+				if (lut==null) return false;
+				TableSeries.tableSeries.put(name,lut);
+				if (ControlData.cacheLookupTables && Error.evaluationErrorCount()==nErrors) TableCache.save(name, f, lut);
 		 }catch (Exception e){
 			    Error.addEvaluationError(e.getMessage());
 		 }
 		 return true;
 	}
 	
+	/**
+	 * Parses a .table file. The errors are added as evaluation errors.
+	 *
+	 * @return the table, or null if it has an error that stops the parsing
+	 */
+	public static LookUpTable readLookUpData(String name, String tableFullPath) throws IOException{
+		FileInputStream fstream = new FileInputStream(tableFullPath);
+		DataInputStream in = new DataInputStream(fstream);
+		BufferedReader br = new BufferedReader(new InputStreamReader(in));
+
+		String strLine;
+		boolean isComment =true;
+		boolean isEnd=false;
+		int line=0;
+		strLine="";
+
+		while (!isEnd && isComment){
+			strLine=br.readLine();
+			strLine=removeLeadingTailingSpace(strLine);
+			line=line+1;
+			if (strLine==null){
+				isEnd=true;
+			}else{
+				if (!strLine.startsWith("!")) isComment=false;
+			}
+		}
+		if (strLine==null){
+			Error.addEvaluationError("No data exists in the table "+name);
+			in.close();
+			return null;
+		}
+
+		if (strLine.contains("!")) strLine=removeComment(strLine);
+		strLine=removeLeadingTailingSpace(strLine);
+		if (!(strLine.toLowerCase().equals(name))){
+			Error.addEvaluationError("The first line after comments in the table "+name+".table should be the file name without extension: "+name);
+		}
+
+		if ((strLine=br.readLine())==null){
+			Error.addEvaluationError("No data exists in the table "+name);
+			in.close();
+			return null;
+		}
+		line=line+1;
+		LookUpTable lut=new LookUpTable();
+		if (strLine.contains("!")) strLine=removeComment(strLine);
+		strLine=removeLeadingTailingSpace(strLine);
+		String[] fieldNames=strLine.toLowerCase().split("\\s+");
+		int fieldSize=fieldNames.length;
+		for (int i=0; i<fieldSize; i++){
+			if (!isFieldNameRight(fieldNames[i])){
+				Error.addEvaluationError("The No. " +(i+1)+" field name in the table "+name+" line"+line+" has a wrong format");
+				in.close();
+				return null;
+			}
+			lut.getField().put(fieldNames[i], i);
+		}
+
+		while ((strLine=br.readLine())!=null){
+			line=line+1;
+			if (strLine.contains("!")) strLine=removeComment(strLine);
+			strLine=removeLeadingTailingSpace(strLine);
+			String[] values=strLine.split("\\s+");
+			if (values.length!=fieldSize){
+				if (values[0].equals("") && lut.getData().size()>0) {
+					in.close();
+					return lut;
+				}
+				Error.addEvaluationError("The number of data in the table "+name+" line "+line+" doesn't agree with the number of the field");
+				in.close();
+				return null;
+			}
+
+			Number[] dataLine=new Number[fieldSize];
+			for (int i=0; i<fieldSize; i++){
+				try{
+					dataLine[i]=Double.parseDouble(values[i]);
+				} catch(NumberFormatException nfe1) {
+					Error.addEvaluationError("The No. " +(i+1)+" data in the table "+name+" line"+line+" is not numeric");
+					in.close();
+					return null;
+				}
+			}
+			lut.getData().add(dataLine);
+		}
+
+		if (lut.getData().size()<1){
+			Error.addEvaluationError("No data exists in the table "+name);
+			in.close();
+			return null;
+		}
+
+		in.close();
+		return lut;
+	}
+	
 	public static String removeComment(String text){
 		int index=text.indexOf("!");
 		return text.substring(0,index);
@@ -154,9 +174,7 @@ public class TableOperation {
 		}
 		
 		LookUpTable lut=TableSeries.tableSeries.get(table);
-		ArrayList<Number[]> data=lut.getData();
 		HashMap<String, Integer> field= lut.getField();
-		int fieldSize=field.size();
 		
 		int selectIndex;
 		if (field.containsKey(select)){
@@ -166,48 +184,25 @@ public class TableOperation {
 			return new IntDouble(1.0,false);
 		}
 		
-		Set whereSet=where.keySet();
-		Iterator iterator=whereSet.iterator();
 		int whereSize=where.size();
+		if (whereSize==0) return findData(table, select, given, use);
 		int[] whereIndex=new int[whereSize];
-		Number[] whereValue=new Number[whereSize];
-		int k=0;		
-		while(iterator.hasNext()){
-			String whereName=(String)iterator.next();
+		double[] whereValue=new double[whereSize];
+		int k=0;
+		for (Map.Entry<String, Number> entry: where.entrySet()){
+			String whereName=entry.getKey();
 			if (field.containsKey(whereName)){
 				whereIndex[k]=field.get(whereName);
 			}else{
 				Error.addEvaluationError(whereName+" in the where statement is not a field name in Table "+table);
 				return new IntDouble(1.0,false);
 			}
-			whereValue[k]=(Number)where.get(whereName);
+			whereValue[k]=entry.getValue().doubleValue();
 			k=k+1;
 		}
-			
-		boolean whereTrue;
-		if (whereSize==0){
-			whereTrue=true;
-		}else{
-			whereTrue=false;
-		}
-		
-		Number[] values=new Number[fieldSize];
-		int i=-1;
-		while (i<data.size()-1 && !whereTrue){
-			i++;
-			values=data.get(i);
-			boolean eachWhereTrue=true;
-			k=-1;
-			while (k<whereSize-1 && eachWhereTrue){
-				k++;
-				if (values[whereIndex[k]].doubleValue()!=whereValue[k].doubleValue()){
-					eachWhereTrue=false;
-				}
-			}
-			if (eachWhereTrue) whereTrue=true;
-		}
 		
-		if (!whereTrue){
+		CompiledTable.Rows rows=lut.getCompiled().rows(whereIndex, whereValue);
+		if (rows==null){
 			String whereError="";
 			for (String key: where.keySet()){
 				whereError=whereError+"("+key+": "+where.get(key)+")";
@@ -216,60 +211,11 @@ public class TableOperation {
 			return new IntDouble(1.0,false);
 		}
 		
-		Number value=values[selectIndex];
 		if (given==null){
-			String valueString=value.toString();
-			return generateIntDouble(valueString);
-		}
-		
-		int givenIndex;
-		Set givenSet=given.keySet();
-		iterator=givenSet.iterator();
-		String givenName=(String)iterator.next();
-		String valueString;
-		if (field.containsKey(givenName)){
-			givenIndex=field.get(givenName);
-		}else{
-			Error.addEvaluationError(givenName+" in the given statement is not a field name in Table "+table);
-			return new IntDouble(1.0,false);
-		}
-		Number givenValue=(Number)given.get(givenName);
-		
-		ArrayList<Number> gVList=new ArrayList<Number>();
-		Map<Number, Number> gVMap=new HashMap<Number, Number>();
-		gVList.add(values[givenIndex]);
-		gVMap.put(values[givenIndex], values[selectIndex]);
-			
-		while (i<data.size()-1){
-			i++;
-			values=data.get(i);
-			boolean eachWhereTrue=true;
-			k=-1;
-			while (k<whereSize-1 && eachWhereTrue){
-				k++;
-				if (values[whereIndex[k]].doubleValue()!=whereValue[k].doubleValue()){
-					eachWhereTrue=false;
-				}
-			}
-			if (eachWhereTrue) {
-				if (gVList.contains(values[givenIndex])){
-					Error.addEvaluationError("Given value "+values[givenIndex]+" in the given statement is duplicated in Table "+table);
-					return new IntDouble(1.0,false);
-				}else{
-					gVList.add(values[givenIndex]);
-					gVMap.put(values[givenIndex], values[selectIndex]);
-				}
-			}else{
-				eachWhereTrue=true;
-			}
-		}
-		
-		String givenError="";
-		for (String key: given.keySet()){
-			givenError=givenError+"("+key+": "+given.get(key)+")";
+			return new IntDouble(rows.first(selectIndex), false);
 		}
 		
-		return calculateValue(givenValue, gVList, gVMap, use, table, givenError);
+		return findGivenData(table, lut, rows, selectIndex, given, use);
 	}
 	
 	public static IntDouble findData(String table, String select, HashMap<String, Number> given, String use){
@@ -280,9 +226,7 @@ public class TableOperation {
 		}
 		
 		LookUpTable lut=TableSeries.tableSeries.get(table);
-		ArrayList<Number[]> data=lut.getData();
 		HashMap<String, Integer> field= lut.getField();
-		int fieldSize=field.size();
 		
 		int selectIndex;
 		if (field.containsKey(select)){
@@ -297,42 +241,115 @@ public class TableOperation {
 			return new IntDouble(1.0,false);
 		}
 		
-		Number[] values=new Number[fieldSize];
-
+		return findGivenData(table, lut, lut.getCompiled().allRows(), selectIndex, given, use);
+	}
+	
+	private static IntDouble findGivenData(String table, LookUpTable lut, CompiledTable.Rows rows, int selectIndex, HashMap<String, Number> given, String use){
+		String givenName=given.keySet().iterator().next();
+		HashMap<String, Integer> field= lut.getField();
 		int givenIndex;
-		Set givenSet=given.keySet();
-		Iterator iterator=givenSet.iterator();
-		String givenName=(String)iterator.next();
-		String valueString;
-		
 		if (field.containsKey(givenName)){
 			givenIndex=field.get(givenName);
 		}else{
 			Error.addEvaluationError(givenName+" in the given statement is not a field name in Table "+table);
 			return new IntDouble(1.0,false);
 		}
-		Number givenValue=(Number)given.get(givenName);
+		Number givenValue=given.get(givenName);
 		
-		ArrayList<Number> gVList=new ArrayList<Number>();
-		Map<Number, Number> gVMap=new HashMap<Number, Number>();
+		CompiledTable.Given gv=rows.given(givenIndex, selectIndex);
+		if (gv.duplicate!=null){
+			Error.addEvaluationError("Given value "+gv.duplicate+" in the given statement is duplicated in Table "+table);
+			return new IntDouble(1.0,false);
+		}
+		if (gv.sorted){
+			return calculateValue(givenValue.doubleValue(), gv.givenValues, gv.selectValues, use, table, given);
+		}else{
+			return calculateValue(givenValue, new ArrayList<Number>(gv.gVList), gv.gVMap, use, table, givenError(given));
+		}
+	}
+	
+	private static String givenError(HashMap<String, Number> given){
+		String givenError="";
+		for (String key: given.keySet()){
+			givenError=givenError+"("+key+": "+given.get(key)+")";
+		}
+		return givenError;
+	}
+	
+	/**
+	 * Same as calculateValue of the lists with the given values sorted in
+	 * strictly increasing order; the interval of the given value is found by
+	 * binary search.
+	 */
+	public static IntDouble calculateValue(double givenValue, double[] gV, double[] sV, String use, String table, HashMap<String, Number> given){
+		int size=gV.length;
+		if (size==0){
+			Error.addEvaluationError("Under the given conditon of "+givenError(given)+" Data not found in Table "+table);
+			return new IntDouble(1.0,false);
+		}else if (size==1 && use.equals("linear")){
+			if (givenValue==gV[0]){
+				return new IntDouble(sV[0],false);
+			}else{
+				Error.addEvaluationError("Under the given conditon of "+givenError(given)+" only one value for interpolation in Table "+table);
+				return new IntDouble(1.0,false);
+			}
+		}
 		
-		for (int i=0; i<data.size(); i++){
-			values=data.get(i);
-			if (gVList.contains(values[givenIndex])){
-				Error.addEvaluationError("Given value "+values[givenIndex]+" in the given statement is duplicated in Table "+table);
+		int i=-1;
+		if (size>1 && givenValue>=gV[0] && givenValue<=gV[size-1]){
+			int j=Arrays.binarySearch(gV, givenValue);
+			if (j<0) j=-j-1;
+			i=Math.max(j-1, 0);
+		}
+		if (i>=0){
+			int j=i+1;
+			if (use.equals("minimum")){
+				return new IntDouble(sV[i], false);
+			}else if (use.equals("maximum")){
+				return new IntDouble(sV[j], false);
+			}else if (use.equals("linear")){
+				double value=(givenValue-gV[i])/(gV[j]-gV[i])
+				*(sV[j]-sV[i])+sV[i];
+				return new IntDouble(value,false);
+			}else{
+				Error.addEvaluationError("Use statement can only be maximum, minimum, or linear in Table"+table);
+				return new IntDouble(1.0,false);
+			}
+		}
+
+		if (givenValue<gV[0]){ 
+			if (use.equals("minimum")){
+				Error.addEvaluationError("Under the given conditon of "+givenError(given)+" Data not found in Table "+table);
+				return new IntDouble(1.0,false);
+			}else if (use.equals("linear")){
+				double value=(givenValue-gV[0])/(gV[1]-gV[0])
+				*(sV[1]-sV[0])+sV[0];
+				return new IntDouble(value,false);	
+			}else if (use.equals("maximum")){
+				return new IntDouble(sV[0],false);
+			}else{
+				Error.addEvaluationError("Use statement can only be maximum, minimum, or linear in Table"+table);
 				return new IntDouble(1.0,false);
+			}
+		}else if (givenValue>gV[size-1]){
+			if (use.equals("maximum")){
+				Error.addEvaluationError("Under the given conditon of "+givenError(given)+" Data not found in Table "+table);
+				return new IntDouble(1.0,false);
+			}else if (use.equals("linear")){
+				double value=(givenValue-gV[size-2])/(gV[size-1]-gV[size-2])
+				*(sV[size-1]-sV[size-2])+sV[size-2];
+				return new IntDouble(value,false);	
+			}else if (use.equals("minimum")){
+				return new IntDouble(sV[size-1],false);
 			}else{
-				gVList.add(values[givenIndex]);
-				gVMap.put(values[givenIndex], values[selectIndex]);
+				Error.addEvaluationError("Use statement can only be maximum, minimum, or linear in Table"+table);
+				return new IntDouble(1.0,false);
 			}
 		}
 		
-		String givenError="";
-		for (String key: given.keySet()){
-			givenError=givenError+"("+key+": "+given.get(key)+")";
-		}
-		return calculateValue(givenValue, gVList, gVMap, use, table, givenError);
-	}	
+		Error.addEvaluationError("Under the given conditon of "+givenError(given)+" only one value for interpolation in Table "+table);
+		return new IntDouble(1.0,false);
+	}
 		
 	public static IntDouble calculateValue(Number given, ArrayList<Number> gVList, Map<Number, Number> gVMap, String use, String table, String givenError){
 		double givenValue=given.doubleValue();
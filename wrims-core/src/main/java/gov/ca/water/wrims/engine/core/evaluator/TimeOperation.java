@@ -3,7 +3,6 @@ package gov.ca.water.wrims.engine.core.evaluator;
 import gov.ca.water.wrims.engine.core.components.ControlData;
 import gov.ca.water.wrims.engine.core.parallel.ParallelVars;
 
-import java.time.Duration;
 import java.util.Calendar;
 import java.util.Date;
 
@@ -178,35 +177,9 @@ public class TimeOperation {
 	public static ParallelVars findTime(int value){
 		ParallelVars prvs=new ParallelVars();
 		if (TimeOperation.isMonthlyInterval(ControlData.timeStep)){
-			int detYear=value/12;
-			int detMonth=value%12;
-			prvs.dataMonth=ControlData.currMonth+detMonth;
-			prvs.dataYear=ControlData.currYear+detYear;
-			if (prvs.dataMonth<1){
-				prvs.dataMonth=prvs.dataMonth+12;
-				prvs.dataYear=prvs.dataYear-1;
-			}else if (prvs.dataMonth>12){
-				prvs.dataMonth=prvs.dataMonth-12;
-				prvs.dataYear=prvs.dataYear+1;
-			}
-			int days=numberOfDays(prvs.dataMonth, prvs.dataYear);
-			prvs.dataDay=days;
-			/*
-			if (ControlData.currDay<=days){
-				ParallelVars.dataDay=ControlData.currDay;
-			}else{
-				ParallelVars.dataDay=days-numberOfDays(ControlData.currMonth, ControlData.currYear)+ControlData.currDay;
-			}
-			*/
+			EpochCalendar.setMonth(prvs, EpochCalendar.epochMonth(ControlData.currYear, ControlData.currMonth)+value);
 		}else if(ControlData.timeStep.equals("1DAY")){
-			Date currDate = new Date (ControlData.currYear-1900, ControlData.currMonth-1, ControlData.currDay);
-			Calendar c = Calendar.getInstance();
-	        c.setTime(currDate);
-	        c.add(Calendar.DATE, value);
-	        Date dataDate = c.getTime();
-			prvs.dataDay=dataDate.getDate();
-			prvs.dataMonth=dataDate.getMonth()+1;
-			prvs.dataYear=dataDate.getYear()+1900;
+			EpochCalendar.setDay(prvs, EpochCalendar.epochDay(ControlData.currYear, ControlData.currMonth, ControlData.currDay)+value);
 		}
 		return prvs;
 	}
@@ -232,14 +205,7 @@ public class TimeOperation {
 				prvs.dataDay=days-numberOfDays(month, year)+day;
 			}
 		}else if(ControlData.timeStep.equals("1DAY")){
-			Date thisDate = new Date (year-1900, month-1, day);
-			Calendar c = Calendar.getInstance();
-	        c.setTime(thisDate);
-	        c.add(Calendar.DATE, value);
-	        Date dataDate = c.getTime();
-			prvs.dataDay=dataDate.getDate();
-			prvs.dataMonth=dataDate.getMonth()+1;
-			prvs.dataYear=dataDate.getYear()+1900;
+			EpochCalendar.setDay(prvs, EpochCalendar.epochDay(year, month, day)+value);
 		}
 		return prvs;
 	}
@@ -263,24 +229,43 @@ public class TimeOperation {
 	
 	public static int getNumberOfTimestep(Date dateA, Date dateB, String timeStep){
 		if (TimeOperation.isMonthlyInterval(timeStep)){
-			int monthA=dateA.getMonth();
-			int yearA=dateA.getYear();
-			int monthB=dateB.getMonth();
-			int yearB=dateB.getYear();
-			int diff=(yearB-yearA)*12+(monthB-monthA)+1;
-			if (diff<=0) diff=0;
-			return diff;
+			return getNumberOfTimestep(EpochCalendar.epochMonth(dateA), EpochCalendar.epochMonth(dateB));
+		}else{
+			return getNumberOfTimestep(EpochCalendar.epochDay(dateA), EpochCalendar.epochDay(dateB));
+		}
+	}
+	
+	/**
+	 * @return the number of time steps from epoch month or day a to b, both
+	 *         included, or 0 if b is before a
+	 */
+	public static int getNumberOfTimestep(int epochA, int epochB){
+		int diff=epochB-epochA+1;
+		if (diff<=0) diff=0;
+		return diff;
+	}
+	
+	/**
+	 * @return the number of time steps from the start of the data set to the
+	 *         current time step, both included
+	 */
+	public static int getNumberOfTimestep(DssDataSetFixLength ddsfl){
+		if (TimeOperation.isMonthlyInterval(ddsfl.getTimeStep())){
+			return getNumberOfTimestep(ddsfl.getStartEpochMonth(), EpochCalendar.epochMonth(ControlData.currYear, ControlData.currMonth));
+		}else{
+			return getNumberOfTimestep(ddsfl.getStartEpochDay(), EpochCalendar.epochDay(ControlData.currYear, ControlData.currMonth, ControlData.currDay));
+		}
+	}
+	
+	/**
+	 * @return the number of time steps from the date to the current time step,
+	 *         both included
+	 */
+	public static int getNumberOfTimestep(Date date, String timeStep){
+		if (TimeOperation.isMonthlyInterval(timeStep)){
+			return getNumberOfTimestep(EpochCalendar.epochMonth(date), EpochCalendar.epochMonth(ControlData.currYear, ControlData.currMonth));
 		}else{
-			//long timeA=dateA.getTime();
-			//long timeB=dateB.getTime();
-			//int diff=Math.round((timeB-timeA)/(1000l*60*60*24))+1;
-			Calendar c1=Calendar.getInstance();
-			c1.setTime(dateA);
-			Calendar c2=Calendar.getInstance();
-			c2.setTime(dateB);
-			int diff = (int)Duration.between(c1.toInstant(), c2.toInstant()).toDays()+1;
-			if (diff<=0) diff=0;
-			return diff;
+			return getNumberOfTimestep(EpochCalendar.epochDay(date), EpochCalendar.epochDay(ControlData.currYear, ControlData.currMonth, ControlData.currDay));
 		}
 	}
 	
@@ -0,0 +1,140 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+
+/**
+ * Values of svarTimeSeries and dvarAliasTimeSeries looked up in the current
+ * time step, by identifier and time step offset. The values are dropped when
+ * the time step, the cycle or ControlData.timeStep changes. The dvar and alias values are
+ * also dropped when a value of the identifier is written back to
+ * DataTimeSeries.dvAliasTS. A value is only kept if its lookup reported no
+ * error, so that every lookup of missing data reports it as before.
+ */
+public class TimeSeriesCache {
+	public static final TimeSeriesCache svar=new TimeSeriesCache();
+	public static final TimeSeriesCache dvarAlias=new TimeSeriesCache();
+
+	public static final LongAdder hits=new LongAdder();
+	public static final LongAdder misses=new LongAdder();
+
+	private static final int MAX_OFFSET=1200;
+
+	private volatile Step step;
+
+	private static final class Step {
+		private final int year;
+		private final int month;
+		private final int day;
+		private final int cycle;
+		private final String timeStep;
+		private final ConcurrentHashMap<String, Series> series=new ConcurrentHashMap<String, Series>();
+
+		private Step(){
+			year=ControlData.currYear;
+			month=ControlData.currMonth;
+			day=ControlData.currDay;
+			cycle=ControlData.currCycleIndex;
+			timeStep=ControlData.timeStep;
+		}
+
+		private boolean isCurrent(){
+			return year==ControlData.currYear && month==ControlData.currMonth && day==ControlData.currDay && cycle==ControlData.currCycleIndex && timeStep.equals(ControlData.timeStep);
+		}
+	}
+
+	/**
+	 * The values of one identifier, at 2*offset for offsets from 0 and at
+	 * -2*offset-1 for negative offsets. NaN is a value not looked up yet.
+	 */
+	private static final class Series {
+		private double[] values=empty(4);
+
+		private synchronized double get(int offset){
+			int i=position(offset);
+			return i<values.length ? values[i] : Double.NaN;
+		}
+
+		private synchronized void put(int offset, double value){
+			int i=position(offset);
+			if (i>=values.length){
+				double[] grown=empty(Math.max(i+1, values.length*2));
+				System.arraycopy(values, 0, grown, 0, values.length);
+				values=grown;
+			}
+			values[i]=value;
+		}
+
+		private static int position(int offset){
+			return offset>=0 ? 2*offset : -2*offset-1;
+		}
+
+		private static double[] empty(int length){
+			double[] values=new double[length];
+			Arrays.fill(values, Double.NaN);
+			return values;
+		}
+	}
+
+	public static boolean isCached(int offset){
+		return ControlData.cacheTimeSeriesLookups && offset>=-MAX_OFFSET && offset<=MAX_OFFSET;
+	}
+
+	/**
+	 * @return the value of the identifier at the offset if it was looked up in
+	 *         this time step, or NaN
+	 */
+	public double get(String ident, int offset){
+		Step current=step;
+		if (current!=null && current.isCurrent()){
+			Series series=current.series.get(ident);
+			if (series!=null){
+				double value=series.get(offset);
+				if (!Double.isNaN(value)){
+					hits.increment();
+					return value;
+				}
+			}
+		}
+		misses.increment();
+		return Double.NaN;
+	}
+
+	/**
+	 * Keeps the value of a lookup if no evaluation error was reported since
+	 * nErrors.
+	 */
+	public void put(String ident, int offset, double value, int nErrors){
+		if (Double.isNaN(value) || Error.evaluationErrorCount()>nErrors) return;
+		Step current=step;
+		if (current==null || !current.isCurrent()){
+			current=new Step();
+			step=current;
+		}
+		Series series=current.series.get(ident);
+		if (series==null){
+			series=new Series();
+			Series previous=current.series.putIfAbsent(ident, series);
+			if (previous!=null) series=previous;
+		}
+		series.put(offset, value);
+	}
+
+	public void invalidate(String ident){
+		Step current=step;
+		if (current!=null) current.series.remove(ident);
+	}
+
+	public void clear(){
+		step=null;
+	}
+
+	public static void clearAll(){
+		svar.clear();
+		dvarAlias.clear();
+	}
+}
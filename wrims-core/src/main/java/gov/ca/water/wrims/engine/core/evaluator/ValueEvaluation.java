@@ -8,18 +8,20 @@ import org.antlr.runtime.TokenStream;
 import gov.ca.water.wrims.engine.core.commondata.solverdata.SolverData;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Alias;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.FutureKey;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Timeseries;
 import gov.ca.water.wrims.engine.core.components.ControlData;
 import gov.ca.water.wrims.engine.core.components.Error;
 import gov.ca.water.wrims.engine.core.components.IntDouble;
 import gov.ca.water.wrims.engine.core.external.*;
 import gov.ca.water.wrims.engine.core.hdf5.HDF5Reader;
+import gov.ca.water.wrims.engine.core.parallel.EvaluationContext;
 import gov.ca.water.wrims.engine.core.parallel.ParallelVars;
 import gov.ca.water.wrims.engine.core.solver.CbcSolver;
 
-import java.time.Duration;
-import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.ArrayList;
@@ -44,8 +46,8 @@ public class ValueEvaluation {
 	}
 	
 	public static boolean relationStatement(IntDouble id1, IntDouble id2, String relation){
-		double value1=id1.getData().doubleValue();
-		double value2=id2.getData().doubleValue();
+		double value1=id1.doubleValue();
+		double value2=id2.doubleValue();
 		
 		if (relation.equals("==")) {
 			if (ControlData.solverName.equalsIgnoreCase("Cbc") && CbcSolver.cbcSolutionRounding){
@@ -121,23 +123,74 @@ public class ValueEvaluation {
 	}
 	
 	public static IntDouble term_IDENT (String ident, Stack<LoopIndex> sumIndex){
+		IdentifierSlots slots=IdentifierSlots.current();
+		if (slots!=null){
+			int slot=slots.find(ident);
+			if (slot>=0) return slotValue(slots, slot, ident, sumIndex);
+		}
+		return mapValue(ident, sumIndex);
+	}
+
+	/**
+	 * term_IDENT without the slots: the name is looked up in the current maps.
+	 */
+	private static IntDouble mapValue(String ident, Stack<LoopIndex> sumIndex){
 		if (ControlData.currSvMap.containsKey(ident)){
 			IntDouble id0=ControlData.currSvMap.get(ident).getData();
-			return new IntDouble(id0.getData(),id0.isInt(),ident, 0);
+			return id0.copyWithName(ident, 0);
 		}else if (ControlData.currTsMap.containsKey(ident)){
 			IntDouble id0=ControlData.currTsMap.get(ident).getData();
-			return new IntDouble(id0.getData(),id0.isInt(), ident, 0);
+			return id0.copyWithName(ident, 0);
 		}else if (ControlData.isPostProcessing && ControlData.currDvMap.containsKey(ident)){
 			IntDouble id0=ControlData.currDvMap.get(ident).getData();
-			return new IntDouble(id0.getData(),id0.isInt(), ident, 0);
+			return id0.copyWithName(ident, 0);
 		}else if (ControlData.isPostProcessing && ControlData.currAliasMap.containsKey(ident)){
 			IntDouble id0=ControlData.currAliasMap.get(ident).getData();
 			if (id0==null) {
 				Error.addEvaluationError(ident+" is not defined before it is used.");
 				return new IntDouble (1.0, false, ident, 0);
 			}
-			return new IntDouble(id0.getData(),id0.isInt(), ident, 0);
+			return id0.copyWithName(ident, 0);
+		}
+		return term_IDENT_parameter(ident, sumIndex);
+	}
+
+	/**
+	 * term_IDENT of an identifier bound to a slot by PreEvaluator. Falls back to
+	 * term_IDENT if the slots are not the slots of the current model, and to the
+	 * map lookup if the bound variable is no longer in its model map.
+	 */
+	public static IntDouble term_SLOT (IdentifierSlots slots, int slot, String ident, Stack<LoopIndex> sumIndex){
+		if (!slots.isCurrent()) return term_IDENT(ident, sumIndex);
+		return slotValue(slots, slot, ident, sumIndex);
+	}
+
+	private static IntDouble slotValue(IdentifierSlots slots, int slot, String ident, Stack<LoopIndex> sumIndex){
+		int kind=slots.kind(slot);
+		if (kind==IdentifierSlots.PARAMETER) return term_IDENT_parameter(ident, sumIndex);
+		Object variable=slots.boundVariable(slot, ident);
+		if (variable==null) return mapValue(ident, sumIndex);
+		switch (kind){
+		case IdentifierSlots.SVAR:
+			return ((Svar)variable).getData().copyWithName(ident, 0);
+		case IdentifierSlots.TIMESERIES:
+			return ((Timeseries)variable).getData().copyWithName(ident, 0);
+		case IdentifierSlots.DVAR:
+			if (!ControlData.isPostProcessing) break;
+			return ((Dvar)variable).getData().copyWithName(ident, 0);
+		case IdentifierSlots.ALIAS:
+			if (!ControlData.isPostProcessing) break;
+			IntDouble id0=((Alias)variable).getData();
+			if (id0==null) {
+				Error.addEvaluationError(ident+" is not defined before it is used.");
+				return new IntDouble (1.0, false, ident, 0);
+			}
+			return id0.copyWithName(ident, 0);
 		}
+		return term_IDENT_parameter(ident, sumIndex);
+	}
+
+	private static IntDouble term_IDENT_parameter(String ident, Stack<LoopIndex> sumIndex){
 		if (sumIndex.size()>0){
 			LoopIndex li=sumIndex.pop();
 			if (li.getName().equals(ident) && li.getIndexStart()){
@@ -148,7 +201,7 @@ public class ValueEvaluation {
 		}
 		if (ControlData.parameterMap.containsKey(ident)){
 			IntDouble id0=ControlData.parameterMap.get(ident).getData();
-			return new IntDouble(id0.getData(),id0.isInt(), ident, 0);					
+			return id0.copyWithName(ident, 0);					
 		}
 		Error.addEvaluationError(ident+" is not in svar, dvar, alias, or parameter list.");
 		return new IntDouble (1.0, false, ident, 0);
@@ -171,7 +224,7 @@ public class ValueEvaluation {
 			Error.addEvaluationError("The value of state variable "+ident+" is not defined before used.");
 			return new IntDouble(1.0, false, ident, 0);
 		}
-		return new IntDouble(data.getData(), data.isInt(), ident, 0);
+		return data.copyWithName(ident, 0);
 	}
 	
 	public static IntDouble term_INTEGER (String integer){
@@ -183,13 +236,23 @@ public class ValueEvaluation {
 	}
 	
 	public static IntDouble unary (String s, IntDouble id){
+		if (s !=null && s.equals("-")){
+			return unary(s, id, new IntDouble());
+		}else{
+			return id;
+		}
+	}
+	
+	/**
+	 * The kernels with a result argument write their result to it and return
+	 * it. The result can be one of the operands, if the caller owns it.
+	 */
+	public static IntDouble unary (String s, IntDouble id, IntDouble result){
 		if (s !=null && s.equals("-")){
 			if (id.isInt()){
-				int value=-id.getData().intValue();
-				return new IntDouble(value, id.isInt());
+				return result.set(-id.intValue(), true);
 			}else{
-				double value=-id.getData().doubleValue();
-				return new IntDouble(value, id.isInt());
+				return result.set(-id.doubleValue(), false);
 			}
 		}else{
 			return id;
@@ -197,113 +260,107 @@ public class ValueEvaluation {
 	}
 		
 	public static IntDouble mult(IntDouble id1, IntDouble id2){
-		IntDouble id;
+		return mult(id1, id2, new IntDouble());
+	}
+	
+	public static IntDouble mult(IntDouble id1, IntDouble id2, IntDouble result){
 		if (!id1.isInt() && !id2.isInt()){
-			id=new IntDouble(id1.getData().doubleValue()*id2.getData().doubleValue(), false);
+			return result.set(id1.doubleValue()*id2.doubleValue(), false);
 		}else if (id1.isInt() && !id2.isInt()){
-			id=new IntDouble(id1.getData().intValue()*id2.getData().doubleValue(), false);
+			return result.set(id1.intValue()*id2.doubleValue(), false);
 		}else if (!id1.isInt() && id2.isInt()){
-			id=new IntDouble(id1.getData().doubleValue()*id2.getData().intValue(), false);
+			return result.set(id1.doubleValue()*id2.intValue(), false);
 		}else{
-			id=new IntDouble(id1.getData().intValue()*id2.getData().intValue(), true);
+			return result.set(id1.intValue()*id2.intValue(), true);
 		}
-		return id;
 	}
 	
 	public static IntDouble divide(IntDouble id1, IntDouble id2){
-		IntDouble id;
-		if (id2.getData().doubleValue()==0.0){
+		return divide(id1, id2, new IntDouble());
+	}
+	
+	public static IntDouble divide(IntDouble id1, IntDouble id2, IntDouble result){
+		if (id2.doubleValue()==0.0){
 			Error.addEvaluationError("divided by 0.");
-			return new IntDouble(1.0, false);
+			return result.set(1.0, false);
 		}
 		if (!id1.isInt() && !id2.isInt()){
-			id=new IntDouble(id1.getData().doubleValue()/id2.getData().doubleValue(), false);
+			return result.set(id1.doubleValue()/id2.doubleValue(), false);
 		}else if (id1.isInt() && !id2.isInt()){
-			id=new IntDouble(id1.getData().intValue()/id2.getData().doubleValue(), false);
+			return result.set(id1.intValue()/id2.doubleValue(), false);
 		}else if (!id1.isInt() && id2.isInt()){
-			id=new IntDouble(id1.getData().doubleValue()/id2.getData().intValue(), false);
+			return result.set(id1.doubleValue()/id2.intValue(), false);
 		}else {
-			id=new IntDouble(id1.getData().intValue()/id2.getData().intValue(), true);
+			return result.set(id1.intValue()/id2.intValue(), true);
 		}
-		return id;		
 	}
 		
 	public static IntDouble mod(IntDouble id1, IntDouble id2){
 		IntDouble id;
-		if (id2.getData().doubleValue()==0.0){
+		if (id2.doubleValue()==0.0){
 			Error.addEvaluationError("Mod function uses 0 as divider.");
 			return new IntDouble(1.0, false);
 		}
 		if (!id1.isInt() && !id2.isInt()){
-			id=new IntDouble(id1.getData().doubleValue()%id2.getData().doubleValue(), false);
+			id=new IntDouble(id1.doubleValue()%id2.doubleValue(), false);
 		}else if (id1.isInt() && !id2.isInt()){
-			id=new IntDouble(id1.getData().intValue()%id2.getData().doubleValue(), false);
+			id=new IntDouble(id1.intValue()%id2.doubleValue(), false);
 		}else if (!id1.isInt() && id2.isInt()){
-			id=new IntDouble(id1.getData().doubleValue()%id2.getData().intValue(), false);
+			id=new IntDouble(id1.doubleValue()%id2.intValue(), false);
 		}else{
-			id=new IntDouble(id1.getData().intValue()%id2.getData().intValue(), true);
+			id=new IntDouble(id1.intValue()%id2.intValue(), true);
 		}
 		return id;		
 	}
 	
 	public static IntDouble round(IntDouble id1){
 		IntDouble id;
-		id=new IntDouble(Math.round(id1.getData().doubleValue()), true);
+		id=new IntDouble(Math.round(id1.doubleValue()), true);
 		return id;		
 	}
 	
 	public static IntDouble add(IntDouble id1, IntDouble id2){
-		IntDouble id;
+		return add(id1, id2, new IntDouble());
+	}
+	
+	public static IntDouble add(IntDouble id1, IntDouble id2, IntDouble result){
 		if (!id1.isInt() && !id2.isInt()){
-			id=new IntDouble(id1.getData().doubleValue()+id2.getData().doubleValue(), false);
+			return result.set(id1.doubleValue()+id2.doubleValue(), false);
 		}else if (id1.isInt() && !id2.isInt()){
-			id=new IntDouble(id1.getData().intValue()+id2.getData().doubleValue(), false);
+			return result.set(id1.intValue()+id2.doubleValue(), false);
 		}else if (!id1.isInt() && id2.isInt()){
-			id=new IntDouble(id1.getData().doubleValue()+id2.getData().intValue(), false);
+			return result.set(id1.doubleValue()+id2.intValue(), false);
 		}else {
-			id=new IntDouble(id1.getData().intValue()+id2.getData().intValue(), true);
+			return result.set(id1.intValue()+id2.intValue(), true);
 		}
-		return id;		
 	}
 	
 	public static IntDouble substract(IntDouble id1, IntDouble id2){
-		IntDouble id;	
+		return substract(id1, id2, new IntDouble());
+	}
+	
+	public static IntDouble substract(IntDouble id1, IntDouble id2, IntDouble result){
 		if (!id1.isInt() && !id2.isInt()){
-			id=new IntDouble(id1.getData().doubleValue()-id2.getData().doubleValue(), false);
+			return result.set(id1.doubleValue()-id2.doubleValue(), false);
 		}else if (id1.isInt() && !id2.isInt()){
-			id=new IntDouble(id1.getData().intValue()-id2.getData().doubleValue(), false);
+			return result.set(id1.intValue()-id2.doubleValue(), false);
 		}else if (!id1.isInt() && id2.isInt()){
-			id=new IntDouble(id1.getData().doubleValue()-id2.getData().intValue(), false);
+			return result.set(id1.doubleValue()-id2.intValue(), false);
 		}else{
-			id=new IntDouble(id1.getData().intValue()-id2.getData().intValue(), true);
+			return result.set(id1.intValue()-id2.intValue(), true);
 		}
-		return id;		
 	}
 	
 	public static IntDouble noArgFunction(String ident){
-		Class function;
 		IntDouble result;
 		try {
-			function = Class.forName("wrimsv2.external.Function"+ident);
-		
-			Stack stack = new Stack();
-
-			ExternalFunction ef;
-			if (ControlData.allExternalFunctionMap.containsKey(ident)){
-				ef=ControlData.allExternalFunctionMap.get(ident);
-			}else{
-				ef = (ExternalFunction)function.newInstance();
-				ControlData.allExternalFunctionMap.put(ident, ef);
-			}
-			ef.execute(stack);
-			String valueString=stack.pop().toString();
-			
-			if (valueString.contains(".")){       
-				return new IntDouble(Double.parseDouble(valueString), false);
-			}else{
-				return new IntDouble(Integer.parseInt(valueString), true);
+			ExternalArgs args=ExternalArgs.acquire(0);
+			try{
+				double value=ExternalFunctions.get(ident).call(args);
+				return externalResult(value, args);
+			}finally{
+				args.release();
 			}
-			
 		} catch (Exception e) {
 			Error.addEvaluationError("The function " +ident+" has an error.");
 			e.printStackTrace();
@@ -311,106 +368,67 @@ public class ValueEvaluation {
 			return result;
 		}
 	}
+
+	public static IntDouble externalResult(double value, ExternalArgs args){
+		if (args.resultIsInt){
+			return new IntDouble((int)value, true);
+		}else{
+			return new IntDouble(value, false);
+		}
+	}
 	
 	public static IntDouble argFunction(String ident, ArrayList<ArrayList<IntDouble>> idArray){
 		IntDouble result;
-		if (idArray.size()==1){
-			if (ControlData.currSvMap.containsKey(ident)||ControlData.currTsMap.containsKey(ident)||ControlData.currDvMap.containsKey(ident)||ControlData.currAliasMap.containsKey(ident)) {
-				ArrayList<IntDouble> idArray1 = idArray.get(0);
-				if (idArray1.size()==1){
-					String idName = idArray1.get(0).getName();
-					for (int k=0; k<12; k++){
-						if (idName.equals(TimeOperation.month_const[k])){
-							Error.addEvaluationError(idName+" can't be used in "+ident+"("+idName+")");
-							return new IntDouble (1.0, false);
-						}
+		if (!isExternalCall(ident, idArray.size())){
+			ArrayList<IntDouble> idArray1 = idArray.get(0);
+			if (idArray1.size()==1){
+				String idName = idArray1.get(0).getName();
+				for (int k=0; k<12; k++){
+					if (idName.equals(TimeOperation.month_const[k])){
+						Error.addEvaluationError(idName+" can't be used in "+ident+"("+idName+")");
+						return new IntDouble (1.0, false);
 					}
-					return getTimeSeries(ident, idArray1);
-				}else{
-					Error.addEvaluationError("Variable "+ident+" has number of indexes different from 1.");
-					return new IntDouble (1.0, false);
 				}
+				return getTimeSeries(ident, idArray1);
+			}else{
+				Error.addEvaluationError("Variable "+ident+" has number of indexes different from 1.");
+				return new IntDouble (1.0, false);
 			}
 		}
 			
-		Class function;
 		try {
-			Stack stack = new Stack();
-			for (int i=0; i<idArray.size(); i++){
-				ArrayList<IntDouble> idArray1 = idArray.get(i);
-				int size =idArray1.size(); 
-				if (size==1){
-					IntDouble id=idArray1.get(0);
-					if (id.isInt()){
-						int value=id.getData().intValue();
-						stack.push(value);
-					}else{
-						double value=id.getData().doubleValue();
-						stack.push(value);
-					}      
-				}else if (size>1){
-					Number[] valueArray=new Number[size];
-					for (int j=0; j<size; j++){
-						valueArray[j]=idArray1.get(j).getData();
-					}
-					stack.push(valueArray);
-				}else{
-					int ai=i+1;
-					Error.addEvaluationError("The No. "+ai+" argument of function "+ident+" has no data.");				return new IntDouble (1.0, false);
-				}
-			}
+			ExternalArgs args=ExternalArgs.acquire(idArray.size());
+			try{
+				if (!externalArgs(ident, idArray, args)) return new IntDouble (1.0, false);
 
-			ExternalFunction ef;
-			if (ControlData.allExternalFunctionMap.containsKey(ident)){
-				ef=ControlData.allExternalFunctionMap.get(ident);
-			}else{
-				function = Class.forName("wrimsv2.external.Function" + ident);
-				ef = (ExternalFunction)function.newInstance();
-				ControlData.allExternalFunctionMap.put(ident, ef);
-			}
-			ef.execute(stack);
-			if (stack.size()>1){
-				for (int i=0; i<idArray.size(); i++){
-					ArrayList<IntDouble> idArray1 = idArray.get(i);
-					int size =idArray1.size(); 
-					if (size==1){
-						IntDouble id=idArray1.get(0);
-						if (id.isInt()){
-							int value=(Integer) stack.pop();
-							setSvarIntValue(id, value);
-						}else{
-							double value=(Double) stack.pop();
-							setSvarDoubleValue(id, value);
-						}      
-					}else if (size>1){
-						IntDouble id=idArray1.get(0);
-						if (id.isInt()){
-							int[] valueArray=new int[size];
-							valueArray=(int[])stack.pop();
-							for (int j=0; j<size; j++){
-								setSvarIntValue(idArray1.get(j), valueArray[j]);
+				double value=ExternalFunctions.get(ident).call(args);
+				if (args.writesBack){
+					for (int i=0; i<idArray.size(); i++){
+						ArrayList<IntDouble> idArray1 = idArray.get(i);
+						int size =idArray1.size(); 
+						if (size==1){
+							IntDouble id=idArray1.get(0);
+							if (id.isInt()){
+								setSvarIntValue(id, (int)args.values[i]);
+							}else{
+								setSvarDoubleValue(id, args.values[i]);
 							}
 						}else{
-							double[] valueArray=new double[size];
-							valueArray=(double[])stack.pop();
+							double[] valueArray=args.arrays[i];
 							for (int j=0; j<size; j++){
-								setSvarDoubleValue(idArray1.get(j), valueArray[j]);
+								if (idArray1.get(j).isInt()){
+									setSvarIntValue(idArray1.get(j), (int)valueArray[j]);
+								}else{
+									setSvarDoubleValue(idArray1.get(j), valueArray[j]);
+								}
 							}
 						}
-					}else{
-						int ai=i+1;
-						Error.addEvaluationError("The No. "+ai+" argument of function "+ident+" has no data.");				return new IntDouble (1.0, false);
 					}
 				}
+				return externalResult(value, args);
+			}finally{
+				args.release();
 			}
-
-			String valueString=stack.pop().toString();
-			if (valueString.contains(".")){       
-				return new IntDouble(Double.parseDouble(valueString), false);
-			}else{
-				return new IntDouble(Integer.parseInt(valueString), true);
-			}
-			
 		} catch (Exception e) {
 			Error.addEvaluationError("The function " +ident+" has an error.");
 			e.printStackTrace();
@@ -419,6 +437,47 @@ public class ValueEvaluation {
 		}
 	}
 	
+	/**
+	 * @return false if ident(...) with the number of arguments reads a
+	 *         variable, else true
+	 */
+	public static boolean isExternalCall(String ident, int nArgs){
+		if (nArgs!=1) return true;
+		return !(ControlData.currSvMap.containsKey(ident)||ControlData.currTsMap.containsKey(ident)||ControlData.currDvMap.containsKey(ident)||ControlData.currAliasMap.containsKey(ident));
+	}
+
+	/**
+	 * Sets the arguments of a call of the external function from the values
+	 * of its arguments.
+	 * @return false if an argument has no data, which is reported
+	 */
+	public static boolean externalArgs(String ident, ArrayList<ArrayList<IntDouble>> idArray, ExternalArgs args){
+		for (int i=0; i<idArray.size(); i++){
+			ArrayList<IntDouble> idArray1 = idArray.get(i);
+			int size =idArray1.size(); 
+			if (size==1){
+				IntDouble id=idArray1.get(0);
+				if (id.isInt()){
+					args.set(i, id.intValue(), true);
+				}else{
+					args.set(i, id.doubleValue(), false);
+				}
+			}else if (size>1){
+				double[] valueArray=args.array(i, size, idArray1.get(0).isInt());
+				for (int j=0; j<size; j++){
+					IntDouble id=idArray1.get(j);
+					valueArray[j]=id.doubleValue();
+					args.arrayIsInt[i][j]=id.isInt();
+				}
+			}else{
+				int ai=i+1;
+				Error.addEvaluationError("The No. "+ai+" argument of function "+ident+" has no data.");
+				return false;
+			}
+		}
+		return true;
+	}
+
 	public static IntDouble getTimeSeries(String ident, ArrayList<IntDouble> idArray){		
 		IntDouble result;
 		boolean isSumIndex=false;
@@ -433,32 +492,60 @@ public class ValueEvaluation {
 			return result;
 		}
 
-		int idValue=id.getData().intValue();
-		ParallelVars prvs = TimeOperation.findTime(idValue);
+		int idValue=id.intValue();
 		
 		double value;
 		if (ControlData.currDvMap.containsKey(ident)||ControlData.currAliasMap.containsKey(ident)){
-			value=dvarAliasTimeSeries(ident,id.getData().intValue(), prvs);
+			value=cachedDvarAliasTimeSeries(ident, idValue);
 		}else{
 			if (ControlData.currSvMap.containsKey(ident)){ 
 				if (idValue==0)	{
 					return ControlData.currSvMap.get(ident).getData().copyOf();
 				}else if(idValue>0){
-					String futSvName=ident+"__fut__"+idValue;
+					String futSvName=FutureKey.name(ident, idValue);
 					if (ControlData.currSvFutMap.containsKey(futSvName)){
 						return ControlData.currSvFutMap.get(futSvName).getData().copyOf();
 					}else{
-						if (!ControlData.ignoreError) Error.addEvaluationError(futSvName+", the future value of "+ident+" is used before defined.");
+						if (!EvaluationContext.ignoreError()) Error.addEvaluationError(futSvName+", the future value of "+ident+" is used before defined.");
 						return new IntDouble (1.0,false);
 					}
 				}
 			}
-			value=svarTimeSeries(ident, idValue, prvs);
+			value=cachedSvarTimeSeries(ident, idValue);
 		}
 		
 		return new IntDouble (value, false);
 	}
 	
+	/**
+	 * svarTimeSeries at idValue time steps from the current time step. The value
+	 * is kept in TimeSeriesCache for the rest of the time step.
+	 */
+	public static double cachedSvarTimeSeries(String ident, int idValue){
+		if (!TimeSeriesCache.isCached(idValue)) return svarTimeSeries(ident, idValue, TimeOperation.findTime(idValue));
+		double value=TimeSeriesCache.svar.get(ident, idValue);
+		if (!Double.isNaN(value)) return value;
+		int nErrors=Error.evaluationErrorCount();
+		value=svarTimeSeries(ident, idValue, TimeOperation.findTime(idValue));
+		TimeSeriesCache.svar.put(ident, idValue, value, nErrors);
+		return value;
+	}
+	
+	/**
+	 * dvarAliasTimeSeries at indexValue time steps from the current time step.
+	 * Values of the current and earlier time steps are kept in TimeSeriesCache
+	 * until the time step ends or a value of the dvar or alias is saved.
+	 */
+	public static double cachedDvarAliasTimeSeries(String ident, int indexValue){
+		if (indexValue>0 || !TimeSeriesCache.isCached(indexValue)) return dvarAliasTimeSeries(ident, indexValue, TimeOperation.findTime(indexValue));
+		double value=TimeSeriesCache.dvarAlias.get(ident, indexValue);
+		if (!Double.isNaN(value)) return value;
+		int nErrors=Error.evaluationErrorCount();
+		value=dvarAliasTimeSeries(ident, indexValue, TimeOperation.findTime(indexValue));
+		TimeSeriesCache.dvarAlias.put(ident, indexValue, value, nErrors);
+		return value;
+	}
+	
 	public static double svarTimeSeries(String ident, int idValue, ParallelVars prvs){
 		int index;
 		String entryNameTS=DssOperation.entryNameTS(ident, ControlData.timeStep);
@@ -532,17 +619,17 @@ public class ValueEvaluation {
 	public static double dvarAliasTimeSeries(String ident, ParallelVars prvs){
 		String entryNameTS=DssOperation.entryNameTS(ident, ControlData.timeStep);
 		int index;
-		long dataTime;
-		long startTime;
-		long currTime;
+		int dataTime;
+		int startTime;
+		int currTime;
 		if (TimeOperation.isMonthlyInterval(ControlData.timeStep)){
-			dataTime=new Date(prvs.dataYear-1900, prvs.dataMonth-1, 1).getTime();
-			startTime=new Date(ControlData.startYear-1900, ControlData.startMonth-1, 1).getTime();
-			currTime=new Date(ControlData.currYear-1900, ControlData.currMonth-1, 1).getTime();
+			dataTime=EpochCalendar.epochMonth(prvs.dataYear, prvs.dataMonth);
+			startTime=EpochCalendar.epochMonth(ControlData.startYear, ControlData.startMonth);
+			currTime=EpochCalendar.epochMonth(ControlData.currYear, ControlData.currMonth);
 		}else{
-			dataTime=new Date(prvs.dataYear-1900, prvs.dataMonth-1, prvs.dataDay).getTime();
-			startTime=new Date(ControlData.startYear-1900, ControlData.startMonth-1, ControlData.startDay).getTime();
-			currTime=new Date(ControlData.currYear-1900, ControlData.currMonth-1, ControlData.currDay).getTime();
+			dataTime=EpochCalendar.epochDay(prvs.dataYear, prvs.dataMonth, prvs.dataDay);
+			startTime=EpochCalendar.epochDay(ControlData.startYear, ControlData.startMonth, ControlData.startDay);
+			currTime=EpochCalendar.epochDay(ControlData.currYear, ControlData.currMonth, ControlData.currDay);
 		}
 		
 		if (dataTime>=currTime){
@@ -581,17 +668,17 @@ public class ValueEvaluation {
 	public static double dvarAliasTimeSeries(String ident, int indexValue, ParallelVars prvs){
 		String entryNameTS=DssOperation.entryNameTS(ident, ControlData.timeStep);
 		if (indexValue>0){
-			if (indexValue>=0 && (ControlData.currEvalTypeIndex==0 || ControlData.currEvalTypeIndex==7)){
+			if (indexValue>=0 && (EvaluationContext.evalTypeIndex()==0 || EvaluationContext.evalTypeIndex()==7)){
 				Error.addEvaluationError(ident + " at timestep " +indexValue+" doesn't have value");
 				return 1.0;
 			}			
-			String newName = ident+"__fut__"+indexValue;
+			String newName = FutureKey.name(ident, indexValue);
 			Map<String, Dvar> dvMap = SolverData.getDvarMap();
 			Map<String, Alias> asFutMap = ControlData.currModelDataSet.asFutMap;
 			if (dvMap.containsKey(newName)){
-				return dvMap.get(newName).getData().getData().doubleValue();
+				return dvMap.get(newName).getData().doubleValue();
 			}else if(asFutMap.containsKey(newName)){
-				return asFutMap.get(newName).getData().getData().doubleValue();
+				return asFutMap.get(newName).getData().doubleValue();
 			}else{
 				Error.addEvaluationError("Can't access decision variable after the current time step.");
 				return 1.0;
@@ -601,7 +688,7 @@ public class ValueEvaluation {
 		/*
 		int index=indexValue+ControlData.currTimeStep.get(ControlData.currCycleIndex);
 		if (index>=0){
-			if (indexValue>=0 && (ControlData.currEvalTypeIndex==0 || ControlData.currEvalTypeIndex==7)){
+			if (indexValue>=0 && (EvaluationContext.evalTypeIndex()==0 || EvaluationContext.evalTypeIndex()==7)){
 				Error.addEvaluationError(ident + " at timestep " +indexValue+" doesn't have value");
 				return 1.0;
 			}else{
@@ -618,9 +705,7 @@ public class ValueEvaluation {
 		
 		DssDataSetFixLength ddsfl=DataTimeSeries.dvAliasTS.get(entryNameTS);
 		if (ddsfl!=null){
-			Date memStartDate = ddsfl.getStartTime();
-			Date currDate =  new Date(ControlData.currYear-1900, ControlData.currMonth-1, ControlData.currDay);
-			int index=TimeOperation.getNumberOfTimestep(memStartDate, currDate, ddsfl.getTimeStep())+indexValue-1;
+			int index=TimeOperation.getNumberOfTimestep(ddsfl)+indexValue-1;
 			double[] datafl=ddsfl.getData();
 			if (index>=datafl.length){
 				Error.addEvaluationError(ident + " at timestep " +indexValue+" doesn't have value");
@@ -656,13 +741,13 @@ public class ValueEvaluation {
 	public static double dvarAliasCycleTimeSeries(String ident, int indexValue, int ci, ParallelVars prvs){
 		String entryNameTS=DssOperation.entryNameTS(ident, ControlData.timeStep);
 		if (indexValue>0){
-			String newName = ident+"__fut__"+indexValue;
+			String newName = FutureKey.name(ident, indexValue);
 			Map<String, Dvar> dvMap = SolverData.getDvarMap();
 			Map<String, Alias> asFutMap = ControlData.currModelDataSet.asFutMap;
 			if (dvMap.containsKey(newName)){
-				return dvMap.get(newName).getData().getData().doubleValue();
+				return dvMap.get(newName).getData().doubleValue();
 			}else if(asFutMap.containsKey(newName)){
-				return asFutMap.get(newName).getData().getData().doubleValue();
+				return asFutMap.get(newName).getData().doubleValue();
 			}else{
 				Error.addEvaluationError("Can't access decision variable after the current time step.");
 				return 1.0;
@@ -684,9 +769,7 @@ public class ValueEvaluation {
 		
 		DssDataSetFixLength ddsfl=DataTimeSeries.dvAliasTSCycles.get(ci).get(entryNameTS);
 		if (ddsfl!=null){
-			Date memStartDate = ddsfl.getStartTime();
-			Date currDate =  new Date(ControlData.currYear-1900, ControlData.currMonth-1, ControlData.currDay);
-			int index=TimeOperation.getNumberOfTimestep(memStartDate, currDate, ddsfl.getTimeStep())+indexValue-1;
+			int index=TimeOperation.getNumberOfTimestep(ddsfl)+indexValue-1;
 			double[] datafl=ddsfl.getData();
 			if (index>=datafl.length){
 				Error.addEvaluationError(ident + " at timestep " +indexValue+" doesn't have value");
@@ -728,57 +811,33 @@ public class ValueEvaluation {
 	}
 	
 	public static int timeSeriesIndex(DssDataSet dds, ParallelVars prvs){
-		Date st=dds.getStartTime();
-		long sTime=st.getTime();
-		int sYear=st.getYear()+1900;
-		int sMonth=st.getMonth()+1; //HEC DSS7 uses getMonth()+1. However, Vista/HecDSS6 uses getMonth()bbecause dss data store at 24:00 Jan31, 1921 is considered to store at 0:00 Feb 1, 1921
-		Date dataDate=new Date(prvs.dataYear-1900, prvs.dataMonth-1, prvs.dataDay);
 		int index;
 		if (TimeOperation.isMonthlyInterval(dds.getTimeStep())){
-			index=prvs.dataYear*12+prvs.dataMonth-(sYear*12+sMonth);
+			index=EpochCalendar.epochMonth(prvs.dataYear, prvs.dataMonth)-dds.getStartEpochMonth();
 		}else{
-			//double indexValue=(dataTime-sTime)/(1000*60*60*24);
-			Calendar c1=Calendar.getInstance();
-			c1.setTime(st);
-			Calendar c2=Calendar.getInstance();
-			c2.setTime(dataDate);
-			long indexValue = Duration.between(c1.toInstant(), c2.toInstant()).toDays();
-			index=(int)indexValue+1;  //HEC DSS7 uses indexValue+1; Vista/Hec DSS6 uses indexValue+2
+			index=EpochCalendar.epochDay(prvs.dataYear, prvs.dataMonth, prvs.dataDay)-dds.getStartEpochDay()+1;  //HEC DSS7 uses indexValue+1; Vista/Hec DSS6 uses indexValue+2
 		}
 		return index;
 	}
 	
 	public static int timeSeriesIndex(DssDataSetFixLength dds, ParallelVars prvs){
-		Date st=dds.getStartTime();
-		long sTime=st.getTime();
-		int sYear=st.getYear()+1900;
-		int sMonth=st.getMonth()+1; //HEC DSS7 uses getMonth()+1. However, Vista/HecDSS6 uses getMonth() because dss data store at 24:00 Jan31, 1921 is considered to store at 0:00 Feb 1, 1921
-		Date dataDate=new Date(prvs.dataYear-1900, prvs.dataMonth-1, prvs.dataDay);
 		int index;
 		if (TimeOperation.isMonthlyInterval(dds.getTimeStep())){
-			index=prvs.dataYear*12+prvs.dataMonth-(sYear*12+sMonth);
+			index=EpochCalendar.epochMonth(prvs.dataYear, prvs.dataMonth)-dds.getStartEpochMonth();
 		}else{
-			//double indexValue=(dataTime-sTime)/(1000*60*60*24);
-			Calendar c1=Calendar.getInstance();
-			c1.setTime(st);
-			Calendar c2=Calendar.getInstance();
-			c2.setTime(dataDate);
-			long indexValue = Duration.between(c1.toInstant(), c2.toInstant()).toDays();
-			index=(int)indexValue+1;  //HEC DSS7 uses indexValue+1; Vista/Hec DSS6 uses indexValue+2
+			index=EpochCalendar.epochDay(prvs.dataYear, prvs.dataMonth, prvs.dataDay)-dds.getStartEpochDay()+1;  //HEC DSS7 uses indexValue+1; Vista/Hec DSS6 uses indexValue+2
 		}
 		return index;
 	}
 	
 	public static IntDouble timeseries(){
-		String svName=ControlData.currEvalName;
-		ParallelVars prvs = TimeOperation.findTime(0);
-		double value=svarTimeSeries(svName, 0, prvs);
+		String svName=EvaluationContext.evalName();
+		double value=cachedSvarTimeSeries(svName, 0);
 		return new IntDouble(value,false);
 	}
 	
 	public static double timeseries(String tsName){
-		ParallelVars prvs = TimeOperation.findTime(0);
-		return svarTimeSeries(tsName, 0, prvs);
+		return cachedSvarTimeSeries(tsName, 0);
 	}
 	
 	public static IntDouble pastCycleNoTimeArray(String ident, String cycle){
@@ -800,7 +859,7 @@ public class ValueEvaluation {
 			Error.addEvaluationError("The variable "+ident+" is not defined in the past cycle of "+cycle+".");
 			return new IntDouble(1.0,false);
 		}
-		return new IntDouble(data.getData(),data.isInt());
+		return data.copyWithName("", 0);
 	}
 	
 	public static IntDouble pastTSFV(String ident, IntDouble id1, ArrayList<ArrayList<IntDouble>> idArray, ParallelVars prvs) {
@@ -822,8 +881,8 @@ public class ValueEvaluation {
 			Error.addEvaluationError("The index of array variable "+ident+" has to be an integer.");
 			return new IntDouble(1.0,false);
 		}
-		int i1 = id1.getData().intValue();
-		int i2 = id2.getData().intValue();
+		int i1 = id1.intValue();
+		int i2 = id2.intValue();
 		
 		if (i1>=0){
 			Error.addEvaluationError("The second index of array variable "+ident+" has to be less than 0 in non-constraint statements.");
@@ -837,14 +896,12 @@ public class ValueEvaluation {
 			Error.addEvaluationError("The array variable "+ident+" is not a dvar or alias. The value from the past time step could not be retrieved.");
 			return new IntDouble(1.0,false);
 		}
-		String vn=ident+"__fut__"+i2;
+		String vn=FutureKey.name(ident, i2);
 		String entryNameTS=DssOperation.entryNameTS(vn, ControlData.timeStep);
 		if (DataTimeSeries.dvAliasTS.containsKey(entryNameTS)){
 			DssDataSetFixLength ddsfl = DataTimeSeries.dvAliasTS.get(entryNameTS);
 			if (ddsfl!=null){
-				Date memStartDate = ddsfl.getStartTime();
-				Date currDate =  new Date(ControlData.currYear-1900, ControlData.currMonth-1, ControlData.currDay);
-				int index=TimeOperation.getNumberOfTimestep(memStartDate, currDate, ddsfl.getTimeStep())+i1-1;
+				int index=TimeOperation.getNumberOfTimestep(ddsfl)+i1-1;
 				double[] datafl=ddsfl.getData();
 				if (index>=datafl.length){
 					Error.addEvaluationError(vn + " at timestep " +i1+" doesn't have value.");
@@ -911,7 +968,7 @@ public class ValueEvaluation {
 			Error.addEvaluationError("Time array index of "+ident+" is not an integer.");
 			return data;
 		}
-		int index=id.getData().intValue();
+		int index=id.intValue();
 		if (index<0){
 			ArrayList<IntDouble> idArray=new ArrayList<IntDouble>();
 			idArray.add(id);
@@ -942,7 +999,7 @@ public class ValueEvaluation {
 			return pastCycleNoTimeArray(ident, cycle);
 		}
 		Map<String, Map<String, IntDouble>> varTimeArrayCycleValueMap=ControlData.currStudyDataSet.getVarTimeArrayCycleValueMap();
-	    String varTimeArrayName=ident+"__fut__"+index;
+	    String varTimeArrayName=FutureKey.name(ident, index);
 		if (varTimeArrayCycleValueMap.containsKey(varTimeArrayName)){
 			Map<String, IntDouble> var= varTimeArrayCycleValueMap.get(varTimeArrayName);
 			if (var.containsKey(cycle)){
@@ -959,7 +1016,7 @@ public class ValueEvaluation {
 			Error.addEvaluationError("The variable "+ident+" is not defined in the past cycle of "+cycle+".");
 			return new IntDouble(1.0,false);
 		}
-		return new IntDouble(data.getData(),data.isInt());
+		return data.copyWithName("", 0);
 	}
 	
 	public static IntDouble pastCycleIndexTimeArray(String ident, int pci, IntDouble id){
@@ -973,7 +1030,7 @@ public class ValueEvaluation {
 			Error.addEvaluationError("Time array index of "+ident+" is not an integer.");
 			return data;
 		}
-		int index=id.getData().intValue();
+		int index=id.intValue();
 		StudyDataSet sds = ControlData.currStudyDataSet;
 		String cycle=sds.getModelList().get(ci);
 		if (index<0){
@@ -995,7 +1052,7 @@ public class ValueEvaluation {
 			return pastCycleIndexNoTimeArray(ident, pci);
 		}
 		Map<String, Map<String, IntDouble>> varCycleIndexValueMap=sds.getVarCycleIndexValueMap();
-	    String varTimeArrayName=ident+"__fut__"+index;
+	    String varTimeArrayName=FutureKey.name(ident, index);
 		if (varCycleIndexValueMap.containsKey(varTimeArrayName)){
 			Map<String, IntDouble> var= varCycleIndexValueMap.get(varTimeArrayName);
 			if (var.containsKey(cycle)){
@@ -1012,7 +1069,7 @@ public class ValueEvaluation {
 			Error.addEvaluationError("The variable "+ident+" is not defined in the past cycle of "+cycle+".");
 			return new IntDouble(1.0,false);
 		}
-		return new IntDouble(data.getData(),data.isInt());
+		return data.copyWithName("", 0);
 	}
 	
 	public static ArrayList<IntDouble> trunk_timeArray(String ident, IntDouble start, IntDouble end){
@@ -1026,8 +1083,8 @@ public class ValueEvaluation {
 			idArray.add(new IntDouble(1.0, false));
 			return idArray;
 		}
-		int si=start.getData().intValue();
-		int ei=end.getData().intValue();
+		int si=start.intValue();
+		int ei=end.intValue();
 		
 		if (si>ei){
 			for (int i=si; i>=ei; i--){
@@ -1058,37 +1115,33 @@ public class ValueEvaluation {
 	}
 	
 	public static IntDouble max(IntDouble id1, IntDouble id2){
-		IntDouble id;
+		return max(id1, id2, new IntDouble());
+	}
+	
+	public static IntDouble max(IntDouble id1, IntDouble id2, IntDouble result){
 		if (id1.isInt() && id2.isInt()){
-			id=new IntDouble(Math.max(id1.getData().intValue(),id2.getData().intValue()), true);
-		}else if (id1.isInt() && !id2.isInt()){
-			id=new IntDouble(Math.max(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
-		}else if (!id1.isInt() && id2.isInt()){
-			id=new IntDouble(Math.max(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
+			return result.set(Math.max(id1.intValue(),id2.intValue()), true);
 		}else{
-			id=new IntDouble(Math.max(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
+			return result.set(Math.max(id1.doubleValue(),id2.doubleValue()), false);
 		}
-		return id;
 	}
 	
 	public static IntDouble min(IntDouble id1, IntDouble id2){
-		IntDouble id;
+		return min(id1, id2, new IntDouble());
+	}
+	
+	public static IntDouble min(IntDouble id1, IntDouble id2, IntDouble result){
 		if (id1.isInt() && id2.isInt()){
-			id=new IntDouble(Math.min(id1.getData().intValue(),id2.getData().intValue()), true);
-		}else if (id1.isInt() && !id2.isInt()){
-			id=new IntDouble(Math.min(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
-		}else if (!id1.isInt() && id2.isInt()){
-			id=new IntDouble(Math.min(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
+			return result.set(Math.min(id1.intValue(),id2.intValue()), true);
 		}else{
-			id=new IntDouble(Math.min(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
+			return result.set(Math.min(id1.doubleValue(),id2.doubleValue()), false);
 		}
-		return id;
 	}
 	
 	public static IntDouble intFunc(IntDouble id1){
 		IntDouble id;
 		if (!id1.isInt()){
-			id=new IntDouble(((int)id1.getData().doubleValue()), true);
+			id=new IntDouble(((int)id1.doubleValue()), true);
 			return id;
 		}
 		return id1;
@@ -1097,7 +1150,7 @@ public class ValueEvaluation {
 	public static IntDouble realFunc(IntDouble id1){
 		IntDouble id;
 		if (id1.isInt()){
-			id=new IntDouble((id1.getData().doubleValue()), false);
+			id=new IntDouble((id1.doubleValue()), false);
 			return id;
 		}
 		return id1;
@@ -1106,9 +1159,9 @@ public class ValueEvaluation {
 	public static IntDouble abs(IntDouble id1){
 		IntDouble id;
 		if (id1.isInt()){
-			id=new IntDouble(Math.abs(id1.getData().intValue()), true);
+			id=new IntDouble(Math.abs(id1.intValue()), true);
 		}else{
-			id=new IntDouble(Math.abs(id1.getData().doubleValue()), false);
+			id=new IntDouble(Math.abs(id1.doubleValue()), false);
 		}
 		return id;
 	}
@@ -1116,9 +1169,9 @@ public class ValueEvaluation {
 	public static IntDouble exp(IntDouble id1){
 		IntDouble id;
 		if (id1.isInt()){
-			id=new IntDouble(Math.exp(id1.getData().intValue()), false);
+			id=new IntDouble(Math.exp(id1.intValue()), false);
 		}else{
-			id=new IntDouble(Math.exp(id1.getData().doubleValue()), false);
+			id=new IntDouble(Math.exp(id1.doubleValue()), false);
 		}
 		return id;
 	}
@@ -1126,9 +1179,9 @@ public class ValueEvaluation {
 	public static IntDouble log(IntDouble id1){
 		IntDouble id;
 		if (id1.isInt()){
-			id=new IntDouble(Math.log(id1.getData().intValue()), false);
+			id=new IntDouble(Math.log(id1.intValue()), false);
 		}else{
-			id=new IntDouble(Math.log(id1.getData().doubleValue()), false);
+			id=new IntDouble(Math.log(id1.doubleValue()), false);
 		}
 		return id;
 	}
@@ -1136,9 +1189,9 @@ public class ValueEvaluation {
 	public static IntDouble log10(IntDouble id1){
 		IntDouble id;
 		if (id1.isInt()){
-			id=new IntDouble(Math.log10(id1.getData().intValue()), false);
+			id=new IntDouble(Math.log10(id1.intValue()), false);
 		}else{
-			id=new IntDouble(Math.log10(id1.getData().doubleValue()), false);
+			id=new IntDouble(Math.log10(id1.doubleValue()), false);
 		}
 		return id;
 	}
@@ -1146,37 +1199,37 @@ public class ValueEvaluation {
 	public static IntDouble pow(IntDouble id1, IntDouble id2){
 		IntDouble id;
 		if (id1.isInt() && id2.isInt()){
-			id=new IntDouble(Math.pow(id1.getData().intValue(),id2.getData().intValue()), false);
+			id=new IntDouble(Math.pow(id1.intValue(),id2.intValue()), false);
 		}else if (id1.isInt() && !id2.isInt()){
-			id=new IntDouble(Math.pow(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
+			id=new IntDouble(Math.pow(id1.doubleValue(),id2.doubleValue()), false);
 		}else if (!id1.isInt() && id2.isInt()){
-			id=new IntDouble(Math.pow(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
+			id=new IntDouble(Math.pow(id1.doubleValue(),id2.doubleValue()), false);
 		}else{
-			id=new IntDouble(Math.pow(id1.getData().doubleValue(),id2.getData().doubleValue()), false);
+			id=new IntDouble(Math.pow(id1.doubleValue(),id2.doubleValue()), false);
 		}
 		return id;
 	}
 	
 	public static IntDouble sin(IntDouble id1){	
-		double degrees = id1.getData().doubleValue();
+		double degrees = id1.doubleValue();
 		double radians = Math.toRadians(degrees);
 		return new IntDouble(Math.sin(radians), false);		
 	}
 	
 	public static IntDouble cos(IntDouble id1){	
-		double degrees = id1.getData().doubleValue();
+		double degrees = id1.doubleValue();
 		double radians = Math.toRadians(degrees);
 		return new IntDouble(Math.cos(radians), false);		
 	}
 	
 	public static IntDouble tan(IntDouble id1){	
-		double degrees = id1.getData().doubleValue();
+		double degrees = id1.doubleValue();
 		double radians = Math.toRadians(degrees);
 		return new IntDouble(Math.tan(radians), false);		
 	}
 	
 	public static IntDouble cot(IntDouble id1){	
-		double degrees = id1.getData().doubleValue();
+		double degrees = id1.doubleValue();
 		if (degrees==90.0){
 			return new IntDouble(0.0, false);
 		}
@@ -1185,25 +1238,25 @@ public class ValueEvaluation {
 	}
 	
 	public static IntDouble asin(IntDouble id1){
-		double value = id1.getData().doubleValue();
+		double value = id1.doubleValue();
 		double radians = Math.asin(value);
 		return new IntDouble(Math.toDegrees(radians), false);		
 	}
 	
 	public static IntDouble acos(IntDouble id1){
-		double value = id1.getData().doubleValue();
+		double value = id1.doubleValue();
 		double radians = Math.acos(value);
 		return new IntDouble(Math.toDegrees(radians), false);		
 	}
 	
 	public static IntDouble atan(IntDouble id1){
-		double value = id1.getData().doubleValue();
+		double value = id1.doubleValue();
 		double radians = Math.atan(value);
 		return new IntDouble(Math.toDegrees(radians), false);		
 	}
 	
 	public static IntDouble acot(IntDouble id1){
-		double value = id1.getData().doubleValue();
+		double value = id1.doubleValue();
 		if (value == 0.){
 			return new IntDouble(90.0, false);
 		}
@@ -1221,7 +1274,7 @@ public class ValueEvaluation {
 			int ed = Integer.parseInt(edStr);
 			int sm = TimeOperation.monthValue(smStr);
 			int em = TimeOperation.monthValue(emStr);
-			double exc = exc_id.getData().doubleValue();
+			double exc = exc_id.doubleValue();
 			
 			if (exc<=0.0 || exc>1.0){
 				Error.addEvaluationError("Exceedance level must be >0.0 and <=1.0");
@@ -1238,8 +1291,7 @@ public class ValueEvaluation {
 				selEd=new Date(ey-1900, em-1, ed);
 			}
 			
-			ArrayList<Double> optedData=dds.getTimeseriesDataWithOptions(selMon, selSd, selEd);
-			double value=DssDataSet.getExceedance(optedData, exc);
+			double value=dds.getExceedanceIndex(selMon, selSd, selEd).getExceedance(exc);
 			return new IntDouble(value, false);
 		}else{
 			Error.addEvaluationError(tsName+" is not a timeseries variable used in the Exceendance funciton for the time step of "+ControlData.timeStep+".");
@@ -1257,7 +1309,7 @@ public class ValueEvaluation {
 			int ed = Integer.parseInt(edStr);
 			int sm = TimeOperation.monthValue(smStr);
 			int em = TimeOperation.monthValue(emStr);
-			double exc = exc_id.getData().doubleValue();
+			double exc = exc_id.doubleValue();
 			
 			if (exc<=0.0 || exc>1.0){
 				Error.addEvaluationError("Exceedance level must be >0.0 and <=1.0");
@@ -1274,8 +1326,7 @@ public class ValueEvaluation {
 				selEd=new Date(ey-1900, em-1, ed);
 			}
 			
-			ArrayList<Double> optedData=dds.getTimeseriesDataWithOptions(selMon, selSd, selEd);
-			int tsi=DssDataSet.getExceedance_tsi(optedData, exc);
+			int tsi=dds.getExceedanceIndex(selMon, selSd, selEd).getExceedance_tsi(exc);
 			return new IntDouble(tsi, true);
 		}else{
 			Error.addEvaluationError(tsName+" is not a timeseries variable used in the Exceendance_TSI funciton for the time step of "+ControlData.timeStep+".");
@@ -1306,7 +1357,7 @@ public class ValueEvaluation {
 			if (!id.isInt()){
 				Error.addEvaluationError("The index of "+ident+" should be integer.");
 			}
-			prvs=TimeOperation.findTime(id.getData().intValue());
+			prvs=TimeOperation.findTime(id.intValue());
 		}
 		double convert = tafcfs(ident, prvs);
 		return new IntDouble(convert, false);
@@ -1391,36 +1442,34 @@ public class ValueEvaluation {
 		if (!id2.isInt()){
 			Error.addEvaluationError("the ending index should be integer");
 		}
-		li.start=id1.getData().intValue();
-		li.end=id2.getData().intValue();
+		li.start=id1.intValue();
+		li.end=id2.intValue();
 		li.setValue(li.start);
 		li.setIndexStart(true);
 		sumIndex.push(li);
 		if (li.start>li.end && li.step>0){
-			ControlData.ignoreError=true;
+			EvaluationContext.setIgnoreError(true);
 		}else if (li.start<li.end && li.step<0){
-			ControlData.ignoreError=true;
+			EvaluationContext.setIgnoreError(true);
 		}
 	}
 	
 	public static IntDouble sumExpression(IntDouble id, String expression, Stack<LoopIndex> sumIndex){	
-		ControlData.ignoreError=false;
+		EvaluationContext.setIgnoreError(false);
 		LoopIndex li=sumIndex.pop();
 		if (li.step>=0){
 			if (li.start>li.end) return new IntDouble(0.0, false);
 			li.start=li.start+li.step;
 			if (li.start>li.end) return id;
 			sumIndex.push(li);
+			ValueEvaluatorParser evaluator=sumBodyParser(expression, sumIndex);
 			for (int i=li.start; i<=li.end; i=i+li.step){
 				li=sumIndex.pop();
 				li.setValue(i);
 				li.setIndexStart(true);
 				sumIndex.push(li);
-				ANTLRStringStream stream = new ANTLRStringStream("v: "+expression); 
-				ValueEvaluatorLexer lexer = new ValueEvaluatorLexer(stream);
-				TokenStream tokenStream = new CommonTokenStream(lexer);
-				ValueEvaluatorParser evaluator = new ValueEvaluatorParser(tokenStream);
-				evaluator.setSumIndex(sumIndex);
+				evaluator.reset();
+				evaluator.evalValue=null;
 				try{
 					evaluator.evaluator();
 				}catch (RecognitionException e){
@@ -1435,16 +1484,14 @@ public class ValueEvaluation {
 			li.start=li.start+li.step;
 			if (li.start<li.end) return id;
 			sumIndex.push(li);
+			ValueEvaluatorParser evaluator=sumBodyParser(expression, sumIndex);
 			for (int i=li.start; i>=li.end; i=i+li.step){
 				li=sumIndex.pop();
 				li.setValue(i);
 				li.setIndexStart(true);
 				sumIndex.push(li);
-				ANTLRStringStream stream = new ANTLRStringStream("v: "+expression); 
-				ValueEvaluatorLexer lexer = new ValueEvaluatorLexer(stream);
-				TokenStream tokenStream = new CommonTokenStream(lexer);
-				ValueEvaluatorParser evaluator = new ValueEvaluatorParser(tokenStream);
-				evaluator.setSumIndex(sumIndex);
+				evaluator.reset();
+				evaluator.evalValue=null;
 				try{
 					evaluator.evaluator();
 				}catch (RecognitionException e){
@@ -1459,6 +1506,68 @@ public class ValueEvaluation {
 		return id;
 	}
 	
+	/**
+	 * The body of a sum loop is lexed once; every iteration re-runs the parser
+	 * on the same tokens. The tokens are buffered here because the reset of the
+	 * parser before the first iteration does not fill the stream.
+	 */
+	private static ValueEvaluatorParser sumBodyParser(String expression, Stack<LoopIndex> sumIndex){
+		ANTLRStringStream stream = new ANTLRStringStream("v: "+expression); 
+		ValueEvaluatorLexer lexer = new ValueEvaluatorLexer(stream);
+		CommonTokenStream tokenStream = new CommonTokenStream(lexer);
+		tokenStream.fill();
+		ValueEvaluatorParser evaluator = new ValueEvaluatorParser(tokenStream);
+		evaluator.setSumIndex(sumIndex);
+		return evaluator;
+	}
+	
+	public static IntDouble sumExpression(IntDouble id, ValueNode body, ParallelVars prvs, Stack<LoopIndex> sumIndex){
+		EvaluationContext.setIgnoreError(false);
+		LoopIndex li=sumIndex.peek();
+		IntDouble sum=null;
+		if (li.step>=0){
+			if (li.start>li.end) {
+				sumIndex.pop();
+				return new IntDouble(0.0, false);
+			}
+			for (int i=li.start+li.step; i<=li.end; i=i+li.step){
+				li.setValue(i);
+				sum=addToSum(sum, id, body.evaluate(prvs, sumIndex));
+			}
+		}else{
+			if (li.start<li.end) {
+				sumIndex.pop();
+				return new IntDouble(0.0, false);
+			}
+			for (int i=li.start+li.step; i>=li.end; i=i+li.step){
+				li.setValue(i);
+				sum=addToSum(sum, id, body.evaluate(prvs, sumIndex));
+			}
+		}
+		sumIndex.pop();
+		return sum==null ? id : sum;
+	}
+	
+	/**
+	 * The sum after the first iteration is made here, so it is added to in
+	 * place.
+	 */
+	private static IntDouble addToSum(IntDouble sum, IntDouble first, IntDouble id){
+		if (sum==null) return add(first, id);
+		return add(sum, id, sum);
+	}
+	
+	public static IntDouble term_LOOP_INDEX(String ident, Stack<LoopIndex> sumIndex){
+		if (ControlData.isPostProcessing || ControlData.currSvMap.containsKey(ident) || ControlData.currTsMap.containsKey(ident)){
+			return term_IDENT(ident, sumIndex);
+		}
+		LoopIndex li=sumIndex.peek();
+		if (li.getName().equals(ident) && li.getIndexStart()){
+			return new IntDouble(li.getValue(), true, ident, 0);
+		}
+		return term_IDENT(ident, sumIndex);
+	}
+	
 	public static Number assignWhereStatement(IntDouble id){
 		return id.getData();
 	}
@@ -1484,7 +1593,7 @@ public class ValueEvaluation {
 			if (index==0)	{
 				ControlData.currSvMap.get(name).getData().setData(value);
 			}else if(index>0){
-				String futSvName=name+"__fut__"+index;
+				String futSvName=FutureKey.name(name, index);
 				if (ControlData.currSvFutMap.containsKey(futSvName)){
 					ControlData.currSvFutMap.get(futSvName).getData().setData(value);
 				}
@@ -1500,7 +1609,7 @@ public class ValueEvaluation {
 			if (index==0)	{
 				ControlData.currSvMap.get(name).getData().setData(value);
 			}else if(index>0){
-				String futSvName=name+"__fut__"+index;
+				String futSvName=FutureKey.name(name, index);
 				if (ControlData.currSvFutMap.containsKey(futSvName)){
 					ControlData.currSvFutMap.get(futSvName).getData().setData(value);
 				}
@@ -0,0 +1,579 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Stack;
+
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.external.ExternalArgs;
+import gov.ca.water.wrims.engine.core.external.ExternalBatch;
+import gov.ca.water.wrims.engine.core.parallel.EvaluationContext;
+import gov.ca.water.wrims.engine.core.parallel.ParallelVars;
+
+/**
+ * Immutable node of a compiled WRESL value expression or condition.
+ * The nodes are built once by ValueCompilerParser and evaluated by calling
+ * the same ValueEvaluation methods, in the same order, as the actions of
+ * ValueEvaluatorParser do when the expression is re-parsed.
+ */
+public class ValueNode {
+
+	// value nodes
+	public static final int CONSTANT=0;
+	public static final int IDENT=1;
+	public static final int SVAR=2;
+	public static final int YEAR=3;
+	public static final int MONTH=4;
+	public static final int DAY=5;
+	public static final int MONTH_CONST=6;
+	public static final int PASTMONTH=7;
+	public static final int DAYSIN=8;
+	public static final int DAYSINTIMESTEP=9;
+	public static final int ARRAY_ITERATOR=10;
+	public static final int TAFCFS=11;
+	public static final int NEGATE=12;
+	public static final int MULT=13;
+	public static final int DIVIDE=14;
+	public static final int ADD=15;
+	public static final int SUBTRACT=16;
+	public static final int MAX=17;
+	public static final int MIN=18;
+	public static final int INT=19;
+	public static final int REAL=20;
+	public static final int ABS=21;
+	public static final int EXP=22;
+	public static final int LOG=23;
+	public static final int LOG10=24;
+	public static final int POW=25;
+	public static final int MOD=26;
+	public static final int ROUND=27;
+	public static final int SIN=28;
+	public static final int COS=29;
+	public static final int TAN=30;
+	public static final int COT=31;
+	public static final int ASIN=32;
+	public static final int ACOS=33;
+	public static final int ATAN=34;
+	public static final int ACOT=35;
+	public static final int EXCEEDANCE=36;
+	public static final int EXCEEDANCE_TSI=37;
+	public static final int TIMESERIES=38;
+	public static final int NULL=39;
+	public static final int TABLE=40;
+	public static final int SUM=41;
+	public static final int PAST_CYCLE=42;
+	public static final int PAST_CYCLE_TIME_ARRAY=43;
+	public static final int PAST_CYCLE_INDEX=44;
+	public static final int PAST_CYCLE_INDEX_TIME_ARRAY=45;
+	public static final int NO_ARG_FUNCTION=46;
+	public static final int ARG_FUNCTION=47;
+	public static final int PAST_TSFV=48;
+	public static final int TRUNK=49;
+	public static final int LOOP_INDEX=50;
+	public static final int SLOT=51;
+	public static final int SHARED=52;
+
+	// condition nodes
+	public static final int ALWAYS=60;
+	public static final int NOT=61;
+	public static final int AND=62;
+	public static final int OR=63;
+	public static final int RELATION=64;
+	public static final int RANGE=65;
+	public static final int SHARED_CONDITION=66;
+
+	private static final ValueNode[] NO_CHILDREN=new ValueNode[0];
+
+	public final int type;
+	public final String text;
+	public final String[] texts;
+	public final ValueNode[] children;
+	public final IntDouble value;
+	public final int index;
+	public final IdentifierSlots slots;
+	public final SharedExpression shared;
+
+	public ValueNode(int type, String text, String[] texts, ValueNode[] children, IntDouble value, int index){
+		this(type, text, texts, children, value, index, null, null);
+	}
+
+	public ValueNode(SharedExpression shared){
+		this(shared.node.isCondition() ? SHARED_CONDITION : SHARED, null, null, null, null, 0, null, shared);
+	}
+
+	private ValueNode(int type, String text, String[] texts, ValueNode[] children, IntDouble value, int index, IdentifierSlots slots, SharedExpression shared){
+		this.type=type;
+		this.text=text;
+		this.texts=texts;
+		this.children=children==null ? NO_CHILDREN : children;
+		this.value=value;
+		this.index=index;
+		this.slots=slots;
+		this.shared=shared;
+	}
+
+	public ValueNode(int type){
+		this(type, null, null, null, null, 0);
+	}
+
+	public ValueNode(int type, String text){
+		this(type, text, null, null, null, 0);
+	}
+
+	public ValueNode(int type, ValueNode... children){
+		this(type, null, null, children, null, 0);
+	}
+
+	public ValueNode(int type, String text, ValueNode... children){
+		this(type, text, null, children, null, 0);
+	}
+
+	public ValueNode(IntDouble value){
+		this(CONSTANT, null, null, null, value, 0);
+	}
+
+	public static ValueNode table(String table, String select, String givenIdent, String use, ArrayList<String> whereIdents, ArrayList<ValueNode> values){
+		int nWhere = whereIdents==null ? 0 : whereIdents.size();
+		String[] texts=new String[4+nWhere];
+		texts[0]=table;
+		texts[1]=select;
+		texts[2]=givenIdent;
+		texts[3]=use;
+		for (int i=0; i<nWhere; i++){
+			texts[4+i]=whereIdents.get(i);
+		}
+		return new ValueNode(TABLE, null, texts, values.toArray(new ValueNode[values.size()]), null, 0);
+	}
+
+	/**
+	 * Returns a copy of the body of a sum loop in which the references to the
+	 * loop index are LOOP_INDEX nodes. Nested sums push their own index, so
+	 * they are not searched.
+	 */
+	public ValueNode bindLoopIndex(String ident){
+		if (type==IDENT && text.equals(ident)){
+			return new ValueNode(LOOP_INDEX, text);
+		}
+		if (type==SUM || children.length==0){
+			return this;
+		}
+		ValueNode[] bound=new ValueNode[children.length];
+		boolean changed=false;
+		for (int i=0; i<children.length; i++){
+			bound[i]=children[i].bindLoopIndex(ident);
+			changed = changed || bound[i]!=children[i];
+		}
+		if (!changed) return this;
+		return new ValueNode(type, text, texts, bound, value, index);
+	}
+
+	/**
+	 * Returns a copy of the tree in which the identifiers are SLOT nodes bound
+	 * to the slots of a model.
+	 */
+	public ValueNode bindSlots(IdentifierSlots slots){
+		if (type==IDENT){
+			return new ValueNode(SLOT, text, null, null, null, slots.bind(text), slots, null);
+		}
+		if (children.length==0){
+			return this;
+		}
+		ValueNode[] bound=new ValueNode[children.length];
+		boolean changed=false;
+		for (int i=0; i<children.length; i++){
+			bound[i]=children[i].bindSlots(slots);
+			changed = changed || bound[i]!=children[i];
+		}
+		if (!changed) return this;
+		return new ValueNode(type, text, texts, bound, value, index);
+	}
+
+	public boolean isCondition(){
+		return type>=ALWAYS;
+	}
+
+	/**
+	 * @return true if a node of the type is an arithmetic operator or
+	 *         function, whose value only depends on its children
+	 */
+	public static boolean isOperator(int type){
+		switch (type){
+		case NEGATE:
+		case MULT:
+		case DIVIDE:
+		case ADD:
+		case SUBTRACT:
+		case MAX:
+		case MIN:
+		case INT:
+		case REAL:
+		case ABS:
+		case EXP:
+		case LOG:
+		case LOG10:
+		case POW:
+		case MOD:
+		case ROUND:
+		case SIN:
+		case COS:
+		case TAN:
+		case COT:
+		case ASIN:
+		case ACOS:
+		case ATAN:
+		case ACOT:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @return true if the value of a node of the type only depends on its
+	 *         children and the tables
+	 */
+	public static boolean isPure(int type){
+		switch (type){
+		case CONSTANT:
+		case MONTH_CONST:
+		case TABLE:
+		case ALWAYS:
+		case NOT:
+		case AND:
+		case OR:
+		case RELATION:
+			return true;
+		default:
+			return isOperator(type);
+		}
+	}
+
+	/**
+	 * @return true if a node of the type reads the date of the time step
+	 */
+	public static boolean readsDate(int type){
+		switch (type){
+		case YEAR:
+		case MONTH:
+		case DAY:
+		case DAYSIN:
+		case DAYSINTIMESTEP:
+		case RANGE:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @return true if the node is the slot of an svar or a timeseries
+	 */
+	public static boolean readsSvarOrTimeseries(ValueNode node){
+		if (node.type!=SLOT) return false;
+		int kind=node.slots.kind(node.index);
+		return kind==IdentifierSlots.SVAR || kind==IdentifierSlots.TIMESERIES;
+	}
+
+	public IntDouble evaluate(ParallelVars prvs, Stack<LoopIndex> sumIndex){
+		switch (type){
+		case CONSTANT:
+			return value;
+		case IDENT:
+			return ValueEvaluation.term_IDENT(text, sumIndex);
+		case SVAR:
+			return ValueEvaluation.term_SVAR(text);
+		case YEAR:
+			return ValueEvaluation.term_YEAR();
+		case MONTH:
+			return ValueEvaluation.term_MONTH();
+		case DAY:
+			return ValueEvaluation.term_DAY();
+		case MONTH_CONST:
+			return ValueEvaluation.term_MONTH_CONST(text);
+		case PASTMONTH:
+			return ValueEvaluation.term_PASTMONTH(text);
+		case DAYSIN:
+			return ValueEvaluation.daysIn();
+		case DAYSINTIMESTEP:
+			return ValueEvaluation.daysInTimeStep();
+		case ARRAY_ITERATOR:
+			return ValueEvaluation.term_ARRAY_ITERATOR(prvs);
+		case TAFCFS:
+			if (children.length==0){
+				return ValueEvaluation.tafcfs_term(text, null);
+			}
+			return ValueEvaluation.tafcfs_term(text, children[0].evaluate(prvs, sumIndex));
+		case NEGATE:{
+			IntDouble id=children[0].evaluate(prvs, sumIndex);
+			return ValueEvaluation.unary("-", id, children[0].isTemporary() ? id : new IntDouble());
+		}
+		case MULT:{
+			IntDouble id1=children[0].evaluate(prvs, sumIndex);
+			IntDouble id2=children[1].evaluate(prvs, sumIndex);
+			return ValueEvaluation.mult(id1, id2, result(id1, id2));
+		}
+		case DIVIDE:{
+			IntDouble id1=children[0].evaluate(prvs, sumIndex);
+			IntDouble id2=children[1].evaluate(prvs, sumIndex);
+			return ValueEvaluation.divide(id1, id2, result(id1, id2));
+		}
+		case ADD:{
+			IntDouble id1=children[0].evaluate(prvs, sumIndex);
+			IntDouble id2=children[1].evaluate(prvs, sumIndex);
+			return ValueEvaluation.add(id1, id2, result(id1, id2));
+		}
+		case SUBTRACT:{
+			IntDouble id1=children[0].evaluate(prvs, sumIndex);
+			IntDouble id2=children[1].evaluate(prvs, sumIndex);
+			return ValueEvaluation.substract(id1, id2, result(id1, id2));
+		}
+		case MAX:{
+			IntDouble id1=children[0].evaluate(prvs, sumIndex);
+			IntDouble id2=children[1].evaluate(prvs, sumIndex);
+			return ValueEvaluation.max(id1, id2, result(id1, id2));
+		}
+		case MIN:{
+			IntDouble id1=children[0].evaluate(prvs, sumIndex);
+			IntDouble id2=children[1].evaluate(prvs, sumIndex);
+			return ValueEvaluation.min(id1, id2, result(id1, id2));
+		}
+		case INT:
+			return ValueEvaluation.intFunc(children[0].evaluate(prvs, sumIndex));
+		case REAL:
+			return ValueEvaluation.realFunc(children[0].evaluate(prvs, sumIndex));
+		case ABS:
+			return ValueEvaluation.abs(children[0].evaluate(prvs, sumIndex));
+		case EXP:
+			return ValueEvaluation.exp(children[0].evaluate(prvs, sumIndex));
+		case LOG:
+			return ValueEvaluation.log(children[0].evaluate(prvs, sumIndex));
+		case LOG10:
+			return ValueEvaluation.log10(children[0].evaluate(prvs, sumIndex));
+		case POW:{
+			IntDouble id1=children[0].evaluate(prvs, sumIndex);
+			return ValueEvaluation.pow(id1, children[1].evaluate(prvs, sumIndex));
+		}
+		case MOD:{
+			IntDouble id1=children[0].evaluate(prvs, sumIndex);
+			return ValueEvaluation.mod(id1, children[1].evaluate(prvs, sumIndex));
+		}
+		case ROUND:
+			return ValueEvaluation.round(children[0].evaluate(prvs, sumIndex));
+		case SIN:
+			return ValueEvaluation.sin(children[0].evaluate(prvs, sumIndex));
+		case COS:
+			return ValueEvaluation.cos(children[0].evaluate(prvs, sumIndex));
+		case TAN:
+			return ValueEvaluation.tan(children[0].evaluate(prvs, sumIndex));
+		case COT:
+			return ValueEvaluation.cot(children[0].evaluate(prvs, sumIndex));
+		case ASIN:
+			return ValueEvaluation.asin(children[0].evaluate(prvs, sumIndex));
+		case ACOS:
+			return ValueEvaluation.acos(children[0].evaluate(prvs, sumIndex));
+		case ATAN:
+			return ValueEvaluation.atan(children[0].evaluate(prvs, sumIndex));
+		case ACOT:
+			return ValueEvaluation.acot(children[0].evaluate(prvs, sumIndex));
+		case EXCEEDANCE:
+			return ValueEvaluation.exceedance(text, children[0].evaluate(prvs, sumIndex), texts[0], texts[1], texts[2], texts[3], texts[4], texts[5], texts[6]);
+		case EXCEEDANCE_TSI:
+			return ValueEvaluation.exceedance_tsi(text, children[0].evaluate(prvs, sumIndex), texts[0], texts[1], texts[2], texts[3], texts[4], texts[5], texts[6]);
+		case TIMESERIES:
+			return ValueEvaluation.timeseries();
+		case NULL:
+			return null;
+		case TABLE:
+			return evaluateTable(prvs, sumIndex);
+		case SUM:{
+			ValueEvaluation.sumExpression_IDENT(text, sumIndex);
+			IntDouble id1=children[0].evaluate(prvs, sumIndex);
+			IntDouble id2=children[1].evaluate(prvs, sumIndex);
+			ValueEvaluation.initSumExpression(id1, id2, texts[0], sumIndex);
+			IntDouble id3=children[2].evaluate(prvs, sumIndex);
+			return ValueEvaluation.sumExpression(id3, children[2], prvs, sumIndex);
+		}
+		case LOOP_INDEX:
+			return ValueEvaluation.term_LOOP_INDEX(text, sumIndex);
+		case SLOT:
+			return ValueEvaluation.term_SLOT(slots, index, text, sumIndex);
+		case SHARED:
+			return shared.evaluate(prvs, sumIndex);
+		case PAST_CYCLE:
+			return ValueEvaluation.pastCycleNoTimeArray(text, texts[0]);
+		case PAST_CYCLE_TIME_ARRAY:
+			return ValueEvaluation.pastCycleTimeArray(text, texts[0], children[0].evaluate(prvs, sumIndex));
+		case PAST_CYCLE_INDEX:
+			return ValueEvaluation.pastCycleIndexNoTimeArray(text, index);
+		case PAST_CYCLE_INDEX_TIME_ARRAY:
+			return ValueEvaluation.pastCycleIndexTimeArray(text, index, children[0].evaluate(prvs, sumIndex));
+		case NO_ARG_FUNCTION:
+			return ValueEvaluation.noArgFunction(text);
+		case ARG_FUNCTION:{
+			ArrayList<ArrayList<IntDouble>> idArray=evaluateArguments(children.length, prvs, sumIndex);
+			if (prvs!=null && ExternalBatch.timeArraySize()>prvs.timeArrayIndex && ValueEvaluation.isExternalCall(text, children.length) && ExternalBatch.isNewSite(this, text)){
+				batchFutureCalls(idArray, prvs, sumIndex);
+			}
+			return ValueEvaluation.argFunction(text, idArray);
+		}
+		case PAST_TSFV:{
+			ArrayList<ArrayList<IntDouble>> idArray=evaluateArguments(children.length-1, prvs, sumIndex);
+			IntDouble id0=children[children.length-1].evaluate(prvs, sumIndex);
+			return ValueEvaluation.pastTSFV(text, id0, idArray, prvs);
+		}
+		default:
+			throw new IllegalStateException("Node type "+type+" is not a value.");
+		}
+	}
+
+	/**
+	 * @return true if evaluate() returns a new value that only the parent
+	 *         node reads, so the parent can write its own result to it
+	 */
+	public boolean isTemporary(){
+		switch (type){
+		case NEGATE:
+		case MULT:
+		case DIVIDE:
+		case ADD:
+		case SUBTRACT:
+		case MAX:
+		case MIN:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @return the operand value of a binary node to write its result to, or
+	 *         a new value if neither operand is temporary
+	 */
+	private IntDouble result(IntDouble id1, IntDouble id2){
+		if (children[0].isTemporary()) return id1;
+		if (children[1].isTemporary()) return id2;
+		return new IntDouble();
+	}
+
+	public boolean evaluateCondition(ParallelVars prvs, Stack<LoopIndex> sumIndex){
+		switch (type){
+		case ALWAYS:
+			return true;
+		case NOT:
+			return !children[0].evaluateCondition(prvs, sumIndex);
+		case AND:
+		case OR:{
+			boolean r1=children[0].evaluateCondition(prvs, sumIndex);
+			boolean r2=children[1].evaluateCondition(prvs, sumIndex);
+			return ValueEvaluation.relationStatementSeries(r1, r2, text);
+		}
+		case RELATION:{
+			IntDouble id1=children[0].evaluate(prvs, sumIndex);
+			IntDouble id2=children[1].evaluate(prvs, sumIndex);
+			return ValueEvaluation.relationStatement(id1, id2, text);
+		}
+		case RANGE:
+			return ValueEvaluation.range(texts[0], texts[1]);
+		case SHARED_CONDITION:
+			return shared.evaluateCondition(prvs, sumIndex);
+		default:
+			throw new IllegalStateException("Node type "+type+" is not a condition.");
+		}
+	}
+
+	private ArrayList<ArrayList<IntDouble>> evaluateArguments(int n, ParallelVars prvs, Stack<LoopIndex> sumIndex){
+		ArrayList<ArrayList<IntDouble>> idArray = new ArrayList<ArrayList<IntDouble>>();
+		for (int i=0; i<n; i++){
+			ValueNode arg=children[i];
+			if (arg.type==TRUNK){
+				IntDouble start=arg.children[0].evaluate(prvs, sumIndex);
+				IntDouble end=arg.children[1].evaluate(prvs, sumIndex);
+				idArray.add(ValueEvaluation.trunk_timeArray(arg.text, start, end));
+			}else{
+				ArrayList<IntDouble> idArray1=new ArrayList<IntDouble>();
+				idArray1.add(arg.evaluate(prvs, sumIndex));
+				idArray.add(idArray1);
+			}
+		}
+		return idArray;
+	}
+
+	/**
+	 * Runs this call of a BatchedExternalFunction in the open ExternalBatch
+	 * with the calls of the later indexes of the time array. Their arguments
+	 * are evaluated in a scratch EvaluationContext, and an index is left to
+	 * its own call if its arguments report errors. If the arguments call
+	 * another external function, only the current call is run.
+	 */
+	private void batchFutureCalls(ArrayList<ArrayList<IntDouble>> idArray, ParallelVars prvs, Stack<LoopIndex> sumIndex){
+		ArrayList<ExternalArgs> calls=new ArrayList<ExternalArgs>();
+		EvaluationContext context=EvaluationContext.current();
+		EvaluationContext scratch=new EvaluationContext(EvaluationContext.evalTypeIndex(), EvaluationContext.evalName());
+		scratch.ignoreError=EvaluationContext.ignoreError();
+		scratch.enter();
+		try{
+			ExternalArgs args=new ExternalArgs();
+			args.reset(idArray.size());
+			if (!ValueEvaluation.externalArgs(text, idArray, args)) return;
+			calls.add(args);
+			if (!callsExternal(children)){
+				int timeArraySize=ExternalBatch.timeArraySize();
+				ParallelVars futureVars=new ParallelVars();
+				for (futureVars.timeArrayIndex=prvs.timeArrayIndex+1; futureVars.timeArrayIndex<=timeArraySize; futureVars.timeArrayIndex++){
+					int nErrors=scratch.errorCount();
+					ArrayList<ArrayList<IntDouble>> futureArray=evaluateArguments(children.length, futureVars, sumIndex);
+					args=new ExternalArgs();
+					args.reset(futureArray.size());
+					if (ValueEvaluation.externalArgs(text, futureArray, args) && scratch.errorCount()==nErrors) calls.add(args);
+				}
+			}
+		}finally{
+			if (context==null){
+				scratch.exit();
+			}else{
+				context.enter();
+			}
+		}
+		ExternalBatch.run(this, text, calls);
+	}
+
+	/**
+	 * @return true if one of the nodes or their children calls an external
+	 *         function
+	 */
+	private static boolean callsExternal(ValueNode[] nodes){
+		for (ValueNode node: nodes){
+			switch (node.type){
+			case NO_ARG_FUNCTION:
+				return true;
+			case ARG_FUNCTION:
+				if (ValueEvaluation.isExternalCall(node.text, node.children.length)) return true;
+				break;
+			case SHARED:
+			case SHARED_CONDITION:
+				if (callsExternal(new ValueNode[]{node.shared.node})) return true;
+				break;
+			}
+			if (callsExternal(node.children)) return true;
+		}
+		return false;
+	}
+
+	private IntDouble evaluateTable(ParallelVars prvs, Stack<LoopIndex> sumIndex){
+		HashMap<String, Number> given=null;
+		HashMap<String, Number> where=null;
+		int c=0;
+		if (texts[2]!=null){
+			Number value=ValueEvaluation.assignWhereStatement(children[c++].evaluate(prvs, sumIndex));
+			given=new HashMap<String, Number>();
+			given.put(texts[2], value);
+		}
+		if (texts.length>4){
+			where=new HashMap<String, Number>();
+			for (int i=4; i<texts.length; i++){
+				where.put(texts[i], ValueEvaluation.assignWhereStatement(children[c++].evaluate(prvs, sumIndex)));
+			}
+		}
+		return ValueEvaluation.tableSQL(texts[0], texts[1], where, given, texts[3]);
+	}
+}
@@ -15,6 +15,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.antlr.runtime.RecognitionException;
 
+import gov.ca.water.wrims.engine.core.commondata.wresldata.FutureKey;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.WeightElement;
@@ -89,7 +90,7 @@ public class WeightEval {
 			prvs.timeArrayIndex=0;
 			try {
 				evaluator.evaluator();
-				double wtv = evaluator.evalValue.getData().doubleValue();
+				double wtv = evaluator.evalValue.doubleValue();
 				if (!wList.contains(wtName)){
 					wList.add(wtName);
 				}
@@ -146,10 +147,10 @@ public class WeightEval {
 			int timeArraySize=getTimeArraySize(wt.timeArraySizeParser);
 			for (prvs.timeArrayIndex=1; prvs.timeArrayIndex<=timeArraySize; prvs.timeArrayIndex++){
 				WeightElement newWt=new WeightElement();
-				String newWtName=wtName+"__fut__"+prvs.timeArrayIndex;
+				String newWtName=FutureKey.name(wtName, prvs.timeArrayIndex);
 				try {
 					evaluator.evaluator();
-					double wtv = evaluator.evalValue.getData().doubleValue();
+					double wtv = evaluator.evalValue.doubleValue();
 					if (!wList.contains(newWtName)){
 						wList.add(newWtName);
 					}
@@ -219,7 +220,7 @@ public class WeightEval {
 			prvs.timeArrayIndex=0;
 			try {
 				evaluator.evaluator();
-				double wtv = evaluator.evalValue.getData().doubleValue();
+				double wtv = evaluator.evalValue.doubleValue();
 				if (!wList.contains(wtssName)){
 					wList.add(wtssName);
 				}
@@ -276,10 +277,10 @@ public class WeightEval {
 			int timeArraySize=getTimeArraySize(wt.timeArraySizeParser);
 			for (prvs.timeArrayIndex=1; prvs.timeArrayIndex<=timeArraySize; prvs.timeArrayIndex++){
 				WeightElement newWt=new WeightElement();
-				String newWtName=wtssName+"__fut__"+prvs.timeArrayIndex;
+				String newWtName=FutureKey.name(wtssName, prvs.timeArrayIndex);
 				try {
 					evaluator.evaluator();
-					double wtv = evaluator.evalValue.getData().doubleValue();
+					double wtv = evaluator.evalValue.doubleValue();
 					if (!wList.contains(newWtName)){
 						wList.add(newWtName);
 					}
@@ -345,7 +346,7 @@ public class WeightEval {
 			if (!timeArrayEvalValue.isInt()){
 				Error.addEvaluationError("the time array size is not an integer.");
 			}
-			timeArraySize=timeArrayEvalValue.getData().intValue();
+			timeArraySize=timeArrayEvalValue.intValue();
 		}catch(RecognitionException e) {
 			Error.addEvaluationError("weight time array definition has error");
 			timeArraySize=0;
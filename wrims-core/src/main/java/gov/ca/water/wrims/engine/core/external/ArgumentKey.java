@@ -0,0 +1,98 @@
+package gov.ca.water.wrims.engine.core.external;
+
+import java.util.Arrays;
+
+/**
+ * The exact values of the arguments of a call, compared bit by bit, and
+ * whether each value is an integer.
+ */
+final class ArgumentKey {
+	final long hash;
+	private final int size;
+	private final int[] lengths;
+	private final boolean[] isInt;
+	private final double[] values;
+
+	ArgumentKey(ExternalArgs args){
+		this(hash(args), args);
+	}
+
+	ArgumentKey(long hash, ExternalArgs args){
+		this.hash=hash;
+		size=args.size;
+		lengths=new int[size];
+		int n=0;
+		for (int i=0; i<size; i++){
+			lengths[i] = args.arrays[i]==null ? -1 : args.arrays[i].length;
+			n=n+Math.max(lengths[i], 1);
+		}
+		values=new double[n];
+		isInt=new boolean[n];
+		int k=0;
+		for (int i=0; i<size; i++){
+			if (lengths[i]<0){
+				isInt[k]=args.isInt[i];
+				values[k++]=args.values[i];
+			}else{
+				System.arraycopy(args.arrays[i], 0, values, k, lengths[i]);
+				System.arraycopy(args.arrayIsInt[i], 0, isInt, k, lengths[i]);
+				k=k+Math.max(lengths[i], 1);
+			}
+		}
+	}
+
+	boolean matches(long hash, ExternalArgs args){
+		if (this.hash!=hash || size!=args.size) return false;
+		int k=0;
+		for (int i=0; i<size; i++){
+			double[] array=args.arrays[i];
+			if (lengths[i]<0){
+				if (array!=null || isInt[k]!=args.isInt[i] || Double.doubleToLongBits(values[k++])!=Double.doubleToLongBits(args.values[i])) return false;
+			}else{
+				if (array==null || array.length!=lengths[i]) return false;
+				boolean[] valueIsInt=args.arrayIsInt[i];
+				for (int j=0; j<array.length; j++){
+					if (isInt[k+j]!=valueIsInt[j] || Double.doubleToLongBits(values[k+j])!=Double.doubleToLongBits(array[j])) return false;
+				}
+				k=k+Math.max(lengths[i], 1);
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode(){
+		return (int)(hash>>>32);
+	}
+
+	@Override
+	public boolean equals(Object o){
+		if (!(o instanceof ArgumentKey)) return false;
+		ArgumentKey key=(ArgumentKey)o;
+		if (hash!=key.hash || size!=key.size) return false;
+		if (!Arrays.equals(lengths, key.lengths) || !Arrays.equals(isInt, key.isInt)) return false;
+		for (int k=0; k<values.length; k++){
+			if (Double.doubleToLongBits(values[k])!=Double.doubleToLongBits(key.values[k])) return false;
+		}
+		return true;
+	}
+
+	static long hash(ExternalArgs args){
+		long hash=args.size;
+		for (int i=0; i<args.size; i++){
+			double[] array=args.arrays[i];
+			if (array==null){
+				hash=hash*31+(args.isInt[i] ? 1 : 0);
+				hash=hash*31+Double.doubleToLongBits(args.values[i]);
+			}else{
+				boolean[] valueIsInt=args.arrayIsInt[i];
+				hash=hash*31+array.length;
+				for (int j=0; j<array.length; j++){
+					hash=hash*31+(valueIsInt[j] ? 1 : 0);
+					hash=hash*31+Double.doubleToLongBits(array[j]);
+				}
+			}
+		}
+		return hash*0x9E3779B97F4A7C15L;
+	}
+}
@@ -0,0 +1,16 @@
+package gov.ca.water.wrims.engine.core.external;
+
+/**
+ * A TypedExternalFunction that can evaluate the calls collected by an
+ * ExternalBatch together, like an ANN surrogate that runs one inference for
+ * all of them.
+ */
+public interface BatchedExternalFunction extends TypedExternalFunction {
+
+	/**
+	 * Evaluates the first count calls of the batch. results[i] must be the
+	 * result that call(batch[i]) would return, and batch[i].resultIsInt must
+	 * be set the same way.
+	 */
+	void callBatch(ExternalArgs[] batch, int count, double[] results);
+}
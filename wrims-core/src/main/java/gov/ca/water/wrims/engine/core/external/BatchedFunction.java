@@ -0,0 +1,26 @@
+package gov.ca.water.wrims.engine.core.external;
+
+/**
+ * The call of a BatchedExternalFunction through the ExternalBatch of the
+ * thread: the result of the batch if it has one for the arguments, else a
+ * call of the function.
+ */
+class BatchedFunction implements TypedExternalFunction {
+	final BatchedExternalFunction batched;
+	private final TypedExternalFunction function;
+
+	BatchedFunction(BatchedExternalFunction batched, TypedExternalFunction function){
+		this.batched=batched;
+		this.function=function;
+	}
+
+	@Override
+	public double call(ExternalArgs args){
+		ExternalBatch.Result result=ExternalBatch.result(this, args);
+		if (result!=null){
+			args.resultIsInt=result.isInt;
+			return result.value;
+		}
+		return function.call(args);
+	}
+}
@@ -0,0 +1,221 @@
+package gov.ca.water.wrims.engine.core.external;
+
+import java.util.Arrays;
+import java.util.Stack;
+
+/**
+ * The arguments of a call of a TypedExternalFunction. values[i] is the value
+ * of a scalar argument and arrays[i] the values of an array argument, null for
+ * a scalar argument. isInt[i] tells if the argument is an integer; for an
+ * array, if its first value is, and arrayIsInt[i][j] if its value j is. The
+ * buffers are kept by thread and reused from call to call.
+ */
+public class ExternalArgs {
+	private static final ThreadLocal<ExternalArgs> threadArgs=ThreadLocal.withInitial(ExternalArgs::new);
+
+	public int size;
+	public double[] values=new double[8];
+	public boolean[] isInt=new boolean[8];
+	public double[][] arrays=new double[8][];
+	public boolean[][] arrayIsInt=new boolean[8][];
+	public boolean resultIsInt;
+	public boolean writesBack;
+
+	private double[][] arrayBuffers=new double[8][];
+	private boolean[][] isIntBuffers=new boolean[8][];
+	private float[][] floatBuffers=new float[8][];
+	private boolean inUse;
+
+	/**
+	 * @return the arguments of the thread, cleared for size arguments. A new
+	 *         instance if those of the thread are in use.
+	 */
+	public static ExternalArgs acquire(int size){
+		ExternalArgs args=threadArgs.get();
+		if (args.inUse) args=new ExternalArgs();
+		args.inUse=true;
+		args.reset(size);
+		return args;
+	}
+
+	public void release(){
+		inUse=false;
+	}
+
+	public void reset(int size){
+		if (size>values.length){
+			int length=Math.max(size, values.length*2);
+			values=new double[length];
+			isInt=new boolean[length];
+			arrays=new double[length][];
+			arrayIsInt=new boolean[length][];
+			arrayBuffers=Arrays.copyOf(arrayBuffers, length);
+			isIntBuffers=Arrays.copyOf(isIntBuffers, length);
+			floatBuffers=Arrays.copyOf(floatBuffers, length);
+		}
+		for (int i=0; i<size; i++){
+			values[i]=0;
+			isInt[i]=false;
+			arrays[i]=null;
+			arrayIsInt[i]=null;
+		}
+		this.size=size;
+		resultIsInt=false;
+		writesBack=false;
+	}
+
+	/**
+	 * @return a new instance with the arguments of this one in its own buffers
+	 */
+	public ExternalArgs copy(){
+		ExternalArgs args=new ExternalArgs();
+		args.reset(size);
+		for (int i=0; i<size; i++){
+			if (arrays[i]==null){
+				args.set(i, values[i], isInt[i]);
+			}else{
+				System.arraycopy(arrays[i], 0, args.array(i, arrays[i].length, isInt[i]), 0, arrays[i].length);
+				System.arraycopy(arrayIsInt[i], 0, args.arrayIsInt[i], 0, arrays[i].length);
+			}
+		}
+		args.resultIsInt=resultIsInt;
+		return args;
+	}
+
+	public void set(int i, double value, boolean isInt){
+		values[i]=value;
+		this.isInt[i]=isInt;
+		arrays[i]=null;
+		arrayIsInt[i]=null;
+	}
+
+	/**
+	 * Makes the argument i an array of the length, whose values are all
+	 * integers if isInt is true. The values of another type are marked in
+	 * arrayIsInt[i].
+	 *
+	 * @return the array to fill with the values of the argument
+	 */
+	public double[] array(int i, int length, boolean isInt){
+		double[] array=arrayBuffers[i];
+		boolean[] valueIsInt=isIntBuffers[i];
+		if (array==null || array.length!=length){
+			array=new double[length];
+			arrayBuffers[i]=array;
+			valueIsInt=new boolean[length];
+			isIntBuffers[i]=valueIsInt;
+		}
+		Arrays.fill(valueIsInt, isInt);
+		values[i]=0;
+		this.isInt[i]=isInt;
+		arrays[i]=array;
+		arrayIsInt[i]=valueIsInt;
+		return array;
+	}
+
+	public int intValue(int i){
+		return (int)scalar(i);
+	}
+
+	public float floatValue(int i){
+		return (float)scalar(i);
+	}
+
+	public double doubleValue(int i){
+		return scalar(i);
+	}
+
+	public double[] doubleArray(int i){
+		if (i>=size || arrays[i]==null) throw new IllegalArgumentException("The argument "+(i+1)+" is not an array.");
+		return arrays[i];
+	}
+
+	public float[] floatArray(int i){
+		double[] array=doubleArray(i);
+		float[] floats=floatBuffers[i];
+		if (floats==null || floats.length!=array.length){
+			floats=new float[array.length];
+			floatBuffers[i]=floats;
+		}
+		for (int j=0; j<array.length; j++){
+			floats[j]=(float)array[j];
+		}
+		return floats;
+	}
+
+	private double scalar(int i){
+		if (i>=size || arrays[i]!=null) throw new IllegalArgumentException("The argument "+(i+1)+" is not a value.");
+		return values[i];
+	}
+
+	/**
+	 * @return the float result of a function as the Stack protocol reads it
+	 *         back: the double of its decimal text
+	 * @throws NumberFormatException if the result is NaN or infinite, which
+	 *         the Stack protocol reports as an error of the function
+	 */
+	public static double floatResult(float value){
+		if (Float.isNaN(value) || Float.isInfinite(value)) throw new NumberFormatException("The result "+value+" is not a number.");
+		return Double.parseDouble(Float.toString(value));
+	}
+
+	/**
+	 * @return the double result of a function as the Stack protocol reads it
+	 *         back
+	 * @throws NumberFormatException if the result is NaN or infinite
+	 */
+	public static double doubleResult(double value){
+		if (Double.isNaN(value) || Double.isInfinite(value)) throw new NumberFormatException("The result "+value+" is not a number.");
+		return value;
+	}
+
+	/**
+	 * @return the size arguments on top of the stack, popped from it
+	 */
+	public static ExternalArgs fromStack(Stack stack, int size){
+		ExternalArgs args=new ExternalArgs();
+		args.reset(size);
+		for (int i=size-1; i>=0; i--){
+			Object param=stack.pop();
+			if (param instanceof Number[]){
+				Number[] valueArray=(Number[])param;
+				double[] array=args.array(i, valueArray.length, valueArray.length>0 && valueArray[0] instanceof Integer);
+				for (int j=0; j<valueArray.length; j++){
+					array[j]=valueArray[j].doubleValue();
+					args.arrayIsInt[i][j]=valueArray[j] instanceof Integer;
+				}
+			}else{
+				args.set(i, ((Number)param).doubleValue(), param instanceof Integer);
+			}
+		}
+		return args;
+	}
+
+	/**
+	 * Pushes the arguments on the stack as the boxed values of the legacy
+	 * ExternalFunction calls.
+	 */
+	public void toStack(Stack stack){
+		for (int i=0; i<size; i++){
+			double[] array=arrays[i];
+			if (array==null){
+				if (isInt[i]){
+					stack.push((int)values[i]);
+				}else{
+					stack.push(values[i]);
+				}
+			}else{
+				boolean[] valueIsInt=arrayIsInt[i];
+				Number[] valueArray=new Number[array.length];
+				for (int j=0; j<array.length; j++){
+					if (valueIsInt[j]){
+						valueArray[j]=(int)array[j];
+					}else{
+						valueArray[j]=array[j];
+					}
+				}
+				stack.push(valueArray);
+			}
+		}
+	}
+}
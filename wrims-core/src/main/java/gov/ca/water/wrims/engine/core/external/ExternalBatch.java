@@ -0,0 +1,141 @@
+package gov.ca.water.wrims.engine.core.external;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import gov.ca.water.wrims.engine.core.components.Error;
+
+/**
+ * The batched calls of the time array svar evaluated on a thread. open() is
+ * called with the size of the time array before the svar is evaluated. The
+ * first call of a BatchedExternalFunction at a call site then also evaluates
+ * the arguments of the site for the later indexes of the time array, and
+ * run() evaluates them with the current call in one callBatch. The calls with
+ * the same arguments return those results until close(); calls with other
+ * arguments, because they depend on values that the batch could not know,
+ * call the function as before.
+ */
+public class ExternalBatch {
+	public static final LongAdder batches=new LongAdder();
+	public static final LongAdder batchedCalls=new LongAdder();
+
+	private static final ThreadLocal<ExternalBatch> threadBatch=ThreadLocal.withInitial(ExternalBatch::new);
+
+	private int timeArraySize=-1;
+	private final HashSet<Object> sites=new HashSet<Object>();
+	private final HashMap<BatchedFunction, HashMap<ArgumentKey, Result>> results=new HashMap<BatchedFunction, HashMap<ArgumentKey, Result>>();
+
+	static final class Result {
+		final double value;
+		final boolean isInt;
+
+		private Result(double value, boolean isInt){
+			this.value=value;
+			this.isInt=isInt;
+		}
+	}
+
+	/**
+	 * Opens the batch of the thread for a time array of the size.
+	 */
+	public static void open(int timeArraySize){
+		ExternalBatch batch=threadBatch.get();
+		batch.timeArraySize=timeArraySize;
+		batch.sites.clear();
+		batch.results.clear();
+	}
+
+	/**
+	 * Closes the batch of the thread and drops its results.
+	 */
+	public static void close(){
+		ExternalBatch batch=threadBatch.get();
+		batch.timeArraySize=-1;
+		batch.sites.clear();
+		batch.results.clear();
+	}
+
+	/**
+	 * @return the size of the time array of the open batch of the thread, or
+	 *         -1 if it is not open
+	 */
+	public static int timeArraySize(){
+		return threadBatch.get().timeArraySize;
+	}
+
+	/**
+	 * @return true if the batch of the thread is open, the call site has not
+	 *         been run, and the function is a BatchedExternalFunction
+	 */
+	public static boolean isNewSite(Object site, String ident){
+		ExternalBatch batch=threadBatch.get();
+		if (batch.timeArraySize<0 || batch.sites.contains(site)) return false;
+		return ExternalFunctions.batched(ident)!=null;
+	}
+
+	/**
+	 * Evaluates the calls of a call site that have no result in one callBatch
+	 * of the function and keeps their results. The calls with a NaN argument
+	 * are left out. If the batch fails, the error is reported and the calls are
+	 * left to the function.
+	 */
+	public static void run(Object site, String ident, ArrayList<ExternalArgs> calls){
+		ExternalBatch batch=threadBatch.get();
+		batch.sites.add(site);
+		BatchedFunction function=ExternalFunctions.batched(ident);
+		if (function==null) return;
+		HashMap<ArgumentKey, Result> functionResults=batch.results.get(function);
+		if (functionResults==null){
+			functionResults=new HashMap<ArgumentKey, Result>();
+			batch.results.put(function, functionResults);
+		}
+		LinkedHashMap<ArgumentKey, ExternalArgs> pending=new LinkedHashMap<ArgumentKey, ExternalArgs>();
+		for (ExternalArgs args: calls){
+			if (hasNaN(args)) continue;
+			ArgumentKey key=new ArgumentKey(args);
+			if (!functionResults.containsKey(key) && !pending.containsKey(key)) pending.put(key, args);
+		}
+		int count=pending.size();
+		if (count==0) return;
+		ExternalArgs[] batchArgs=pending.values().toArray(new ExternalArgs[count]);
+		double[] values=new double[count];
+		try{
+			function.batched.callBatch(batchArgs, count, values);
+		}catch (RuntimeException e){
+			Error.addEvaluationError("The batch of function "+ident+" has an error: "+e.getMessage());
+			e.printStackTrace();
+			return;
+		}
+		batches.increment();
+		batchedCalls.add(count);
+		int i=0;
+		for (ArgumentKey key: pending.keySet()){
+			functionResults.put(key, new Result(values[i], batchArgs[i].resultIsInt));
+			i++;
+		}
+	}
+
+	static Result result(BatchedFunction function, ExternalArgs args){
+		ExternalBatch batch=threadBatch.get();
+		if (batch.results.isEmpty()) return null;
+		HashMap<ArgumentKey, Result> functionResults=batch.results.get(function);
+		if (functionResults==null) return null;
+		return functionResults.get(new ArgumentKey(args));
+	}
+
+	private static boolean hasNaN(ExternalArgs args){
+		for (int i=0; i<args.size; i++){
+			if (args.arrays[i]==null){
+				if (Double.isNaN(args.values[i])) return true;
+			}else{
+				for (double value: args.arrays[i]){
+					if (Double.isNaN(value)) return true;
+				}
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,16 @@
+package gov.ca.water.wrims.engine.core.external;
+
+/**
+ * A source of external functions found through ServiceLoader, listed in
+ * META-INF/services/gov.ca.water.wrims.engine.core.external.ExternalFunctionProvider
+ * of its jar. The providers are asked before the classes
+ * wrimsv2.external.Function<name>.
+ */
+public interface ExternalFunctionProvider {
+
+	/**
+	 * @return a new instance of the function of the name, or null if the
+	 *         provider does not have it
+	 */
+	TypedExternalFunction create(String name);
+}
@@ -0,0 +1,141 @@
+package gov.ca.water.wrims.engine.core.external;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.ca.water.wrims.engine.core.components.ControlData;
+
+/**
+ * The external functions of a run by name. PreRunModel binds the functions
+ * of all the cycles through bindAll; a function that is not bound then is
+ * bound on its first call. A function comes from the first
+ * ExternalFunctionProvider that has it, else the class
+ * wrimsv2.external.Function<name> is loaded and its constructor is called once
+ * through a MethodHandle. Functions that implement TypedExternalFunction are
+ * called directly, the others through a StackFunctionAdapter. The results of
+ * functions marked PureFunction are reused through a MemoizedFunction, and the
+ * calls of BatchedExternalFunctions go through the ExternalBatch of the
+ * thread. The ExternalFunction instances are also kept in
+ * ControlData.allExternalFunctionMap as before.
+ */
+public class ExternalFunctions {
+	private static final Logger logger = LoggerFactory.getLogger(ExternalFunctions.class);
+	private static final ConcurrentHashMap<String, TypedExternalFunction> functions=new ConcurrentHashMap<String, TypedExternalFunction>();
+	private static ArrayList<ExternalFunctionProvider> providers;
+
+	public static TypedExternalFunction get(String ident) throws Exception{
+		TypedExternalFunction function=functions.get(ident);
+		if (function==null) function=bind(ident, null);
+		return function;
+	}
+
+	/**
+	 * @return the function of the name if it is a BatchedExternalFunction,
+	 *         else null. A function that can not be bound is left to its call,
+	 *         which reports the error.
+	 */
+	static BatchedFunction batched(String ident){
+		TypedExternalFunction function=functions.get(ident);
+		if (function==null){
+			try{
+				function=bind(ident, null);
+			}catch (Exception | LinkageError e){
+				return null;
+			}
+		}
+		return function instanceof BatchedFunction ? (BatchedFunction)function : null;
+	}
+
+	/**
+	 * Binds the functions of the names. Their classes are loaded and
+	 * initialized in parallel, then the functions are made one by one in the
+	 * order of the names. A function that can not be bound is logged and left
+	 * to its first call, which reports the error.
+	 *
+	 * @return the errors of the functions that could not be bound, in the
+	 *         order of the names
+	 */
+	public static LinkedHashMap<String, Throwable> bindAll(Collection<String> names){
+		ConcurrentHashMap<String, MethodHandle> constructors=new ConcurrentHashMap<String, MethodHandle>();
+		names.parallelStream().forEach(name -> {
+			try{
+				constructors.put(name, constructor(name));
+			}catch (Exception | LinkageError e){
+			}
+		});
+		LinkedHashMap<String, Throwable> failed=new LinkedHashMap<String, Throwable>();
+		for (String name: names){
+			if (functions.containsKey(name)) continue;
+			try{
+				bind(name, constructors.get(name));
+			}catch (Exception | LinkageError e){
+				logger.warn("The function {} can not be bound: {}", name, e.toString());
+				failed.put(name, e);
+			}
+		}
+		return failed;
+	}
+
+	private static MethodHandle constructor(String ident) throws Exception{
+		Class<?> functionClass=Class.forName("wrimsv2.external.Function"+ident);
+		return MethodHandles.publicLookup().findConstructor(functionClass, MethodType.methodType(void.class));
+	}
+
+	private static synchronized TypedExternalFunction bind(String ident, MethodHandle constructor) throws Exception{
+		TypedExternalFunction function=functions.get(ident);
+		if (function!=null) return function;
+
+		Object instance=ControlData.allExternalFunctionMap.get(ident);
+		if (instance==null){
+			for (ExternalFunctionProvider provider: providers()){
+				instance=provider.create(ident);
+				if (instance!=null) break;
+			}
+		}
+		if (instance==null){
+			if (constructor==null) constructor=constructor(ident);
+			try{
+				instance=constructor.invoke();
+			}catch (Exception | Error e){
+				throw e;
+			}catch (Throwable t){
+				throw new Exception(t);
+			}
+			if (instance instanceof ExternalFunction){
+				ControlData.allExternalFunctionMap.put(ident, (ExternalFunction)instance);
+			}
+		}
+		if (instance instanceof TypedExternalFunction){
+			function=(TypedExternalFunction)instance;
+		}else{
+			function=new StackFunctionAdapter((ExternalFunction)instance);
+		}
+		if (instance.getClass().isAnnotationPresent(PureFunction.class)){
+			function=new MemoizedFunction(function);
+		}
+		if (instance instanceof BatchedExternalFunction){
+			function=new BatchedFunction((BatchedExternalFunction)instance, function);
+		}
+		functions.put(ident, function);
+		return function;
+	}
+
+	private static ArrayList<ExternalFunctionProvider> providers(){
+		if (providers==null){
+			providers=new ArrayList<ExternalFunctionProvider>();
+			for (ExternalFunctionProvider provider: ServiceLoader.load(ExternalFunctionProvider.class)){
+				providers.add(provider);
+			}
+		}
+		return providers;
+	}
+}
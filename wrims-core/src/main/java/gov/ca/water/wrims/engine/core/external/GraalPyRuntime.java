@@ -0,0 +1,47 @@
+package gov.ca.water.wrims.engine.core.external;
+
+import java.util.HashMap;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Value;
+import org.graalvm.python.embedding.GraalPyResources;
+
+/**
+ * A GraalPy context with the external folder in sys.path. Each function is
+ * looked up once and kept as a Value, which is executed with the arguments as
+ * host objects.
+ */
+public class GraalPyRuntime implements PythonRuntime {
+	private final Context context;
+	private final Value importModule;
+	private final HashMap<String, Value> functions=new HashMap<String, Value>();
+
+	public GraalPyRuntime(String path, String[] modules){
+		context = GraalPyResources.contextBuilder().allowAllAccess(true).build();
+		Value bindings = context.getBindings("python");
+		bindings.putMember("wrims_path", path);
+		context.eval("python", "import sys");
+		context.eval("python", "sys.path.append(wrims_path)");
+		context.eval("python", "import importlib");
+		importModule = bindings.getMember("importlib").getMember("import_module");
+		for (String module: modules){
+			importModule.execute(module);
+		}
+	}
+
+	@Override
+	public double call(String module, String function, Object... args){
+		String key=module+"."+function;
+		Value f=functions.get(key);
+		if (f==null){
+			f=importModule.execute(module).getMember(function);
+			functions.put(key, f);
+		}
+		return f.execute(args).asDouble();
+	}
+
+	@Override
+	public void close(){
+		context.close();
+	}
+}
@@ -0,0 +1,56 @@
+package gov.ca.water.wrims.engine.core.external;
+
+import java.util.HashMap;
+
+import jep.Jep;
+import jep.JepConfig;
+import jep.JepException;
+
+/**
+ * A JEP interpreter with the external folder in its path. A Jep can only be
+ * used by the thread that made it. Each function is looked up once and kept
+ * under a global name, so a call passes the arguments to it as Java objects.
+ */
+public class JepRuntime implements PythonRuntime {
+	private static boolean libraryLoaded=false;
+
+	private final Jep jep;
+	private final HashMap<String, String> functionNames=new HashMap<String, String>();
+
+	public JepRuntime(String path, String[] modules) throws JepException{
+		loadLibrary();
+		JepConfig cfg = new JepConfig();
+		cfg.addSharedModules("numpy", "pandas");
+		cfg.addIncludePaths(path);
+		jep = new Jep(cfg);
+		for (String module: modules){
+			jep.eval("import "+module);
+		}
+	}
+
+	private static synchronized void loadLibrary(){
+		if (!libraryLoaded){
+			new LoadDll("jep.dll");
+			libraryLoaded=true;
+		}
+	}
+
+	@Override
+	public double call(String module, String function, Object... args) throws JepException{
+		String key=module+"."+function;
+		String name=functionNames.get(key);
+		if (name==null){
+			name="wrims_function_"+functionNames.size();
+			jep.eval("import "+module);
+			jep.eval(name+" = "+key);
+			functionNames.put(key, name);
+		}
+		Object result=jep.invoke(name, args);
+		return ((Number)result).doubleValue();
+	}
+
+	@Override
+	public void close() throws JepException{
+		jep.close();
+	}
+}
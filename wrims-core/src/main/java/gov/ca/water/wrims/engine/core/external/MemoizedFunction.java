@@ -0,0 +1,83 @@
+package gov.ca.water.wrims.engine.core.external;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import gov.ca.water.wrims.engine.core.components.ControlData;
+
+/**
+ * The results of a PureFunction in the current time step and cycle, in a
+ * table of MAX_ENTRIES slots by the hash of the arguments. A call whose
+ * arguments equal those of its slot returns the result of the slot; other
+ * calls call the function and replace the slot. Calls that write values back
+ * to their arguments are not kept.
+ */
+public class MemoizedFunction implements TypedExternalFunction {
+	public static final LongAdder hits=new LongAdder();
+	public static final LongAdder misses=new LongAdder();
+
+	private static final int SLOT_BITS=12;
+	private static final int MAX_ENTRIES=1<<SLOT_BITS;
+
+	private final TypedExternalFunction function;
+	private final Entry[] entries=new Entry[MAX_ENTRIES];
+	private int year;
+	private int month;
+	private int day;
+	private int cycleIndex=-1;
+
+	private static final class Entry {
+		private final ArgumentKey key;
+		private final double result;
+		private final boolean resultIsInt;
+
+		private Entry(long hash, ExternalArgs args, double result){
+			key=new ArgumentKey(hash, args);
+			this.result=result;
+			resultIsInt=args.resultIsInt;
+		}
+	}
+
+	public MemoizedFunction(TypedExternalFunction function){
+		this.function=function;
+	}
+
+	public TypedExternalFunction getFunction(){
+		return function;
+	}
+
+	@Override
+	public double call(ExternalArgs args){
+		if (!ControlData.memoizeExternalFunctions) return function.call(args);
+		long hash=ArgumentKey.hash(args);
+		int slot=(int)(hash>>>(64-SLOT_BITS));
+		synchronized (this){
+			if (!isCurrent()){
+				Arrays.fill(entries, null);
+				year=ControlData.currYear;
+				month=ControlData.currMonth;
+				day=ControlData.currDay;
+				cycleIndex=ControlData.currCycleIndex;
+			}
+			Entry entry=entries[slot];
+			if (entry!=null && entry.key.matches(hash, args)){
+				hits.increment();
+				args.resultIsInt=entry.resultIsInt;
+				return entry.result;
+			}
+		}
+		misses.increment();
+		double result=function.call(args);
+		if (!args.writesBack){
+			Entry entry=new Entry(hash, args, result);
+			synchronized (this){
+				if (isCurrent()) entries[slot]=entry;
+			}
+		}
+		return result;
+	}
+
+	private boolean isCurrent(){
+		return year==ControlData.currYear && month==ControlData.currMonth && day==ControlData.currDay && cycleIndex==ControlData.currCycleIndex;
+	}
+}
@@ -0,0 +1,17 @@
+package gov.ca.water.wrims.engine.core.external;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an external function class whose result only depends on its
+ * arguments, so that the results of its calls can be reused in a cycle. Not
+ * for functions that keep state between calls, like the groundwater functions
+ * simgw and initgwsystem.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface PureFunction {
+}
@@ -0,0 +1,18 @@
+package gov.ca.water.wrims.engine.core.external;
+
+/**
+ * A Python interpreter of PythonRuntimes, which is only used on the thread
+ * that made it.
+ */
+public interface PythonRuntime {
+
+	/**
+	 * Calls module.function with the arguments, which are passed as Python
+	 * numbers or, for double[] and float[], as sequences of numbers.
+	 *
+	 * @return the result of the function, which must be a number
+	 */
+	double call(String module, String function, Object... args) throws Exception;
+
+	void close() throws Exception;
+}
@@ -0,0 +1,140 @@
+package gov.ca.water.wrims.engine.core.external;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import gov.ca.water.wrims.engine.core.components.ControlData;
+
+/**
+ * The Python interpreters of the Python external functions, one for each
+ * evaluation thread that calls Python. The calls of an evaluation thread run
+ * on a Python thread of its own, which makes the interpreter on its first
+ * call, with the modules of ControlData.pythonModules imported, and keeps it
+ * warm until close() at the end of a run. A Jep can only be used and closed
+ * by the thread that made it, and the evaluation threads are pool threads
+ * that close() can not run on, so the interpreter lives on its Python thread
+ * rather than on the evaluation thread; the evaluation threads still call
+ * Python in parallel. ControlData.pythonRuntime selects JEP ("jep") or
+ * GraalPy ("graalpy").
+ */
+public class PythonRuntimes {
+	private static final ArrayList<PythonThread> pythonThreads=new ArrayList<PythonThread>();
+	private static ThreadLocal<PythonThread> threadPython=new ThreadLocal<PythonThread>();
+
+	/**
+	 * Makes the interpreter of a Python thread; null makes the runtime of
+	 * ControlData.pythonRuntime.
+	 */
+	static Callable<PythonRuntime> runtimeFactory=null;
+
+	/**
+	 * The Python thread of one evaluation thread and its interpreter, which is
+	 * only used on the Python thread.
+	 */
+	private static final class PythonThread {
+		private final ExecutorService executor;
+		private PythonRuntime runtime;
+
+		private PythonThread(int id){
+			executor=Executors.newSingleThreadExecutor(task -> {
+				Thread thread=new Thread(task, "WRIMS Python "+id);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		private PythonRuntime runtime() throws Exception{
+			if (runtime==null) runtime=newRuntime();
+			return runtime;
+		}
+
+		private Future<?> close(){
+			Future<?> closed=executor.submit(() -> {
+				if (runtime!=null){
+					PythonRuntime closing=runtime;
+					runtime=null;
+					closing.close();
+				}
+				return null;
+			});
+			executor.shutdown();
+			return closed;
+		}
+	}
+
+	/**
+	 * Calls module.function on the Python thread of the calling thread and
+	 * waits for its result.
+	 */
+	public static double call(String module, String function, Object... args) throws Exception{
+		PythonThread python=pythonThread();
+		Future<Double> result=python.executor.submit(() -> python.runtime().call(module, function, args));
+		try{
+			return result.get();
+		}catch (ExecutionException e){
+			if (e.getCause() instanceof Exception) throw (Exception)e.getCause();
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes the interpreters on their Python threads and stops the threads.
+	 * The next call of a thread makes a new interpreter.
+	 */
+	public static synchronized void close(){
+		if (pythonThreads.isEmpty()) return;
+		ArrayList<Future<?>> closed=new ArrayList<Future<?>>();
+		for (PythonThread python: pythonThreads){
+			closed.add(python.close());
+		}
+		pythonThreads.clear();
+		threadPython=new ThreadLocal<PythonThread>();
+		for (Future<?> future: closed){
+			try{
+				future.get();
+			}catch (ExecutionException e){
+				e.getCause().printStackTrace();
+			}catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of interpreters that are open or will be made by the
+	 *         next call of their thread
+	 */
+	static synchronized int size(){
+		return pythonThreads.size();
+	}
+
+	private static synchronized PythonThread pythonThread(){
+		PythonThread python=threadPython.get();
+		if (python==null){
+			python=new PythonThread(pythonThreads.size()+1);
+			pythonThreads.add(python);
+			threadPython.set(python);
+		}
+		return python;
+	}
+
+	private static PythonRuntime newRuntime() throws Exception{
+		if (runtimeFactory!=null) return runtimeFactory.call();
+		String[] modules=modules();
+		if (ControlData.pythonRuntime.equalsIgnoreCase("graalpy")){
+			return new GraalPyRuntime(ExternalFunction.externalDir, modules);
+		}
+		return new JepRuntime(ExternalFunction.externalDir, modules);
+	}
+
+	private static String[] modules(){
+		String modules=ControlData.pythonModules.trim();
+		if (modules.equals("")) return new String[0];
+		return modules.split("\\s*,\\s*");
+	}
+}
@@ -0,0 +1,55 @@
+package gov.ca.water.wrims.engine.core.external;
+
+import java.util.Stack;
+
+/**
+ * Calls an ExternalFunction that only has execute(Stack): the arguments are
+ * pushed as boxed values, and the result and the values the function writes
+ * back to its arguments are popped as before.
+ */
+public class StackFunctionAdapter implements TypedExternalFunction {
+	private final ExternalFunction function;
+
+	public StackFunctionAdapter(ExternalFunction function){
+		this.function=function;
+	}
+
+	public ExternalFunction getFunction(){
+		return function;
+	}
+
+	@Override
+	public double call(ExternalArgs args){
+		Stack stack = new Stack();
+		args.toStack(stack);
+		function.execute(stack);
+		if (stack.size()>1){
+			for (int i=0; i<args.size; i++){
+				double[] array=args.arrays[i];
+				if (array==null){
+					if (args.isInt[i]){
+						args.values[i]=(Integer) stack.pop();
+					}else{
+						args.values[i]=(Double) stack.pop();
+					}
+				}else if (args.isInt[i]){
+					int[] valueArray=(int[])stack.pop();
+					for (int j=0; j<array.length; j++){
+						array[j]=valueArray[j];
+					}
+				}else{
+					double[] valueArray=(double[])stack.pop();
+					System.arraycopy(valueArray, 0, array, 0, array.length);
+				}
+			}
+			args.writesBack=true;
+		}
+		String valueString=stack.pop().toString();
+		if (valueString.contains(".")){
+			return Double.parseDouble(valueString);
+		}else{
+			args.resultIsInt=true;
+			return Integer.parseInt(valueString);
+		}
+	}
+}
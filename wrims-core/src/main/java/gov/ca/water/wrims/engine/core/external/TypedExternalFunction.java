@@ -0,0 +1,18 @@
+package gov.ca.water.wrims.engine.core.external;
+
+/**
+ * An external function called with its arguments in primitive buffers instead
+ * of a Stack of boxed values. A function class wrimsv2.external.Function<name>
+ * that implements it is called through call(); other ExternalFunction classes
+ * are called through a StackFunctionAdapter.
+ */
+public interface TypedExternalFunction {
+
+	/**
+	 * @param args the arguments in order. The function sets args.resultIsInt
+	 *             if the result is an integer, and args.writesBack if it has
+	 *             written values back to args.values and args.arrays.
+	 * @return the result of the function
+	 */
+	double call(ExternalArgs args);
+}
@@ -338,7 +338,7 @@ public class HDF5Util {
 			String name=dvTimeArrayList.get(i);
 			vNames[i]=name;
 			Dvar dvar = solverDvMap.get(name);
-			vValues[i]=dvar.getData().getData().doubleValue();
+			vValues[i]=dvar.getData().doubleValue();
 		}
 		
 		int offset=dvSize;
@@ -348,7 +348,7 @@ public class HDF5Util {
 			String name=asIter.next();
 			vNames[offset]=name;
 			Alias as = asFutMap.get(name);
-			vValues[offset]=as.getData().getData().doubleValue();
+			vValues[offset]=as.getData().doubleValue();
 			offset=offset+1;
 		}
 		
@@ -362,7 +362,7 @@ public class HDF5Util {
 			String name=svIter.next();
 			vNames[offset]=name;
 			Svar sv = svFutMap.get(name);
-			vValues[offset]=sv.getData().getData().doubleValue();
+			vValues[offset]=sv.getData().doubleValue();
 			offset=offset+1;
 		}
 		
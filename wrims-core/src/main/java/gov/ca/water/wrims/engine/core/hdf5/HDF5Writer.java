@@ -915,7 +915,7 @@ public static void writeMonthlyTimestepDvarAlias(){
 		for (int i=0; i<dvSize; i++){
 			String name=dvList.get(i);
 						
-			double data = dvMap.get(name).data.getData().doubleValue();
+			double data = dvMap.get(name).data.doubleValue();
 			write_data[0][i]=data;						
 		}
 		
@@ -923,7 +923,7 @@ public static void writeMonthlyTimestepDvarAlias(){
 		for (int i=0; i<asSize; i++){
 			String name=asList.get(i);
 						
-			double data = asMap.get(name).data.getData().doubleValue();
+			double data = asMap.get(name).data.doubleValue();
 			write_data[0][i+offset]=data;						
 		}
 		offset=dvSize+asSize;
@@ -932,7 +932,7 @@ public static void writeMonthlyTimestepDvarAlias(){
 		for (int i=0; i<svSize; i++){
 			String name=svList.get(i);
 						
-			double data = svMap.get(name).getData().getData().doubleValue();
+			double data = svMap.get(name).getData().doubleValue();
 			write_data[0][i]=data;						
 		}
 		
@@ -960,7 +960,7 @@ public static void writeMonthlyTimestepDvarAlias(){
 		for (int i=0; i<dvSize; i++){
 			String name=dvList.get(i);
 						
-			double data = dvMap.get(name).data.getData().doubleValue();
+			double data = dvMap.get(name).data.doubleValue();
 			write_data[0][i]=data;						
 		}
 		
@@ -968,7 +968,7 @@ public static void writeMonthlyTimestepDvarAlias(){
 		for (int i=0; i<asSize; i++){
 			String name=asList.get(i);
 						
-			double data = asMap.get(name).data.getData().doubleValue();
+			double data = asMap.get(name).data.doubleValue();
 			write_data[0][i+offset]=data;						
 		}
 		offset=dvSize+asSize;
@@ -977,7 +977,7 @@ public static void writeMonthlyTimestepDvarAlias(){
 		for (int i=0; i<svSize; i++){
 			String name=svList.get(i);
 						
-			double data = svMap.get(name).getData().getData().doubleValue();
+			double data = svMap.get(name).getData().doubleValue();
 			write_data[0][i]=data;						
 		}
 		
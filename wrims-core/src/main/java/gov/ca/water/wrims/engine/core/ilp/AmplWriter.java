@@ -12,6 +12,7 @@ import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.WeightElement;
 import gov.ca.water.wrims.engine.core.components.ControlData;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Param;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
 import gov.ca.water.wrims.engine.core.evaluator.EvalConstraint;
 
 // for LpSolve select 1.Rows 2.Cols 3.Elimeq2 in Presolve
@@ -165,10 +166,9 @@ public class AmplWriter {
 
 				for (String var : sortedTerm) {
 
-					Number coef = constraintMap.get(constraintName).getEvalExpression().getMultiplier().get(var)
-							.getData();
+					IntDouble coef = constraintMap.get(constraintName).getEvalExpression().getMultiplier().get(var);
 					double coefDouble = coef.doubleValue();
-					String coefStr = coef.toString();
+					String coefStr = coef.dataString();
 					String term;
 
 					if (coefDouble == 1.0) {
@@ -195,7 +195,7 @@ public class AmplWriter {
 			// TODO: improve this
 			String sign = constraintMap.get(constraintName).getSign()+"=";
 			sign= sign.replace("==", "=");
-			double val = constraintMap.get(constraintName).getEvalExpression().getValue().getData().doubleValue();
+			double val = constraintMap.get(constraintName).getEvalExpression().getValue().doubleValue();
 
 			if (val == 0) {
 				lhs = constraintName.toUpperCase() + ": " + lhs + " " + sign + " " + "0";
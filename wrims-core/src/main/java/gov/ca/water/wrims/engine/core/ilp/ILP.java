@@ -1082,7 +1082,7 @@ public class ILP {
 		
 		for (String s : sortedTerm){
 			String svName = String.format("%-35s", s);
-			double v =svMap.get(s).getData().getData().doubleValue();
+			double v =svMap.get(s).getData().doubleValue();
 			if (loggingVariableValueRound) v = Math.round(v);
 			if (loggingVariableValueRound10) {v = Math.round(v/10)*10;}
 			// TODO: improve speed
@@ -10,6 +10,7 @@ import gov.ca.water.wrims.engine.core.commondata.solverdata.SolverData;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.WeightElement;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Param;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
 import gov.ca.water.wrims.engine.core.evaluator.EvalConstraint;
 
 // for LpSolve select 1.Rows 2.Cols 3.Elimeq2 in Presolve
@@ -107,10 +108,9 @@ public class LpSolveWriter {
 
 				for (String var : sortedTerm) {
 
-					Number coef = constraintMap.get(constraintName).getEvalExpression().getMultiplier().get(var)
-							.getData();
+					IntDouble coef = constraintMap.get(constraintName).getEvalExpression().getMultiplier().get(var);
 					double coefDouble = coef.doubleValue();
-					String coefStr = coef.toString();
+					String coefStr = coef.dataString();
 					String term;
 
 					if (coefDouble == 1.0) {
@@ -135,7 +135,7 @@ public class LpSolveWriter {
 			}
 
 			String sign = constraintMap.get(constraintName).getSign();
-			double val = constraintMap.get(constraintName).getEvalExpression().getValue().getData().doubleValue();
+			double val = constraintMap.get(constraintName).getEvalExpression().getValue().doubleValue();
 
 			if (val == 0) {
 				lhs = constraintName + ": " + lhs + " " + sign + " " + "0";
@@ -0,0 +1,120 @@
+package gov.ca.water.wrims.engine.core.parallel;
+
+import java.util.ArrayList;
+
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+
+/**
+ * The evaluation state of one item (svar, dvar, goal, weight or timeseries) of
+ * a task of this package: the name and type of the item, the ignoreError flag
+ * of sum loops, and the errors and updates of shared data of the item in the
+ * order they happen. A task enters the context of an item on its thread. While
+ * it is entered, Error.addEvaluationError and the evaluators use the context
+ * instead of ControlData.currEvalName, currEvalTypeIndex and ignoreError.
+ *
+ * After the task, report(contexts) replays the errors and updates of the items
+ * on the calling thread in the order of the items, so that the results and the
+ * errors do not depend on the number of threads.
+ */
+public class EvaluationContext {
+	private static final ThreadLocal<EvaluationContext> current=new ThreadLocal<EvaluationContext>();
+
+	public final int evalTypeIndex;
+	public final String evalName;
+	public boolean ignoreError=false;
+	private ArrayList<Object> entries=new ArrayList<Object>();
+	private int errorCount=0;
+
+	public EvaluationContext(int evalTypeIndex, String evalName){
+		this.evalTypeIndex=evalTypeIndex;
+		this.evalName=evalName;
+	}
+
+	public void enter(){
+		current.set(this);
+	}
+
+	public void exit(){
+		current.remove();
+	}
+
+	/**
+	 * @return the context entered on this thread, or null
+	 */
+	public static EvaluationContext current(){
+		return current.get();
+	}
+
+	public void addError(String error){
+		entries.add(error);
+		errorCount++;
+	}
+
+	public int errorCount(){
+		return errorCount;
+	}
+	
+	/**
+	 * @return the errors added since the last report
+	 */
+	public ArrayList<String> errors(){
+		ArrayList<String> errors=new ArrayList<String>();
+		for (Object entry: entries){
+			if (entry instanceof String) errors.add((String)entry);
+		}
+		return errors;
+	}
+
+	/**
+	 * Adds an update of data that is shared by the items of the task. It is run
+	 * by report() on the calling thread, after the errors that were added
+	 * before it.
+	 */
+	public void update(Runnable update){
+		entries.add(update);
+	}
+
+	public void report(){
+		ControlData.currEvalTypeIndex=evalTypeIndex;
+		ControlData.currEvalName=evalName;
+		for (Object entry: entries){
+			if (entry instanceof Runnable){
+				((Runnable)entry).run();
+			}else{
+				Error.addEvaluationError((String)entry);
+			}
+		}
+		entries=new ArrayList<Object>();
+	}
+
+	public static void report(EvaluationContext[] contexts){
+		for (EvaluationContext context: contexts){
+			if (context!=null) context.report();
+		}
+	}
+
+	public static String evalName(){
+		EvaluationContext context=current.get();
+		return context==null ? ControlData.currEvalName : context.evalName;
+	}
+
+	public static int evalTypeIndex(){
+		EvaluationContext context=current.get();
+		return context==null ? ControlData.currEvalTypeIndex : context.evalTypeIndex;
+	}
+
+	public static boolean ignoreError(){
+		EvaluationContext context=current.get();
+		return context==null ? ControlData.ignoreError : context.ignoreError;
+	}
+
+	public static void setIgnoreError(boolean ignoreError){
+		EvaluationContext context=current.get();
+		if (context==null){
+			ControlData.ignoreError=ignoreError;
+		}else{
+			context.ignoreError=ignoreError;
+		}
+	}
+}
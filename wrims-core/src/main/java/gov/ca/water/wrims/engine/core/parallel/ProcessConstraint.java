@@ -11,10 +11,12 @@ import org.antlr.runtime.RecognitionException;
 // import com.sun.java.util.collections.Collection;
 // import com.sun.java.util.collections.Collections;
 
+import gov.ca.water.wrims.engine.core.commondata.wresldata.FutureKey;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Goal;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.TimeArray;
 import gov.ca.water.wrims.engine.core.components.ControlData;
 import gov.ca.water.wrims.engine.core.components.Error;
+import gov.ca.water.wrims.engine.core.evaluator.CompiledExpression;
 import gov.ca.water.wrims.engine.core.evaluator.EvalConstraint;
 import gov.ca.water.wrims.engine.core.evaluator.EvaluatorParser;
 import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluatorParser;
@@ -31,8 +33,9 @@ public class ProcessConstraint extends RecursiveTask<Integer>{
     private ArrayList<String> gTimeArrayList;
 	private CopyOnWriteArrayList<String> usedWtSlackSurplusList = new CopyOnWriteArrayList<String>();
 	private CopyOnWriteArrayList<String> usedWtSlackSurplusDvList = new CopyOnWriteArrayList<String>();
+	private EvaluationContext[] contexts;
 	
-    public ProcessConstraint(ArrayList<String> gList, Map<String, Goal> gMap, ConcurrentHashMap<String, EvalConstraint> solverGMap, ArrayList<String> gTimeArrayList, CopyOnWriteArrayList<String> usedWtSlackSurplusList, CopyOnWriteArrayList<String> usedWtSlackSurplusDvList, int start, int end) {
+    public ProcessConstraint(ArrayList<String> gList, Map<String, Goal> gMap, ConcurrentHashMap<String, EvalConstraint> solverGMap, ArrayList<String> gTimeArrayList, CopyOnWriteArrayList<String> usedWtSlackSurplusList, CopyOnWriteArrayList<String> usedWtSlackSurplusDvList, EvaluationContext[] contexts, int start, int end) {
         this.start = start;
         this.end = end;
         this.gList=gList;
@@ -41,6 +44,7 @@ public class ProcessConstraint extends RecursiveTask<Integer>{
         this.gTimeArrayList=gTimeArrayList;
         this.usedWtSlackSurplusList=usedWtSlackSurplusList;
         this.usedWtSlackSurplusDvList=usedWtSlackSurplusDvList;
+        this.contexts=contexts;
 		threshold=(int) Math.ceil(gList.size()*1.0/ControlData.nThreads);
     }
  
@@ -59,7 +63,7 @@ public class ProcessConstraint extends RecursiveTask<Integer>{
             	}else{
             		subEnd=Math.min(end, (i+1)*threshold-1);
             	}
-            	subTasks.add(new ProcessConstraint(gList, gMap, solverGMap, gTimeArrayList, usedWtSlackSurplusList, usedWtSlackSurplusDvList, subStart, subEnd));
+            	subTasks.add(new ProcessConstraint(gList, gMap, solverGMap, gTimeArrayList, usedWtSlackSurplusList, usedWtSlackSurplusDvList, contexts, subStart, subEnd));
             }
             
             for(ProcessConstraint subtask : subTasks){
@@ -80,87 +84,58 @@ public class ProcessConstraint extends RecursiveTask<Integer>{
     protected int computeDirectly() {
     	for (int ii=start; ii<=end; ii++){
     		String goalName=gList.get(ii);
-			ControlData.currEvalName=goalName;
-			if (ControlData.showRunTimeMessage) System.out.println("Processing constraint "+goalName);
-			Goal goal=gMap.get(goalName);
-			ArrayList<ValueEvaluatorParser> caseConditions=goal.caseConditionParsers;
-			
-			int timeArraySize=new TimeArray().getTimeArraySize(goal.timeArraySizeParser);
-			ParallelVars prvs = new ParallelVars();
-			for (prvs.timeArrayIndex=1; prvs.timeArrayIndex<=timeArraySize; prvs.timeArrayIndex++){
-				Goal newGoal=new Goal();
-				String newGoalName=goalName+"__fut__"+prvs.timeArrayIndex;
-				
-				boolean condition=false;
-				int i=-1;
-				while(!condition && i<=caseConditions.size()-2){
-					i=i+1;
-					ValueEvaluatorParser caseCondition=caseConditions.get(i);
-					caseCondition.setParallelVars(prvs);
-					try{
-						caseCondition.evaluator();
-						condition=caseCondition.evalCondition;
-					}catch (Exception e){
-						Error.addEvaluationError("Case condition evaluation of time array constraint "+newGoalName+" has error.");
-						condition=false;
-					}
-					caseCondition.reset();
-				}
-				if (condition){		
-					ArrayList<EvaluatorParser> caseExpressions=goal.caseExpressionParsers;
-					EvaluatorParser caseExpression=caseExpressions.get(i);
-					caseExpression.setParallelVars(prvs);
-					try {
-						caseExpression.evaluator();
-						if (solverGMap.containsKey(newGoalName)){
-							Error.addEvaluationError(newGoalName+" is duplicatedly used in both goal and time array goal");
-						}else{	
-							solverGMap.put(newGoalName,caseExpression.evalConstraint.copyOf());
-							gTimeArrayList.add(newGoalName);
-						}
-					} catch (RecognitionException e) {
-						Error.addEvaluationError("Case expression evaluation has error.");
-					}
-					caseExpression.reset();
-					
-					// add slack or surplus as dvar and weight
-					if (goal.dvarWeightMapList.size()>i && goal.dvarWeightMapList.get(i)!=null ){
-						ArrayList<String> dwl = goal.dvarSlackSurplusList.get(i);
-						for (int j=0; j<dwl.size();j++){
-							String dwlItem=dwl.get(j);
-							String usedWtSlackSurplusName=dwlItem+"__fut__"+prvs.timeArrayIndex;
-							usedWtSlackSurplusList.add(usedWtSlackSurplusName);
-							if (!usedWtSlackSurplusDvList.contains(dwlItem)){
-								usedWtSlackSurplusDvList.add(dwlItem);
-							}
-						}
-					}
-				}
+			EvaluationContext context=new EvaluationContext(3, goalName);
+			contexts[ii]=context;
+			context.enter();
+			try{
+				processConstraint(goalName, context);
+			}finally{
+				context.exit();
 			}
+		}
+		
+    	return 1;
+    }
+
+    private void processConstraint(String goalName, EvaluationContext context){
+		if (ControlData.showRunTimeMessage) System.out.println("Processing constraint "+goalName);
+		Goal goal=gMap.get(goalName);
+		ArrayList<ValueEvaluatorParser> caseConditions=goal.caseConditionParsers;
+		
+		int timeArraySize=new TimeArray().getTimeArraySize(goal.timeArraySizeParser, goal.timeArraySizeCompiled);
+		ParallelVars prvs = new ParallelVars();
+		for (prvs.timeArrayIndex=1; prvs.timeArrayIndex<=timeArraySize; prvs.timeArrayIndex++){
+			Goal newGoal=new Goal();
+			String newGoalName=FutureKey.name(goalName, prvs.timeArrayIndex);
 			
-			prvs.timeArrayIndex=0;
 			boolean condition=false;
 			int i=-1;
 			while(!condition && i<=caseConditions.size()-2){
 				i=i+1;
 				ValueEvaluatorParser caseCondition=caseConditions.get(i);
+				CompiledExpression compiledCondition=goal.caseConditionCompiled.get(i);
 				caseCondition.setParallelVars(prvs);
 				try{
-					caseCondition.evaluator();
-					condition=caseCondition.evalCondition;
+					if (compiledCondition!=null){
+						condition=compiledCondition.evaluateCondition(prvs);
+					}else{
+						caseCondition.evaluator();
+						condition=caseCondition.evalCondition;
+					}
 				}catch (Exception e){
-					Error.addEvaluationError("Case condition evaluation has error.");
+					Error.addEvaluationError("Case condition evaluation of time array constraint "+newGoalName+" has error.");
 					condition=false;
 				}
 				caseCondition.reset();
 			}
 			if (condition){		
 				ArrayList<EvaluatorParser> caseExpressions=goal.caseExpressionParsers;
-				EvaluatorParser caseExpression=caseExpressions.get(i);	
+				EvaluatorParser caseExpression=caseExpressions.get(i);
 				caseExpression.setParallelVars(prvs);
 				try {
 					caseExpression.evaluator();
-					solverGMap.put(goalName,caseExpression.evalConstraint);
+					EvalConstraint evalConstraint=caseExpression.evalConstraint.copyOf();
+					context.update(() -> addTimeArrayConstraint(newGoalName, evalConstraint));
 				} catch (RecognitionException e) {
 					Error.addEvaluationError("Case expression evaluation has error.");
 				}
@@ -169,18 +144,70 @@ public class ProcessConstraint extends RecursiveTask<Integer>{
 				// add slack or surplus as dvar and weight
 				if (goal.dvarWeightMapList.size()>i && goal.dvarWeightMapList.get(i)!=null ){
 					ArrayList<String> dwl = goal.dvarSlackSurplusList.get(i);
-					usedWtSlackSurplusList.addAll(dwl);
-					for (int j=0; j<dwl.size();j++){
-						String dwlItem=dwl.get(j);
-						if (!usedWtSlackSurplusDvList.contains(dwlItem)){
-							usedWtSlackSurplusDvList.add(dwlItem);
-						}
-					}
-					
+					int timeArrayIndex=prvs.timeArrayIndex;
+					context.update(() -> addSlackSurplus(dwl, timeArrayIndex));
 				}
 			}
 		}
 		
-    	return 1;
+		prvs.timeArrayIndex=0;
+		boolean condition=false;
+		int i=-1;
+		while(!condition && i<=caseConditions.size()-2){
+			i=i+1;
+			ValueEvaluatorParser caseCondition=caseConditions.get(i);
+			CompiledExpression compiledCondition=goal.caseConditionCompiled.get(i);
+			caseCondition.setParallelVars(prvs);
+			try{
+				if (compiledCondition!=null){
+					condition=compiledCondition.evaluateCondition(prvs);
+				}else{
+					caseCondition.evaluator();
+					condition=caseCondition.evalCondition;
+				}
+			}catch (Exception e){
+				Error.addEvaluationError("Case condition evaluation has error.");
+				condition=false;
+			}
+			caseCondition.reset();
+		}
+		if (condition){		
+			ArrayList<EvaluatorParser> caseExpressions=goal.caseExpressionParsers;
+			EvaluatorParser caseExpression=caseExpressions.get(i);	
+			caseExpression.setParallelVars(prvs);
+			try {
+				caseExpression.evaluator();
+				EvalConstraint evalConstraint=caseExpression.evalConstraint;
+				context.update(() -> solverGMap.put(goalName, evalConstraint));
+			} catch (RecognitionException e) {
+				Error.addEvaluationError("Case expression evaluation has error.");
+			}
+			caseExpression.reset();
+			
+			// add slack or surplus as dvar and weight
+			if (goal.dvarWeightMapList.size()>i && goal.dvarWeightMapList.get(i)!=null ){
+				ArrayList<String> dwl = goal.dvarSlackSurplusList.get(i);
+				context.update(() -> addSlackSurplus(dwl, 0));
+			}
+		}
+    }
+
+    private void addTimeArrayConstraint(String newGoalName, EvalConstraint evalConstraint){
+		if (solverGMap.containsKey(newGoalName)){
+			Error.addEvaluationError(newGoalName+" is duplicatedly used in both goal and time array goal");
+		}else{	
+			solverGMap.put(newGoalName, evalConstraint);
+			gTimeArrayList.add(newGoalName);
+		}
+    }
+
+    private void addSlackSurplus(ArrayList<String> dwl, int timeArrayIndex){
+		for (int j=0; j<dwl.size();j++){
+			String dwlItem=dwl.get(j);
+			usedWtSlackSurplusList.add(timeArrayIndex==0 ? dwlItem : FutureKey.name(dwlItem, timeArrayIndex));
+			if (!usedWtSlackSurplusDvList.contains(dwlItem)){
+				usedWtSlackSurplusDvList.add(dwlItem);
+			}
+		}
     }
 }
@@ -10,6 +10,7 @@ import java.util.concurrent.RecursiveTask;
 import org.antlr.runtime.RecognitionException;
 
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.FutureKey;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.TimeArray;
 import gov.ca.water.wrims.engine.core.components.ControlData;
 import gov.ca.water.wrims.engine.core.components.Error;
@@ -29,8 +30,9 @@ public class ProcessDvar extends RecursiveTask<Integer>{
     private Set<String> dvarTimeArrayUsedByLaterCycle;
 	private ArrayList<String> varCycleIndexList;
 	private ArrayList<String> dvarTimeArrayCycleIndexList;
+	private EvaluationContext[] contexts;
 	
-    public ProcessDvar(ArrayList<String> dvList, Map<String, Dvar> dvMap, ConcurrentHashMap<String, Dvar> solverDvarMap, ArrayList<String> timeArrayDvList, ArrayList<String> dvTimeArrayList2, Set<String> dvarUsedByLaterCycle, Set<String> dvarTimeArrayUsedByLaterCycle, ArrayList<String> varCycleIndexList, ArrayList<String> dvarTimeArrayCycleIndexList, int start, int end) {
+    public ProcessDvar(ArrayList<String> dvList, Map<String, Dvar> dvMap, ConcurrentHashMap<String, Dvar> solverDvarMap, ArrayList<String> timeArrayDvList, ArrayList<String> dvTimeArrayList2, Set<String> dvarUsedByLaterCycle, Set<String> dvarTimeArrayUsedByLaterCycle, ArrayList<String> varCycleIndexList, ArrayList<String> dvarTimeArrayCycleIndexList, EvaluationContext[] contexts, int start, int end) {
         this.start = start;
         this.end = end;
         this.dvList=dvList;
@@ -42,6 +44,7 @@ public class ProcessDvar extends RecursiveTask<Integer>{
         this.dvarTimeArrayUsedByLaterCycle=dvarTimeArrayUsedByLaterCycle;
         this.varCycleIndexList=varCycleIndexList;
         this.dvarTimeArrayCycleIndexList=dvarTimeArrayCycleIndexList;
+        this.contexts=contexts;
 		threshold=(int) Math.ceil(dvList.size()*1.0/ControlData.nThreads);
     }
  
@@ -60,7 +63,7 @@ public class ProcessDvar extends RecursiveTask<Integer>{
             	}else{
             		subEnd=Math.min(end, (i+1)*threshold-1);
             	}
-            	subTasks.add(new ProcessDvar(dvList, dvMap, solverDvarMap, timeArrayDvList, dvTimeArrayList, dvarUsedByLaterCycle, dvarTimeArrayUsedByLaterCycle, varCycleIndexList, dvarTimeArrayCycleIndexList, subStart, subEnd));
+            	subTasks.add(new ProcessDvar(dvList, dvMap, solverDvarMap, timeArrayDvList, dvTimeArrayList, dvarUsedByLaterCycle, dvarTimeArrayUsedByLaterCycle, varCycleIndexList, dvarTimeArrayCycleIndexList, contexts, subStart, subEnd));
             }
  
             //ProcessDvar subTask1 = new ProcessDvar(dvList, dvMap, solverDvarMap, timeArrayDvList, dvTimeArrayList, dvarUsedByLaterCycle, dvarTimeArrayUsedByLaterCycle, varCycleIndexList, dvarTimeArrayCycleIndexList, start, middle);
@@ -81,85 +84,116 @@ public class ProcessDvar extends RecursiveTask<Integer>{
     protected int computeDirectly() {
     	for (int ii=start; ii<=end; ii++){
 			String dvName = dvList.get(ii);
-			ControlData.currEvalName=dvName;
-			if (ControlData.showRunTimeMessage) System.out.println("Processing dvar "+dvName);
-			Dvar dvar=dvMap.get(dvName);
+			EvaluationContext context=new EvaluationContext(1, dvName);
+			contexts[ii]=context;
+			context.enter();
+			try{
+				processDvar(ii, dvName, context);
+			}finally{
+				context.exit();
+			}
+		}
 		
-			ValueEvaluatorParser evaluator=dvar.lowerBoundParser;
-			ParallelVars prvs = new ParallelVars();
-			evaluator.setParallelVars(prvs);
-			prvs.timeArrayIndex=0;
-			try {
+    	return 1;
+    }
+
+    private void processDvar(int ii, String dvName, EvaluationContext context){
+		if (ControlData.showRunTimeMessage) System.out.println("Processing dvar "+dvName);
+		Dvar dvar=dvMap.get(dvName);
+	
+		ValueEvaluatorParser evaluator=dvar.lowerBoundParser;
+		ParallelVars prvs = new ParallelVars();
+		evaluator.setParallelVars(prvs);
+		prvs.timeArrayIndex=0;
+		try {
+			if (dvar.lowerBoundCompiled!=null){
+				dvar.lowerBoundValue=dvar.lowerBoundCompiled.evaluateValue(prvs).doubleValue();
+			}else{
 				evaluator.evaluator();
-				dvar.lowerBoundValue=evaluator.evalValue.getData().doubleValue();
-			} catch (RecognitionException e) {
-				Error.addEvaluationError("Lowerbound evaluation has error.");
-				dvar.lowerBoundValue=-901.0;
+				dvar.lowerBoundValue=evaluator.evalValue.doubleValue();
 			}
-			evaluator.reset();
-			
-			evaluator =dvar.upperBoundParser;
-			evaluator.setParallelVars(prvs);
-			prvs.timeArrayIndex=0;
-			try {
+		} catch (RecognitionException e) {
+			Error.addEvaluationError("Lowerbound evaluation has error.");
+			dvar.lowerBoundValue=-901.0;
+		}
+		evaluator.reset();
+		
+		evaluator =dvar.upperBoundParser;
+		evaluator.setParallelVars(prvs);
+		prvs.timeArrayIndex=0;
+		try {
+			if (dvar.upperBoundCompiled!=null){
+				dvar.upperBoundValue=dvar.upperBoundCompiled.evaluateValue(prvs).doubleValue();
+			}else{
 				evaluator.evaluator();
-				dvar.upperBoundValue=evaluator.evalValue.getData().doubleValue();
-			} catch (RecognitionException e) {
-				Error.addEvaluationError("Lowerbound evaluation has error.");
-				dvar.lowerBoundValue=-901.0;
+				dvar.upperBoundValue=evaluator.evalValue.doubleValue();
 			}
-			evaluator.reset();
-			solverDvarMap.put(dvName, dvar);
-			
-			int timeArraySize=new TimeArray().getTimeArraySize(dvar.timeArraySizeParser);
-			if (!dvar.timeArraySize.equals("0") && !timeArrayDvList.contains(dvName)){
-				timeArrayDvList.add(dvName);
-			
-				for (prvs.timeArrayIndex=1; prvs.timeArrayIndex<=timeArraySize; prvs.timeArrayIndex++){
-					Dvar newDvar=new Dvar();
-					String newDvarName = dvName+"__fut__"+prvs.timeArrayIndex;
-					newDvar.kind=dvar.kind;
-					newDvar.units=dvar.units;
-					newDvar.integer=dvar.integer;
-			
-					evaluator=dvar.lowerBoundParser;
-					evaluator.setParallelVars(prvs);
-					try {
-						evaluator.evaluator();
-						newDvar.lowerBoundValue=evaluator.evalValue.getData().doubleValue();
-					} catch (RecognitionException e) {
-						Error.addEvaluationError("Lowerbound evaluation of time array dvar has error.");
-						newDvar.lowerBoundValue=-901.0;
-					}
-					evaluator.reset();
-			
-					evaluator =dvar.upperBoundParser;
-					evaluator.setParallelVars(prvs);
-					try {
+		} catch (RecognitionException e) {
+			Error.addEvaluationError("Lowerbound evaluation has error.");
+			dvar.lowerBoundValue=-901.0;
+		}
+		evaluator.reset();
+		context.update(() -> solverDvarMap.put(dvName, dvar));
+		
+		int timeArraySize=new TimeArray().getTimeArraySize(dvar.timeArraySizeParser, dvar.timeArraySizeCompiled);
+		// the first one of the same dvars in the list adds the time array
+		if (!dvar.timeArraySize.equals("0") && dvList.indexOf(dvName)==ii){
+			context.update(() -> timeArrayDvList.add(dvName));
+		
+			for (prvs.timeArrayIndex=1; prvs.timeArrayIndex<=timeArraySize; prvs.timeArrayIndex++){
+				Dvar newDvar=new Dvar();
+				String newDvarName = FutureKey.name(dvName, prvs.timeArrayIndex);
+				newDvar.kind=dvar.kind;
+				newDvar.units=dvar.units;
+				newDvar.integer=dvar.integer;
+		
+				evaluator=dvar.lowerBoundParser;
+				evaluator.setParallelVars(prvs);
+				try {
+					if (dvar.lowerBoundCompiled!=null){
+						newDvar.lowerBoundValue=dvar.lowerBoundCompiled.evaluateValue(prvs).doubleValue();
+					}else{
 						evaluator.evaluator();
-						newDvar.upperBoundValue=evaluator.evalValue.getData().doubleValue();
-					} catch (RecognitionException e) {
-						Error.addEvaluationError("Lowerbound evaluation of time array dvar has error.");
-						newDvar.lowerBoundValue=-901.0;
+						newDvar.lowerBoundValue=evaluator.evalValue.doubleValue();
 					}
-					evaluator.reset();
-					if (solverDvarMap.containsKey(newDvarName)){
-						Error.addEvaluationError(newDvarName+" is duplicatedly used in both dvar and time array dvar");
+				} catch (RecognitionException e) {
+					Error.addEvaluationError("Lowerbound evaluation of time array dvar has error.");
+					newDvar.lowerBoundValue=-901.0;
+				}
+				evaluator.reset();
+		
+				evaluator =dvar.upperBoundParser;
+				evaluator.setParallelVars(prvs);
+				try {
+					if (dvar.upperBoundCompiled!=null){
+						newDvar.upperBoundValue=dvar.upperBoundCompiled.evaluateValue(prvs).doubleValue();
 					}else{
-						solverDvarMap.put(newDvarName, newDvar);
-						dvTimeArrayList.add(newDvarName);
-					}
-			
-					if (dvarUsedByLaterCycle.contains(dvName)){
-						dvarTimeArrayUsedByLaterCycle.add(newDvarName);
-					}
-					if (varCycleIndexList.contains(dvName) && !dvarTimeArrayCycleIndexList.contains(newDvarName)){
-						dvarTimeArrayCycleIndexList.add(newDvarName);
+						evaluator.evaluator();
+						newDvar.upperBoundValue=evaluator.evalValue.doubleValue();
 					}
+				} catch (RecognitionException e) {
+					Error.addEvaluationError("Lowerbound evaluation of time array dvar has error.");
+					newDvar.lowerBoundValue=-901.0;
 				}
+				evaluator.reset();
+				context.update(() -> addTimeArrayDvar(dvName, newDvarName, newDvar));
 			}
 		}
-		
-    	return 1;
+    }
+
+    private void addTimeArrayDvar(String dvName, String newDvarName, Dvar newDvar){
+		if (solverDvarMap.containsKey(newDvarName)){
+			Error.addEvaluationError(newDvarName+" is duplicatedly used in both dvar and time array dvar");
+		}else{
+			solverDvarMap.put(newDvarName, newDvar);
+			dvTimeArrayList.add(newDvarName);
+		}
+
+		if (dvarUsedByLaterCycle.contains(dvName)){
+			dvarTimeArrayUsedByLaterCycle.add(newDvarName);
+		}
+		if (varCycleIndexList.contains(dvName) && !dvarTimeArrayCycleIndexList.contains(newDvarName)){
+			dvarTimeArrayCycleIndexList.add(newDvarName);
+		}
     }
 }
@@ -0,0 +1,95 @@
+package gov.ca.water.wrims.engine.core.parallel;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+
+/**
+ * Evaluates the svars of one level of a SvarSchedule. The values and contexts
+ * are kept by svar list position; ModelDataSet saves the values after the level
+ * and reports the contexts after the last level.
+ */
+public class ProcessSvar extends RecursiveTask<Integer>{
+
+	private int threshold;
+	private int start;
+	private int end;
+	private ArrayList<String> svList;
+	private Map<String, Svar> svMap;
+	private int[] positions;
+	private IntDouble[] values;
+	private EvaluationContext[] contexts;
+
+	public ProcessSvar(ArrayList<String> svList, Map<String, Svar> svMap, int[] positions, IntDouble[] values, EvaluationContext[] contexts, int start, int end) {
+		this.start = start;
+		this.end = end;
+		this.svList=svList;
+		this.svMap=svMap;
+		this.positions=positions;
+		this.values=values;
+		this.contexts=contexts;
+		threshold=(int) Math.ceil(positions.length*1.0/ControlData.nThreads);
+	}
+
+	@Override
+	protected Integer compute() {
+		if (end - start < threshold) {
+			return computeDirectly();
+		} else {
+			ArrayList<ProcessSvar> subTasks=new ArrayList<ProcessSvar>(ControlData.nThreads);
+
+			for (int i=0; i<ControlData.nThreads; i++){
+				int subStart=start+i*threshold;
+				if (subStart>end) break;
+				int subEnd;
+				if (i==ControlData.nThreads-1){
+					subEnd=end;
+				}else{
+					subEnd=Math.min(end, subStart+threshold-1);
+				}
+				subTasks.add(new ProcessSvar(svList, svMap, positions, values, contexts, subStart, subEnd));
+			}
+
+			for(ProcessSvar subtask : subTasks){
+				subtask.fork();
+			}
+
+			int sum=0;
+			for (ProcessSvar subtask : subTasks){
+				sum=sum+subtask.join();
+			}
+			return sum;
+		}
+	}
+
+	protected int computeDirectly() {
+		for (int ii=start; ii<=end; ii++){
+			evaluate(positions[ii], svList, svMap, values, contexts);
+		}
+		return 1;
+	}
+
+	/**
+	 * Evaluates the svar at position p of the svar list into values[p], in the
+	 * context contexts[p].
+	 */
+	public static void evaluate(int p, ArrayList<String> svList, Map<String, Svar> svMap, IntDouble[] values, EvaluationContext[] contexts){
+		String svName=svList.get(p);
+		if (ControlData.showRunTimeMessage) System.out.println("Processing svar "+svName);
+		EvaluationContext context=new EvaluationContext(0, svName);
+		contexts[p]=context;
+		context.enter();
+		try{
+			ParallelVars prvs = new ParallelVars();
+			prvs.timeArrayIndex=0;
+			values[p]=ModelDataSet.evaluateTrackedSvar(svName, svMap.get(svName), prvs);
+		}finally{
+			context.exit();
+		}
+	}
+}
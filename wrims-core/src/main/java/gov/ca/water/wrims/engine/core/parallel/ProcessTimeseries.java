@@ -16,12 +16,14 @@ public class ProcessTimeseries extends RecursiveTask<Integer>{
 	private int end;
 	private ArrayList<String> tList;
 	private Map<String, Timeseries> tMap;
+	private EvaluationContext[] contexts;
 	
-    public ProcessTimeseries(ArrayList<String> tList, Map<String, Timeseries> tMap, int start, int end) {
+    public ProcessTimeseries(ArrayList<String> tList, Map<String, Timeseries> tMap, EvaluationContext[] contexts, int start, int end) {
         this.start = start;
         this.end = end;
         this.tList=tList;
         this.tMap=tMap;
+        this.contexts=contexts;
 		threshold=(int) Math.ceil(tList.size()*1.0/ControlData.nThreads);
     }
  
@@ -40,7 +42,7 @@ public class ProcessTimeseries extends RecursiveTask<Integer>{
             	}else{
             		subEnd=Math.min(end, (i+1)*threshold-1);
             	}
-            	subTasks.add(new ProcessTimeseries(tList, tMap, subStart, subEnd));
+            	subTasks.add(new ProcessTimeseries(tList, tMap, contexts, subStart, subEnd));
             }
  
             //ProcessDvar subTask1 = new ProcessDvar(dvList, dvMap, solverDvarMap, timeArrayDvList, dvTimeArrayList, dvarUsedByLaterCycle, dvarTimeArrayUsedByLaterCycle, varCycleIndexList, dvarTimeArrayCycleIndexList, start, middle);
@@ -61,10 +63,16 @@ public class ProcessTimeseries extends RecursiveTask<Integer>{
     protected int computeDirectly() {
     	for (int ii=start; ii<=end; ii++){
     		String tsName=tList.get(ii);
-			ControlData.currEvalName=tsName;
-			if (ControlData.showRunTimeMessage) System.out.println("Processing timeseries "+tsName);
-			Timeseries ts=tMap.get(tsName);
-			ts.setData(new IntDouble(Evaluation.timeseries(tsName),false));
+			EvaluationContext context=new EvaluationContext(5, tsName);
+			contexts[ii]=context;
+			context.enter();
+			try{
+				if (ControlData.showRunTimeMessage) System.out.println("Processing timeseries "+tsName);
+				Timeseries ts=tMap.get(tsName);
+				ts.setData(new IntDouble(Evaluation.timeseries(tsName),false));
+			}finally{
+				context.exit();
+			}
 		}		
     	return 1;
     }
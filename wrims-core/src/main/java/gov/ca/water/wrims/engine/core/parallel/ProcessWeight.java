@@ -7,6 +7,7 @@ import java.util.concurrent.RecursiveTask;
 
 import org.antlr.runtime.RecognitionException;
 
+import gov.ca.water.wrims.engine.core.commondata.wresldata.FutureKey;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.TimeArray;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.WeightElement;
 import gov.ca.water.wrims.engine.core.components.ControlData;
@@ -23,9 +24,11 @@ public class ProcessWeight extends RecursiveTask<Integer>{
 	private Map<String, WeightElement> wtMap;
 	private ConcurrentHashMap<String, WeightElement> solverWtMap;
     private ArrayList<String> wtTimeArrayList;
+	private EvaluationContext[] contexts;
 	
-    public ProcessWeight(ArrayList<String> wtList, Map<String, WeightElement> wtMap, ConcurrentHashMap<String, WeightElement> solverWtMap, ArrayList<String> wtTimeArrayList, int start, int end) {
+    public ProcessWeight(ArrayList<String> wtList, Map<String, WeightElement> wtMap, ConcurrentHashMap<String, WeightElement> solverWtMap, ArrayList<String> wtTimeArrayList, EvaluationContext[] contexts, int start, int end) {
         this.start = start;
+        this.contexts=contexts;
         this.end = end;
         this.wtList=wtList;
         this.wtMap=wtMap;
@@ -49,7 +52,7 @@ public class ProcessWeight extends RecursiveTask<Integer>{
             	}else{
             		subEnd=Math.min(end, (i+1)*threshold-1);
             	}
-            	subTasks.add(new ProcessWeight(wtList, wtMap, solverWtMap, wtTimeArrayList, subStart, subEnd));
+            	subTasks.add(new ProcessWeight(wtList, wtMap, solverWtMap, wtTimeArrayList, contexts, subStart, subEnd));
             }
  
             //ProcessDvar subTask1 = new ProcessDvar(dvList, dvMap, solverDvarMap, timeArrayDvList, dvTimeArrayList, dvarUsedByLaterCycle, dvarTimeArrayUsedByLaterCycle, varCycleIndexList, dvarTimeArrayCycleIndexList, start, middle);
@@ -70,46 +73,68 @@ public class ProcessWeight extends RecursiveTask<Integer>{
     protected int computeDirectly() {
     	for (int ii=start; ii<=end; ii++){
     		String wtName=wtList.get(ii);
-			ControlData.currEvalName=wtName;
-			if (ControlData.showRunTimeMessage) System.out.println("Processing weight "+wtName);
-			WeightElement wt=wtMap.get(wtName);
-			ValueEvaluatorParser evaluator=wt.weightParser;
-			ParallelVars prvs = new ParallelVars();
-			evaluator.setParallelVars(prvs);
-			prvs.timeArrayIndex=0;
-			try {
+			EvaluationContext context=new EvaluationContext(7, wtName);
+			contexts[ii]=context;
+			context.enter();
+			try{
+				processWeight(wtName, context);
+			}finally{
+				context.exit();
+			}
+		}
+		
+    	return 1;
+    }
+
+    private void processWeight(String wtName, EvaluationContext context){
+		if (ControlData.showRunTimeMessage) System.out.println("Processing weight "+wtName);
+		WeightElement wt=wtMap.get(wtName);
+		ValueEvaluatorParser evaluator=wt.weightParser;
+		ParallelVars prvs = new ParallelVars();
+		evaluator.setParallelVars(prvs);
+		prvs.timeArrayIndex=0;
+		try {
+			if (wt.weightCompiled!=null){
+				wt.setValue(wt.weightCompiled.evaluateValue(prvs).doubleValue());
+			}else{
 				evaluator.evaluator();
-				wt.setValue(evaluator.evalValue.getData().doubleValue());
-				WeightEval.collectWtRT(wtName, wt);
-			} catch (RecognitionException e) {
-				Error.addEvaluationError("weight definition has error");
-				wt.setValue(0.0);
+				wt.setValue(evaluator.evalValue.doubleValue());
 			}
-			solverWtMap.put(wtName,wt);
-			evaluator.reset();
-			
-			int timeArraySize=new TimeArray().getTimeArraySize(wt.timeArraySizeParser);
-			for (prvs.timeArrayIndex=1; prvs.timeArrayIndex<=timeArraySize; prvs.timeArrayIndex++){
-				WeightElement newWt=new WeightElement();
-				String newWtName=wtName+"__fut__"+prvs.timeArrayIndex;
-				try {
-					evaluator.evaluator();
-					newWt.setValue(evaluator.evalValue.getData().doubleValue());
-					WeightEval.collectWtRT(newWtName, newWt);
-				} catch (RecognitionException e) {
-					Error.addEvaluationError("time array weight definition "+newWtName+" has error");
-					newWt.setValue(0.0);
-				}
-				if (solverWtMap.containsKey(newWtName)){
-					Error.addEvaluationError(newWtName+" is duplicatedly used in both weight and time array weight");
+			context.update(() -> WeightEval.collectWtRT(wtName, wt));
+		} catch (RecognitionException e) {
+			Error.addEvaluationError("weight definition has error");
+			wt.setValue(0.0);
+		}
+		context.update(() -> solverWtMap.put(wtName, wt));
+		evaluator.reset();
+		
+		int timeArraySize=new TimeArray().getTimeArraySize(wt.timeArraySizeParser, wt.timeArraySizeCompiled);
+		for (prvs.timeArrayIndex=1; prvs.timeArrayIndex<=timeArraySize; prvs.timeArrayIndex++){
+			WeightElement newWt=new WeightElement();
+			String newWtName=FutureKey.name(wtName, prvs.timeArrayIndex);
+			try {
+				if (wt.weightCompiled!=null){
+					newWt.setValue(wt.weightCompiled.evaluateValue(prvs).doubleValue());
 				}else{
-					solverWtMap.put(newWtName,newWt);
-					wtTimeArrayList.add(newWtName);
+					evaluator.evaluator();
+					newWt.setValue(evaluator.evalValue.doubleValue());
 				}
-				evaluator.reset();
+				context.update(() -> WeightEval.collectWtRT(newWtName, newWt));
+			} catch (RecognitionException e) {
+				Error.addEvaluationError("time array weight definition "+newWtName+" has error");
+				newWt.setValue(0.0);
 			}
+			context.update(() -> addTimeArrayWeight(newWtName, newWt));
+			evaluator.reset();
+		}
+    }
+
+    private void addTimeArrayWeight(String newWtName, WeightElement newWt){
+		if (solverWtMap.containsKey(newWtName)){
+			Error.addEvaluationError(newWtName+" is duplicatedly used in both weight and time array weight");
+		}else{
+			solverWtMap.put(newWtName,newWt);
+			wtTimeArrayList.add(newWtName);
 		}
-		
-    	return 1;
     }
 }
@@ -8,6 +8,7 @@ import java.util.concurrent.RecursiveTask;
 
 import org.antlr.runtime.RecognitionException;
 
+import gov.ca.water.wrims.engine.core.commondata.wresldata.FutureKey;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.TimeArray;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.WeightElement;
 import gov.ca.water.wrims.engine.core.components.ControlData;
@@ -23,9 +24,11 @@ public class ProcessWeightSurplusSlack extends RecursiveTask<Integer>{
 	private CopyOnWriteArrayList<String> usedWtSlackSurplusDvList;
 	private Map<String, WeightElement> wtSlackSurplusMap;
 	private ConcurrentHashMap<String, WeightElement> solverWeightSlackSurplusMap;
+	private EvaluationContext[] contexts;
 	
-    public ProcessWeightSurplusSlack(CopyOnWriteArrayList<String> usedWtSlackSurplusDvList, Map<String, WeightElement> wtSlackSurplusMap, ConcurrentHashMap<String, WeightElement> solverWeightSlackSurplusMap, int start, int end) {
+    public ProcessWeightSurplusSlack(CopyOnWriteArrayList<String> usedWtSlackSurplusDvList, Map<String, WeightElement> wtSlackSurplusMap, ConcurrentHashMap<String, WeightElement> solverWeightSlackSurplusMap, EvaluationContext[] contexts, int start, int end) {
         this.start = start;
+        this.contexts=contexts;
         this.end = end;
         this.usedWtSlackSurplusDvList=usedWtSlackSurplusDvList;
         this.wtSlackSurplusMap=wtSlackSurplusMap;
@@ -48,7 +51,7 @@ public class ProcessWeightSurplusSlack extends RecursiveTask<Integer>{
             	}else{
             		subEnd=Math.min(end, (i+1)*threshold-1);
             	}
-            	subTasks.add(new ProcessWeightSurplusSlack(usedWtSlackSurplusDvList, wtSlackSurplusMap, solverWeightSlackSurplusMap, subStart, subEnd));
+            	subTasks.add(new ProcessWeightSurplusSlack(usedWtSlackSurplusDvList, wtSlackSurplusMap, solverWeightSlackSurplusMap, contexts, subStart, subEnd));
             }
  
             //ProcessDvar subTask1 = new ProcessDvar(dvList, dvMap, solverDvarMap, timeArrayDvList, dvTimeArrayList, dvarUsedByLaterCycle, dvarTimeArrayUsedByLaterCycle, varCycleIndexList, dvarTimeArrayCycleIndexList, start, middle);
@@ -68,46 +71,68 @@ public class ProcessWeightSurplusSlack extends RecursiveTask<Integer>{
  
     protected int computeDirectly() {
     	for (int ii=start; ii<=end; ii++){
-    		String wtSlackSurplusName= usedWtSlackSurplusDvList.get(ii);
-    		ControlData.currEvalName=wtSlackSurplusName;
-    		if (ControlData.showRunTimeMessage) System.out.println("Processing weight "+wtSlackSurplusName);
-   			WeightElement wtSlackSurplus=wtSlackSurplusMap.get(wtSlackSurplusName);
-   			ValueEvaluatorParser evaluator=wtSlackSurplus.weightParser;
-   			ParallelVars prvs = new ParallelVars();
-   			evaluator.setParallelVars(prvs);
-   			prvs.timeArrayIndex=0;
-   			try {
-   				evaluator.evaluator();
-   				wtSlackSurplus.setValue(evaluator.evalValue.getData().doubleValue());
-   				WeightEval.collectWtRT(wtSlackSurplusName, wtSlackSurplus);
-   			} catch (RecognitionException e) {
-   				Error.addEvaluationError("slack surplus weight definition has error");
-   				wtSlackSurplus.setValue(0.0);
-   			}
-   			solverWeightSlackSurplusMap.put(wtSlackSurplusName, wtSlackSurplus);
-   			evaluator.reset();
-    		
-   			int timeArraySize=new TimeArray().getTimeArraySize(wtSlackSurplus.timeArraySizeParser);
-   			for (prvs.timeArrayIndex=1; prvs.timeArrayIndex<=timeArraySize; prvs.timeArrayIndex++){
-   				WeightElement newWtSlackSurplus=new WeightElement();
-   				String newWtSlackSurplusName=wtSlackSurplusName+"__fut__"+prvs.timeArrayIndex;
-   				try {
-   					evaluator.evaluator();
-   					newWtSlackSurplus.setValue(evaluator.evalValue.getData().doubleValue());
-   					WeightEval.collectWtRT(newWtSlackSurplusName, newWtSlackSurplus);
-   				} catch (RecognitionException e) {
-   					Error.addEvaluationError("time array slack surplus weight definition "+newWtSlackSurplusName+" has error");
-   					newWtSlackSurplus.setValue(0.0);
-   				}
-   				if (solverWeightSlackSurplusMap.containsKey(newWtSlackSurplusName)){
-   					Error.addEvaluationError(newWtSlackSurplusName+" is duplicatedly used in both slack surplus weight and time array slack surplus weight");
-   				}else{
-   					solverWeightSlackSurplusMap.put(newWtSlackSurplusName,newWtSlackSurplus);
-   				}
-   				evaluator.reset();
-   			}
-    	}
+    		String wtSlackSurplusName=usedWtSlackSurplusDvList.get(ii);
+			EvaluationContext context=new EvaluationContext(7, wtSlackSurplusName);
+			contexts[ii]=context;
+			context.enter();
+			try{
+				processWeight(wtSlackSurplusName, context);
+			}finally{
+				context.exit();
+			}
+		}
 		
     	return 1;
     }
+
+    private void processWeight(String wtSlackSurplusName, EvaluationContext context){
+		if (ControlData.showRunTimeMessage) System.out.println("Processing weight "+wtSlackSurplusName);
+		WeightElement wtSlackSurplus=wtSlackSurplusMap.get(wtSlackSurplusName);
+		ValueEvaluatorParser evaluator=wtSlackSurplus.weightParser;
+		ParallelVars prvs = new ParallelVars();
+		evaluator.setParallelVars(prvs);
+		prvs.timeArrayIndex=0;
+		try {
+			if (wtSlackSurplus.weightCompiled!=null){
+				wtSlackSurplus.setValue(wtSlackSurplus.weightCompiled.evaluateValue(prvs).doubleValue());
+			}else{
+				evaluator.evaluator();
+				wtSlackSurplus.setValue(evaluator.evalValue.doubleValue());
+			}
+			context.update(() -> WeightEval.collectWtRT(wtSlackSurplusName, wtSlackSurplus));
+		} catch (RecognitionException e) {
+			Error.addEvaluationError("slack surplus weight definition has error");
+			wtSlackSurplus.setValue(0.0);
+		}
+		context.update(() -> solverWeightSlackSurplusMap.put(wtSlackSurplusName, wtSlackSurplus));
+		evaluator.reset();
+
+		int timeArraySize=new TimeArray().getTimeArraySize(wtSlackSurplus.timeArraySizeParser, wtSlackSurplus.timeArraySizeCompiled);
+		for (prvs.timeArrayIndex=1; prvs.timeArrayIndex<=timeArraySize; prvs.timeArrayIndex++){
+			WeightElement newWtSlackSurplus=new WeightElement();
+			String newWtSlackSurplusName=FutureKey.name(wtSlackSurplusName, prvs.timeArrayIndex);
+			try {
+				if (wtSlackSurplus.weightCompiled!=null){
+					newWtSlackSurplus.setValue(wtSlackSurplus.weightCompiled.evaluateValue(prvs).doubleValue());
+				}else{
+					evaluator.evaluator();
+					newWtSlackSurplus.setValue(evaluator.evalValue.doubleValue());
+				}
+				context.update(() -> WeightEval.collectWtRT(newWtSlackSurplusName, newWtSlackSurplus));
+			} catch (RecognitionException e) {
+				Error.addEvaluationError("time array slack surplus weight definition "+newWtSlackSurplusName+" has error");
+				newWtSlackSurplus.setValue(0.0);
+			}
+			context.update(() -> addTimeArrayWeight(newWtSlackSurplusName, newWtSlackSurplus));
+			evaluator.reset();
+		}
+    }
+
+    private void addTimeArrayWeight(String newWtSlackSurplusName, WeightElement newWtSlackSurplus){
+		if (solverWeightSlackSurplusMap.containsKey(newWtSlackSurplusName)){
+			Error.addEvaluationError(newWtSlackSurplusName+" is duplicatedly used in both slack surplus weight and time array slack surplus weight");
+		}else{
+			solverWeightSlackSurplusMap.put(newWtSlackSurplusName,newWtSlackSurplus);
+		}
+    }
 }
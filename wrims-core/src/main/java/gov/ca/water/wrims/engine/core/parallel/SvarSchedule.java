@@ -0,0 +1,257 @@
+package gov.ca.water.wrims.engine.core.parallel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.FutureKey;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.evaluator.CompiledExpression;
+import gov.ca.water.wrims.engine.core.evaluator.TableSeries;
+import gov.ca.water.wrims.engine.core.evaluator.ValueNode;
+
+/**
+ * The levels in which the svars of a model can be evaluated in parallel by
+ * ModelDataSet.processSvar. An svar is in a later level than the svars before
+ * it in the svar list that it reads, and not in an earlier level than the svars
+ * after it that it reads, because it reads their value of the previous time
+ * step or cycle. The values of a level are saved after the whole level is
+ * evaluated, so the results are those of the serial order.
+ *
+ * Svars that can have side effects or read data lazily (external functions,
+ * sum loops, timeseries and init file reads, time arrays, expressions left to
+ * the parser) are the serial lane: each is a level of its own, after all svars
+ * before it and before all svars after it. Svars that use a table that is not
+ * loaded yet are ordered like svars that read each other, so that the table is
+ * loaded by the same svar as in the serial order.
+ */
+public class SvarSchedule {
+	private final ArrayList<String> svList;
+	private final int[][] reads;
+	private final int[][] readers;
+	private final boolean[] serial;
+	private final String[][] tables;
+	private int[][] levels;
+
+	public SvarSchedule(ModelDataSet mds){
+		svList=mds.svList;
+		int n=svList.size();
+		HashMap<String, Integer> positions=new HashMap<String, Integer>(n*2);
+		for (int p=0; p<n; p++){
+			if (!positions.containsKey(svList.get(p))) positions.put(svList.get(p), p);
+		}
+		reads=new int[n][];
+		serial=new boolean[n];
+		tables=new String[n][];
+		ArrayList<ArrayList<Integer>> readerLists=new ArrayList<ArrayList<Integer>>(n);
+		for (int p=0; p<n; p++){
+			readerLists.add(new ArrayList<Integer>());
+		}
+		for (int p=0; p<n; p++){
+			Svar svar=mds.svMap.get(svList.get(p));
+			LinkedHashSet<String> names=new LinkedHashSet<String>();
+			LinkedHashSet<String> tableNames=new LinkedHashSet<String>();
+			if (svar.dependants!=null) names.addAll(svar.dependants);
+			serial[p]=!"0".equals(svar.timeArraySize);
+			serial[p]=!collect(svar.caseConditionCompiled, names, tableNames) || serial[p];
+			serial[p]=!collect(svar.caseExpressionCompiled, names, tableNames) || serial[p];
+			LinkedHashSet<Integer> read=new LinkedHashSet<Integer>();
+			for (String name: names){
+				FutureKey key=FutureKey.parse(name);
+				Integer q=positions.get(key==null ? name : key.base);
+				if (q!=null && q!=p && read.add(q)) readerLists.get(q).add(p);
+			}
+			reads[p]=toArray(read);
+			tables[p]=tableNames.toArray(new String[tableNames.size()]);
+		}
+		readers=new int[n][];
+		for (int p=0; p<n; p++){
+			readers[p]=toArray(readerLists.get(p));
+		}
+	}
+
+	public boolean isSerial(int position){
+		return serial[position];
+	}
+
+	/**
+	 * @return the tables used by the svars that are not loaded yet
+	 */
+	public Set<String> unloadedTables(){
+		HashSet<String> unloaded=new HashSet<String>();
+		for (String[] names: tables){
+			for (String table: names){
+				if (!TableSeries.tableSeries.containsKey(table)) unloaded.add(table);
+			}
+		}
+		return unloaded;
+	}
+
+	/**
+	 * @return true if the svar uses one of the unloaded tables; it has to be
+	 *         evaluated on the calling thread
+	 */
+	public boolean loadsTable(int position, Set<String> unloaded){
+		for (String table: tables[position]){
+			if (unloaded.contains(table)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the svar list positions of each level, in the order of the list
+	 */
+	public int[][] levels(Set<String> unloaded){
+		if (!unloaded.isEmpty()) return findLevels(unloaded);
+		if (levels==null) levels=findLevels(unloaded);
+		return levels;
+	}
+
+	private int[][] findLevels(Set<String> unloaded){
+		int n=svList.size();
+		int[] level=new int[n];
+		HashMap<String, Integer> lastLoader=new HashMap<String, Integer>();
+		int floor=0;
+		int top=-1;
+		for (int p=0; p<n; p++){
+			int l=floor;
+			if (serial[p]){
+				l=top+1;
+			}else{
+				for (int q: reads[p]){
+					if (q<p) l=Math.max(l, level[q]+1);
+				}
+				for (int q: readers[p]){
+					if (q<p) l=Math.max(l, level[q]);
+				}
+				for (String table: tables[p]){
+					if (!unloaded.contains(table)) continue;
+					Integer q=lastLoader.get(table);
+					if (q!=null) l=Math.max(l, level[q]+1);
+					lastLoader.put(table, p);
+				}
+			}
+			level[p]=l;
+			top=Math.max(top, l);
+			if (serial[p]) floor=l+1;
+		}
+		int[] sizes=new int[top+1];
+		for (int p=0; p<n; p++){
+			sizes[level[p]]++;
+		}
+		int[][] result=new int[top+1][];
+		for (int l=0; l<=top; l++){
+			result[l]=new int[sizes[l]];
+			sizes[l]=0;
+		}
+		for (int p=0; p<n; p++){
+			result[level[p]][sizes[level[p]]++]=p;
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the names and tables used by the expressions.
+	 *
+	 * @return false if an expression can not be evaluated in parallel
+	 */
+	private static boolean collect(ArrayList<CompiledExpression> expressions, Set<String> names, Set<String> tableNames){
+		if (expressions==null) return false;
+		boolean parallel=true;
+		for (CompiledExpression expression: expressions){
+			if (expression==null) return false;
+			parallel = collect(expression.node, names, tableNames) && parallel;
+		}
+		return parallel;
+	}
+
+	private static boolean collect(ValueNode node, Set<String> names, Set<String> tableNames){
+		if (node.text!=null) names.add(node.text);
+		if (node.texts!=null){
+			for (String text: node.texts){
+				if (text!=null) names.add(text);
+			}
+		}
+		if (node.type==ValueNode.TABLE) tableNames.add(node.texts[0]);
+		boolean parallel=isParallel(node.type);
+		if (node.shared!=null){
+			parallel = collect(node.shared.node, names, tableNames) && parallel;
+		}
+		for (ValueNode child: node.children){
+			parallel = collect(child, names, tableNames) && parallel;
+		}
+		return parallel;
+	}
+
+	/**
+	 * Node types that only read the current values of variables, the date, the
+	 * tables and the values of past cycles.
+	 */
+	private static boolean isParallel(int type){
+		switch (type){
+		case ValueNode.CONSTANT:
+		case ValueNode.SLOT:
+		case ValueNode.YEAR:
+		case ValueNode.MONTH:
+		case ValueNode.DAY:
+		case ValueNode.MONTH_CONST:
+		case ValueNode.PASTMONTH:
+		case ValueNode.DAYSIN:
+		case ValueNode.DAYSINTIMESTEP:
+		case ValueNode.TAFCFS:
+		case ValueNode.NEGATE:
+		case ValueNode.MULT:
+		case ValueNode.DIVIDE:
+		case ValueNode.ADD:
+		case ValueNode.SUBTRACT:
+		case ValueNode.MAX:
+		case ValueNode.MIN:
+		case ValueNode.INT:
+		case ValueNode.REAL:
+		case ValueNode.ABS:
+		case ValueNode.EXP:
+		case ValueNode.LOG:
+		case ValueNode.LOG10:
+		case ValueNode.POW:
+		case ValueNode.MOD:
+		case ValueNode.ROUND:
+		case ValueNode.SIN:
+		case ValueNode.COS:
+		case ValueNode.TAN:
+		case ValueNode.COT:
+		case ValueNode.ASIN:
+		case ValueNode.ACOS:
+		case ValueNode.ATAN:
+		case ValueNode.ACOT:
+		case ValueNode.TABLE:
+		case ValueNode.PAST_CYCLE:
+		case ValueNode.PAST_CYCLE_INDEX:
+		case ValueNode.SHARED:
+		case ValueNode.ALWAYS:
+		case ValueNode.NOT:
+		case ValueNode.AND:
+		case ValueNode.OR:
+		case ValueNode.RELATION:
+		case ValueNode.RANGE:
+		case ValueNode.SHARED_CONDITION:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static int[] toArray(Iterable<Integer> values){
+		ArrayList<Integer> list=new ArrayList<Integer>();
+		for (Integer value: values){
+			list.add(value);
+		}
+		int[] array=new int[list.size()];
+		for (int i=0; i<array.length; i++){
+			array[i]=list.get(i);
+		}
+		return array;
+	}
+}
@@ -24,6 +24,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.FutureKey;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Param;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.WeightElement;
@@ -945,10 +946,10 @@ public class CbcSolver {
                     EvalConstraint ec=constraintMap.get(constraintName);
                     logger.atTrace().setMessage("Processing constraint: name={}, sign={}, RHS={}").addArgument(constraintName).addArgument(ec.getSign())
                         .addArgument(ec.getEvalExpression().getValue()
-                        .getData().doubleValue()).log();
+                        .doubleValue()).log();
 
                     if (ec.getSign().equals("=")) {
-                        GT = -ec.getEvalExpression().getValue().getData().doubleValue();
+                        GT = -ec.getEvalExpression().getValue().doubleValue();
                         if(Math.abs(GT)<ControlData.zeroTolerance) {
                             GT=0;
                         } else if (Math.abs(GT)>maxValue) {
@@ -958,7 +959,7 @@ public class CbcSolver {
                         equalityCount++;
                      } else if (ec.getSign().equals("<") || ec.getSign().equals("<=")){
                         GT = -maxValue;
-                        LT = -ec.getEvalExpression().getValue().getData().doubleValue();
+                        LT = -ec.getEvalExpression().getValue().doubleValue();
                         if(Math.abs(LT)<ControlData.zeroTolerance) {
                             LT=0;
                         } else if (Math.abs(LT)>maxValue) {
@@ -966,7 +967,7 @@ public class CbcSolver {
                         }
                         inequalityCount++;
                     } else if (ec.getSign().equals(">")){
-                        GT = -ec.getEvalExpression().getValue().getData().doubleValue();
+                        GT = -ec.getEvalExpression().getValue().doubleValue();
                         if(Math.abs(GT)<ControlData.zeroTolerance) {
                             GT=0;
                         } else if (Math.abs(GT)>maxValue) {
@@ -1001,7 +1002,7 @@ public class CbcSolver {
                         }
 
                         index[j]=dvBiMapInverse.get(multName);
-                        double temp = multMap.get(multName).getData().doubleValue();
+                        double temp = multMap.get(multName).doubleValue();
                         if(Math.abs(temp)<ControlData.zeroTolerance) {temp=0;
                         }
                         elements[j]=temp;
@@ -1069,19 +1070,19 @@ public class CbcSolver {
 				EvalConstraint ec = constraintMap.get(constraintName);
 
 				if (ec.getSign().equals("=")) {
-					GT = -ec.getEvalExpression().getValue().getData().doubleValue();
+					GT = -ec.getEvalExpression().getValue().doubleValue();
 					if(Math.abs(GT)<ControlData.zeroTolerance) {
                         GT=0;
                     }
 					LT = GT;
 				} else if (ec.getSign().equals("<") || ec.getSign().equals("<=")){
 					GT = -maxValue;
-					LT = -ec.getEvalExpression().getValue().getData().doubleValue();
+					LT = -ec.getEvalExpression().getValue().doubleValue();
 					if(Math.abs(LT)<ControlData.zeroTolerance) {
                         LT=0;
                     }
 				} else if (ec.getSign().equals(">")){
-					GT = -ec.getEvalExpression().getValue().getData().doubleValue();
+					GT = -ec.getEvalExpression().getValue().doubleValue();
 					if(Math.abs(GT)<ControlData.zeroTolerance) {
                         GT=0;
                     }
@@ -1112,7 +1113,7 @@ public class CbcSolver {
 					}
 
 					index[j]=dvBiMapInverse.get(multName);
-					double temp = multMap.get(multName).getData().doubleValue();
+					double temp = multMap.get(multName).doubleValue();
 					if(Math.abs(temp)<ControlData.zeroTolerance) {
                         temp=0;
                     }
@@ -1157,19 +1158,19 @@ public class CbcSolver {
 				EvalConstraint ec=constraintMap.get(constraintName);
 
                 if (ec.getSign().equals("=")) {
-                    GT = -ec.getEvalExpression().getValue().getData().doubleValue();
+                    GT = -ec.getEvalExpression().getValue().doubleValue();
                     if (Math.abs(GT) < gov.ca.water.wrims.engine.core.components.ControlData.zeroTolerance) {
                         GT = 0;
                     }
                     LT = GT;
                 } else if (ec.getSign().equals("<") || ec.getSign().equals("<=")) {
                     GT = -maxValue;
-                    LT = -ec.getEvalExpression().getValue().getData().doubleValue();
+                    LT = -ec.getEvalExpression().getValue().doubleValue();
                     if (Math.abs(LT) < gov.ca.water.wrims.engine.core.components.ControlData.zeroTolerance) {
                         LT = 0;
                     }
                 } else if (ec.getSign().equals(">")) {
-                    GT = -ec.getEvalExpression().getValue().getData().doubleValue();
+                    GT = -ec.getEvalExpression().getValue().doubleValue();
                     if (Math.abs(GT) < gov.ca.water.wrims.engine.core.components.ControlData.zeroTolerance) {
                         GT = 0;
                     }
@@ -1198,7 +1199,7 @@ public class CbcSolver {
 					}
 
 					index[j]=dvBiMapInverse.get(multName);
-					double temp = multMap.get(multName).getData().doubleValue();
+					double temp = multMap.get(multName).doubleValue();
 					if(Math.abs(temp)<ControlData.zeroTolerance) {
                         temp=0;
                     }
@@ -1212,7 +1213,7 @@ public class CbcSolver {
 					iisConstraintIndexMap.put(constraintName, newIndex);
 					iisConstraintElementMap.put(constraintName, newElements);
 					iisConstraintSignMap.put(constraintName, ec.getSign());
-					iisConstraintRHSMap.put(constraintName, -ec.getEvalExpression().getValue().getData().doubleValue());
+					iisConstraintRHSMap.put(constraintName, -ec.getEvalExpression().getValue().doubleValue());
 				}
 				// TODO: add index and elements here for IIS
 				String iisNameP = constraintName + "_p";
@@ -2094,7 +2095,7 @@ logger.atTrace().setMessage("Integer variable (2021): name={}, value={} (rounded
 			String entryNameTS=DssOperation.entryNameTS(dvName, ControlData.timeStep);
 			DataTimeSeries.saveDataToTimeSeries(dvName, entryNameTS, value, dvar);
 			if (timeArrayDvList.contains(dvName)){
-				entryNameTS=DssOperation.entryNameTS(dvName+"__fut__0", ControlData.timeStep);
+				entryNameTS=FutureKey.key(dvName, 0).entryNameTS(ControlData.timeStep);
 				DataTimeSeries.saveDataToTimeSeries(entryNameTS, value, dvar, 0);
 			}
 		}
@@ -2142,7 +2143,7 @@ logger.atTrace().setMessage("Integer variable (2021): name={}, value={} (rounded
 			String entryNameTS=DssOperation.entryNameTS(dvName, ControlData.timeStep);
 			DataTimeSeries.saveDataToTimeSeries(dvName, entryNameTS, value, dvar);
 			if (timeArrayDvList.contains(dvName)){
-				entryNameTS=DssOperation.entryNameTS(dvName+"__fut__0", ControlData.timeStep);
+				entryNameTS=FutureKey.key(dvName, 0).entryNameTS(ControlData.timeStep);
 				DataTimeSeries.saveDataToTimeSeries(entryNameTS, value, dvar, 0);
 			}
 		}
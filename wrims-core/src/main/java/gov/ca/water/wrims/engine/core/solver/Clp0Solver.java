@@ -13,6 +13,7 @@ import java.util.Set;
 import org.apache.commons.io.FilenameUtils;
 
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.FutureKey;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
 import gov.ca.water.wrims.engine.core.commondata.solverdata.*;
 import gov.ca.water.wrims.engine.core.components.ControlData;
@@ -205,7 +206,7 @@ public class Clp0Solver {
 			String entryNameTS=DssOperation.entryNameTS(dvName, ControlData.timeStep);
 			DataTimeSeries.saveDataToTimeSeries(dvName, entryNameTS, value, dvar);
 			if (timeArrayDvList.contains(dvName)){
-				entryNameTS=DssOperation.entryNameTS(dvName+"__fut__0", ControlData.timeStep);
+				entryNameTS=FutureKey.key(dvName, 0).entryNameTS(ControlData.timeStep);
 				DataTimeSeries.saveDataToTimeSeries(entryNameTS, value, dvar, 0);
 			}
 		}
@@ -14,6 +14,7 @@ import org.coinor.clp.SWIGTYPE_p_int;
 import org.coinor.clp.jClp;
 
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.FutureKey;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.WeightElement;
 import gov.ca.water.wrims.engine.core.commondata.solverdata.*;
@@ -176,18 +177,18 @@ public class ClpSolver {
 				EvalConstraint ec=constraintMap.get(constraintName);
 			
 				if (ec.getSign().equals("=")) {
-					//ClpSolverJNI.setRowFix(constraintName, -ec.getEvalExpression().getValue().getData().doubleValue()); //string constraint name
-					GT = -ec.getEvalExpression().getValue().getData().doubleValue();
+					//ClpSolverJNI.setRowFix(constraintName, -ec.getEvalExpression().getValue().doubleValue()); //string constraint name
+					GT = -ec.getEvalExpression().getValue().doubleValue();
 					LT = GT;
 				}
 				else if (ec.getSign().equals("<") || ec.getSign().equals("<=")){
-					//ClpSolverJNI.setRowMax(constraintName, -ec.getEvalExpression().getValue().getData().doubleValue()); //string constraint name
+					//ClpSolverJNI.setRowMax(constraintName, -ec.getEvalExpression().getValue().doubleValue()); //string constraint name
 					GT = -maxValue;
-					LT = -ec.getEvalExpression().getValue().getData().doubleValue();
+					LT = -ec.getEvalExpression().getValue().doubleValue();
 				}
 				else if (ec.getSign().equals(">")){
-					//ClpSolverJNI.setRowMin(constraintName, -ec.getEvalExpression().getValue().getData().doubleValue()); //string constraint name
-					GT = -ec.getEvalExpression().getValue().getData().doubleValue();
+					//ClpSolverJNI.setRowMin(constraintName, -ec.getEvalExpression().getValue().doubleValue()); //string constraint name
+					GT = -ec.getEvalExpression().getValue().doubleValue();
 					LT = maxValue;
 				}
 				else {
@@ -210,7 +211,7 @@ public class ClpSolver {
 					String multName=(String)multIterator.next();
 					
 					// check for inefficient zero coef  
-					//if (multMap.get(multName).getData().doubleValue()==0.) System.out.println("zero coef found in setting up constraint!");
+					//if (multMap.get(multName).doubleValue()==0.) System.out.println("zero coef found in setting up constraint!");
 					
 					if (!dvarMap.containsKey(multName)){ 
 						dvKeys.add(multName);
@@ -220,7 +221,7 @@ public class ClpSolver {
 					}					
 					
 					jClp.jarray_int_setitem(rowIndex_array.get(rowCounter),j,dvKeys.indexOf(multName));
-					jClp.jarray_double_setitem(rowValue_array.get(rowCounter),j,multMap.get(multName).getData().doubleValue());
+					jClp.jarray_double_setitem(rowValue_array.get(rowCounter),j,multMap.get(multName).doubleValue());
 					j++;
 				}
 
@@ -419,7 +420,7 @@ public class ClpSolver {
 			String entryNameTS=DssOperation.entryNameTS(dvName, ControlData.timeStep);
 			DataTimeSeries.saveDataToTimeSeries(dvName, entryNameTS, value, dvar);
 			if (timeArrayDvList.contains(dvName)){
-				entryNameTS=DssOperation.entryNameTS(dvName+"__fut__0", ControlData.timeStep);
+				entryNameTS=FutureKey.key(dvName, 0).entryNameTS(ControlData.timeStep);
 				DataTimeSeries.saveDataToTimeSeries(entryNameTS, value, dvar, 0);
 			}
 		}
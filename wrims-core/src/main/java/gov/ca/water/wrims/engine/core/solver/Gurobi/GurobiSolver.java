@@ -11,6 +11,7 @@ import java.util.Iterator;
 import java.util.Set;
 
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.FutureKey;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.WeightElement;
 import gov.ca.water.wrims.engine.core.commondata.solverdata.*;
@@ -206,7 +207,7 @@ public class GurobiSolver {
             String entryNameTS = DssOperation.entryNameTS(dvName, ControlData.timeStep);
             DataTimeSeries.saveDataToTimeSeries(dvName, entryNameTS, value, dvar);
             if (timeArrayDvList.contains(dvName)) {
-                entryNameTS = DssOperation.entryNameTS(dvName + "__fut__0", ControlData.timeStep);
+                entryNameTS = FutureKey.key(dvName, 0).entryNameTS(ControlData.timeStep);
                 DataTimeSeries.saveDataToTimeSeries(entryNameTS, value, dvar, 0);
             }
         }
@@ -291,18 +292,18 @@ public class GurobiSolver {
 
             while (multIterator.hasNext()) {
                 String multName = (String) multIterator.next();
-                double coef = multMap.get(multName).getData().doubleValue();
+                double coef = multMap.get(multName).doubleValue();
                 GRBVar var = varMap.get(multName);
                 expr.addTerm(coef, var);
                 jack[counter] = coef;
                 counter++;
             }
             if (ec.getSign().equals("=")) {
-                model.addConstr(expr, GRB.EQUAL, -ec.getEvalExpression().getValue().getData().doubleValue(), constraintName);
+                model.addConstr(expr, GRB.EQUAL, -ec.getEvalExpression().getValue().doubleValue(), constraintName);
             } else if (ec.getSign().equals("<") || ec.getSign().equals("<=")) {
-                model.addConstr(expr, GRB.LESS_EQUAL, -ec.getEvalExpression().getValue().getData().doubleValue(), constraintName);
+                model.addConstr(expr, GRB.LESS_EQUAL, -ec.getEvalExpression().getValue().doubleValue(), constraintName);
             } else if (ec.getSign().equals(">") || ec.getSign().equals(">=")) {
-                model.addConstr(expr, GRB.GREATER_EQUAL, -ec.getEvalExpression().getValue().getData().doubleValue(), constraintName);
+                model.addConstr(expr, GRB.GREATER_EQUAL, -ec.getEvalExpression().getValue().doubleValue(), constraintName);
             }
         }
     }
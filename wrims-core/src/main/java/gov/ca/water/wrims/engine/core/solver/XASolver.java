@@ -12,6 +12,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.FutureKey;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.WeightElement;
 import gov.ca.water.wrims.engine.core.commondata.solverdata.*;
@@ -289,15 +290,15 @@ public class XASolver {
 				EvalConstraint ec=constraintMap.get(constraintName);
 
 				if (ec.getSign().equals("=")) {
-					ControlData.xasolver.setRowFix(constraintName, -ec.getEvalExpression().getValue().getData().doubleValue());
+					ControlData.xasolver.setRowFix(constraintName, -ec.getEvalExpression().getValue().doubleValue());
 					lastEqualityConstraintCount++;
 				}
 				else if (ec.getSign().equals("<") || ec.getSign().equals("<=")){
-					ControlData.xasolver.setRowMax(constraintName, -ec.getEvalExpression().getValue().getData().doubleValue());
+					ControlData.xasolver.setRowMax(constraintName, -ec.getEvalExpression().getValue().doubleValue());
 					lastInequalityConstraintCount++;
 				}
 				else if (ec.getSign().equals(">")){
-					ControlData.xasolver.setRowMin(constraintName, -ec.getEvalExpression().getValue().getData().doubleValue());
+					ControlData.xasolver.setRowMin(constraintName, -ec.getEvalExpression().getValue().doubleValue());
 					lastInequalityConstraintCount++;
 				}
 
@@ -308,7 +309,7 @@ public class XASolver {
 				while(multIterator.hasNext()){
 					String multName=(String)multIterator.next();
 					if (!dvarMap.containsKey(multName)) addConditionalSlackSurplusToDvarMap(dvarMap, multName);
-					ControlData.xasolver.loadToCurrentRow(multName, multMap.get(multName).getData().doubleValue());
+					ControlData.xasolver.loadToCurrentRow(multName, multMap.get(multName).doubleValue());
 				}
 			}
 		}
@@ -364,7 +365,7 @@ public class XASolver {
 			String entryNameTS=DssOperation.entryNameTS(dvName, ControlData.timeStep);
 			DataTimeSeries.saveDataToTimeSeries(dvName, entryNameTS, value, dvar);
 			if (timeArrayDvList.contains(dvName)){
-				entryNameTS=DssOperation.entryNameTS(dvName+"__fut__0", ControlData.timeStep);
+				entryNameTS=FutureKey.key(dvName, 0).entryNameTS(ControlData.timeStep);
 				DataTimeSeries.saveDataToTimeSeries(entryNameTS, value, dvar, 0);
 			}
 			assignedDvarCount++;
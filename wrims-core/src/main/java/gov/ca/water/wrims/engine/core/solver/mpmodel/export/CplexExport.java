@@ -10,6 +10,7 @@ import gov.ca.water.wrims.engine.core.commondata.solverdata.SolverData;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.WeightElement;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Param;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
 import gov.ca.water.wrims.engine.core.evaluator.EvalConstraint;
 
 
@@ -89,10 +90,9 @@ public class CplexExport {
 
 				for (String var : sortedTerm) {
 
-					Number coef = constraintMap.get(constraintName).getEvalExpression().getMultiplier().get(var)
-							.getData();
+					IntDouble coef = constraintMap.get(constraintName).getEvalExpression().getMultiplier().get(var);
 					double coefDouble = coef.doubleValue();
-					String coefStr = coef.toString();
+					String coefStr = coef.dataString();
 					String term;
 
 					if (coefDouble == 1.0) {
@@ -117,7 +117,7 @@ public class CplexExport {
 			}
 
 			String sign = constraintMap.get(constraintName).getSign();
-			double val = constraintMap.get(constraintName).getEvalExpression().getValue().getData().doubleValue();
+			double val = constraintMap.get(constraintName).getEvalExpression().getValue().doubleValue();
 
 			if (sign.equals(">")) sign = ">=";
 			if (sign.equals("<")) sign = "<=";
@@ -10,6 +10,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 import gov.ca.water.wrims.engine.core.commondata.solverdata.SolverData;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.FutureKey;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.Param;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
 import gov.ca.water.wrims.engine.core.commondata.wresldata.WeightElement;
@@ -46,16 +47,16 @@ public class Misc {
 				double ub =  Param.inf;
 				
 				if (ec.getSign().equals("=")) {
-					//ControlData.xasolver.setRowFix(constraintName, -ec.getEvalExpression().getValue().getData().doubleValue()); 
-					lb = -ec.getEvalExpression().getValue().getData().doubleValue();
-					ub = -ec.getEvalExpression().getValue().getData().doubleValue();
+					//ControlData.xasolver.setRowFix(constraintName, -ec.getEvalExpression().getValue().doubleValue()); 
+					lb = -ec.getEvalExpression().getValue().doubleValue();
+					ub = -ec.getEvalExpression().getValue().doubleValue();
 				}
 				else if (ec.getSign().equals("<") || ec.getSign().equals("<=")){
-					//ControlData.xasolver.setRowMax(constraintName, -ec.getEvalExpression().getValue().getData().doubleValue()); 
-					ub = -ec.getEvalExpression().getValue().getData().doubleValue();
+					//ControlData.xasolver.setRowMax(constraintName, -ec.getEvalExpression().getValue().doubleValue()); 
+					ub = -ec.getEvalExpression().getValue().doubleValue();
 				}
 				else if (ec.getSign().equals(">")){
-					lb = -ec.getEvalExpression().getValue().getData().doubleValue();
+					lb = -ec.getEvalExpression().getValue().doubleValue();
 				}
 			
 				HashMap<String, IntDouble> multMap = ec.getEvalExpression().getMultiplier();
@@ -82,8 +83,8 @@ public class Misc {
 					String multName=(String)multIterator.next();
 					if (!dvarMap.containsKey(multName)) addConditionalSlackSurplusToDvarMap(dvarMap, multName);
 					
-					varCoefMap.put(multName, multMap.get(multName).getData().doubleValue());
-					//ControlData.xasolver.loadToCurrentRow(multName, multMap.get(multName).getData().doubleValue());
+					varCoefMap.put(multName, multMap.get(multName).doubleValue());
+					//ControlData.xasolver.loadToCurrentRow(multName, multMap.get(multName).doubleValue());
 				}
 				m.createConstraint(constraintName, varCoefMap, lb, ub);
 			}
@@ -144,7 +145,7 @@ public class Misc {
 			String entryNameTS=DssOperation.entryNameTS(dvName, ControlData.timeStep);
 			DataTimeSeries.saveDataToTimeSeries(dvName, entryNameTS, value, dvar);
 			if (timeArrayDvList.contains(dvName)){
-				entryNameTS=DssOperation.entryNameTS(dvName+"__fut__0", ControlData.timeStep);
+				entryNameTS=FutureKey.key(dvName, 0).entryNameTS(ControlData.timeStep);
 				DataTimeSeries.saveDataToTimeSeries(entryNameTS, value, dvar, 0);
 			}
 		}
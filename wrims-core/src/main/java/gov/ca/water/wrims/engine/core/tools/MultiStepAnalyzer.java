@@ -75,7 +75,7 @@ public class MultiStepAnalyzer {
 		Collections.sort(sortedMultiKeys);
 		for (int k=0; k<sortedMultiKeys.size(); k++){
 			String variable=sortedMultiKeys.get(k);
-			double value=multipliers.get(variable).getData().doubleValue();
+			double value=multipliers.get(variable).doubleValue();
 			String procVariable=processVariable(variable);
 			if (value>=0){
 				line=line+"+"+value+"*"+procVariable;
@@ -83,7 +83,7 @@ public class MultiStepAnalyzer {
 				line=line+value+"*"+procVariable;
 			}
 		}
-		line=line+ec.getSign()+(-ee.getValue().getData().doubleValue())+"\n";
+		line=line+ec.getSign()+(-ee.getValue().doubleValue())+"\n";
 		try {
 			out.write(line);
 		} catch (IOException e) {
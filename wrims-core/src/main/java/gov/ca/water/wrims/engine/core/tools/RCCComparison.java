@@ -92,7 +92,7 @@ public class RCCComparison {
 			for (int i=0; i<wNameArrayList.size(); i++){
 				//String wName=(String)wNameArrayList.get(i);
 				//Dvar dvar=SolverData.getDvarMap().get(wName);
-				//if (dvar.data.getData().doubleValue()!=0.0) out1.write(weightMap.get(wNameArrayList.get(i)).getValue()+"*"+wNameArrayList.get(i)+" is not in WRIMS1.\n");
+				//if (dvar.data.doubleValue()!=0.0) out1.write(weightMap.get(wNameArrayList.get(i)).getValue()+"*"+wNameArrayList.get(i)+" is not in WRIMS1.\n");
 				out1.write(weightMap.get(wNameArrayList.get(i)).getValue()+"*"+wNameArrayList.get(i)+" is not in WRIMS1.\n");
 			}
 			out1.close();
@@ -207,7 +207,7 @@ public class RCCComparison {
 				String[] multiStrs=coefVariable[i].split("\\|");
 				if (multiplier.containsKey(multiStrs[0])){
 					multiplierArrayList.remove(multiStrs[0]);
-					double coef=multiplier.get(multiStrs[0]).getData().doubleValue();
+					double coef=multiplier.get(multiStrs[0]).doubleValue();
 					if (Math.abs(coef-Double.parseDouble(multiStrs[1]))>0.1){
 						isDifferent=true;
 						outLine=outLine+"("+multiStrs[1]+"|"+coef+")*"+multiStrs[0]+";";
@@ -226,7 +226,7 @@ public class RCCComparison {
 				isDifferent=true;
 				outLine=outLine+"("+signValue[0]+"|"+ec.getSign()+")";
 			}
-			double value=-ec.getEvalExpression().getValue().getData().doubleValue();
+			double value=-ec.getEvalExpression().getValue().doubleValue();
 			if (Math.abs(Double.parseDouble(signValue[1])-value) >0.1){
 				isDifferent=true;
 				outLine=outLine+"("+signValue[1]+"|"+value+")";
@@ -2,7 +2,12 @@ package wrimsv2.external;
 
 import java.util.*;
 
-public class Functionann_x2_daily extends ExternalFunction{
+import gov.ca.water.wrims.engine.core.external.ExternalArgs;
+import gov.ca.water.wrims.engine.core.external.PureFunction;
+import gov.ca.water.wrims.engine.core.external.TypedExternalFunction;
+
+@PureFunction
+public class Functionann_x2_daily extends ExternalFunction implements TypedExternalFunction{
 	private final boolean DEBUG = false;
 
 
@@ -11,37 +16,19 @@ public class Functionann_x2_daily extends ExternalFunction{
 	}
 
 	public void execute(Stack stack) {
+		stack.push(new Float((float)call(ExternalArgs.fromStack(stack, 5))));
+	}
 
-		//values in reverse order:
-		Object param5 = stack.pop();
-		Object param4 = stack.pop();
-		Object param3 = stack.pop();
-		Object param2 = stack.pop();
-		Object param1 = stack.pop();
-
+	public double call(ExternalArgs args) {
 		//cast params to correct types:
-		int currYear = ((Number) param5).intValue();
-		int currMonth = ((Number) param4).intValue();
-		int currDay = ((Number) param3).intValue();
-		Number[] DO_prv_Arr = (Number[])param2;
-		Number[] X2_prv_Arr = (Number[])param1;
-
-		int size1=X2_prv_Arr.length;
-		float[] X2_prv=new float[size1];
-		for (int i=0; i<size1; i++){
-			X2_prv[i]=X2_prv_Arr[i].floatValue();
-		}
-		
-		int size2=DO_prv_Arr.length;
-		float[] DO_prv=new float[size2];
-		for (int i=0; i<size2; i++){
-			DO_prv[i]=DO_prv_Arr[i].floatValue();
-		}
+		int currYear = args.intValue(4);
+		int currMonth = args.intValue(3);
+		int currDay = args.intValue(2);
+		float[] X2_prv = args.floatArray(0);
+		float[] DO_prv = args.floatArray(1);
 				
 		float result = ann_x2_daily(X2_prv, DO_prv, currDay, currMonth, currYear);
-
-		// push the result on the Stack
-		stack.push(new Float(result));
+		return ExternalArgs.floatResult(result);
 	}
 
 	public native float ann_x2_daily(float[] X2_prv, float[] DO_prv, int currDay, int currMonth, int currYear);
@@ -2,8 +2,11 @@ package wrimsv2.external;
 
 import java.util.*;
 
+import gov.ca.water.wrims.engine.core.external.PureFunction;
+
 import wrimsv2.components.ControlData;
 
+@PureFunction
 public class Functiongetndo_x2 extends ExternalFunction{
 	private final boolean DEBUG = false;
 
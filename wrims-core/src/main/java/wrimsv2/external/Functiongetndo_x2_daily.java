@@ -2,6 +2,9 @@ package wrimsv2.external;
 
 import java.util.*;
 
+import gov.ca.water.wrims.engine.core.external.PureFunction;
+
+@PureFunction
 public class Functiongetndo_x2_daily extends ExternalFunction{
 	private final boolean DEBUG = false;
 
@@ -5,12 +5,13 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Stack;
 
+import gov.ca.water.wrims.engine.core.external.ExternalArgs;
+import gov.ca.water.wrims.engine.core.external.PythonRuntimes;
+import gov.ca.water.wrims.engine.core.external.TypedExternalFunction;
+
 import wrimsv2.components.Error;
-import jep.Jep;
-import jep.JepConfig;
-import jep.JepException;
 
-public class Functionsuitablehabitat extends ExternalFunction{
+public class Functionsuitablehabitat extends ExternalFunction implements TypedExternalFunction{
 	private final boolean DEBUG = false;
 
 
@@ -20,47 +21,23 @@ public class Functionsuitablehabitat extends ExternalFunction{
 
 	@Override
 	public void execute(Stack stack) {
-		
-		//values in reverse order:
-		Object param3 = stack.pop();
-		Object param2 = stack.pop();
-		Object param1 = stack.pop();
+		stack.push(new Float((float)call(ExternalArgs.fromStack(stack, 3))));
+	}
 
+	public double call(ExternalArgs args) {
 		//cast params to correct types:
-		float x2 = ((Number) param3).floatValue();
-		float x1 = ((Number) param2).floatValue();
-		float x0 = ((Number) param1).floatValue();
+		float x2 = args.floatValue(2);
+		float x1 = args.floatValue(1);
+		float x0 = args.floatValue(0);
 
 		float result = SuitableHabitat(x0, x1, x2);
-
-		// push the result on the Stack
-		stack.push(new Float(result));
+		return ExternalArgs.floatResult(result);
 	}
 
 	public float SuitableHabitat(float x0, float x1, float x2){
 		try {
-			//setPythonEnv();
-			new LoadDll("jep.dll");
-			
-			String scriptPath = externalDir;
-			
-			JepConfig cfg = new JepConfig();
-	        cfg.addSharedModules("numpy", "pandas");
-	        cfg.addIncludePaths(scriptPath);
-
-			Jep jep = new Jep(cfg);
-									
-			jep.eval("import external_python_process");
-			jep.set("x0", x0);
-		    jep.set("x1", x1);
-		    jep.set("x2", x2);
-		    jep.eval("y = external_python_process.SuitableHabitat(x0, x1, x2)");
-		    Object result = jep.getValue("y");		    
-			//jep.runScript(scriptPath+File.separator+"external_python_process.py");
-			
-			jep.close();
-			return Float.valueOf(result.toString());
-		} catch (JepException e) {
+			return (float)PythonRuntimes.call("external_python_process", "SuitableHabitat", x0, x1, x2);
+		} catch (Exception e) {
 			e.printStackTrace();
 			Error.addEvaluationError(e.toString());
 			return 0;
@@ -2,11 +2,16 @@ package wrimsv2.external;
 
 import java.util.*;
 
+import gov.ca.water.wrims.engine.core.external.BatchedExternalFunction;
+import gov.ca.water.wrims.engine.core.external.ExternalArgs;
+import gov.ca.water.wrims.engine.core.external.PureFunction;
+
 import wrimsv2.components.TimeUsage;
 import calsim.surrogate.SalinitySurrogateManager;
 
 
-public class Functionsurrogateec extends ExternalFunction{
+@PureFunction
+public class Functionsurrogateec extends ExternalFunction implements BatchedExternalFunction{
 	private final boolean DEBUG = false;
 	private static int cpuTime=0;
 	private static int nCalls=0;
@@ -24,75 +29,54 @@ public class Functionsurrogateec extends ExternalFunction{
 	}
 
 	public void execute(Stack stack) {
+		stack.push(new Double(call(ExternalArgs.fromStack(stack, 11))));
+	}
 
-		long t1 = Calendar.getInstance().getTimeInMillis();
-		
-		//values in reverse order:
-		Object param11 = stack.pop();
-		Object param10 = stack.pop();
-		Object param9 = stack.pop();
-		Object param8 = stack.pop();
-		Object param7 = stack.pop();
-		Object param6 = stack.pop();
-		Object param5 = stack.pop();
-		Object param4 = stack.pop();
-		Object param3 = stack.pop();
-		Object param2 = stack.pop();
-		Object param1 = stack.pop();
+	public double call(ExternalArgs args) {
 
-		//cast params to correct types:
-		int year = ((Number) param11).intValue();
-		int month = ((Number) param10).intValue();
-		int ave_type = ((Number) param9).intValue();
-		int variable = ((Number) param8).intValue();
-		int location = ((Number) param7).intValue();
-		Number[] smscg_Arr = (Number[])param6;
-		int size_smscg=smscg_Arr.length;
-		double[] smscg=new double[size_smscg];
-		for (int i=0; i<size_smscg; i++){
-			smscg[i]=smscg_Arr[i].doubleValue();
-		}
-		Number[] sjr_Arr = (Number[])param5;
-		int size_sjr=sjr_Arr.length;
-		double[] sjr=new double[size_sjr];
-		for (int i=0; i<size_sjr; i++){
-			sjr[i]=sjr_Arr[i].doubleValue();
-		}
-		Number[] net_dcd_Arr = (Number[])param4;
-		int size_net_dcd=net_dcd_Arr.length;
-		double[] net_dcd=new double[size_net_dcd];
-		for (int i=0; i<size_net_dcd; i++){
-			net_dcd[i]=net_dcd_Arr[i].doubleValue();
-		}
-		Number[] dcc_Arr = (Number[])param3;
-		int size_dcc=dcc_Arr.length;
-		double[] dcc=new double[size_dcc];
-		for (int i=0; i<size_dcc; i++){
-			dcc[i]=dcc_Arr[i].doubleValue();
-		}
-		Number[] exp_Arr = (Number[])param2;
-		int size_exp=exp_Arr.length;
-		double[] exp=new double[size_exp];
-		for (int i=0; i<size_exp; i++){
-			exp[i]=exp_Arr[i].doubleValue();
-		}
-		Number[] sac_Arr = (Number[])param1;
-		int size_sac=sac_Arr.length;
-		double[] sac=new double[size_sac];
-		for (int i=0; i<size_sac; i++){
-			sac[i]=sac_Arr[i].doubleValue();
-		}
+		long t1 = Calendar.getInstance().getTimeInMillis();
 
-		float result = surrogateec(sac, exp, dcc, net_dcd, sjr, smscg, location, variable, ave_type, month, year);
+		float result = surrogateec(args);
 
-		// push the result on the Stack
-		stack.push(new Double(result));
-		
 		long t2 = Calendar.getInstance().getTimeInMillis();
 		cpuTime=cpuTime+(int) (t2-t1);
 		nCalls++;
 		TimeUsage.cpuTimeMap.put("surrogateec", cpuTime);
 		TimeUsage.nCallsMap.put("surrogateec", nCalls);
+		return result;
+	}
+
+	public void callBatch(ExternalArgs[] batch, int count, double[] results) {
+
+		long t1 = Calendar.getInstance().getTimeInMillis();
+
+		for (int i=0; i<count; i++){
+			results[i]=surrogateec(batch[i]);
+		}
+
+		long t2 = Calendar.getInstance().getTimeInMillis();
+		cpuTime=cpuTime+(int) (t2-t1);
+		nCalls=nCalls+count;
+		TimeUsage.cpuTimeMap.put("surrogateec", cpuTime);
+		TimeUsage.nCallsMap.put("surrogateec", nCalls);
+	}
+
+	private float surrogateec(ExternalArgs args){
+
+		//cast params to correct types:
+		int year = args.intValue(10);
+		int month = args.intValue(9);
+		int ave_type = args.intValue(8);
+		int variable = args.intValue(7);
+		int location = args.intValue(6);
+		double[] smscg = args.doubleArray(5);
+		double[] sjr = args.doubleArray(4);
+		double[] net_dcd = args.doubleArray(3);
+		double[] dcc = args.doubleArray(2);
+		double[] exp = args.doubleArray(1);
+		double[] sac = args.doubleArray(0);
+
+		return surrogateec(sac, exp, dcc, net_dcd, sjr, smscg, location, variable, ave_type, month, year);
 	}
 
 	public float surrogateec(double[] sac, double[] exp, double[] dcc, double[] net_dcd, double[] sjr, double[] smscg, int location, int variable, int ave_type, int month, int year){	
@@ -2,10 +2,15 @@ package wrimsv2.external;
 
 import java.util.*;
 
+import gov.ca.water.wrims.engine.core.external.ExternalArgs;
+import gov.ca.water.wrims.engine.core.external.PureFunction;
+import gov.ca.water.wrims.engine.core.external.TypedExternalFunction;
+
 import calsim.surrogate.SalinitySurrogateManager;
 import wrimsv2.components.TimeUsage;
 
-public class Functionsurrogateeclinearize extends ExternalFunction{
+@PureFunction
+public class Functionsurrogateeclinearize extends ExternalFunction implements TypedExternalFunction{
 	private final boolean DEBUG = false;
 	private static int cpuTime=0;
 	private static int nCalls=0;
@@ -22,89 +27,41 @@ public class Functionsurrogateeclinearize extends ExternalFunction{
 	}
 
 	public void execute(Stack stack) {
+		stack.push(new Double(call(ExternalArgs.fromStack(stack, 18))));
+	}
+
+	public double call(ExternalArgs args) {
 
 		long t1 = Calendar.getInstance().getTimeInMillis();
-		
-		//values in reverse order:
-		Object param18 = stack.pop();
-		Object param17 = stack.pop();
-		Object param16 = stack.pop();
-		Object param15 = stack.pop();
-		Object param14 = stack.pop();
-		Object param13 = stack.pop();
-		Object param12 = stack.pop();
-		Object param11 = stack.pop();
-		Object param10 = stack.pop();
-		Object param9 = stack.pop();
-		Object param8 = stack.pop();
-		Object param7 = stack.pop();
-		Object param6 = stack.pop();
-		Object param5 = stack.pop();
-		Object param4 = stack.pop();
-		Object param3 = stack.pop();
-		Object param2 = stack.pop();
-		Object param1 = stack.pop();
 
 		//cast params to correct types:
-		int currYear = ((Number) param18).intValue();
-		int currMonth = ((Number) param17).intValue();
-		int ave_type = ((Number) param16).intValue();
-		int variable = ((Number) param15).intValue();
-		int location = ((Number) param14).intValue();
-		double ECTARGET = ((Number) param13).doubleValue();
-		double SMSCG_fut = ((Number) param12).doubleValue();
-		Number[] SMSCG_prv_Arr = (Number[])param11;
-		int size_SMSCG_prv=SMSCG_prv_Arr.length;
-		double[] SMSCG_prv=new double[size_SMSCG_prv];
-		for (int i=0; i<size_SMSCG_prv; i++){
-			SMSCG_prv[i]=SMSCG_prv_Arr[i].doubleValue();
-		}
-		double DICU_fut = ((Number) param10).doubleValue();
-		Number[] DICU_prv_Arr = (Number[])param9;
-		int size_DICU_prv=DICU_prv_Arr.length;
-		double[] DICU_prv=new double[size_DICU_prv];
-		for (int i=0; i<size_DICU_prv; i++){
-			DICU_prv[i]=DICU_prv_Arr[i].doubleValue();
-		}
-		double DXC_fut = ((Number) param8).doubleValue();
-		Number[] DXC_prv_Arr = (Number[])param7;
-		int size_DXC_prv=DXC_prv_Arr.length;
-		double[] DXC_prv=new double[size_DXC_prv];
-		for (int i=0; i<size_DXC_prv; i++){
-			DXC_prv[i]=DXC_prv_Arr[i].doubleValue();
-		}
-		double Qsjr_fut = ((Number) param6).doubleValue();
-		Number[] Qsjr_prv_Arr = (Number[])param5;
-		int size_Qsjr_prv=Qsjr_prv_Arr.length;
-		double[] Qsjr_prv=new double[size_Qsjr_prv];
-		for (int i=0; i<size_Qsjr_prv; i++){
-			Qsjr_prv[i]=Qsjr_prv_Arr[i].doubleValue();
-		}
-		double Qexp_est = ((Number) param4).doubleValue();
-		Number[] Qexp_prv_Arr = (Number[])param3;
-		int size_Qexp_prv=Qexp_prv_Arr.length;
-		double[] Qexp_prv=new double[size_Qexp_prv];
-		for (int i=0; i<size_Qexp_prv; i++){
-			Qexp_prv[i]=Qexp_prv_Arr[i].doubleValue();
-		}
-		double Qsac_est = ((Number) param2).doubleValue();
-		Number[] Qsac_prv_Arr = (Number[])param1;
-		int size_Qsac_prv=Qsac_prv_Arr.length;
-		double[] Qsac_prv=new double[size_Qsac_prv];
-		for (int i=0; i<size_Qsac_prv; i++){
-			Qsac_prv[i]=Qsac_prv_Arr[i].doubleValue();
-		}
+		int currYear = args.intValue(17);
+		int currMonth = args.intValue(16);
+		int ave_type = args.intValue(15);
+		int variable = args.intValue(14);
+		int location = args.intValue(13);
+		double ECTARGET = args.doubleValue(12);
+		double SMSCG_fut = args.doubleValue(11);
+		double[] SMSCG_prv = args.doubleArray(10);
+		double DICU_fut = args.doubleValue(9);
+		double[] DICU_prv = args.doubleArray(8);
+		double DXC_fut = args.doubleValue(7);
+		double[] DXC_prv = args.doubleArray(6);
+		double Qsjr_fut = args.doubleValue(5);
+		double[] Qsjr_prv = args.doubleArray(4);
+		double Qexp_est = args.doubleValue(3);
+		double[] Qexp_prv = args.doubleArray(2);
+		double Qsac_est = args.doubleValue(1);
+		double[] Qsac_prv = args.doubleArray(0);
 
 		double result = surrogateeclinearize(Qsac_prv, Qsac_est, Qexp_prv, Qexp_est, Qsjr_prv, Qsjr_fut, DXC_prv, DXC_fut, DICU_prv, DICU_fut, SMSCG_prv, SMSCG_fut, ECTARGET, location, variable, ave_type, currMonth, currYear);
 
-		// push the result on the Stack
-		stack.push(new Double(result));
-		
 		long t2 = Calendar.getInstance().getTimeInMillis();
 		cpuTime=cpuTime+(int) (t2-t1);
 		nCalls++;
 		TimeUsage.cpuTimeMap.put("surrogateeclinearize", cpuTime);
 		TimeUsage.nCallsMap.put("surrogateeclinearize", nCalls);
+		return ExternalArgs.doubleResult(result);
 	}
 
 	public double surrogateeclinearize(double[] Qsac_prv, double Qsac_est, double[] Qexp_prv, double Qexp_est, double[] Qsjr_prv, double Qsjr_fut, double[] DXC_prv, double DXC_fut, double[] DICU_prv, double DICU_fut, double[] SMSCG_prv, double SMSCG_fut, double ECTARGET, int location, int variable, int ave_type, int currMonth, int currYear){
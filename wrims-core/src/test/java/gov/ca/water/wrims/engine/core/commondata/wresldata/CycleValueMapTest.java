@@ -0,0 +1,152 @@
+package gov.ca.water.wrims.engine.core.commondata.wresldata;
+
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A CycleValueMap holds the same variables and values as the nested HashMaps
+ * it replaced, for the puts, gets and removes of a run.
+ */
+final class CycleValueMapTest {
+    private static final String[] VARIABLES = {"s1", "d1", "a1", "s1__fut__1", "d2"};
+    private static final String[] CYCLES = {"m1", "m2", "m3", "upstream", "delta"};
+
+    @Test
+    void operationsMatchNestedHashMaps() {
+        Random random = new Random(20261017);
+        for (int run = 0; run < 200; run++) {
+            Map<String, Map<String, IntDouble>> expected = new HashMap<>();
+            CycleValueMap actual = new CycleValueMap();
+            for (int op = 0; op < 60; op++) {
+                String variable = VARIABLES[random.nextInt(VARIABLES.length)];
+                String cycle = CYCLES[random.nextInt(CYCLES.length)];
+                IntDouble value = random.nextInt(8) == 0 ? null : new IntDouble(random.nextInt(100), true);
+                switch (random.nextInt(6)) {
+                    case 0:
+                        Map<String, IntDouble> cycleValues = new HashMap<>();
+                        cycleValues.put(cycle, value);
+                        expected.put(variable, new HashMap<>(cycleValues));
+                        actual.put(variable, cycleValues);
+                        break;
+                    case 1:
+                        // the values of a variable put again from its own map
+                        if (expected.containsKey(variable)) {
+                            expected.put(variable, new HashMap<>(expected.get(variable)));
+                            actual.put(variable, actual.get(variable));
+                        }
+                        break;
+                    case 2:
+                        Map<String, IntDouble> removed = expected.remove(variable);
+                        assertEquals(valuesText(removed), valuesText(actual.remove(variable)));
+                        break;
+                    case 3:
+                        if (random.nextInt(10) == 0) {
+                            expected.clear();
+                            actual.clear();
+                        }
+                        break;
+                    default:
+                        if (expected.containsKey(variable)) {
+                            expected.get(variable).put(cycle, value);
+                            actual.get(variable).put(cycle, value);
+                        }
+                }
+                assertEquals(text(expected), text(actual));
+                assertEquals(expected.containsKey(variable), actual.containsKey(variable));
+                if (expected.containsKey(variable)) {
+                    assertEquals(expected.get(variable).containsKey(cycle), actual.get(variable).containsKey(cycle));
+                    assertSame(expected.get(variable).get(cycle), actual.get(variable).get(cycle));
+                }
+            }
+        }
+    }
+
+    @Test
+    void putOfTheOwnMapKeepsTheValues() {
+        CycleValueMap map = new CycleValueMap();
+        Map<String, IntDouble> cycleValues = new HashMap<>();
+        IntDouble value = new IntDouble(1, true);
+        cycleValues.put("m1", value);
+        map.put("x", cycleValues);
+
+        Map<String, IntDouble> previous = map.put("x", map.get("x"));
+        assertSame(value, map.get("x").get("m1"));
+        assertSame(value, previous.get("m1"));
+
+        // a removed row put back, and a cleared row reused for the next put
+        map.put("x", map.remove("x"));
+        assertSame(value, map.get("x").get("m1"));
+        map.clear();
+        map.put("x", cycleValues);
+        assertSame(value, map.get("x").get("m1"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void removedRowIsNotPutBack() {
+        CycleValueMap map = new CycleValueMap();
+        map.put("x", new HashMap<>());
+        Map<String, IntDouble> row = map.get("x");
+        IntDouble value = new IntDouble(2, true);
+        row.put("m1", value);
+
+        Map<String, IntDouble> removed = map.remove("x");
+        assertSame(row, removed);
+        assertSame(value, removed.get("m1"));
+        removed.put("m2", value);
+        assertFalse(map.containsKey("x"));
+        assertEquals(0, map.size());
+
+        map.put("x", new HashMap<>());
+        assertTrue(map.get("x").isEmpty());
+        assertEquals(2, removed.size());
+
+        // a row got before a clear is emptied and is not put back either
+        Map<String, IntDouble> stale = map.get("x");
+        map.clear();
+        stale.put("m1", value);
+        assertFalse(map.containsKey("x"));
+        assertEquals(0, map.size());
+        map.put("x", new HashMap<>());
+        assertTrue(map.get("x").isEmpty());
+    }
+
+    /**
+     * @return the variables and values in name order
+     */
+    private static String text(Map<String, ? extends Map<String, IntDouble>> map) {
+        if (map == null) {
+            return "null";
+        }
+        TreeMap<String, String> text = new TreeMap<>();
+        for (Map.Entry<String, ? extends Map<String, IntDouble>> entry : map.entrySet()) {
+            text.put(entry.getKey(), valuesText(entry.getValue()));
+        }
+        return map.size() + " " + text;
+    }
+
+    /**
+     * @return the values of a variable in cycle order
+     */
+    private static String valuesText(Map<String, IntDouble> cycleValues) {
+        if (cycleValues == null) {
+            return "null";
+        }
+        TreeMap<String, String> text = new TreeMap<>();
+        for (Map.Entry<String, IntDouble> entry : cycleValues.entrySet()) {
+            IntDouble value = entry.getValue();
+            text.put(entry.getKey(), value == null ? "null" : value.dataString());
+        }
+        return cycleValues.size() + " " + text;
+    }
+}
@@ -0,0 +1,81 @@
+package gov.ca.water.wrims.engine.core.commondata.wresldata;
+
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * The variable table of a model holds the variables of the name maps in list
+ * order, clears their values, and is built again when a list changes.
+ */
+final class VariableTableTest {
+
+    @Test
+    void clearClearsTheValuesOfTheMaps() {
+        ModelDataSet mds = model();
+        VariableTable table = mds.variableTable();
+        assertEquals(2, table.svars.length);
+        assertSame(mds.svMap.get("s2"), table.svars[1]);
+        assertSame(mds.dvMap.get("d1"), table.dvars[0]);
+        assertSame(mds.asMap.get("a1"), table.aliases[0]);
+
+        table.clear();
+        assertNull(mds.svMap.get("s1").getData());
+        assertNull(mds.svMap.get("s2").getData());
+        assertNull(mds.dvMap.get("d1").data);
+        assertNull(mds.asMap.get("a1").data);
+    }
+
+    @Test
+    void namesListedTwiceOrWithoutVariableAreLeftOut() {
+        ModelDataSet mds = model();
+        mds.svList.add("s1");
+        mds.dvList.add("missing");
+        VariableTable table = new VariableTable(mds);
+        assertEquals(2, table.svars.length);
+        assertEquals(1, table.dvars.length);
+    }
+
+    @Test
+    void tableIsBuiltAgainWhenAListChanges() {
+        ModelDataSet mds = model();
+        VariableTable table = mds.variableTable();
+        assertSame(table, mds.variableTable());
+
+        Svar s3 = svar(3);
+        mds.svList.add("s3");
+        mds.svMap.put("s3", s3);
+        VariableTable changed = mds.variableTable();
+        assertNotSame(table, changed);
+        assertSame(s3, changed.svars[2]);
+        changed.clear();
+        assertNull(s3.getData());
+    }
+
+    private static ModelDataSet model() {
+        ModelDataSet mds = new ModelDataSet();
+        mds.svList.add("s1");
+        mds.svMap.put("s1", svar(1));
+        mds.svList.add("s2");
+        mds.svMap.put("s2", svar(2));
+        Dvar dvar = new Dvar();
+        dvar.data = new IntDouble(3.0, false);
+        mds.dvList.add("d1");
+        mds.dvMap.put("d1", dvar);
+        Alias alias = new Alias();
+        alias.data = new IntDouble(4.0, false);
+        mds.asList.add("a1");
+        mds.asMap.put("a1", alias);
+        return mds;
+    }
+
+    private static Svar svar(int value) {
+        Svar svar = new Svar();
+        svar.setData(new IntDouble(value, true));
+        return svar;
+    }
+}
@@ -0,0 +1,95 @@
+package gov.ca.water.wrims.engine.core.components;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The values and types IntDouble gives back, as when it kept the Number it
+ * was given.
+ */
+final class IntDoubleTest {
+
+    @Test
+    void getDataKeepsTypeOfNumber() {
+        Number[] numbers = {3, 5_000_000_000L, (short) -7, (byte) 12, 0.1f, 0.1, -0.0, Double.NaN};
+        for (Number number : numbers) {
+            IntDouble id = new IntDouble(number, false);
+            assertEquals(number.getClass(), id.getData().getClass(), number.toString());
+            assertEquals(number, id.getData());
+            assertEquals(number.toString(), id.getData().toString());
+            assertEquals(number.toString(), id.dataString());
+            assertEquals(number.intValue(), id.intValue(), number.toString());
+            assertEquals(Double.doubleToLongBits(number.doubleValue()), Double.doubleToLongBits(id.doubleValue()), number.toString());
+        }
+    }
+
+    @Test
+    void floatIsNotWidenedToDouble() {
+        IntDouble id = new IntDouble(Float.valueOf(0.1f), false);
+        assertEquals(Float.class, id.getData().getClass());
+        assertEquals("0.1", id.getData().toString());
+        assertEquals((double) 0.1f, id.doubleValue(), 0);
+        id.setData(0.1);
+        assertEquals(Double.class, id.getData().getClass());
+        assertEquals("0.1", id.getData().toString());
+    }
+
+    @Test
+    void primitiveSettersGiveBoxedTypes() {
+        IntDouble id = new IntDouble();
+        assertFalse(id.hasData());
+        assertNull(id.getData());
+        assertThrows(NullPointerException.class, id::intValue);
+        id.setData(4);
+        assertEquals(Integer.valueOf(4), id.getData());
+        id.setData(4L);
+        assertEquals(Long.valueOf(4), id.getData());
+        id.setData(4.5);
+        assertEquals(Double.valueOf(4.5), id.getData());
+        assertEquals(4, id.intValue());
+        id.setData((Number) null);
+        assertFalse(id.hasData());
+    }
+
+    @Test
+    void isIntIsKeptApartFromData() {
+        IntDouble id = new IntDouble(2.0, true);
+        assertTrue(id.isInt());
+        assertEquals(Double.valueOf(2.0), id.getData());
+        IntDouble copy = id.copyOf();
+        assertTrue(copy.isInt());
+        assertEquals(Integer.valueOf(2), copy.getData());
+        IntDouble real = new IntDouble(7, false).copyOf();
+        assertFalse(real.isInt());
+        assertEquals(Double.valueOf(7), real.getData());
+    }
+
+    @Test
+    void copyWithNameKeepsData() {
+        IntDouble id = new IntDouble(Float.valueOf(0.25f), false);
+        IntDouble named = id.copyWithName("arg", 3);
+        assertEquals(Float.valueOf(0.25f), named.getData());
+        assertEquals("arg", named.getName());
+        assertEquals(3, named.getIndex());
+        assertEquals("", id.getName());
+    }
+
+    @Test
+    void setMakesValueOfConstructor() {
+        IntDouble id = new IntDouble(1.5, false, "arg", 2);
+        assertSame(id, id.set(6, true));
+        assertEquals(Integer.valueOf(6), id.getData());
+        assertTrue(id.isInt());
+        assertEquals("", id.getName());
+        assertEquals(0, id.getIndex());
+        id.set(-2.5, false);
+        assertEquals(Double.valueOf(-2.5), id.getData());
+        assertFalse(id.isInt());
+    }
+}
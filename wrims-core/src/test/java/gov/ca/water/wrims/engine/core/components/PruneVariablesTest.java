@@ -0,0 +1,250 @@
+package gov.ca.water.wrims.engine.core.components;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Alias;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Goal;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.WeightElement;
+import gov.ca.water.wrims.engine.core.evaluator.PreEvaluator;
+import gov.ca.water.wrims.engine.core.ilp.ILP;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * PruneVariables keeps the svars read by the goals, dvars and weights and the
+ * svars these read, as the compiled expressions and the dependency sets of the
+ * WRESL compiler name them, and removes the others from the svar list. The
+ * aliases are pruned only when the output is limited to the variables of the
+ * output variable file, and the removed variables are listed in
+ * Pruned_Variables.txt.
+ */
+final class PruneVariablesTest {
+    private static final String[][] SVARS = {
+        {"cap", "4"},
+        // only table columns in the select of lvl
+        {"storage", "5"},
+        {"wyt", "1"},
+        {"level", "2"},
+        {"lvl", "select level from cetbl given storage=cap*10 use linear where wyt=2"},
+        {"flow", "lvl+1"},
+        // named like flow, and read by nothing kept
+        {"flowcap", "2"},
+        {"unused", "flowcap*3"},
+        // only in the dependency sets of the goal and of reader
+        {"reader", "1"},
+        {"dep", "7"},
+        // read by the dvar bound and the weight
+        {"ub", "100"},
+        {"wt", "3"},
+    };
+
+    private final String mainDirectory = FilePaths.mainDirectory;
+    private final boolean useCompiledExpression = ControlData.useCompiledExpression;
+    private final int outputType = ControlData.outputType;
+    private final int ovOption = ControlData.ovOption;
+    private final boolean sendAliasToDvar = ControlData.sendAliasToDvar;
+    private final boolean logging = ILP.logging;
+    private final boolean loggingVariableValue = ILP.loggingVariableValue;
+    private final Map<String, String> ovPartBC = new HashMap<>(ControlData.ovPartBC);
+    private Path runFolder;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        runFolder = Files.createTempDirectory("prunevariables");
+        FilePaths.mainDirectory = runFolder.toString() + File.separator;
+        ControlData.outputType = 0;
+        ControlData.ovOption = 1;
+        ControlData.sendAliasToDvar = false;
+        ILP.logging = false;
+        ILP.loggingVariableValue = false;
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        FilePaths.mainDirectory = mainDirectory;
+        ControlData.useCompiledExpression = useCompiledExpression;
+        ControlData.outputType = outputType;
+        ControlData.ovOption = ovOption;
+        ControlData.sendAliasToDvar = sendAliasToDvar;
+        ILP.logging = logging;
+        ILP.loggingVariableValue = loggingVariableValue;
+        ControlData.ovPartBC.clear();
+        ControlData.ovPartBC.putAll(ovPartBC);
+        ControlData.allExternalFunction.remove("pruneextfn");
+        Error.error_evaluation.clear();
+        try (Stream<Path> paths = Files.walk(runFolder)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    void readsAreTheNamesOfCompiledExpressionsAndDependencySets() {
+        StudyDataSet sds = study(model(), true);
+        new PruneVariables(sds);
+        assertEquals(Arrays.asList("cap", "lvl", "flow", "reader", "dep", "ub", "wt"), svList(sds));
+    }
+
+    @Test
+    void expressionsThatAreNotCompiledAreSplitIntoTokens() {
+        StudyDataSet sds = study(model(), false);
+        new PruneVariables(sds);
+        // the table columns are identifiers of the select text
+        assertEquals(Arrays.asList("cap", "storage", "wyt", "level", "lvl", "flow", "reader", "dep", "ub", "wt"), svList(sds));
+    }
+
+    @Test
+    void prunedVariablesAreListedAndStayInTheMaps() throws IOException {
+        StudyDataSet sds = study(model(), true);
+        new PruneVariables(sds);
+        List<String> lines = Files.readAllLines(runFolder.resolve("Pruned_Variables.txt"));
+        assertEquals(Arrays.asList("m1, svar, storage", "m1, svar, wyt", "m1, svar, level", "m1, svar, flowcap", "m1, svar, unused"), lines);
+        ModelDataSet mds = sds.getModelDataSetMap().get("m1");
+        assertEquals(SVARS.length, mds.svMap.size());
+    }
+
+    @Test
+    void svarsAreKeptWhenTheirValuesAreWritten() {
+        ControlData.outputType = 1;
+        StudyDataSet sds = study(model(), true);
+        new PruneVariables(sds);
+        assertEquals(SVARS.length, svList(sds).size(), "written to HDF5");
+
+        ControlData.outputType = 0;
+        ILP.logging = true;
+        sds = study(model(), true);
+        new PruneVariables(sds);
+        assertEquals(SVARS.length, svList(sds).size(), "written to the ILP files");
+    }
+
+    @Test
+    void aliasesAreKeptUnlessTheOutputIsLimited() {
+        ControlData.ovPartBC.put("WRITTEN", "FLOW");
+        StudyDataSet sds = study(aliasModel(), true);
+        new PruneVariables(sds);
+        // written reads flowcap, which is kept with it; storage is only read
+        // by notwritten, which is removed
+        assertEquals(Arrays.asList("written"), asList(sds));
+        assertEquals(Arrays.asList("cap", "lvl", "flow", "flowcap", "reader", "dep", "ub", "wt"), svList(sds));
+
+        ControlData.ovOption = 0;
+        sds = study(aliasModel(), true);
+        new PruneVariables(sds);
+        assertEquals(Arrays.asList("written", "notwritten"), asList(sds), "all the variables are written");
+
+        ControlData.ovOption = 1;
+        ControlData.sendAliasToDvar = true;
+        sds = study(aliasModel(), true);
+        new PruneVariables(sds);
+        assertEquals(Arrays.asList("written", "notwritten"), asList(sds), "sent to the solver");
+    }
+
+    @Test
+    void variablesOfLaterCyclesAndExternalCallsAreKept() {
+        ControlData.allExternalFunction.put("pruneextfn", "pruneextfn.dll");
+        ModelDataSet mds = model();
+        mds.svarUsedByLaterCycle.add("unused");
+        addSvar(mds, "ext", "pruneextfn(wyt)");
+        StudyDataSet sds = study(mds, true);
+        new PruneVariables(sds);
+        assertEquals(Arrays.asList("cap", "wyt", "lvl", "flow", "flowcap", "unused", "reader", "dep", "ub", "wt", "ext"), svList(sds));
+    }
+
+    private static List<String> svList(StudyDataSet sds) {
+        return sds.getModelDataSetMap().get("m1").svList;
+    }
+
+    private static List<String> asList(StudyDataSet sds) {
+        return sds.getModelDataSetMap().get("m1").asList;
+    }
+
+    /**
+     * @return the model with an alias of the output variable file, reading
+     *         flowcap, and an alias that is not written, reading storage
+     */
+    private static ModelDataSet aliasModel() {
+        ModelDataSet mds = model();
+        addAlias(mds, "written", "flow", "flowcap+1");
+        addAlias(mds, "notwritten", "flow", "storage+1");
+        return mds;
+    }
+
+    private static ModelDataSet model() {
+        ModelDataSet mds = new ModelDataSet();
+        for (String[] svar : SVARS) {
+            addSvar(mds, svar[0], svar[1]);
+        }
+        mds.svMap.get("reader").dependants.add("dep");
+
+        Goal goal = new Goal();
+        goal.lhs = "d1";
+        goal.caseName.add("default");
+        goal.caseCondition.add("always");
+        goal.caseExpression.add("d1<flow");
+        goal.expressionDependants.addAll(Arrays.asList("d1", "flow", "reader"));
+        mds.gList.add("g1");
+        mds.gMap.put("g1", goal);
+
+        Dvar dvar = new Dvar();
+        dvar.lowerBound = "0";
+        dvar.upperBound = "ub";
+        mds.dvList.add("d1");
+        mds.dvMap.put("d1", dvar);
+
+        WeightElement weight = new WeightElement();
+        weight.weight = "wt*2";
+        mds.wtList.add("d1");
+        mds.wtMap.put("d1", weight);
+        return mds;
+    }
+
+    private static StudyDataSet study(ModelDataSet mds, boolean compiled) {
+        StudyDataSet sds = new StudyDataSet();
+        ArrayList<String> modelList = new ArrayList<>();
+        modelList.add("m1");
+        sds.setModelList(modelList);
+        Map<String, ModelDataSet> modelDataSetMap = new HashMap<>();
+        modelDataSetMap.put("m1", mds);
+        sds.setModelDataSetMap(modelDataSetMap);
+
+        ControlData.currStudyDataSet = sds;
+        ControlData.currModelDataSet = mds;
+        ControlData.currCycleIndex = 0;
+        ControlData.useCompiledExpression = compiled;
+        new PreEvaluator(sds);
+        return sds;
+    }
+
+    private static void addSvar(ModelDataSet mds, String svName, String expression) {
+        Svar svar = new Svar();
+        svar.caseName.add("default");
+        svar.caseCondition.add("always");
+        svar.caseExpression.add(expression);
+        mds.svList.add(svName);
+        mds.svMap.put(svName, svar);
+    }
+
+    private static void addAlias(ModelDataSet mds, String asName, String kind, String expression) {
+        Alias alias = new Alias();
+        alias.kind = kind;
+        alias.expression = expression;
+        mds.asList.add(asName);
+        mds.asMap.put(asName, alias);
+    }
+}
@@ -0,0 +1,356 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.external.ExternalArgs;
+import gov.ca.water.wrims.engine.core.external.ExternalFunction;
+import gov.ca.water.wrims.engine.core.external.TypedExternalFunction;
+import gov.ca.water.wrims.engine.core.parallel.ParallelVars;
+import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.CommonTokenStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A case chain compiled to bytecode evaluates every node type ChainCompiler
+ * generates to what ValueNode.evaluate gives, and a chain with a node type it
+ * does not generate stays interpreted.
+ */
+final class ChainCompilerTest {
+    private static final int[] GENERATED = {
+        ValueNode.CONSTANT, ValueNode.IDENT, ValueNode.LOOP_INDEX, ValueNode.SLOT, ValueNode.SVAR,
+        ValueNode.YEAR, ValueNode.MONTH, ValueNode.DAY, ValueNode.MONTH_CONST, ValueNode.PASTMONTH,
+        ValueNode.DAYSIN, ValueNode.DAYSINTIMESTEP, ValueNode.ARRAY_ITERATOR, ValueNode.TAFCFS,
+        ValueNode.NEGATE, ValueNode.MULT, ValueNode.DIVIDE, ValueNode.ADD, ValueNode.SUBTRACT,
+        ValueNode.MAX, ValueNode.MIN, ValueNode.POW, ValueNode.MOD, ValueNode.INT, ValueNode.REAL,
+        ValueNode.ABS, ValueNode.EXP, ValueNode.LOG, ValueNode.LOG10, ValueNode.ROUND, ValueNode.SIN,
+        ValueNode.COS, ValueNode.TAN, ValueNode.COT, ValueNode.ASIN, ValueNode.ACOS, ValueNode.ATAN,
+        ValueNode.ACOT, ValueNode.EXCEEDANCE, ValueNode.EXCEEDANCE_TSI, ValueNode.TIMESERIES,
+        ValueNode.NULL, ValueNode.PAST_CYCLE, ValueNode.PAST_CYCLE_TIME_ARRAY, ValueNode.PAST_CYCLE_INDEX,
+        ValueNode.PAST_CYCLE_INDEX_TIME_ARRAY, ValueNode.NO_ARG_FUNCTION, ValueNode.TABLE, ValueNode.SUM,
+        ValueNode.ARG_FUNCTION, ValueNode.PAST_TSFV, ValueNode.SHARED,
+        ValueNode.ALWAYS, ValueNode.NOT, ValueNode.AND, ValueNode.OR, ValueNode.RELATION, ValueNode.RANGE,
+        ValueNode.SHARED_CONDITION,
+    };
+    private static final String[][] SVARS = {
+        {"a", "always", "month+2"},
+        {"b", "always", "month*1.5"},
+        {"ta", "always", "a*10+$m"},
+        // the optimizer shares the repeated expression and condition
+        {"s1", "a*2>b+1", "(a*2+b)/3-a"},
+        {"s2", "a*2>b+1", "(a*2+b)/3+ta(1)"},
+    };
+    private static final String[] VALUES = {
+        "1.5+a",
+        "{a}*wateryear-month/day",
+        "jan+prevjan+daysin+daysintimestep",
+        "$m*2",
+        "cfs_taf+taf_cfs(3)",
+        "-(a-b)",
+        "max(a;b)-min(a;b)",
+        "pow(a;2)+mod(a;4)+int(b)+real(a)+abs(-b)+exp(0.5)+log(b)+log10(b)+round(b)",
+        "sin(b)+cos(b)+tan(b)+cot(b)+asin(0.5)+acos(0.5)+atan(b)+acot(b)",
+        "exceedance(a; 0.5; jan; 1990; oct; 1; 2000; sep; 30)",
+        "exceedance_tsi(a; 0.5; all; 1990; oct; 1; 2000; sep; 30)",
+        "timeseries",
+        "timeseries kind=flow units=cfs",
+        "pcv[m0]+a",
+        "pcv[m0](1)",
+        "pcv[-1]",
+        "pcv[-1](1)",
+        "cesum()",
+        "cesum(a;b)*2",
+        "select level from cetbl given storage=b*10 use linear where wyt=2",
+        "sum(i=1;3) a*i",
+        "ta(1)+ta(2)",
+        "ta(1)(1)",
+    };
+    private static final String[] CONDITIONS = {
+        "always",
+        ".not. a>b",
+        "a>1 .and. b<2 .or. a==6",
+        "range(month;oct;mar)",
+    };
+
+    private final int threshold = ControlData.compiledChainThreshold;
+    private final boolean optimize = ControlData.optimizeExpressions;
+
+    @AfterEach
+    void tearDown() {
+        ControlData.compiledChainThreshold = threshold;
+        ControlData.optimizeExpressions = optimize;
+        ControlData.currSvFutMap = new HashMap<>();
+        ControlData.allExternalFunctionMap.remove("cesum");
+        TableSeries.tableSeries.remove("cetbl");
+        Error.error_evaluation.clear();
+    }
+
+    @Test
+    void compiledChainEvaluatesAsInterpreted() {
+        ModelDataSet mds = bind();
+        List<CompiledExpression> members = members(mds);
+        TreeSet<Integer> types = new TreeSet<>();
+        for (CompiledExpression member : members) {
+            collectTypes(member.node, types);
+        }
+        for (int type : GENERATED) {
+            assertTrue(types.contains(type), "node type " + type + " is in the chain");
+        }
+
+        CaseChain chain = new CaseChain("every_node");
+        for (CompiledExpression member : members) {
+            chain.add(new CompiledExpression(member.node, member.isCondition));
+        }
+        CompiledChain compiled = ChainCompiler.compile(chain);
+        assertNotNull(compiled);
+
+        for (int month = 1; month <= 12; month++) {
+            ControlData.currMonth = month;
+            mds.processModel();
+            for (int i = 0; i < members.size(); i++) {
+                CompiledExpression member = members.get(i);
+                int m = i;
+                String interpreted = outcome(() -> member.isCondition
+                    ? member.node.evaluateCondition(prvs(), sumIndex())
+                    : member.node.evaluate(prvs(), sumIndex()));
+                String generated = outcome(() -> member.isCondition
+                    ? compiled.evaluateCondition(m, prvs(), sumIndex())
+                    : compiled.evaluateValue(m, prvs(), sumIndex()));
+                assertEquals(interpreted, generated, "month " + month + " member " + i);
+            }
+        }
+    }
+
+    @Test
+    void rejectedNodeTypeStaysInterpreted() {
+        ModelDataSet mds = bind();
+        mds.processModel();
+        ValueNode value = compile("v: max(a;b)*2-month").node;
+        ValueNode condition = compile("c: a>b .or. month==4").node;
+        ValueNode trunk = new ValueNode(ValueNode.TRUNK, "ta", new ValueNode(new IntDouble(1, true)), new ValueNode(new IntDouble(2, true)));
+
+        CaseChain rejected = new CaseChain("rejected");
+        CompiledExpression rejectedValue = new CompiledExpression(value, false);
+        CompiledExpression rejectedCondition = new CompiledExpression(condition, true);
+        rejected.add(rejectedValue);
+        rejected.add(rejectedCondition);
+        rejected.add(new CompiledExpression(trunk, false));
+        assertNull(ChainCompiler.compile(rejected));
+
+        CaseChain accepted = new CaseChain("accepted");
+        CompiledExpression acceptedValue = new CompiledExpression(value, false);
+        CompiledExpression acceptedCondition = new CompiledExpression(condition, true);
+        accepted.add(acceptedValue);
+        accepted.add(acceptedCondition);
+
+        ControlData.compiledChainThreshold = 2;
+        IntDouble expected = value.evaluate(null, new Stack<>());
+        boolean expectedCondition = condition.evaluateCondition(null, new Stack<>());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(text(expected), text(rejectedValue.evaluateValue(null)), "round " + i);
+            assertEquals(expectedCondition, rejectedCondition.evaluateCondition(null), "round " + i);
+            assertEquals(text(expected), text(acceptedValue.evaluateValue(null)), "round " + i);
+            assertEquals(expectedCondition, acceptedCondition.evaluateCondition(null), "round " + i);
+        }
+        assertFalse(rejected.isCompiled());
+        assertTrue(accepted.isCompiled());
+    }
+
+    @Test
+    void evaluationsOfThreadsAreAllCounted() throws Exception {
+        CompiledExpression value = compile("v: 1+2*3");
+        CaseChain chain = new CaseChain("threads");
+        chain.add(value);
+        ControlData.compiledChainThreshold = 4 * 5000 + 1;
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(threads.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 5000; i++) {
+                        assertEquals(7, value.evaluateValue(null).getData().intValue());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            threads.shutdown();
+        }
+        assertFalse(chain.isCompiled());
+        value.evaluateValue(null);
+        assertTrue(chain.isCompiled());
+    }
+
+    private static List<CompiledExpression> members(ModelDataSet mds) {
+        List<CompiledExpression> members = new ArrayList<>();
+        for (String[] svar : SVARS) {
+            members.add(mds.svMap.get(svar[0]).caseConditionCompiled.get(0));
+            members.add(mds.svMap.get(svar[0]).caseExpressionCompiled.get(0));
+        }
+        for (String expression : VALUES) {
+            CompiledExpression member = compile("v: " + expression);
+            assertNotNull(member, expression);
+            members.add(member);
+        }
+        for (String expression : CONDITIONS) {
+            CompiledExpression member = compile("c: " + expression);
+            assertNotNull(member, expression);
+            members.add(member);
+        }
+        // the index of the sum a member is evaluated in
+        members.add(new CompiledExpression(new ValueNode(ValueNode.MULT, new ValueNode(ValueNode.LOOP_INDEX, "i"), new ValueNode(ValueNode.IDENT, "b")), false));
+        return members;
+    }
+
+    private static CompiledExpression compile(String text) {
+        return CompiledExpression.compile(new CommonTokenStream(new ValueEvaluatorLexer(new ANTLRStringStream(text))));
+    }
+
+    private static void collectTypes(ValueNode node, TreeSet<Integer> types) {
+        types.add(node.type);
+        for (ValueNode child : node.children) {
+            collectTypes(child, types);
+        }
+    }
+
+    private static ParallelVars prvs() {
+        ParallelVars prvs = new ParallelVars();
+        prvs.timeArrayIndex = 1;
+        return prvs;
+    }
+
+    private static Stack<LoopIndex> sumIndex() {
+        Stack<LoopIndex> sumIndex = new Stack<>();
+        sumIndex.push(new LoopIndex("i", 2, true, 1, 3, 1));
+        return sumIndex;
+    }
+
+    /**
+     * The result or exception of an evaluation and the errors it reported.
+     */
+    private static String outcome(Supplier<Object> evaluation) {
+        Error.error_evaluation.clear();
+        String result;
+        try {
+            Object value = evaluation.get();
+            result = value instanceof IntDouble ? text((IntDouble) value) : String.valueOf(value);
+        } catch (RuntimeException e) {
+            result = e.getClass().getName() + ": " + e.getMessage();
+        }
+        return result + " " + Error.error_evaluation;
+    }
+
+    private static String text(IntDouble value) {
+        return value.getData() + (value.isInt() ? "i" : "d");
+    }
+
+    private static ModelDataSet bind() {
+        ModelDataSet mds = new ModelDataSet();
+        for (String[] svar : SVARS) {
+            Svar sv = new Svar();
+            sv.caseName.add("default");
+            sv.caseCondition.add(svar[1]);
+            sv.caseExpression.add(svar[2]);
+            mds.svList.add(svar[0]);
+            mds.svMap.put(svar[0], sv);
+        }
+        mds.svMap.get("ta").timeArraySize = "2";
+
+        StudyDataSet sds = new StudyDataSet();
+        ArrayList<String> modelList = new ArrayList<>();
+        modelList.add("m1");
+        sds.setModelList(modelList);
+        Map<String, ModelDataSet> modelDataSetMap = new HashMap<>();
+        modelDataSetMap.put("m1", mds);
+        sds.setModelDataSetMap(modelDataSetMap);
+        Map<String, IntDouble> pastCycle = new HashMap<>();
+        pastCycle.put("m0", new IntDouble(4, true));
+        sds.getVarCycleValueMap().put("pcv", pastCycle);
+        TableSeries.tableSeries.put("cetbl", table());
+        ControlData.allExternalFunctionMap.put("cesum", new Sum());
+
+        ControlData.currStudyDataSet = sds;
+        ControlData.currModelDataSet = mds;
+        ControlData.currSvMap = mds.svMap;
+        ControlData.currSvFutMap = mds.svFutMap;
+        ControlData.currTsMap = mds.tsMap;
+        ControlData.currDvMap = mds.dvMap;
+        ControlData.currAliasMap = mds.asMap;
+        ControlData.currCycleName = "m1";
+        ControlData.currCycleIndex = 0;
+        ControlData.currYear = 2000;
+        ControlData.currMonth = 1;
+        ControlData.currDay = 31;
+        ControlData.compiledChainThreshold = 0;
+        ControlData.optimizeExpressions = true;
+        Error.error_evaluation.clear();
+        new PreEvaluator(sds);
+        return mds;
+    }
+
+    private static LookUpTable table() {
+        LookUpTable table = new LookUpTable();
+        table.setName("cetbl");
+        HashMap<String, Integer> field = new HashMap<>();
+        field.put("wyt", 0);
+        field.put("storage", 1);
+        field.put("level", 2);
+        table.setField(field);
+        for (int wyt = 1; wyt <= 2; wyt++) {
+            for (int storage = 0; storage <= 200; storage += 40) {
+                table.getData().add(new Number[] {wyt, storage, storage / 4 + wyt * 0.5});
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Returns 1 plus the sum of its arguments.
+     */
+    public static final class Sum extends ExternalFunction implements TypedExternalFunction {
+
+        @Override
+        public void execute(Stack stack) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public double call(ExternalArgs args) {
+            double sum = 1;
+            for (int i = 0; i < args.size; i++) {
+                sum += args.values[i];
+            }
+            return sum;
+        }
+    }
+}
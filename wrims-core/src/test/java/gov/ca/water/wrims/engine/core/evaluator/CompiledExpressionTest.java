@@ -0,0 +1,246 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.parallel.ParallelVars;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A model evaluates its svars and model conditions to the same values and
+ * errors with the compiled expressions as with ValueEvaluatorParser.
+ */
+final class CompiledExpressionTest {
+    private static final String[][] SVARS = {
+        {"a", "month+2"},
+        {"b", "month*1.5"},
+        // int and double promotion
+        {"d", "7/2+a/2"},
+        {"p1", "a+b"},
+        {"p2", "a*2.0-int(b)"},
+        {"p3", "max(a;b)+min(a;3)"},
+        {"p4", "real(a)/4+mod(a;5)"},
+        {"p5", "pow(a;2)+abs(-b)"},
+        // sums
+        {"s1", "sum(i=1;3) a*i"},
+        {"s2", "sum(i=1;a) b/i"},
+        {"s3", "sum(i=4;1;-1) i*month"},
+        // tables
+        {"t1", "select level from cetbl given storage=b*10 use linear where wyt=2"},
+        {"t2", "select level from cetbl where wyt=2"},
+        {"t3", "select level from cetbl given storage=a*10 use maximum where wyt=1"},
+        // the given values are duplicated without a where
+        {"t4", "select level from cetbl given storage=b use linear"},
+        // past cycle
+        {"c1", "pcv[m0]+a"},
+        {"c2", "pcv[m0]*b"},
+        // time arrays
+        {"ta", "a*10+$m"},
+        {"tr", "ta(0)+ta(1)*2+ta(2)"},
+    };
+    private static final String[] CONDITIONS = {
+        "always",
+        "a>5 .and. b<15",
+        "a<=4 .or. month==7",
+        "s1+a>20",
+        "pcv[m0]+b>10",
+        "t1>25 .and. t2<100",
+        "ta(2)>=90",
+        "int(b)==a-1",
+    };
+
+    private final boolean useCompiledExpression = ControlData.useCompiledExpression;
+
+    @AfterEach
+    void tearDown() {
+        ControlData.useCompiledExpression = useCompiledExpression;
+        ControlData.currSvFutMap = new HashMap<>();
+        TableSeries.tableSeries.remove("cetbl");
+        Error.error_evaluation.clear();
+    }
+
+    @Test
+    void compiledModelEvaluatesAsParsed() {
+        List<String> parsed = run(false);
+        List<String> compiled = run(true);
+        assertEquals(parsed, compiled);
+        // January is month 4: a=6 and ta(0), ta(1), ta(2) are 60, 61 and 62
+        assertTrue(parsed.contains("1 tr=244i"), parsed.toString());
+        assertTrue(parsed.stream().anyMatch(line -> line.contains("is duplicated in Table cetbl")), parsed.toString());
+    }
+
+    @Test
+    void svarsAndConditionsAreCompiled() {
+        StudyDataSet sds = bind(true);
+        ModelDataSet mds = sds.getModelDataSetMap().get("m1");
+        for (String[] svar : SVARS) {
+            assertNotNull(mds.svMap.get(svar[0]).caseExpressionCompiled.get(0), svar[0]);
+        }
+        for (int i = 0; i < CONDITIONS.length; i++) {
+            assertNotNull(sds.getModelConditionCompiled().get(i), CONDITIONS[i]);
+        }
+
+        sds = bind(false);
+        for (int i = 0; i < CONDITIONS.length; i++) {
+            assertNull(sds.getModelConditionCompiled().get(i), CONDITIONS[i]);
+        }
+    }
+
+    @Test
+    void conditionErrorIsFalse() {
+        for (boolean compiled : new boolean[] {false, true}) {
+            StudyDataSet sds = bind(true);
+            ArrayList<String> conditions = new ArrayList<>();
+            conditions.add("nosuchvar>1");
+            sds.setModelConditionList(conditions);
+            ControlData.useCompiledExpression = compiled;
+            new PreEvaluator(sds);
+            Error.error_evaluation.clear();
+
+            assertFalse(sds.evaluateModelCondition(0), "compiled " + compiled);
+            assertFalse(Error.error_evaluation.isEmpty(), "compiled " + compiled);
+        }
+    }
+
+    @Test
+    void sumIsEvaluatedByThreadsAtOnce() throws Exception {
+        StudyDataSet sds = bind(true);
+        ModelDataSet mds = sds.getModelDataSetMap().get("m1");
+        mds.processModel();
+        List<CompiledExpression> sums = new ArrayList<>();
+        List<Double> expected = new ArrayList<>();
+        for (String svName : new String[] {"s1", "s2", "s3"}) {
+            CompiledExpression sum = mds.svMap.get(svName).caseExpressionCompiled.get(0);
+            sums.add(sum);
+            expected.add(sum.evaluateValue(new ParallelVars()).getData().doubleValue());
+        }
+
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Double>>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(threads.submit(() -> {
+                    List<Double> values = new ArrayList<>();
+                    for (int i = 0; i < 2000; i++) {
+                        for (CompiledExpression sum : sums) {
+                            values.add(sum.evaluateValue(new ParallelVars()).getData().doubleValue());
+                        }
+                    }
+                    return values;
+                }));
+            }
+            for (Future<List<Double>> result : results) {
+                List<Double> values = result.get(60, TimeUnit.SECONDS);
+                for (int i = 0; i < values.size(); i++) {
+                    assertEquals(expected.get(i % sums.size()), values.get(i));
+                }
+            }
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    private List<String> run(boolean compiled) {
+        StudyDataSet sds = bind(compiled);
+        ModelDataSet mds = sds.getModelDataSetMap().get("m1");
+        assertTrue(Error.error_evaluation.isEmpty(), Error.error_evaluation.toString());
+        List<String> lines = new ArrayList<>();
+        for (int month = 1; month <= 12; month++) {
+            ControlData.currMonth = month;
+            Error.error_evaluation.clear();
+            mds.processModel();
+            for (String[] svar : SVARS) {
+                IntDouble data = mds.svMap.get(svar[0]).getData();
+                lines.add(month + " " + svar[0] + "=" + data.getData() + (data.isInt() ? "i" : "d"));
+            }
+            for (int i = 0; i < CONDITIONS.length; i++) {
+                lines.add(month + " " + CONDITIONS[i] + "=" + sds.evaluateModelCondition(i));
+            }
+            lines.addAll(Error.error_evaluation);
+        }
+        return lines;
+    }
+
+    private static StudyDataSet bind(boolean compiled) {
+        ModelDataSet mds = new ModelDataSet();
+        for (String[] svar : SVARS) {
+            addSvar(mds, svar[0], svar[1]);
+        }
+        mds.svMap.get("ta").timeArraySize = "2";
+
+        StudyDataSet sds = new StudyDataSet();
+        ArrayList<String> modelList = new ArrayList<>();
+        modelList.add("m1");
+        sds.setModelList(modelList);
+        sds.setModelConditionList(new ArrayList<>(Arrays.asList(CONDITIONS)));
+        Map<String, ModelDataSet> modelDataSetMap = new HashMap<>();
+        modelDataSetMap.put("m1", mds);
+        sds.setModelDataSetMap(modelDataSetMap);
+        Map<String, IntDouble> pastCycle = new HashMap<>();
+        pastCycle.put("m0", new IntDouble(4, true));
+        sds.getVarCycleValueMap().put("pcv", pastCycle);
+        TableSeries.tableSeries.put("cetbl", table());
+
+        ControlData.currStudyDataSet = sds;
+        ControlData.currModelDataSet = mds;
+        ControlData.currSvMap = mds.svMap;
+        ControlData.currSvFutMap = mds.svFutMap;
+        ControlData.currTsMap = mds.tsMap;
+        ControlData.currDvMap = mds.dvMap;
+        ControlData.currAliasMap = mds.asMap;
+        ControlData.currCycleName = "m1";
+        ControlData.currCycleIndex = 0;
+        ControlData.currYear = 2000;
+        ControlData.currMonth = 1;
+        ControlData.currDay = 31;
+        ControlData.useCompiledExpression = compiled;
+        Error.error_evaluation.clear();
+        new PreEvaluator(sds);
+        return sds;
+    }
+
+    private static LookUpTable table() {
+        LookUpTable table = new LookUpTable();
+        table.setName("cetbl");
+        HashMap<String, Integer> field = new HashMap<>();
+        field.put("wyt", 0);
+        field.put("storage", 1);
+        field.put("level", 2);
+        table.setField(field);
+        for (int wyt = 1; wyt <= 2; wyt++) {
+            for (int storage = 0; storage <= 200; storage += 40) {
+                table.getData().add(new Number[] {wyt, storage, storage / 4 + wyt * 0.5});
+            }
+        }
+        return table;
+    }
+
+    private static void addSvar(ModelDataSet mds, String svName, String expression) {
+        Svar svar = new Svar();
+        svar.caseName.add("default");
+        svar.caseCondition.add("always");
+        svar.caseExpression.add(expression);
+        mds.svList.add(svName);
+        mds.svMap.put(svName, svar);
+    }
+}
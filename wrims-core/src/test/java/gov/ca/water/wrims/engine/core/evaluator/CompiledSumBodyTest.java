@@ -0,0 +1,127 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.CommonTokenStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * The sum loops of a goal give the same terms and values when their body is
+ * compiled once as when it is parsed again for every index.
+ */
+final class CompiledSumBodyTest {
+    private static final String[] EXPRESSIONS = {
+        "sum(i=1;3) i*d+a*i",
+        "sum(i=1;a) d*2.5/i-e",
+        "sum(i=4;1;-1) i*month*d",
+        "sum(i=1;2) (sum(j=1;3) j*d)",
+        "sum(i=1;3) max(a;i)*e+int(i/2)",
+        "sum(i=5;1) d",
+        "10+(sum(i=1;2) (i+a)*(d-e))",
+        // reported errors
+        "sum(i=1;2) i*f",
+    };
+
+    private final boolean useCompiledExpression = ControlData.useCompiledExpression;
+    private final Map<String, Svar> svMap = ControlData.currSvMap;
+    private final Map<String, Dvar> dvMap = ControlData.currDvMap;
+    private final ModelDataSet modelDataSet = ControlData.currModelDataSet;
+
+    @BeforeEach
+    void setUp() {
+        ModelDataSet mds = new ModelDataSet();
+        Svar a = new Svar();
+        a.setData(new IntDouble(6, true));
+        mds.svMap.put("a", a);
+        mds.dvMap.put("d", new Dvar());
+        mds.dvMap.put("e", new Dvar());
+        ControlData.currModelDataSet = mds;
+        StudyDataSet sds = new StudyDataSet();
+        ArrayList<String> modelList = new ArrayList<>();
+        modelList.add("m1");
+        sds.setModelList(modelList);
+        ControlData.currStudyDataSet = sds;
+        ControlData.currCycleIndex = 0;
+        ControlData.currSvMap = mds.svMap;
+        ControlData.currDvMap = mds.dvMap;
+        ControlData.currMonth = 1;
+        Error.error_evaluation.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ControlData.useCompiledExpression = useCompiledExpression;
+        ControlData.currSvMap = svMap;
+        ControlData.currDvMap = dvMap;
+        ControlData.currModelDataSet = modelDataSet;
+        Error.error_evaluation.clear();
+    }
+
+    @Test
+    void compiledBodyEvaluatesAsParsed() {
+        for (String expression : EXPRESSIONS) {
+            String parsed = evaluate(expression, false);
+            String compiled = evaluate(expression, true);
+            assertEquals(parsed, compiled, expression);
+        }
+        assertEquals("15.0d -15.0e 10 []", evaluate("10+(sum(i=1;2) (i+a)*(d-e))", true));
+    }
+
+    @Test
+    void bodyIsCompiledOnce() {
+        ControlData.useCompiledExpression = true;
+        CompiledSumBody body = CompiledSumBody.get("i", "i*d+a*i");
+        assertNotNull(body);
+        assertSame(body, CompiledSumBody.get("i", "i*d+a*i"));
+        assertEquals(ValueNode.LOOP_INDEX, body.node.children[0].children[0].type);
+        // another loop index is another binding
+        assertEquals(ValueNode.IDENT, CompiledSumBody.get("k", "i*d+a*i").node.children[0].children[0].type);
+
+        ControlData.useCompiledExpression = false;
+        assertNull(CompiledSumBody.get("i", "i*d+a*i"));
+    }
+
+    @Test
+    void bodyThatDoesNotCompileIsParsed() {
+        ControlData.useCompiledExpression = true;
+        assertNull(CompiledSumBody.get("i", "i*d+"));
+        assertEquals(evaluate("sum(i=1;3) i*d", false), evaluate("sum(i=1;3) i*d", true));
+    }
+
+    /**
+     * @return the terms, the value and the errors of the expression
+     */
+    private static String evaluate(String expression, boolean compiled) {
+        ControlData.useCompiledExpression = compiled;
+        Error.error_evaluation.clear();
+        EvaluatorLexer lexer = new EvaluatorLexer(new ANTLRStringStream("s: " + expression));
+        EvaluatorParser evaluator = new EvaluatorParser(new CommonTokenStream(lexer));
+        try {
+            evaluator.evaluator();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        EvalExpression ee = evaluator.evalExpression;
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, IntDouble> term : ee.getMultiplier().entrySet()) {
+            text.append(term.getValue().getData()).append(term.getKey()).append(" ");
+        }
+        return text.append(ee.getValue().getData()).append(" ").append(Error.error_evaluation).toString();
+    }
+}
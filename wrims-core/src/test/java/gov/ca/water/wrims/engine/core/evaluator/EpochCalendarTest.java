@@ -0,0 +1,232 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.parallel.ParallelVars;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * EpochCalendar counts the days of java.time and gives the time step offsets
+ * of the Date and Calendar code it replaced. The replaced daily offsets are
+ * computed in UTC, where a day always has 24 hours.
+ */
+final class EpochCalendarTest {
+    private static final LocalDate FIRST = LocalDate.of(1899, 1, 1);
+    private static final LocalDate LAST = LocalDate.of(2101, 12, 31);
+
+    private final TimeZone timeZone = TimeZone.getDefault();
+    private final String timeStep = ControlData.timeStep;
+    private final int currYear = ControlData.currYear;
+    private final int currMonth = ControlData.currMonth;
+    private final int currDay = ControlData.currDay;
+    private final int startYear = ControlData.startYear;
+    private final int startMonth = ControlData.startMonth;
+    private final int startDay = ControlData.startDay;
+
+    @BeforeEach
+    void setUp() {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TimeZone.setDefault(timeZone);
+        ControlData.timeStep = timeStep;
+        ControlData.currYear = currYear;
+        ControlData.currMonth = currMonth;
+        ControlData.currDay = currDay;
+        ControlData.startYear = startYear;
+        ControlData.startMonth = startMonth;
+        ControlData.startDay = startDay;
+    }
+
+    @Test
+    void epochDayAndSetDayMatchJavaTime() {
+        for (LocalDate date = FIRST; !date.isAfter(LAST); date = date.plusDays(1)) {
+            assertDay(date);
+        }
+        // outside of the years in the tables
+        for (int year : new int[] {-400, 1, 1600, 1799, 1800, 2400, 2401, 3000}) {
+            for (int month = 1; month <= 12; month++) {
+                assertDay(LocalDate.of(year, month, 1));
+                assertDay(LocalDate.of(year, month, 1).plusMonths(1).minusDays(1));
+            }
+        }
+        assertEquals(0, EpochCalendar.epochDay(1970, 1, 1));
+        assertEquals(-25567, EpochCalendar.epochDay(1900, 1, 1));
+    }
+
+    @Test
+    void daysPastTheEndOfTheMonthRollOver() {
+        for (int year : new int[] {1900, 1999, 2000, 2004, 2100, 2500}) {
+            for (int month = 1; month <= 12; month++) {
+                for (int day = 28; day <= 32; day++) {
+                    long expected = LocalDate.of(year, month, 1).plusDays(day - 1).toEpochDay();
+                    assertEquals(expected, EpochCalendar.epochDay(year, month, day), year + "-" + month + "-" + day);
+                }
+            }
+        }
+    }
+
+    @Test
+    void leapYears() {
+        assertEquals(28, EpochCalendar.daysInMonth(2, 1900));
+        assertEquals(29, EpochCalendar.daysInMonth(2, 2000));
+        assertEquals(28, EpochCalendar.daysInMonth(2, 2100));
+        assertEquals(29, EpochCalendar.daysInMonth(2, 2024));
+        for (int year = 1600; year <= 2600; year++) {
+            assertEquals(LocalDate.of(year, 1, 1).isLeapYear(), EpochCalendar.isLeapYear(year), "year " + year);
+            for (int month = 1; month <= 12; month++) {
+                assertEquals(LocalDate.of(year, month, 1).lengthOfMonth(), EpochCalendar.daysInMonth(month, year));
+            }
+        }
+    }
+
+    @Test
+    void findTimeMatchesPreviousCalendar() {
+        Random random = new Random(20261017);
+        ControlData.timeStep = "1MON";
+        for (int year = 1899; year <= 2101; year++) {
+            for (int month = 1; month <= 12; month++) {
+                ControlData.currYear = year;
+                ControlData.currMonth = month;
+                ControlData.currDay = LocalDate.of(year, month, 1).lengthOfMonth();
+                for (int value : new int[] {0, -1, 1, -11, -12, -13, 11, 12, 13, -1200, 1200, random.nextInt(2001) - 1000}) {
+                    assertSameTime(previousMonthlyFindTime(value), TimeOperation.findTime(value), year + "-" + month + " " + value);
+                }
+            }
+        }
+
+        ControlData.timeStep = "1DAY";
+        for (LocalDate date = FIRST; !date.isAfter(LAST); date = date.plusDays(1 + random.nextInt(5))) {
+            ControlData.currYear = date.getYear();
+            ControlData.currMonth = date.getMonthValue();
+            ControlData.currDay = date.getDayOfMonth();
+            for (int value : new int[] {0, -1, 1, -31, 31, -366, 366, -40000, 40000, random.nextInt(20001) - 10000}) {
+                ParallelVars expected = previousDailyFindTime(value);
+                assertSameTime(expected, TimeOperation.findTime(value), date + " " + value);
+                assertEquals(date.plusDays(value), LocalDate.of(expected.dataYear, expected.dataMonth, expected.dataDay));
+            }
+        }
+    }
+
+    @Test
+    void studyStartIndexMatchesPreviousCalendar() {
+        Random random = new Random(20261017);
+        for (int i = 0; i < 20000; i++) {
+            LocalDate start = FIRST.plusDays(random.nextInt((int) ChronoUnit.DAYS.between(FIRST, LAST) + 1));
+            LocalDate study = FIRST.plusDays(random.nextInt((int) ChronoUnit.DAYS.between(FIRST, LAST) + 1));
+            if (i % 4 == 0) study = start.plusDays(random.nextInt(3) - 1);
+            ControlData.startYear = study.getYear();
+            ControlData.startMonth = study.getMonthValue();
+            ControlData.startDay = study.getDayOfMonth();
+            Date startTime = new Date(start.getYear() - 1900, start.getMonthValue() - 1, start.getDayOfMonth());
+
+            for (String step : new String[] {"1MON", "1DAY"}) {
+                DssDataSet dds = new DssDataSet();
+                dds.setTimeStep(step);
+                dds.setStartTime(startTime);
+                dds.generateStudyStartIndex();
+                assertEquals(previousStudyStartIndex(startTime, step), dds.getStudyStartIndex(), step + " " + start + " " + study);
+            }
+            Date dateB = new Date(study.getYear() - 1900, study.getMonthValue() - 1, study.getDayOfMonth());
+            for (String step : new String[] {"1MON", "1DAY"}) {
+                assertEquals(previousNumberOfTimestep(startTime, dateB, step), TimeOperation.getNumberOfTimestep(startTime, dateB, step), step + " " + start + " " + study);
+            }
+        }
+    }
+
+    private static void assertDay(LocalDate date) {
+        int epochDay = EpochCalendar.epochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+        assertEquals(date.toEpochDay(), epochDay, date.toString());
+        ParallelVars prvs = new ParallelVars();
+        EpochCalendar.setDay(prvs, epochDay);
+        assertEquals(date, LocalDate.of(prvs.dataYear, prvs.dataMonth, prvs.dataDay));
+    }
+
+    private static void assertSameTime(ParallelVars expected, ParallelVars actual, String message) {
+        assertEquals(expected.dataYear + "-" + expected.dataMonth + "-" + expected.dataDay,
+            actual.dataYear + "-" + actual.dataMonth + "-" + actual.dataDay, message);
+    }
+
+    /**
+     * TimeOperation.findTime for monthly time steps before EpochCalendar.
+     */
+    private static ParallelVars previousMonthlyFindTime(int value) {
+        ParallelVars prvs = new ParallelVars();
+        int detYear = value / 12;
+        int detMonth = value % 12;
+        prvs.dataMonth = ControlData.currMonth + detMonth;
+        prvs.dataYear = ControlData.currYear + detYear;
+        if (prvs.dataMonth < 1) {
+            prvs.dataMonth = prvs.dataMonth + 12;
+            prvs.dataYear = prvs.dataYear - 1;
+        } else if (prvs.dataMonth > 12) {
+            prvs.dataMonth = prvs.dataMonth - 12;
+            prvs.dataYear = prvs.dataYear + 1;
+        }
+        prvs.dataDay = TimeOperation.numberOfDays(prvs.dataMonth, prvs.dataYear);
+        return prvs;
+    }
+
+    /**
+     * TimeOperation.findTime for daily time steps before EpochCalendar.
+     */
+    private static ParallelVars previousDailyFindTime(int value) {
+        ParallelVars prvs = new ParallelVars();
+        Date currDate = new Date(ControlData.currYear - 1900, ControlData.currMonth - 1, ControlData.currDay);
+        Calendar c = Calendar.getInstance();
+        c.setTime(currDate);
+        c.add(Calendar.DATE, value);
+        Date dataDate = c.getTime();
+        prvs.dataDay = dataDate.getDate();
+        prvs.dataMonth = dataDate.getMonth() + 1;
+        prvs.dataYear = dataDate.getYear() + 1900;
+        return prvs;
+    }
+
+    /**
+     * DssDataSet.generateStudyStartIndex before EpochCalendar.
+     */
+    private static int previousStudyStartIndex(Date st, String timeStep) {
+        int sYear = st.getYear() + 1900;
+        int sMonth = st.getMonth() + 1;
+        Date studyStart = new Date(ControlData.startYear - 1900, ControlData.startMonth - 1, ControlData.startDay);
+        if (TimeOperation.isMonthlyInterval(timeStep)) {
+            return ControlData.startYear * 12 + ControlData.startMonth - (sYear * 12 + sMonth);
+        }
+        Calendar c1 = Calendar.getInstance();
+        c1.setTime(st);
+        Calendar c2 = Calendar.getInstance();
+        c2.setTime(studyStart);
+        return (int) Duration.between(c1.toInstant(), c2.toInstant()).toDays() + 1;
+    }
+
+    /**
+     * TimeOperation.getNumberOfTimestep before EpochCalendar.
+     */
+    private static int previousNumberOfTimestep(Date dateA, Date dateB, String timeStep) {
+        int diff;
+        if (TimeOperation.isMonthlyInterval(timeStep)) {
+            diff = (dateB.getYear() - dateA.getYear()) * 12 + (dateB.getMonth() - dateA.getMonth()) + 1;
+        } else {
+            Calendar c1 = Calendar.getInstance();
+            c1.setTime(dateA);
+            Calendar c2 = Calendar.getInstance();
+            c2.setTime(dateB);
+            diff = (int) Duration.between(c1.toInstant(), c2.toInstant()).toDays() + 1;
+        }
+        return diff <= 0 ? 0 : diff;
+    }
+}
@@ -0,0 +1,203 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Param;
+import gov.ca.water.wrims.engine.core.components.Error;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The operations of Evaluation on sparse expressions give the terms, the
+ * coefficients and the term order they give on expressions kept in the
+ * multiplier map.
+ */
+final class EvalExpressionTest {
+    private static final String[] DVARS = {"a", "b", "c", "d", "e", "f"};
+    private static final boolean[] INTEGER = {false, true, false, true, false, false};
+
+    private final DvarIndex index = index();
+
+    @AfterEach
+    void tearDown() {
+        Error.error_evaluation.clear();
+    }
+
+    @Test
+    void randomExpressionsMatchMapForm() {
+        Random random = new Random(20261017L);
+        for (int n = 0; n < 2000; n++) {
+            Pair pair = expression(random, 4);
+            assertSame(pair, "expression " + n);
+        }
+        assertTrue(Error.error_evaluation.isEmpty(), Error.error_evaluation.toString());
+    }
+
+    @Test
+    void termsKeepOrderOfMapPuts() {
+        // f+b-f+a+f: f is removed and put again after a
+        Pair pair = pair(5);
+        pair = add(pair, pair(1));
+        pair = substract(pair, pair(5));
+        pair = add(pair, pair(0));
+        pair = add(pair, pair(5));
+        assertSame(pair, "f+b-f+a+f");
+        assertEquals(List.of("b", "a", "f"), new ArrayList<>(pair.sparse.getMultiplier().keySet()));
+    }
+
+    @Test
+    void intCoefficientRules() {
+        // b and d are integer dvars: 3*b stays int, 3*b/2 truncates to 1, d/2 is 0 and kept
+        Pair pair = mult(constant(3, true), pair(1));
+        assertSame(pair, "3*b");
+        assertEquals(Integer.valueOf(3), pair.sparse.getMultiplier().get("b").getData());
+        pair = divide(pair, constant(2, true));
+        assertSame(pair, "3*b/2");
+        assertEquals(Integer.valueOf(1), pair.sparse.getMultiplier().get("b").getData());
+        Pair half = divide(pair(3), constant(2, true));
+        assertSame(half, "d/2");
+        assertEquals(Integer.valueOf(0), half.sparse.getMultiplier().get("d").getData());
+        Pair real = mult(pair(1), constant(0.5, false));
+        assertSame(real, "b*0.5");
+        assertEquals(Double.valueOf(0.5), real.sparse.getMultiplier().get("b").getData());
+        Pair zero = mult(pair(0), constant(0, true));
+        assertSame(zero, "a*0");
+        assertTrue(zero.sparse.isNumeric());
+    }
+
+    @Test
+    void multiplierIsReadOnlyView() {
+        EvalExpression ee = new EvalExpression(new IntDouble(0, true), index, 0);
+        Evaluation.add(ee, new EvalExpression(new IntDouble(0, true), index, 2));
+        LinkedHashMap<String, IntDouble> multiplier = ee.getMultiplier();
+        assertThrows(UnsupportedOperationException.class, () -> multiplier.put("b", new IntDouble(1, true)));
+        assertThrows(UnsupportedOperationException.class, () -> multiplier.remove("a"));
+        assertThrows(UnsupportedOperationException.class, () -> multiplier.keySet().remove("a"));
+        assertThrows(UnsupportedOperationException.class, () -> multiplier.entrySet().iterator().next().setValue(null));
+        assertTrue(ee.isSparse());
+        assertEquals(2, multiplier.size());
+
+        Evaluation.unary("-", ee);
+        assertTrue(ee.isSparse());
+        assertEquals(Double.valueOf(-1.0), ee.getMultiplier().get("a").getData());
+        assertEquals(Double.valueOf(1.0), multiplier.get("a").getData());
+    }
+
+    @Test
+    void addedDvarsGetStableIds() {
+        int id = index.findOrAdd("a__fut__1");
+        assertTrue(id >= DVARS.length);
+        assertEquals(id, index.findOrAdd("a__fut__1"));
+        assertEquals("a__fut__1", index.name(id));
+        assertEquals(2, index.findOrAdd("c"));
+        assertFalse(index.isInteger(id));
+    }
+
+    private void assertSame(Pair pair, String text) {
+        EvalExpression sparse = pair.sparse;
+        EvalExpression map = pair.map;
+        assertTrue(sparse.isSparse(), text);
+        assertEquals(map.isNumeric(), sparse.isNumeric(), text);
+        assertEquals(map.getValue().isInt(), sparse.getValue().isInt(), text);
+        assertEquals(map.getValue().getData(), sparse.getValue().getData(), text);
+        List<String> mapTerms = new ArrayList<>();
+        for (Map.Entry<String, IntDouble> entry : map.getMultiplier().entrySet()) {
+            mapTerms.add(entry.getKey() + "=" + entry.getValue().getData() + (entry.getValue().isInt() ? "i" : "d"));
+        }
+        List<String> sparseTerms = new ArrayList<>();
+        for (Map.Entry<String, IntDouble> entry : sparse.getMultiplier().entrySet()) {
+            sparseTerms.add(entry.getKey() + "=" + entry.getValue().getData() + (entry.getValue().isInt() ? "i" : "d"));
+        }
+        assertEquals(mapTerms, sparseTerms, text);
+    }
+
+    private Pair expression(Random random, int depth) {
+        if (depth == 0 || random.nextInt(4) == 0) {
+            if (random.nextBoolean()) return pair(random.nextInt(DVARS.length));
+            if (random.nextBoolean()) return constant(random.nextInt(7) - 3, true);
+            return constant((random.nextInt(9) - 4) * 0.5, false);
+        }
+        switch (random.nextInt(5)) {
+        case 0:
+            return add(expression(random, depth - 1), expression(random, depth - 1));
+        case 1:
+            return substract(expression(random, depth - 1), expression(random, depth - 1));
+        case 2:
+            Pair negated = expression(random, depth - 1);
+            return new Pair(Evaluation.unary("-", negated.sparse), Evaluation.unary("-", negated.map));
+        case 3:
+            Pair factor = random.nextBoolean() ? constant(random.nextInt(5) - 2, true) : constant((random.nextInt(5) - 2) * 1.5, false);
+            Pair term = expression(random, depth - 1);
+            return random.nextBoolean() ? mult(factor, term) : mult(term, factor);
+        default:
+            int divisor = random.nextInt(4) + 1;
+            return divide(expression(random, depth - 1), random.nextBoolean() ? constant(divisor, true) : constant(divisor * 0.5, false));
+        }
+    }
+
+    private Pair pair(int dvar) {
+        EvalExpression sparse = new EvalExpression(new IntDouble(0, true, DVARS[dvar], 0), index, dvar);
+        EvalExpression map = new EvalExpression(new IntDouble(0, true, DVARS[dvar], 0));
+        LinkedHashMap<String, IntDouble> multiplier = new LinkedHashMap<>();
+        multiplier.put(DVARS[dvar], INTEGER[dvar] ? new IntDouble(1, true, DVARS[dvar], 0) : new IntDouble(1.0, false, DVARS[dvar], 0));
+        map.setMultiplier(multiplier);
+        return new Pair(sparse, map);
+    }
+
+    private static Pair constant(int value, boolean isInt) {
+        return new Pair(new EvalExpression(new IntDouble(value, isInt)), new EvalExpression(new IntDouble(value, isInt)));
+    }
+
+    private static Pair constant(double value, boolean isInt) {
+        return new Pair(new EvalExpression(new IntDouble(value, isInt)), new EvalExpression(new IntDouble(value, isInt)));
+    }
+
+    private static Pair add(Pair p1, Pair p2) {
+        return new Pair(Evaluation.add(p1.sparse, p2.sparse), Evaluation.add(p1.map, p2.map));
+    }
+
+    private static Pair substract(Pair p1, Pair p2) {
+        return new Pair(Evaluation.substract(p1.sparse, p2.sparse), Evaluation.substract(p1.map, p2.map));
+    }
+
+    private static Pair mult(Pair p1, Pair p2) {
+        return new Pair(Evaluation.mult(p1.sparse, p2.sparse), Evaluation.mult(p1.map, p2.map));
+    }
+
+    private static Pair divide(Pair p1, Pair p2) {
+        return new Pair(Evaluation.divide(p1.sparse, p2.sparse), Evaluation.divide(p1.map, p2.map));
+    }
+
+    private static DvarIndex index() {
+        ModelDataSet mds = new ModelDataSet();
+        for (int i = 0; i < DVARS.length; i++) {
+            Dvar dvar = new Dvar();
+            dvar.integer = INTEGER[i] ? Param.yes : Param.no;
+            mds.dvList.add(DVARS[i]);
+            mds.dvMap.put(DVARS[i], dvar);
+        }
+        return new DvarIndex(mds);
+    }
+
+    private static final class Pair {
+        final EvalExpression sparse;
+        final EvalExpression map;
+
+        Pair(EvalExpression sparse, EvalExpression map) {
+            this.sparse = sparse;
+            this.map = map;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The exceedance and exceedance_tsi values of an ExceedanceIndex are those of
+ * the DssDataSet methods it replaced, and the index of a selection is built
+ * again when the data are changed. Only the indexes of the last selections
+ * used are kept. The replaced daily offsets are computed in UTC, where a day
+ * always has 24 hours.
+ */
+final class ExceedanceIndexTest {
+    private static final String[] SELECTIONS = {"all", "jan", "oct", "sep", "octsep", "aprsep", "marmay", "novfeb"};
+    private static final double[] LEVELS = {0, 0.01, 0.1, 0.25, 0.5, 0.5001, 0.75, 0.9, 0.99, 1};
+
+    private final TimeZone timeZone = TimeZone.getDefault();
+    private final String timeStep = ControlData.timeStep;
+    private final int currYear = ControlData.currYear;
+    private final int currMonth = ControlData.currMonth;
+    private final int currDay = ControlData.currDay;
+
+    @BeforeEach
+    void setUp() {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        StudyDataSet sds = new StudyDataSet();
+        ArrayList<String> modelList = new ArrayList<>();
+        modelList.add("m1");
+        sds.setModelList(modelList);
+        ControlData.currStudyDataSet = sds;
+        ControlData.currCycleIndex = 0;
+        Error.error_evaluation.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TimeZone.setDefault(timeZone);
+        ControlData.timeStep = timeStep;
+        ControlData.currYear = currYear;
+        ControlData.currMonth = currMonth;
+        ControlData.currDay = currDay;
+        Error.error_evaluation.clear();
+    }
+
+    @Test
+    void monthlyExceedanceMatchesPreviousSort() {
+        assertSameExceedance("1MON", 20261017);
+    }
+
+    @Test
+    void dailyExceedanceMatchesPreviousSort() {
+        assertSameExceedance("1DAY", 20261018);
+    }
+
+    @Test
+    void indexIsBuiltAgainWhenDataChange() {
+        ControlData.timeStep = "1MON";
+        DssDataSet dds = dataSet("1MON", new Date(1921 - 1900, 10 - 1, 31), new Random(1), 240);
+        Date sd = new Date(1925 - 1900, 0, 1);
+        Date ed = new Date(1935 - 1900, 11, 31);
+
+        ExceedanceIndex index = dds.getExceedanceIndex("aprsep", sd, ed);
+        assertSame(index, dds.getExceedanceIndex("aprsep", sd, ed), "the index of a selection is kept");
+        assertNotSame(index, dds.getExceedanceIndex("jan", sd, ed));
+        double median = index.getExceedance(0.5);
+
+        // changed in place, as the debugger does
+        ArrayList<Double> data = dds.getData();
+        for (int i = 0; i < data.size(); i++) {
+            data.set(i, data.get(i) + 1000);
+        }
+        assertSame(index, dds.getExceedanceIndex("aprsep", sd, ed));
+        dds.clearExceedanceIndex();
+        ExceedanceIndex cleared = dds.getExceedanceIndex("aprsep", sd, ed);
+        assertNotSame(index, cleared);
+        assertEquals(median + 6000, cleared.getExceedance(0.5), 1e-9);
+        assertEquals(previousExceedance(dds, "aprsep", sd, ed, 0.5), cleared.getExceedance(0.5));
+
+        ArrayList<Double> replaced = new ArrayList<>(data);
+        replaced.replaceAll(value -> value * 2);
+        dds.setData(replaced);
+        ExceedanceIndex set = dds.getExceedanceIndex("aprsep", sd, ed);
+        assertNotSame(cleared, set);
+        assertEquals(previousExceedance(dds, "aprsep", sd, ed, 0.5), set.getExceedance(0.5));
+
+        // a longer timeseries has another key
+        replaced.add(5.0);
+        assertNotSame(set, dds.getExceedanceIndex("aprsep", sd, ed));
+    }
+
+    @Test
+    void indexesOfOldWindowsAreDropped() {
+        ControlData.timeStep = "1MON";
+        DssDataSet dds = dataSet("1MON", new Date(1921 - 1900, 10 - 1, 31), new Random(3), 960);
+        Date ed = new Date(2000 - 1900, 11, 31);
+        Date first = new Date(1922 - 1900, 0, 1);
+        ExceedanceIndex used = dds.getExceedanceIndex("all", first, ed);
+
+        // a window moving with the time step, with the first window used again
+        ExceedanceIndex last = null;
+        for (int year = 1923; year < 1990; year++) {
+            last = dds.getExceedanceIndex("all", new Date(year - 1900, 0, 1), ed);
+            assertSame(used, dds.getExceedanceIndex("all", first, ed));
+            assertTrue(dds.exceedanceIndexCount() <= DssDataSet.MAX_EXCEEDANCE_INDEXES);
+        }
+        assertEquals(DssDataSet.MAX_EXCEEDANCE_INDEXES, dds.exceedanceIndexCount());
+        assertSame(last, dds.getExceedanceIndex("all", new Date(1989 - 1900, 0, 1), ed));
+        assertNotSame(last, dds.getExceedanceIndex("all", new Date(1923 - 1900, 0, 1), ed));
+        assertEquals(previousExceedance(dds, "all", first, ed, 0.25), dds.getExceedanceIndex("all", first, ed).getExceedance(0.25));
+    }
+
+    @Test
+    void emptySelectionAndMissingDateReportErrors() {
+        ControlData.timeStep = "1MON";
+        ControlData.currYear = 1930;
+        ControlData.currMonth = 1;
+        DssDataSet dds = dataSet("1MON", new Date(1921 - 1900, 10 - 1, 31), new Random(2), 120);
+
+        ExceedanceIndex empty = dds.getExceedanceIndex("all", new Date(1950 - 1900, 0, 1), new Date(1960 - 1900, 0, 1));
+        assertEquals(0, empty.size());
+        assertEquals(1.0, empty.getExceedance(0.5));
+        assertEquals(1, Error.error_evaluation.size());
+        assertEquals(0, empty.getExceedance_tsi(0.5));
+        assertEquals(2, Error.error_evaluation.size());
+
+        // the dates of an "all" selection are not kept by value, where the
+        // previous exceedance_tsi threw a NullPointerException
+        Error.error_evaluation.clear();
+        Date sd = new Date(1922 - 1900, 0, 1);
+        Date ed = new Date(1928 - 1900, 0, 1);
+        assertEquals("NullPointerException", outcome(() -> previousExceedance_tsi(dds, "all", sd, ed, 0.5)));
+        assertEquals(0, dds.getExceedanceIndex("all", sd, ed).getExceedance_tsi(0.5));
+        assertTrue(Error.error_evaluation.get(0).contains("is not found in the Exceedance_TSI function"), Error.error_evaluation.toString());
+    }
+
+    private void assertSameExceedance(String step, long seed) {
+        Random random = new Random(seed);
+        ControlData.timeStep = step;
+        boolean daily = step.equals("1DAY");
+        int nTsi = 0;
+        for (int d = 0; d < 12; d++) {
+            Date start = new Date(1899 - 1900 + random.nextInt(200), random.nextInt(12), 1 + random.nextInt(28));
+            DssDataSet dds = dataSet(step, start, random, daily ? 3000 + random.nextInt(1000) : 120 + random.nextInt(600));
+            for (int w = 0; w < 10; w++) {
+                Date sd = shift(start, daily, random.nextInt(daily ? 1500 : 300) - 20);
+                Date ed = shift(sd, daily, random.nextInt(daily ? 2500 : 500));
+                ControlData.currYear = sd.getYear() + 1900 + random.nextInt(5);
+                ControlData.currMonth = 1 + random.nextInt(12);
+                ControlData.currDay = 1 + random.nextInt(28);
+                for (String selMon : SELECTIONS) {
+                    ExceedanceIndex index = dds.getExceedanceIndex(selMon, sd, ed);
+                    for (double exc : LEVELS) {
+                        String message = step + " " + start + " " + selMon + " " + sd + " " + ed + " " + exc;
+                        assertEquals(outcome(() -> previousExceedance(dds, selMon, sd, ed, exc)), outcome(() -> index.getExceedance(exc)), message);
+
+                        String previous = outcome(() -> previousExceedance_tsi(dds, selMon, sd, ed, exc));
+                        String actual = outcome(() -> index.getExceedance_tsi(exc));
+                        if (previous.equals("NullPointerException")) {
+                            assertTrue(actual.startsWith("0 [") && actual.contains("is not found in the Exceedance_TSI function"), message + " " + actual);
+                        } else {
+                            assertEquals(previous, actual, message);
+                            nTsi++;
+                        }
+                    }
+                }
+            }
+        }
+        assertTrue(nTsi > 0, "exceedance_tsi finds dates");
+    }
+
+    private static DssDataSet dataSet(String step, Date start, Random random, int size) {
+        ArrayList<Double> data = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            data.add(random.nextInt(10) == 0 ? Math.floor(random.nextDouble() * 4) : Math.round(random.nextGaussian() * 100000) / 100.0);
+        }
+        DssDataSet dds = new DssDataSet();
+        dds.setTimeStep(step);
+        dds.setStartTime(start);
+        dds.setData(data);
+        return dds;
+    }
+
+    private static Date shift(Date date, boolean daily, int steps) {
+        Calendar c = Calendar.getInstance();
+        c.setTime(date);
+        c.add(daily ? Calendar.DATE : Calendar.MONTH, steps);
+        return c.getTime();
+    }
+
+    /**
+     * The value or the name of the exception, and the errors.
+     */
+    private static String outcome(Supplier<Number> exceedance) {
+        Error.error_evaluation.clear();
+        String text;
+        try {
+            text = exceedance.get().toString();
+        } catch (RuntimeException e) {
+            return e.getClass().getSimpleName();
+        }
+        return text + " " + Error.error_evaluation;
+    }
+
+    /**
+     * DssDataSet.getExceedance before ExceedanceIndex.
+     */
+    private static double previousExceedance(DssDataSet dds, String selMon, Date selSd, Date selEd, double exc) {
+        ArrayList<Double> optedData = dds.getTimeseriesDataWithOptions(selMon, selSd, selEd, new HashMap<>());
+        int size = optedData.size();
+        if (size == 0) {
+            Error.addEvaluationError("The data in the specified time period and selected month(s) from the timeseries doesn't exist in the Exceedance function.");
+            return 1.0;
+        }
+        Double[] values = optedData.toArray(new Double[size]);
+        Arrays.sort(values);
+        if (exc == 1) {
+            return values[0];
+        }
+        double excIndex = (1.0 - exc) * size;
+        if (excIndex >= 1.0) {
+            int index = (int) Math.floor(excIndex);
+            double fract = excIndex - index;
+            return values[index - 1] + fract * (values[index] - values[index - 1]);
+        }
+        return values[0] - (1.0 - excIndex) * (values[1] - values[0]);
+    }
+
+    /**
+     * DssDataSet.getExceedance_tsi before ExceedanceIndex.
+     */
+    private static int previousExceedance_tsi(DssDataSet dds, String selMon, Date selSd, Date selEd, double exc) {
+        HashMap<Double, Date> selDataMap = new HashMap<>();
+        ArrayList<Double> optedData = dds.getTimeseriesDataWithOptions(selMon, selSd, selEd, selDataMap);
+        int size = optedData.size();
+        if (size == 0) {
+            Error.addEvaluationError("The data in the specified time period and selected month(s) from the timeseries doesn't exist in the Exceedance function.");
+            return 0;
+        }
+        Double[] values = optedData.toArray(new Double[size]);
+        Arrays.sort(values);
+        double excIndex = (1.0 - exc) * size;
+        int index = (int) Math.round(excIndex) - 1;
+        if (index < 0) index = 0;
+        Date dataDate = selDataMap.get(values[index]);
+        int dataYear = dataDate.getYear() + 1900;
+        int dataMonth = dataDate.getMonth() + 1;
+        if (TimeOperation.isMonthlyInterval(ControlData.timeStep)) {
+            return (dataYear - ControlData.currYear) * 12 + (dataMonth - ControlData.currMonth);
+        }
+        Date currDate = new Date(ControlData.currYear - 1900, ControlData.currMonth - 1, ControlData.currDay);
+        Calendar c1 = Calendar.getInstance();
+        c1.setTime(currDate);
+        Calendar c2 = Calendar.getInstance();
+        c2.setTime(dataDate);
+        return (int) Duration.between(c1.toInstant(), c2.toInstant()).toDays();
+    }
+}
@@ -0,0 +1,160 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.parallel.EvaluationContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A model evaluates to the same values and errors with the compiled
+ * expressions optimized and not optimized.
+ */
+final class ExpressionOptimizerTest {
+    private static final String[][] SVARS = {
+        {"a", "month*1.5"},
+        {"b", "max(a;3)-1"},
+        // the same sub-expression in three svars is shared
+        {"s1", "(a*2+b*3-month)/4"},
+        {"s2", "(a*2+b*3-month)/4+1"},
+        {"s3", "min((a*2+b*3-month)/4;5)"},
+        // parameters and constants are folded
+        {"p1", "optp*2+1"},
+        {"p2", "a+(optp-1)*(3+4)"},
+        {"i1", "int(optp/3)+7/2"},
+        // the folds that report an error are kept and report it at run time
+        {"e1", "1/0+a"},
+        {"e2", "b+mod(5;0)"},
+    };
+
+    private boolean optimize = ControlData.optimizeExpressions;
+
+    @AfterEach
+    void tearDown() {
+        ControlData.optimizeExpressions = optimize;
+        ControlData.parameterMap.remove("optp");
+        Error.error_evaluation.clear();
+    }
+
+    @Test
+    void optimizedModelEvaluatesTheSame() {
+        List<String> plain = run(false);
+        List<String> optimized = run(true);
+        assertEquals(plain, optimized);
+        assertTrue(plain.stream().anyMatch(line -> line.contains("divided by 0")), plain.toString());
+    }
+
+    @Test
+    void optimizationFoldsAndShares() {
+        ModelDataSet mds = bind(true);
+        assertEquals(ValueNode.CONSTANT, node(mds, "p1").type);
+        assertEquals(ValueNode.CONSTANT, node(mds, "i1").type);
+        assertEquals(ValueNode.DIVIDE, node(mds, "e1").children[0].type);
+        assertTrue(contains(node(mds, "s1"), ValueNode.SHARED), "s1 is shared");
+        assertTrue(contains(node(mds, "s2"), ValueNode.SHARED), "s2 is shared");
+
+        ModelDataSet plain = bind(false);
+        assertFalse(contains(node(plain, "s1"), ValueNode.SHARED));
+        assertEquals(ValueNode.ADD, node(plain, "p1").type);
+    }
+
+    @Test
+    void foldErrorsStayOutOfEnteredContext() {
+        EvaluationContext context = new EvaluationContext(0, "outer");
+        context.enter();
+        try {
+            bind(true);
+            assertSame(context, EvaluationContext.current());
+            assertEquals(0, context.errorCount());
+        } finally {
+            context.exit();
+        }
+        assertTrue(Error.error_evaluation.isEmpty(), Error.error_evaluation.toString());
+    }
+
+    private List<String> run(boolean optimizeExpressions) {
+        ModelDataSet mds = bind(optimizeExpressions);
+        assertTrue(Error.error_evaluation.isEmpty(), "folding reports no error: " + Error.error_evaluation);
+        List<String> lines = new ArrayList<>();
+        for (int month = 1; month <= 12; month++) {
+            ControlData.currMonth = month;
+            Error.error_evaluation.clear();
+            mds.processModel();
+            for (String[] svar : SVARS) {
+                IntDouble data = mds.svMap.get(svar[0]).getData();
+                lines.add(month + " " + svar[0] + "=" + data.getData() + (data.isInt() ? "i" : "d"));
+            }
+            lines.addAll(Error.error_evaluation);
+        }
+        return lines;
+    }
+
+    private static ModelDataSet bind(boolean optimizeExpressions) {
+        ModelDataSet mds = new ModelDataSet();
+        for (String[] svar : SVARS) {
+            addSvar(mds, svar[0], svar[1]);
+        }
+        Svar parameter = new Svar();
+        parameter.setData(new IntDouble(4, true));
+        ControlData.parameterMap.put("optp", parameter);
+
+        StudyDataSet sds = new StudyDataSet();
+        ArrayList<String> modelList = new ArrayList<>();
+        modelList.add("m1");
+        sds.setModelList(modelList);
+        Map<String, ModelDataSet> modelDataSetMap = new HashMap<>();
+        modelDataSetMap.put("m1", mds);
+        sds.setModelDataSetMap(modelDataSetMap);
+
+        ControlData.currStudyDataSet = sds;
+        ControlData.currModelDataSet = mds;
+        ControlData.currSvMap = mds.svMap;
+        ControlData.currTsMap = mds.tsMap;
+        ControlData.currDvMap = mds.dvMap;
+        ControlData.currAliasMap = mds.asMap;
+        ControlData.currCycleName = "m1";
+        ControlData.currCycleIndex = 0;
+        ControlData.currYear = 2000;
+        ControlData.currMonth = 1;
+        ControlData.currDay = 31;
+        ControlData.optimizeExpressions = optimizeExpressions;
+        Error.error_evaluation.clear();
+        new PreEvaluator(sds);
+        return mds;
+    }
+
+    private static void addSvar(ModelDataSet mds, String svName, String expression) {
+        Svar svar = new Svar();
+        svar.caseName.add("default");
+        svar.caseCondition.add("always");
+        svar.caseExpression.add(expression);
+        mds.svList.add(svName);
+        mds.svMap.put(svName, svar);
+    }
+
+    private static ValueNode node(ModelDataSet mds, String svName) {
+        return mds.svMap.get(svName).caseExpressionCompiled.get(0).node;
+    }
+
+    private static boolean contains(ValueNode node, int type) {
+        if (node.type == type) return true;
+        for (ValueNode child : node.children) {
+            if (contains(child, type)) return true;
+        }
+        return false;
+    }
+}
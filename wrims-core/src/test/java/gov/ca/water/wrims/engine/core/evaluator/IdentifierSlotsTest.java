@@ -0,0 +1,110 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.parallel.ParallelVars;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Stack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * An identifier bound to a slot reads the variable that term_IDENT would find,
+ * also after the variable in the model map is replaced.
+ */
+final class IdentifierSlotsTest {
+
+    @AfterEach
+    void tearDown() {
+        Error.error_evaluation.clear();
+    }
+
+    @Test
+    void boundVariableIsVariableOfMap() {
+        ModelDataSet mds = model();
+        IdentifierSlots slots = mds.identifierSlots;
+        int slot = slots.find("a");
+        assertTrue(slot >= 0);
+        assertEquals(IdentifierSlots.SVAR, slots.kind(slot));
+        assertSame(mds.svMap.get("a"), slots.boundVariable(slot, "a"));
+
+        mds.svMap.put("a", svar("a", 10));
+        assertNull(slots.boundVariable(slot, "a"));
+        int parameter = slots.bind("k");
+        assertEquals(IdentifierSlots.PARAMETER, slots.kind(parameter));
+        assertNull(slots.boundVariable(parameter, "k"));
+    }
+
+    @Test
+    void replacedSvarIsReadFromMap() {
+        ModelDataSet mds = model();
+        mds.processModel();
+        assertTrue(Error.error_evaluation.isEmpty(), Error.error_evaluation.toString());
+        assertEquals(6, mds.svMap.get("b").getData().getData());
+
+        mds.svMap.put("a", svar("a", 10));
+        CompiledExpression compiled = mds.svMap.get("b").caseExpressionCompiled.get(0);
+        assertNotNull(compiled);
+        assertEquals(11, compiled.evaluateValue(new ParallelVars()).getData());
+        assertEquals(10, ValueEvaluation.term_IDENT("a", new Stack<>()).getData());
+        assertEquals(10, Evaluation.term_IDENT("a", new Stack<>()).getValue().getData());
+        assertTrue(Error.error_evaluation.isEmpty(), Error.error_evaluation.toString());
+    }
+
+    private static ModelDataSet model() {
+        ModelDataSet mds = new ModelDataSet();
+        addSvar(mds, "a", "5");
+        addSvar(mds, "b", "a+1");
+
+        StudyDataSet sds = new StudyDataSet();
+        ArrayList<String> modelList = new ArrayList<>();
+        modelList.add("m1");
+        sds.setModelList(modelList);
+        Map<String, ModelDataSet> modelDataSetMap = new HashMap<>();
+        modelDataSetMap.put("m1", mds);
+        sds.setModelDataSetMap(modelDataSetMap);
+
+        ControlData.currStudyDataSet = sds;
+        ControlData.currModelDataSet = mds;
+        ControlData.currSvMap = mds.svMap;
+        ControlData.currTsMap = mds.tsMap;
+        ControlData.currDvMap = mds.dvMap;
+        ControlData.currAliasMap = mds.asMap;
+        ControlData.currCycleName = "m1";
+        ControlData.currCycleIndex = 0;
+        ControlData.currYear = 2000;
+        ControlData.currMonth = 1;
+        ControlData.currDay = 31;
+        new PreEvaluator(sds);
+        Error.error_evaluation.clear();
+        return mds;
+    }
+
+    private static void addSvar(ModelDataSet mds, String svName, String expression) {
+        Svar svar = new Svar();
+        svar.caseName.add("default");
+        svar.caseCondition.add("always");
+        svar.caseExpression.add(expression);
+        mds.svList.add(svName);
+        mds.svMap.put(svName, svar);
+    }
+
+    private static Svar svar(String svName, int value) {
+        Svar svar = new Svar();
+        svar.setData(new IntDouble(value, true, svName, 0));
+        return svar;
+    }
+}
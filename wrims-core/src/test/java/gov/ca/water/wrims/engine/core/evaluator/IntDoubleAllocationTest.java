@@ -0,0 +1,171 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Allocation benchmark of the value kernels. "Before" is the Number backed
+ * IntDouble layout and add kernel that ValueEvaluation used to have, kept here
+ * as BoxedIntDouble for comparison. The byte counts are printed; the tests
+ * only assert which side allocates less.
+ */
+final class IntDoubleAllocationTest {
+    private static final int N = 100_000;
+    private static final int ROUNDS = 5;
+
+    private static com.sun.management.ThreadMXBean threadBean;
+
+    @BeforeAll
+    static void setUpAll() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "thread allocation counter is not available");
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported(), "thread allocation counter is not supported");
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    void addAllocatesLessThanBoxedAdd() {
+        BoxedIntDouble[] boxed = new BoxedIntDouble[N];
+        IntDouble[] primitive = new IntDouble[N];
+        BoxedIntDouble b1 = new BoxedIntDouble(1.5, false);
+        BoxedIntDouble b2 = new BoxedIntDouble(2.25, false);
+        IntDouble p1 = new IntDouble(1.5, false);
+        IntDouble p2 = new IntDouble(2.25, false);
+
+        long before = 0;
+        long after = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            long start = allocatedBytes();
+            for (int i = 0; i < N; i++) {
+                boxed[i] = BoxedIntDouble.add(b1, b2);
+            }
+            before = allocatedBytes() - start;
+
+            start = allocatedBytes();
+            for (int i = 0; i < N; i++) {
+                primitive[i] = ValueEvaluation.add(p1, p2);
+            }
+            after = allocatedBytes() - start;
+        }
+        System.out.println("add, bytes per operation: before=" + (double) before / N + " after=" + (double) after / N);
+
+        assertEquals(3.75, primitive[N - 1].doubleValue());
+        assertEquals(3.75, boxed[N - 1].data.doubleValue());
+        assertTrue(after < before, "primitive add allocated " + after + " bytes, boxed add " + before);
+    }
+
+    @Test
+    void addToOwnedSumDoesNotAllocate() {
+        IntDouble one = new IntDouble(1, true);
+        IntDouble half = new IntDouble(0.5, false);
+
+        long allocated = 0;
+        IntDouble sum = null;
+        for (int r = 0; r < ROUNDS; r++) {
+            sum = new IntDouble(0, true);
+            long start = allocatedBytes();
+            for (int i = 0; i < N; i++) {
+                ValueEvaluation.add(sum, one, sum);
+            }
+            ValueEvaluation.add(sum, half, sum);
+            allocated = allocatedBytes() - start;
+        }
+        System.out.println("add to an owned sum, bytes per operation: " + (double) allocated / N);
+
+        assertEquals(N + 0.5, sum.doubleValue());
+        assertTrue(!sum.isInt());
+        assertTrue(allocated < N, "add to an owned sum allocated " + allocated + " bytes for " + N + " operations");
+    }
+
+    @Test
+    void ownedResultDoesNotAllocate() {
+        IntDouble a = new IntDouble(1.5, false);
+        IntDouble b = new IntDouble(2, true);
+        IntDouble c = new IntDouble(0.25, false);
+        IntDouble result = new IntDouble();
+
+        long chain = 0;
+        long owned = 0;
+        IntDouble allocated = null;
+        for (int r = 0; r < ROUNDS; r++) {
+            long start = allocatedBytes();
+            for (int i = 0; i < N; i++) {
+                allocated = ValueEvaluation.substract(ValueEvaluation.add(ValueEvaluation.mult(a, b), c), a);
+            }
+            chain = allocatedBytes() - start;
+
+            start = allocatedBytes();
+            for (int i = 0; i < N; i++) {
+                ValueEvaluation.substract(ValueEvaluation.add(ValueEvaluation.mult(a, b, result), c, result), a, result);
+            }
+            owned = allocatedBytes() - start;
+        }
+        System.out.println("a*b+c-a, bytes per operation: new values=" + (double) chain / N + " owned result=" + (double) owned / N);
+
+        assertEquals(allocated.doubleValue(), result.doubleValue());
+        assertEquals(1.75, result.doubleValue());
+        assertTrue(owned < N, "the owned result allocated " + owned + " bytes for " + N + " operations");
+        assertTrue(owned < chain);
+    }
+
+    @Test
+    void dataStringAllocatesLessThanBoxedToString() {
+        IntDouble coef = new IntDouble(1234, true);
+
+        long boxed = 0;
+        long primitive = 0;
+        int length = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            long start = allocatedBytes();
+            for (int i = 0; i < N; i++) {
+                length += coef.getData().toString().length();
+            }
+            boxed = allocatedBytes() - start;
+
+            start = allocatedBytes();
+            for (int i = 0; i < N; i++) {
+                length -= coef.dataString().length();
+            }
+            primitive = allocatedBytes() - start;
+        }
+        System.out.println("coefficient text, bytes per operation: getData().toString()=" + (double) boxed / N + " dataString()=" + (double) primitive / N);
+
+        assertEquals(0, length);
+        assertTrue(primitive <= boxed, "dataString allocated " + primitive + " bytes, getData().toString() " + boxed);
+    }
+
+    private static long allocatedBytes() {
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+
+    private static final class BoxedIntDouble {
+        private final Number data;
+        private final boolean isInteger;
+        private final String argName = "";
+        private final int index = 0;
+
+        private BoxedIntDouble(Number data, boolean isInteger) {
+            this.data = data;
+            this.isInteger = isInteger;
+        }
+
+        private static BoxedIntDouble add(BoxedIntDouble id1, BoxedIntDouble id2) {
+            if (!id1.isInteger && !id2.isInteger) {
+                return new BoxedIntDouble(id1.data.doubleValue() + id2.data.doubleValue(), false);
+            } else if (id1.isInteger && !id2.isInteger) {
+                return new BoxedIntDouble(id1.data.intValue() + id2.data.doubleValue(), false);
+            } else if (!id1.isInteger && id2.isInteger) {
+                return new BoxedIntDouble(id1.data.doubleValue() + id2.data.intValue(), false);
+            }
+            return new BoxedIntDouble(id1.data.intValue() + id2.data.intValue(), true);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The svars that only read the month, the day and other such svars are
+ * evaluated once per calendar key and give the values of their evaluation in
+ * every time step; the others are evaluated every time step.
+ */
+final class InvariantSvarsTest {
+    private static final String[] NAMES = {"a", "b", "c", "d", "e", "n"};
+    private static final int[][] STEPS = {
+        {2000, 1, 31}, {2000, 2, 29}, {2000, 3, 31},
+        {2001, 1, 31}, {2001, 2, 28}, {2001, 3, 31},
+        {2002, 1, 31}, {2002, 2, 28},
+    };
+
+    private final boolean invariantSvars = ControlData.invariantSvars;
+
+    @AfterEach
+    void tearDown() {
+        ControlData.invariantSvars = invariantSvars;
+        Error.error_evaluation.clear();
+    }
+
+    @Test
+    void svarsThatOnlyReadTheCalendarAreInvariant() {
+        ModelDataSet mds = model();
+        bind(mds);
+        InvariantSvars invariant = new InvariantSvars(mds);
+        assertTrue(invariant.isInvariant("a"));
+        assertTrue(invariant.isInvariant("b"), "reads the day");
+        assertFalse(invariant.isInvariant("c"), "reads the year");
+        assertFalse(invariant.isInvariant("d"), "reads c");
+        assertTrue(invariant.isInvariant("e"), "cases on a");
+        assertTrue(invariant.isInvariant("n"));
+        assertEquals(4, invariant.size());
+    }
+
+    @Test
+    void servedValuesAreTheEvaluatedValues() {
+        List<String> evaluated = run(false);
+        long served = InvariantSvars.served.sum();
+        List<String> kept = run(true);
+        assertEquals(evaluated, kept);
+        // a is served in the 5 steps after March 2000; b, and e that reads b,
+        // read the day, so February 2001 is a key of its own
+        assertEquals(5 + 2 * 4, InvariantSvars.served.sum() - served);
+    }
+
+    @Test
+    void valueWithErrorsIsNotKept() {
+        ModelDataSet mds = model();
+        ControlData.invariantSvars = true;
+        bind(mds);
+        long evaluated = InvariantSvars.evaluated.sum();
+        for (int year = 2000; year < 2003; year++) {
+            step(year, 1, 31);
+            mds.processModel();
+        }
+        // n has no true case in any step; a, b and e are evaluated once
+        assertEquals(3 + 3, InvariantSvars.evaluated.sum() - evaluated);
+    }
+
+    /**
+     * @return the values and the errors of the svars in every step
+     */
+    private static List<String> run(boolean invariant) {
+        ModelDataSet mds = model();
+        ControlData.invariantSvars = invariant;
+        bind(mds);
+        List<String> values = new ArrayList<>();
+        for (int[] step : STEPS) {
+            step(step[0], step[1], step[2]);
+            Error.error_evaluation.clear();
+            mds.processModel();
+            StringBuilder text = new StringBuilder(Arrays.toString(step));
+            for (String name : NAMES) {
+                IntDouble data = mds.svMap.get(name).getData();
+                text.append(' ').append(name).append('=').append(data == null ? "null" : data.dataString() + (data.isInt() ? "i" : "d"));
+            }
+            values.add(text.append(' ').append(Error.error_evaluation.size()).toString());
+        }
+        return values;
+    }
+
+    private static ModelDataSet model() {
+        ModelDataSet mds = new ModelDataSet();
+        addSvar(mds, "a", "month+2");
+        addSvar(mds, "b", "a*day/2.0");
+        addSvar(mds, "c", "b+year");
+        addSvar(mds, "d", "a+c");
+        addSvar(mds, "e", "a>4", "max(a;b)", "always", "a-1");
+        addSvar(mds, "n", "a>100", "1");
+        return mds;
+    }
+
+    private static void addSvar(ModelDataSet mds, String svName, String... cases) {
+        Svar svar = new Svar();
+        if (cases.length == 1) {
+            cases = new String[] {"always", cases[0]};
+        }
+        for (int i = 0; i < cases.length; i += 2) {
+            svar.caseName.add("case" + i);
+            svar.caseCondition.add(cases[i]);
+            svar.caseExpression.add(cases[i + 1]);
+        }
+        mds.svList.add(svName);
+        mds.svMap.put(svName, svar);
+    }
+
+    private static void step(int year, int month, int day) {
+        ControlData.currYear = year;
+        ControlData.currMonth = month;
+        ControlData.currDay = day;
+    }
+
+    private static void bind(ModelDataSet mds) {
+        StudyDataSet sds = new StudyDataSet();
+        ArrayList<String> modelList = new ArrayList<>();
+        modelList.add("m1");
+        sds.setModelList(modelList);
+        Map<String, ModelDataSet> modelDataSetMap = new HashMap<>();
+        modelDataSetMap.put("m1", mds);
+        sds.setModelDataSetMap(modelDataSetMap);
+
+        ControlData.currStudyDataSet = sds;
+        ControlData.currModelDataSet = mds;
+        ControlData.currSvMap = mds.svMap;
+        ControlData.currTsMap = mds.tsMap;
+        ControlData.currDvMap = mds.dvMap;
+        ControlData.currAliasMap = mds.asMap;
+        ControlData.currCycleName = "m1";
+        ControlData.currCycleIndex = 0;
+        step(2000, 1, 31);
+        new PreEvaluator(sds);
+        Error.error_evaluation.clear();
+    }
+}
@@ -0,0 +1,130 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.external.ExternalArgs;
+import gov.ca.water.wrims.engine.core.external.ExternalFunction;
+import gov.ca.water.wrims.engine.core.external.TypedExternalFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Stack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A tracked svar whose value is kept from step to step while an external
+ * function writes back to it as an argument.
+ */
+final class SvarTrackerTest {
+
+    @AfterEach
+    void tearDown() {
+        ControlData.trackSvars = false;
+        ControlData.verifySvarTracking = false;
+        ControlData.allExternalFunctionMap.remove("trackerbump");
+        Error.error_evaluation.clear();
+    }
+
+    @Test
+    void writeBackDoesNotChangeKeptValue() {
+        ModelDataSet mds = model();
+        ControlData.trackSvars = true;
+        bind(mds);
+        long skipped = SvarTracker.skipped.sum();
+
+        for (int month = 1; month <= 3; month++) {
+            ControlData.currMonth = month;
+            mds.processModel();
+            assertTrue(Error.error_evaluation.isEmpty(), Error.error_evaluation.toString());
+            // the function adds 10 to a, after a is evaluated or kept
+            assertEquals(15, mds.svMap.get("a").getData().getData(), "month " + month);
+            assertEquals(5, mds.svMap.get("b").getData().getData(), "month " + month);
+        }
+        assertTrue(SvarTracker.skipped.sum() - skipped >= 2, "a is kept after the first step");
+    }
+
+    @Test
+    void keptValueIsReturnedAsCopy() {
+        ModelDataSet mds = model();
+        ControlData.trackSvars = true;
+        bind(mds);
+
+        ControlData.currMonth = 1;
+        mds.processModel();
+        IntDouble first = mds.svMap.get("a").getData();
+        ControlData.currMonth = 2;
+        mds.processModel();
+        assertNotSame(first, mds.svMap.get("a").getData());
+    }
+
+    private static ModelDataSet model() {
+        ModelDataSet mds = new ModelDataSet();
+        addSvar(mds, "a", "5");
+        addSvar(mds, "b", "trackerbump(a)");
+        ControlData.allExternalFunctionMap.put("trackerbump", new Bump());
+        return mds;
+    }
+
+    private static void addSvar(ModelDataSet mds, String svName, String expression) {
+        Svar svar = new Svar();
+        svar.caseName.add("default");
+        svar.caseCondition.add("always");
+        svar.caseExpression.add(expression);
+        mds.svList.add(svName);
+        mds.svMap.put(svName, svar);
+    }
+
+    private static void bind(ModelDataSet mds) {
+        StudyDataSet sds = new StudyDataSet();
+        ArrayList<String> modelList = new ArrayList<>();
+        modelList.add("m1");
+        sds.setModelList(modelList);
+        Map<String, ModelDataSet> modelDataSetMap = new HashMap<>();
+        modelDataSetMap.put("m1", mds);
+        sds.setModelDataSetMap(modelDataSetMap);
+
+        ControlData.currStudyDataSet = sds;
+        ControlData.currModelDataSet = mds;
+        ControlData.currSvMap = mds.svMap;
+        ControlData.currTsMap = mds.tsMap;
+        ControlData.currDvMap = mds.dvMap;
+        ControlData.currAliasMap = mds.asMap;
+        ControlData.currCycleName = "m1";
+        ControlData.currCycleIndex = 0;
+        ControlData.currYear = 2000;
+        ControlData.currMonth = 1;
+        ControlData.currDay = 31;
+        new PreEvaluator(sds);
+        Error.error_evaluation.clear();
+    }
+
+    /**
+     * Adds 10 to its argument, written back, and returns the old value.
+     */
+    public static final class Bump extends ExternalFunction implements TypedExternalFunction {
+
+        @Override
+        public void execute(Stack stack) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public double call(ExternalArgs args) {
+            double value = args.values[0];
+            args.values[0] = value + 10;
+            args.writesBack = true;
+            args.resultIsInt = true;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+import gov.ca.water.wrims.engine.core.components.FilePaths;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A lookup table is cached when it is first loaded, read from the cache on
+ * the next loads, parsed again when its .table file changes, and never cached
+ * if it has errors.
+ */
+final class TableCacheTest {
+    private static final String TABLE = "ctbl\nstorage level\n0 1\n10 2.5\n20 7 ! comment\n";
+
+    private final String mainDirectory = FilePaths.mainDirectory;
+    private final String lookupSubDirectory = FilePaths.lookupSubDirectory;
+    private final boolean cacheLookupTables = ControlData.cacheLookupTables;
+    private Path runFolder;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        runFolder = Files.createTempDirectory("tablecache");
+        Files.createDirectories(runFolder.resolve("lookup"));
+        FilePaths.mainDirectory = runFolder.toString() + File.separator;
+        FilePaths.lookupSubDirectory = "";
+        ControlData.cacheLookupTables = true;
+
+        StudyDataSet sds = new StudyDataSet();
+        ArrayList<String> modelList = new ArrayList<>();
+        modelList.add("m1");
+        sds.setModelList(modelList);
+        ControlData.currStudyDataSet = sds;
+        ControlData.currCycleIndex = 0;
+        Error.error_evaluation.clear();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        FilePaths.mainDirectory = mainDirectory;
+        FilePaths.lookupSubDirectory = lookupSubDirectory;
+        ControlData.cacheLookupTables = cacheLookupTables;
+        TableSeries.tableSeries.remove("ctbl");
+        Error.error_evaluation.clear();
+        try (Stream<Path> paths = Files.walk(runFolder)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    void firstLoadWritesCacheAndNextLoadReadsIt() throws IOException {
+        File tableFile = writeTable("ctbl", TABLE);
+        assertFalse(TableCache.cacheFile("ctbl").exists());
+
+        LookUpTable parsed = retrieve("ctbl");
+        assertNull(parsed.getColumns(), "the first load parses the .table file");
+        assertTrue(TableCache.cacheFile("ctbl").isFile(), "the first load writes the cache file");
+        double parsedValue = level(5);
+
+        LookUpTable cached = retrieve("ctbl");
+        assertNotNull(cached.getColumns(), "the second load reads the cache file");
+        assertEquals(parsed.getField(), cached.getField());
+        assertEquals(parsed.getData().size(), cached.getData().size());
+        for (int r = 0; r < parsed.getData().size(); r++) {
+            for (int c = 0; c < parsed.getField().size(); c++) {
+                assertEquals(parsed.getData().get(r)[c].doubleValue(), cached.getData().get(r)[c].doubleValue(), "row " + r + " field " + c);
+            }
+        }
+        assertEquals(parsedValue, level(5));
+        assertEquals(1.75, parsedValue);
+        assertNotNull(TableCache.load("ctbl", tableFile));
+        assertTrue(Error.error_evaluation.isEmpty(), Error.error_evaluation.toString());
+    }
+
+    @Test
+    void changedTableInvalidatesCache() throws IOException {
+        File tableFile = writeTable("ctbl", TABLE);
+        retrieve("ctbl");
+        assertNotNull(TableCache.load("ctbl", tableFile));
+
+        // touched without a change of content
+        assertTrue(tableFile.setLastModified(tableFile.lastModified() + 2000));
+        assertNull(TableCache.load("ctbl", tableFile));
+        assertNull(retrieve("ctbl").getColumns(), "a touched table is parsed again");
+        assertNotNull(TableCache.load("ctbl", tableFile), "and cached again");
+
+        // the same size and time with other content
+        long lastModified = tableFile.lastModified();
+        Files.write(tableFile.toPath(), TABLE.replace("2.5", "4.5").getBytes(StandardCharsets.UTF_8));
+        assertTrue(tableFile.setLastModified(lastModified));
+        assertNull(TableCache.load("ctbl", tableFile));
+        assertNull(retrieve("ctbl").getColumns());
+        assertEquals(2.75, level(5));
+        assertNotNull(retrieve("ctbl").getColumns());
+        assertEquals(2.75, level(5));
+    }
+
+    @Test
+    void tableWithErrorsIsNotCached() throws IOException {
+        // the first line is not the name of the table, which is an error
+        File misnamed = writeTable("ctbl", TABLE.replace("ctbl\n", "other\n"));
+        for (int i = 0; i < 2; i++) {
+            Error.error_evaluation.clear();
+            assertNotNull(retrieve("ctbl"));
+            assertFalse(Error.error_evaluation.isEmpty(), "the error is reported on every load");
+            assertFalse(TableCache.cacheFile("ctbl").exists());
+        }
+        assertFalse(TableCache.build("ctbl", misnamed).isEmpty());
+        assertFalse(TableCache.cacheFile("ctbl").exists());
+
+        File notNumeric = writeTable("ctbl", TABLE.replace("2.5", "x2"));
+        Error.error_evaluation.clear();
+        assertFalse(TableOperation.retrieveLookUpData("ctbl"));
+        assertFalse(Error.error_evaluation.isEmpty());
+        assertFalse(TableCache.cacheFile("ctbl").exists());
+        assertFalse(TableCache.build("ctbl", notNumeric).isEmpty());
+        assertFalse(TableCache.cacheFile("ctbl").exists());
+
+        writeTable("ctbl", TABLE);
+        Error.error_evaluation.clear();
+        retrieve("ctbl");
+        assertTrue(Error.error_evaluation.isEmpty(), Error.error_evaluation.toString());
+        assertTrue(TableCache.cacheFile("ctbl").isFile(), "the corrected table is cached");
+    }
+
+    private File writeTable(String name, String text) throws IOException {
+        Path path = runFolder.resolve("lookup").resolve(name + ".table");
+        Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+        return path.toFile();
+    }
+
+    private static LookUpTable retrieve(String name) {
+        TableSeries.tableSeries.remove(name);
+        assertTrue(TableOperation.retrieveLookUpData(name));
+        return TableSeries.tableSeries.get(name);
+    }
+
+    private static double level(double storage) {
+        HashMap<String, Number> given = new HashMap<>();
+        given.put("storage", storage);
+        return TableOperation.findData("ctbl", "level", given, "linear").getData().doubleValue();
+    }
+}
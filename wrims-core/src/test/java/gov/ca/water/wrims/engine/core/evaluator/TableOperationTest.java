@@ -0,0 +1,313 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TableOperation.findData on the indexed columns of CompiledTable gives the
+ * values and reports the errors of the row by row lookup it replaced.
+ */
+final class TableOperationTest {
+    private static final String[] FIELDS = {"w1", "w2", "g", "s"};
+    private static final double[] GIVEN_POOL = {-4, -2.5, -1, -0.0, 0, 0.5, 1, 1.5, 2, 3, 4.25, 6};
+    private static final String[] USES = {"linear", "minimum", "maximum"};
+
+    private final List<String> tables = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        StudyDataSet sds = new StudyDataSet();
+        ArrayList<String> modelList = new ArrayList<>();
+        modelList.add("m1");
+        sds.setModelList(modelList);
+        ControlData.currStudyDataSet = sds;
+        ControlData.currCycleIndex = 0;
+        Error.error_evaluation.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : tables) {
+            TableSeries.tableSeries.remove(table);
+        }
+        Error.error_evaluation.clear();
+    }
+
+    @Test
+    void randomQueriesMatchPreviousLookup() {
+        Random random = new Random(20261017);
+        int nDuplicates = 0;
+        int nFallbacks = 0;
+        for (int t = 0; t < 60; t++) {
+            String name = "optbl" + t;
+            LookUpTable lut = randomTable(random, name);
+            for (int q = 0; q < 50; q++) {
+                String select = random.nextInt(20) == 0 ? "zz" : random.nextInt(6) == 0 ? "g" : "s";
+                HashMap<String, Number> where = where(random, random.nextInt(3));
+                HashMap<String, Number> given = where == null || random.nextInt(5) > 0 ? given(random) : null;
+                String use = random.nextInt(25) == 0 ? "nearest" : USES[random.nextInt(USES.length)];
+
+                String query = name + " " + select + " where " + where + " given " + given + " use " + use;
+                String expected = outcome(() -> previousFindData(lut, name, select, where, given, use));
+                String actual = where == null
+                    ? outcome(() -> TableOperation.findData(name, select, given, use))
+                    : outcome(() -> TableOperation.findData(name, select, where, given, use));
+                assertEquals(expected, actual, query);
+                if (expected.contains("is duplicated")) nDuplicates++;
+                if (expected.contains("has the same value") || expected.contains("NaN")) nFallbacks++;
+            }
+        }
+        assertTrue(nDuplicates > 0, "duplicated given values are queried");
+        assertTrue(nFallbacks > 0, "given values with NaN or equal values are queried");
+    }
+
+    @Test
+    void negativeZeroMatchesZero() {
+        LookUpTable lut = table("opzero", new double[][] {
+            {-0.0, 1, 0, 10},
+            {-0.0, 1, 2, 30},
+            {1, 1, 0, 50},
+        });
+        HashMap<String, Number> where = new HashMap<>();
+        where.put("w1", 0.0);
+        HashMap<String, Number> given = new HashMap<>();
+        given.put("g", 1);
+        assertSameOutcome(lut, "s", where, given, "linear");
+        assertEquals("20.0d []", outcome(() -> TableOperation.findData("opzero", "s", where, given, "linear")));
+
+        where.put("w1", -0.0);
+        assertSameOutcome(lut, "s", where, null, "linear");
+        assertEquals("10.0d []", outcome(() -> TableOperation.findData("opzero", "s", where, null, "linear")));
+    }
+
+    @Test
+    void givenNaNAndEqualValuesUsePreviousLookup() {
+        LookUpTable nan = table("opnan", new double[][] {
+            {1, 1, 0, 10},
+            {1, 1, Double.NaN, 20},
+            {1, 1, 2, 30},
+        });
+        LookUpTable zeros = table("opzeros", new double[][] {
+            {1, 1, 0.0, 10},
+            {1, 1, -0.0, 20},
+            {1, 1, 2, 30},
+        });
+        LookUpTable duplicate = table("opdup", new double[][] {
+            {1, 1, 0, 10},
+            {1, 1, 2, 20},
+            {1, 1, 2, 30},
+        });
+        HashMap<String, Number> where = new HashMap<>();
+        where.put("w1", 1);
+        for (double value : new double[] {-1, 0, 1, 2, 3, Double.NaN}) {
+            HashMap<String, Number> given = new HashMap<>();
+            given.put("g", value);
+            for (String use : USES) {
+                assertSameOutcome(nan, "s", where, given, use);
+                assertSameOutcome(zeros, "s", where, given, use);
+                assertSameOutcome(duplicate, "s", where, given, use);
+                assertSameOutcome(duplicate, "s", null, given, use);
+            }
+        }
+        HashMap<String, Number> given = new HashMap<>();
+        given.put("g", 1);
+        assertTrue(outcome(() -> TableOperation.findData("opdup", "s", where, given, "linear")).contains("Given value 2.0 in the given statement is duplicated"));
+        assertTrue(outcome(() -> TableOperation.findData("opzeros", "s", where, given, "linear")).contains("has the same value"));
+    }
+
+    private void assertSameOutcome(LookUpTable lut, String select, HashMap<String, Number> where, HashMap<String, Number> given, String use) {
+        String name = lut.getName();
+        String expected = outcome(() -> previousFindData(lut, name, select, where, given, use));
+        String actual = where == null
+            ? outcome(() -> TableOperation.findData(name, select, given, use))
+            : outcome(() -> TableOperation.findData(name, select, where, given, use));
+        assertEquals(expected, actual, name + " where " + where + " given " + given + " use " + use);
+    }
+
+    private LookUpTable randomTable(Random random, String name) {
+        int nRows = 1 + random.nextInt(12);
+        double[][] rows = new double[nRows][];
+        for (int r = 0; r < nRows; r++) {
+            double w1 = new double[] {0.0, -0.0, 1, 2}[random.nextInt(4)];
+            double w2 = random.nextInt(20) == 0 ? Double.NaN : 1 + random.nextInt(2);
+            double g = random.nextInt(30) == 0 ? Double.NaN : GIVEN_POOL[random.nextInt(GIVEN_POOL.length)];
+            double s = Math.round(random.nextGaussian() * 10000) / 100.0;
+            rows[r] = new double[] {w1, w2, g, s};
+        }
+        return table(name, rows);
+    }
+
+    private LookUpTable table(String name, double[][] rows) {
+        LookUpTable lut = new LookUpTable();
+        lut.setName(name);
+        HashMap<String, Integer> field = new HashMap<>();
+        for (int i = 0; i < FIELDS.length; i++) {
+            field.put(FIELDS[i], i);
+        }
+        lut.setField(field);
+        for (double[] row : rows) {
+            Number[] dataLine = new Number[row.length];
+            for (int i = 0; i < row.length; i++) {
+                dataLine[i] = row[i];
+            }
+            lut.getData().add(dataLine);
+        }
+        TableSeries.tableSeries.put(name, lut);
+        tables.add(name);
+        return lut;
+    }
+
+    private static HashMap<String, Number> where(Random random, int nWhere) {
+        if (nWhere == 0) return null;
+        HashMap<String, Number> where = new HashMap<>();
+        where.put("w1", whereValue(random));
+        if (nWhere > 1) where.put(random.nextInt(15) == 0 ? "zz" : "w2", whereValue(random));
+        return where;
+    }
+
+    private static HashMap<String, Number> given(Random random) {
+        HashMap<String, Number> given = new HashMap<>();
+        given.put(random.nextInt(25) == 0 ? "zz" : "g", givenValue(random));
+        return given;
+    }
+
+    private static Number whereValue(Random random) {
+        switch (random.nextInt(8)) {
+        case 0:
+            return -0.0;
+        case 1:
+            return Double.NaN;
+        case 2:
+            return 3;
+        case 3:
+            return random.nextInt(3);
+        default:
+            return (double) random.nextInt(3);
+        }
+    }
+
+    private static Number givenValue(Random random) {
+        switch (random.nextInt(10)) {
+        case 0:
+            return Double.NaN;
+        case 1:
+            return random.nextInt(9) - 4;
+        case 2:
+        case 3:
+            return GIVEN_POOL[random.nextInt(GIVEN_POOL.length)];
+        default:
+            return (random.nextInt(57) - 28) / 4.0;
+        }
+    }
+
+    /**
+     * The value, its type and the errors reported by a lookup.
+     */
+    private static String outcome(Supplier<IntDouble> lookup) {
+        Error.error_evaluation.clear();
+        IntDouble value = lookup.get();
+        double data = value.getData().doubleValue();
+        String text = (Double.isNaN(data) ? "NaN" : Double.toString(data)) + (value.isInt() ? "i" : "d");
+        return text + " " + Error.error_evaluation;
+    }
+
+    /**
+     * findData as it was before CompiledTable: the rows are scanned in table
+     * order for the where values and the given column is collected into the
+     * lists of TableOperation.calculateValue.
+     */
+    private static IntDouble previousFindData(LookUpTable lut, String table, String select, Map<String, Number> where, HashMap<String, Number> given, String use) {
+        ArrayList<Number[]> data = lut.getData();
+        HashMap<String, Integer> field = lut.getField();
+        if (!field.containsKey(select)) {
+            Error.addEvaluationError(select + " in the select statement is not a field name in Table " + table);
+            return new IntDouble(1.0, false);
+        }
+        int selectIndex = field.get(select);
+        if (where == null) {
+            where = new LinkedHashMap<>();
+            if (given == null) {
+                Error.addEvaluationError("select data from table needs either where statement or given statement.");
+                return new IntDouble(1.0, false);
+            }
+        }
+
+        int whereSize = where.size();
+        int[] whereIndex = new int[whereSize];
+        Number[] whereValue = new Number[whereSize];
+        int k = 0;
+        for (Map.Entry<String, Number> entry : where.entrySet()) {
+            if (!field.containsKey(entry.getKey())) {
+                Error.addEvaluationError(entry.getKey() + " in the where statement is not a field name in Table " + table);
+                return new IntDouble(1.0, false);
+            }
+            whereIndex[k] = field.get(entry.getKey());
+            whereValue[k] = entry.getValue();
+            k++;
+        }
+
+        int first = -1;
+        for (int i = 0; i < data.size() && first < 0; i++) {
+            if (matches(data.get(i), whereIndex, whereValue)) first = i;
+        }
+        if (first < 0) {
+            String whereError = "";
+            for (String key : where.keySet()) {
+                whereError = whereError + "(" + key + ": " + where.get(key) + ")";
+            }
+            Error.addEvaluationError("Under those where statements" + whereError + ", data could not be found in Table " + table);
+            return new IntDouble(1.0, false);
+        }
+        if (given == null) {
+            return TableOperation.generateIntDouble(data.get(first)[selectIndex].toString());
+        }
+
+        String givenName = given.keySet().iterator().next();
+        if (!field.containsKey(givenName)) {
+            Error.addEvaluationError(givenName + " in the given statement is not a field name in Table " + table);
+            return new IntDouble(1.0, false);
+        }
+        int givenIndex = field.get(givenName);
+        ArrayList<Number> gVList = new ArrayList<>();
+        Map<Number, Number> gVMap = new HashMap<>();
+        for (int i = first; i < data.size(); i++) {
+            Number[] values = data.get(i);
+            if (!matches(values, whereIndex, whereValue)) continue;
+            if (gVList.contains(values[givenIndex])) {
+                Error.addEvaluationError("Given value " + values[givenIndex] + " in the given statement is duplicated in Table " + table);
+                return new IntDouble(1.0, false);
+            }
+            gVList.add(values[givenIndex]);
+            gVMap.put(values[givenIndex], values[selectIndex]);
+        }
+
+        String givenError = "";
+        for (String key : given.keySet()) {
+            givenError = givenError + "(" + key + ": " + given.get(key) + ")";
+        }
+        return TableOperation.calculateValue(given.get(givenName), gVList, gVMap, use, table, givenError);
+    }
+
+    private static boolean matches(Number[] values, int[] whereIndex, Number[] whereValue) {
+        for (int k = 0; k < whereIndex.length; k++) {
+            if (values[whereIndex[k]].doubleValue() != whereValue[k].doubleValue()) return false;
+        }
+        return true;
+    }
+}
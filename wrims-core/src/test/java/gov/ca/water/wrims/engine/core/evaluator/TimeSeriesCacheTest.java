@@ -0,0 +1,201 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Timeseries;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The svar and dvar timeseries lookups read through TimeSeriesCache give the
+ * values and errors of the uncached lookups, and the kept values are dropped
+ * when the time step or the cycle changes, or when a dvar or alias value is
+ * saved.
+ */
+final class TimeSeriesCacheTest {
+    private static final String SVAR = "tscachesv";
+    private static final String DVAR = "tscachedv";
+
+    private final String timeStep = ControlData.timeStep;
+    private final int currYear = ControlData.currYear;
+    private final int currMonth = ControlData.currMonth;
+    private final int currDay = ControlData.currDay;
+    private final int currCycleIndex = ControlData.currCycleIndex;
+    private final boolean cacheTimeSeriesLookups = ControlData.cacheTimeSeriesLookups;
+    private final Map<String, Timeseries> currTsMap = ControlData.currTsMap;
+    private ArrayList<Double> svarData;
+    private double[] dvarData;
+
+    @BeforeEach
+    void setUp() {
+        StudyDataSet sds = new StudyDataSet();
+        ArrayList<String> modelList = new ArrayList<>();
+        modelList.add("m1");
+        sds.setModelList(modelList);
+        ControlData.currStudyDataSet = sds;
+        ControlData.cacheTimeSeriesLookups = true;
+        ControlData.currTsMap = new HashMap<>();
+        step(2001, 6, 0);
+        TimeSeriesCache.clearAll();
+        Error.error_evaluation.clear();
+
+        svarData = new ArrayList<>();
+        for (int i = 0; i < 48; i++) {
+            svarData.add(i * 1.5);
+        }
+        DssDataSet svar = new DssDataSet();
+        svar.setTimeStep("1MON");
+        svar.setStartTime(new Date(2000 - 1900, 0, 31));
+        svar.setData(svarData);
+        DataTimeSeries.svTS.put(DssOperation.entryNameTS(SVAR, "1MON"), svar);
+
+        DssDataSetFixLength dvar = new DssDataSetFixLength(24);
+        dvar.setTimeStep("1MON");
+        dvar.setStartTime(new Date(2001 - 1900, 0, 31));
+        dvarData = dvar.getData();
+        for (int i = 0; i < dvarData.length; i++) {
+            dvarData[i] = i * 10;
+        }
+        DataTimeSeries.dvAliasTS.put(DssOperation.entryNameTS(DVAR, "1MON"), dvar);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ControlData.timeStep = timeStep;
+        ControlData.currYear = currYear;
+        ControlData.currMonth = currMonth;
+        ControlData.currDay = currDay;
+        ControlData.currCycleIndex = currCycleIndex;
+        ControlData.cacheTimeSeriesLookups = cacheTimeSeriesLookups;
+        ControlData.currTsMap = currTsMap;
+        DataTimeSeries.lookInitDss.removeIf(entry -> entry.equals(DssOperation.entryNameTS(SVAR, "1MON")));
+        DataTimeSeries.svTS.remove(DssOperation.entryNameTS(SVAR, "1MON"));
+        DataTimeSeries.dvAliasTS.remove(DssOperation.entryNameTS(DVAR, "1MON"));
+        TimeSeriesCache.clearAll();
+        Error.error_evaluation.clear();
+    }
+
+    @Test
+    void cachedReadsAreUncachedReads() {
+        long hits = TimeSeriesCache.hits.sum();
+        for (int month = 1; month <= 12; month++) {
+            step(2001, month, 0);
+            for (int read = 0; read < 2; read++) {
+                for (int offset = -15; offset <= 0; offset++) {
+                    String message = "month " + month + " offset " + offset + " read " + read;
+                    assertEquals(svarOutcome(offset, false), svarOutcome(offset, true), message);
+                    if (offset >= 1 - month) {
+                        assertEquals(dvarOutcome(offset, false), dvarOutcome(offset, true), message);
+                    }
+                }
+            }
+        }
+        // the dvar data start in January 2001
+        // only the second reads of lookups without errors are hits
+        assertEquals(countWithoutErrors(), TimeSeriesCache.hits.sum() - hits);
+    }
+
+    @Test
+    void valuesAreDroppedWhenTheStepChanges() {
+        // June 2001 is the 18th month of the svar data
+        assertEquals(17 * 1.5, ValueEvaluation.cachedSvarTimeSeries(SVAR, 0));
+        svarData.set(17, -1.0);
+        svarData.set(9, -5.0);
+        assertEquals(17 * 1.5, ValueEvaluation.cachedSvarTimeSeries(SVAR, 0), "kept for the time step");
+        assertEquals(-5.0, ValueEvaluation.cachedSvarTimeSeries(SVAR, -8), "another offset is looked up");
+
+        step(2001, 7, 0);
+        assertEquals(18 * 1.5, ValueEvaluation.cachedSvarTimeSeries(SVAR, 0));
+        assertEquals(-1.0, ValueEvaluation.cachedSvarTimeSeries(SVAR, -1), "the next time step looks up again");
+
+        svarData.set(18, -2.0);
+        ControlData.currCycleIndex = 1;
+        assertEquals(-2.0, ValueEvaluation.cachedSvarTimeSeries(SVAR, 0), "the next cycle looks up again");
+
+        svarData.set(18, -3.0);
+        ControlData.currCycleIndex = 0;
+        assertEquals(-3.0, ValueEvaluation.cachedSvarTimeSeries(SVAR, 0), "the cycle before looks up again");
+    }
+
+    @Test
+    void dvarValuesAreDroppedWhenSavedOrInvalidated() {
+        assertEquals(40.0, ValueEvaluation.cachedDvarAliasTimeSeries(DVAR, -1));
+        dvarData[4] = 1.0;
+        assertEquals(40.0, ValueEvaluation.cachedDvarAliasTimeSeries(DVAR, -1), "kept for the time step");
+
+        TimeSeriesCache.dvarAlias.invalidate(DVAR);
+        assertEquals(1.0, ValueEvaluation.cachedDvarAliasTimeSeries(DVAR, -1), "an alias value is saved");
+
+        dvarData[4] = 2.0;
+        TimeSeriesCache.dvarAlias.invalidate("tscacheother");
+        assertEquals(1.0, ValueEvaluation.cachedDvarAliasTimeSeries(DVAR, -1), "another alias value is saved");
+        TimeSeriesCache.dvarAlias.clear();
+        assertEquals(2.0, ValueEvaluation.cachedDvarAliasTimeSeries(DVAR, -1), "a dvar value is saved");
+    }
+
+    @Test
+    void lookupWithErrorsIsNotKept() {
+        // the data start 17 months before the time step
+        assertEquals(1.0, ValueEvaluation.cachedSvarTimeSeries(SVAR, -18));
+        assertEquals(1, Error.error_evaluation.size());
+        assertEquals(1.0, ValueEvaluation.cachedSvarTimeSeries(SVAR, -18));
+        assertEquals(2, Error.error_evaluation.size(), "every lookup reports the error");
+    }
+
+    private static void step(int year, int month, int cycle) {
+        ControlData.timeStep = "1MON";
+        ControlData.currYear = year;
+        ControlData.currMonth = month;
+        ControlData.currDay = TimeOperation.numberOfDays(month, year);
+        ControlData.currCycleIndex = cycle;
+    }
+
+    /**
+     * @return the value and the errors of an svar lookup
+     */
+    private static String svarOutcome(int offset, boolean cached) {
+        Error.error_evaluation.clear();
+        double value = cached
+            ? ValueEvaluation.cachedSvarTimeSeries(SVAR, offset)
+            : ValueEvaluation.svarTimeSeries(SVAR, offset, TimeOperation.findTime(offset));
+        return value + " " + Error.error_evaluation;
+    }
+
+    /**
+     * @return the value and the errors of a dvar lookup
+     */
+    private static String dvarOutcome(int offset, boolean cached) {
+        Error.error_evaluation.clear();
+        double value = cached
+            ? ValueEvaluation.cachedDvarAliasTimeSeries(DVAR, offset)
+            : ValueEvaluation.dvarAliasTimeSeries(DVAR, offset, TimeOperation.findTime(offset));
+        return value + " " + Error.error_evaluation;
+    }
+
+    /**
+     * @return the number of svar and dvar lookups of cachedReadsAreUncachedReads
+     *         without errors
+     */
+    private static long countWithoutErrors() {
+        long count = 0;
+        for (int month = 1; month <= 12; month++) {
+            step(2001, month, 0);
+            for (int offset = -15; offset <= 0; offset++) {
+                count += svarOutcome(offset, false).endsWith(" []") ? 1 : 0;
+                if (offset >= 1 - month) {
+                    count += dvarOutcome(offset, false).endsWith(" []") ? 1 : 0;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,179 @@
+package gov.ca.water.wrims.engine.core.evaluator;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.CommonTokenStream;
+import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.TokenStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.function.BinaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The kernels that write their result to a given value give what the kernels
+ * that return a new value give, and the compiled expressions that use them
+ * leave their constants and the parser's results unchanged.
+ */
+final class ValueKernelTest {
+    private static final IntDouble[] VALUES = {
+        new IntDouble(7, true), new IntDouble(-3, true), new IntDouble(2.5, false), new IntDouble(-0.75, false)
+    };
+
+    @BeforeEach
+    void setUp() {
+        StudyDataSet sds = new StudyDataSet();
+        ArrayList<String> modelList = new ArrayList<>();
+        modelList.add("m1");
+        sds.setModelList(modelList);
+        ControlData.currStudyDataSet = sds;
+        ControlData.currCycleIndex = 0;
+    }
+
+    @AfterEach
+    void tearDown() {
+        Error.error_evaluation.clear();
+    }
+
+    @Test
+    void resultKernelsMatchNewValueKernels() {
+        check("mult", ValueEvaluation::mult, ValueEvaluation::mult);
+        check("divide", ValueEvaluation::divide, ValueEvaluation::divide);
+        check("add", ValueEvaluation::add, ValueEvaluation::add);
+        check("substract", ValueEvaluation::substract, ValueEvaluation::substract);
+        check("max", ValueEvaluation::max, ValueEvaluation::max);
+        check("min", ValueEvaluation::min, ValueEvaluation::min);
+        check("multiplyOperation", Evaluation::multiplyOperation, Evaluation::multiplyOperation);
+        check("divideOperation", Evaluation::divideOperation, Evaluation::divideOperation);
+        check("addOperation", Evaluation::addOperation, Evaluation::addOperation);
+        check("substractOperation", Evaluation::substractOperation, Evaluation::substractOperation);
+        for (IntDouble id : VALUES) {
+            IntDouble expected = ValueEvaluation.unary("-", id);
+            assertSameValue(expected, ValueEvaluation.unary("-", id, new IntDouble()), "-" + id.getData());
+            IntDouble operand = id.copyOf();
+            assertSame(operand, ValueEvaluation.unary("-", operand, operand));
+            assertSameValue(expected, operand, "-" + id.getData() + " in place");
+        }
+    }
+
+    @Test
+    void intDivisionTruncatesAndDivisionByZeroIsAnError() {
+        IntDouble result = new IntDouble(9.5, false, "kept", 4);
+        ValueEvaluation.divide(new IntDouble(7, true), new IntDouble(-2, true), result);
+        assertEquals(Integer.valueOf(-3), result.getData());
+        assertEquals("", result.getName());
+        assertEquals(0, result.getIndex());
+
+        IntDouble id1 = new IntDouble(7, true);
+        assertSameValue(new IntDouble(1.0, false), ValueEvaluation.divide(id1, new IntDouble(0.0, false), id1), "7/0.0");
+        assertEquals(1, Error.error_evaluation.size());
+    }
+
+    @Test
+    void operationsWriteOnlyToValuesTheyMade() {
+        IntDouble shared = new IntDouble(4, true);
+        EvalExpression ee = new EvalExpression(shared);
+        ee = Evaluation.add(ee, new EvalExpression(new IntDouble(1, true)));
+        ee = Evaluation.mult(ee, new EvalExpression(new IntDouble(2.0, false)));
+        IntDouble made = ee.getValue();
+        ee = Evaluation.substract(ee, new EvalExpression(new IntDouble(3, true)));
+        ee = Evaluation.divide(ee, new EvalExpression(new IntDouble(2, true)));
+        assertSame(made, ee.getValue());
+        assertSameValue(new IntDouble(3.5, false), ee.getValue(), "((4+1)*2.0-3)/2");
+        assertSameValue(new IntDouble(4, true), shared, "operand");
+
+        IntDouble stored = new IntDouble(6, true);
+        EvalExpression product = Evaluation.mult(new EvalExpression(new IntDouble(2, true)), new EvalExpression(stored));
+        assertSameValue(new IntDouble(12, true), product.getValue(), "2*6");
+        assertSameValue(new IntDouble(6, true), stored, "operand");
+    }
+
+    @Test
+    void compiledExpressionsMatchParser() {
+        String[] expressions = {
+            "1+2*3-4/3",
+            "-(2+3)*(4-1.5)/2",
+            "-7+(-(3*2))",
+            "max(1;2*3)+min(4.5;2-1)-max(-1;-2)*min(3;4)",
+            "(1+2)*(3+4)-(5-6)*(7-8)",
+            "2*(3-(4*(5+6.25)))/(1+1)",
+            "-(-3) + -(1.5*2)"
+        };
+        boolean useCompiled = ControlData.useCompiledExpression;
+        ControlData.useCompiledExpression = true;
+        try {
+            for (String expression : expressions) {
+                IntDouble parsed = parse(expression);
+                CompiledExpression compiled = compile(expression);
+                assertNotNull(compiled, expression);
+                IntDouble first = compiled.evaluateValue(null);
+                assertSameValue(parsed, first, expression);
+                // constants are not written to, so the next evaluations are the same
+                for (int i = 0; i < 3; i++) {
+                    assertSameValue(parsed, compiled.evaluateValue(null), expression + " round " + i);
+                }
+                assertSameValue(parsed, first, expression + " first result");
+            }
+        } finally {
+            ControlData.useCompiledExpression = useCompiled;
+        }
+        assertTrue(Error.error_evaluation.isEmpty(), Error.error_evaluation.toString());
+    }
+
+    private static void check(String name, BinaryOperator<IntDouble> kernel, Ternary resultKernel) {
+        for (IntDouble a : VALUES) {
+            for (IntDouble b : VALUES) {
+                String text = name + "(" + a.getData() + ", " + b.getData() + ")";
+                IntDouble expected = kernel.apply(a, b);
+                assertSameValue(expected, resultKernel.apply(a, b, new IntDouble()), text);
+
+                IntDouble id1 = a.copyOf();
+                assertSame(id1, resultKernel.apply(id1, b, id1));
+                assertSameValue(expected, id1, text + " into first");
+
+                IntDouble id2 = b.copyOf();
+                assertSame(id2, resultKernel.apply(a, id2, id2));
+                assertSameValue(expected, id2, text + " into second");
+            }
+        }
+    }
+
+    private static void assertSameValue(IntDouble expected, IntDouble actual, String text) {
+        assertEquals(expected.isInt(), actual.isInt(), text);
+        assertEquals(expected.getData().getClass(), actual.getData().getClass(), text);
+        assertEquals(expected.getData(), actual.getData(), text);
+    }
+
+    private static IntDouble parse(String expression) {
+        ValueEvaluatorParser parser = new ValueEvaluatorParser(tokens(expression));
+        try {
+            parser.evaluator();
+        } catch (RecognitionException e) {
+            throw new IllegalStateException(expression, e);
+        }
+        assertTrue(Error.error_evaluation.isEmpty(), expression + ": " + Error.error_evaluation);
+        return parser.evalValue;
+    }
+
+    private static CompiledExpression compile(String expression) {
+        return CompiledExpression.compile(tokens(expression));
+    }
+
+    private static TokenStream tokens(String expression) {
+        return new CommonTokenStream(new ValueEvaluatorLexer(new ANTLRStringStream("v: " + expression)));
+    }
+
+    private interface Ternary {
+        IntDouble apply(IntDouble id1, IntDouble id2, IntDouble result);
+    }
+}
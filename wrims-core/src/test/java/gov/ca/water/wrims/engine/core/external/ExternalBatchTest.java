@@ -0,0 +1,257 @@
+package gov.ca.water.wrims.engine.core.external;
+
+import gov.ca.water.wrims.engine.core.commondata.wresldata.FutureKey;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.evaluator.PreEvaluator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The calls of a BatchedExternalFunction in a time array svar are run in one
+ * callBatch during the evaluation of the svar, and give the values of the
+ * unbatched calls. Arguments that depend on another external function or are
+ * NaN are not batched, and a failed batch is reported.
+ */
+final class ExternalBatchTest {
+    private final boolean batchExternalFunctions = ControlData.batchExternalFunctions;
+    private final boolean useCompiledExpression = ControlData.useCompiledExpression;
+    private final List<String> names = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Error.error_evaluation.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ControlData.batchExternalFunctions = batchExternalFunctions;
+        ControlData.useCompiledExpression = useCompiledExpression;
+        ControlData.currSvFutMap = new HashMap<>();
+        for (String name : names) {
+            ControlData.allExternalFunctionMap.remove(name);
+        }
+        ExternalBatch.close();
+        Error.error_evaluation.clear();
+    }
+
+    @Test
+    void timeArrayCallsRunInOneBatch() {
+        BatchSum sum = function("batchsumtimearray");
+        ModelDataSet mds = model("batchsumtimearray(a*10+$m;1.5)", "3");
+
+        List<String> unbatched = run(mds, false);
+        assertEquals(4, sum.calls);
+        assertTrue(sum.batches.isEmpty());
+
+        sum.calls = 0;
+        List<String> batched = run(mds, true);
+        assertEquals(unbatched, batched);
+        // January is month 4: a=6
+        assertEquals(Arrays.asList("x=61.5d", "x1=62.5d", "x2=63.5d", "x3=64.5d"), batched);
+        assertEquals(0, sum.calls);
+        assertEquals(Arrays.asList(Arrays.asList(60.0, 1.5, 61.0, 1.5, 62.0, 1.5, 63.0, 1.5)), sum.batches);
+        assertTrue(Error.error_evaluation.isEmpty(), Error.error_evaluation.toString());
+    }
+
+    @Test
+    void argumentsOfAnotherExternalCallAreNotBatched() {
+        BatchSum sum = function("batchsumnested");
+        ModelDataSet mds = model("batchsumnested(batchsumnested(a;$m);5)", "2");
+
+        List<String> unbatched = run(mds, false);
+        sum.calls = 0;
+        List<String> batched = run(mds, true);
+        assertEquals(unbatched, batched);
+        assertEquals(Arrays.asList("x=11i", "x1=12i", "x2=13i"), batched);
+        // the inner calls of the three indexes, then the outer call of index 0
+        assertEquals(Arrays.asList(Arrays.asList(6.0, 0.0, 6.0, 1.0, 6.0, 2.0), Arrays.asList(6.0, 5.0)), sum.batches);
+        assertEquals(2, sum.calls);
+    }
+
+    @Test
+    void failedBatchIsReportedAndCallsAreMadeOneByOne() {
+        BatchSum sum = function("batchsumfailed");
+        sum.fails = true;
+        ModelDataSet mds = model("batchsumfailed(a;$m)", "2");
+
+        List<String> batched = run(mds, true);
+        assertEquals(Arrays.asList("x=6i", "x1=7i", "x2=8i"), batched);
+        assertEquals(3, sum.calls);
+        assertEquals(1, Error.error_evaluation.size(), Error.error_evaluation.toString());
+        assertTrue(Error.error_evaluation.get(0).contains("The batch of function batchsumfailed has an error: no batch"), Error.error_evaluation.toString());
+    }
+
+    @Test
+    void callsWithNaNArgumentsAreLeftOut() {
+        BatchSum sum = function("batchsumnan");
+        ExternalBatch.open(2);
+        ArrayList<ExternalArgs> calls = new ArrayList<>();
+        calls.add(args(1));
+        calls.add(args(Double.NaN));
+        calls.add(args(1));
+        ExternalBatch.run(this, "batchsumnan", calls);
+        assertEquals(Arrays.asList(Arrays.asList(1.0)), sum.batches);
+
+        assertEquals(1.0, sum(args(1)));
+        assertEquals(0, sum.calls);
+        assertTrue(Double.isNaN(sum(args(Double.NaN))));
+        assertEquals(1, sum.calls);
+
+        ExternalBatch.close();
+        assertEquals(1.0, sum(args(1)));
+        assertEquals(2, sum.calls);
+    }
+
+    @Test
+    void missingFunctionIsReported() {
+        ModelDataSet mds = model("nosuchbatchfunction(a;$m)", "1");
+        run(mds, true);
+        assertEquals(2, Error.error_evaluation.size(), Error.error_evaluation.toString());
+        for (String error : Error.error_evaluation) {
+            assertTrue(error.contains("The function nosuchbatchfunction has an error."), error);
+        }
+    }
+
+    private BatchSum function(String name) {
+        BatchSum sum = new BatchSum();
+        ControlData.allExternalFunctionMap.put(name, sum);
+        names.add(name);
+        return sum;
+    }
+
+    private static double sum(ExternalArgs args) {
+        try {
+            return ExternalFunctions.get("batchsumnan").call(args);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ExternalArgs args(double value) {
+        ExternalArgs args = new ExternalArgs();
+        args.reset(1);
+        args.set(0, value, false);
+        return args;
+    }
+
+    /**
+     * @return the values of x and its time array
+     */
+    private static List<String> run(ModelDataSet mds, boolean batch) {
+        ControlData.batchExternalFunctions = batch;
+        mds.processModel();
+        List<String> values = new ArrayList<>();
+        int size = Integer.parseInt(mds.svMap.get("x").timeArraySize);
+        for (int k = 0; k <= size; k++) {
+            Svar svar = k == 0 ? mds.svMap.get("x") : mds.svFutMap.get(FutureKey.name("x", k));
+            IntDouble data = svar.getData();
+            values.add("x" + (k == 0 ? "" : k) + "=" + data.getData() + (data.isInt() ? "i" : "d"));
+        }
+        return values;
+    }
+
+    private static ModelDataSet model(String expression, String timeArraySize) {
+        ModelDataSet mds = new ModelDataSet();
+        addSvar(mds, "a", "month+2");
+        addSvar(mds, "x", expression);
+        mds.svMap.get("x").timeArraySize = timeArraySize;
+
+        StudyDataSet sds = new StudyDataSet();
+        ArrayList<String> modelList = new ArrayList<>();
+        modelList.add("m1");
+        sds.setModelList(modelList);
+        ArrayList<String> conditions = new ArrayList<>();
+        conditions.add("always");
+        sds.setModelConditionList(conditions);
+        Map<String, ModelDataSet> modelDataSetMap = new HashMap<>();
+        modelDataSetMap.put("m1", mds);
+        sds.setModelDataSetMap(modelDataSetMap);
+
+        ControlData.currStudyDataSet = sds;
+        ControlData.currModelDataSet = mds;
+        ControlData.currSvMap = mds.svMap;
+        ControlData.currSvFutMap = mds.svFutMap;
+        ControlData.currTsMap = mds.tsMap;
+        ControlData.currDvMap = mds.dvMap;
+        ControlData.currAliasMap = mds.asMap;
+        ControlData.currCycleName = "m1";
+        ControlData.currCycleIndex = 0;
+        ControlData.currYear = 2000;
+        ControlData.currMonth = 1;
+        ControlData.currDay = 31;
+        ControlData.useCompiledExpression = true;
+        new PreEvaluator(sds);
+        return mds;
+    }
+
+    private static void addSvar(ModelDataSet mds, String svName, String expression) {
+        Svar svar = new Svar();
+        svar.caseName.add("default");
+        svar.caseCondition.add("always");
+        svar.caseExpression.add(expression);
+        mds.svList.add(svName);
+        mds.svMap.put(svName, svar);
+    }
+
+    /**
+     * Sums its arguments, one by one or in a batch, and records the calls.
+     */
+    public static final class BatchSum extends ExternalFunction implements BatchedExternalFunction {
+        int calls;
+        boolean fails;
+        final List<List<Double>> batches = new ArrayList<>();
+
+        @Override
+        public void execute(Stack stack) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public double call(ExternalArgs args) {
+            calls++;
+            return sum(args);
+        }
+
+        @Override
+        public void callBatch(ExternalArgs[] batch, int count, double[] results) {
+            if (fails) {
+                throw new IllegalStateException("no batch");
+            }
+            List<Double> values = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                for (int j = 0; j < batch[i].size; j++) {
+                    values.add(batch[i].values[j]);
+                }
+                results[i] = sum(batch[i]);
+            }
+            batches.add(values);
+        }
+
+        private static double sum(ExternalArgs args) {
+            double sum = 0;
+            boolean isInt = true;
+            for (int i = 0; i < args.size; i++) {
+                sum = sum + args.values[i];
+                isInt = isInt && args.isInt[i];
+            }
+            args.resultIsInt = isInt;
+            return sum;
+        }
+    }
+}
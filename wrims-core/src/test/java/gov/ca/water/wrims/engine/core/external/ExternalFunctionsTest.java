@@ -0,0 +1,59 @@
+package gov.ca.water.wrims.engine.core.external;
+
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Stack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * bindAll binds the functions of a run and returns those it could not bind,
+ * and LoadAllDll loads the libraries one by one in the order of the list.
+ */
+final class ExternalFunctionsTest {
+
+    @AfterEach
+    void tearDown() {
+        ControlData.allExternalFunctionMap.remove("bindalltestfunction");
+    }
+
+    @Test
+    void bindAllReturnsTheFunctionsThatCanNotBeBound() throws Exception {
+        ControlData.allExternalFunctionMap.put("bindalltestfunction", new Constant());
+
+        LinkedHashMap<String, Throwable> failed = ExternalFunctions.bindAll(Arrays.asList("bindalltestmissingb", "bindalltestfunction", "bindalltestmissinga"));
+        assertEquals(Arrays.asList("bindalltestmissingb", "bindalltestmissinga"), new ArrayList<>(failed.keySet()));
+        assertInstanceOf(ClassNotFoundException.class, failed.get("bindalltestmissinga"));
+        assertTrue(failed.get("bindalltestmissinga").getMessage().contains("wrimsv2.external.Functionbindalltestmissinga"));
+
+        // the bound function is called, the others fail again on their call
+        ExternalArgs args = new ExternalArgs();
+        args.reset(0);
+        assertEquals(5.0, ExternalFunctions.get("bindalltestfunction").call(args));
+        assertThrows(ClassNotFoundException.class, () -> ExternalFunctions.get("bindalltestmissinga"));
+    }
+
+    @Test
+    void librariesAreLoadedInTheOrderOfTheList() {
+        ArrayList<String> allDll = new ArrayList<>(Arrays.asList("wrimstestmissing1.dll", "wrimstestmissing2.dll", "wrimstestmissing3.dll"));
+        for (int i = 0; i < 5; i++) {
+            UnsatisfiedLinkError e = assertThrows(UnsatisfiedLinkError.class, () -> new LoadAllDll(allDll));
+            assertTrue(e.getMessage().contains("wrimstestmissing1"), e.getMessage());
+        }
+    }
+
+    public static final class Constant extends ExternalFunction {
+        @Override
+        public void execute(Stack stack) {
+            stack.push(5.0f);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package gov.ca.water.wrims.engine.core.external;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Each thread that calls Python keeps one interpreter, which is made, used
+ * and closed on one Python thread, and the threads call Python in parallel.
+ */
+final class PythonRuntimesTest {
+    private final List<FakeRuntime> runtimes = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        PythonRuntimes.close();
+        PythonRuntimes.runtimeFactory = () -> {
+            FakeRuntime runtime = new FakeRuntime();
+            runtimes.add(runtime);
+            return runtime;
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        PythonRuntimes.close();
+        PythonRuntimes.runtimeFactory = null;
+    }
+
+    @Test
+    void callsOfAThreadUseOneWarmRuntime() throws Exception {
+        assertEquals(3.0, PythonRuntimes.call("m", "add", 1.0, 2.0));
+        assertEquals(7.0, PythonRuntimes.call("m", "add", 3.0, 4.0));
+        assertEquals(1, runtimes.size());
+        assertEquals(2, runtimes.get(0).calls);
+        assertEquals(1, PythonRuntimes.size());
+    }
+
+    @Test
+    void threadsCallTheirOwnRuntimesInParallel() throws Exception {
+        CountDownLatch entered = new CountDownLatch(2);
+        ExecutorService evaluation = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Double>> results = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                double x = i;
+                results.add(evaluation.submit(() -> PythonRuntimes.call("m", "await", entered, x)));
+            }
+            // each call waits until both have entered their runtimes
+            assertEquals(0.0, results.get(0).get(10, TimeUnit.SECONDS));
+            assertEquals(1.0, results.get(1).get(10, TimeUnit.SECONDS));
+        } finally {
+            evaluation.shutdown();
+        }
+        assertEquals(2, runtimes.size());
+        assertNotSame(runtimes.get(0).owner, runtimes.get(1).owner);
+        assertEquals(2, PythonRuntimes.size());
+    }
+
+    @Test
+    void closeClosesEachRuntimeOnItsOwnThread() throws Exception {
+        PythonRuntimes.call("m", "add", 1.0, 2.0);
+        Thread other = new Thread(() -> {
+            try {
+                PythonRuntimes.call("m", "add", 1.0, 2.0);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        other.start();
+        other.join();
+        assertEquals(2, runtimes.size());
+
+        PythonRuntimes.close();
+        for (FakeRuntime runtime : runtimes) {
+            assertSame(runtime.owner, runtime.closedBy);
+        }
+        assertEquals(0, PythonRuntimes.size());
+
+        // the next call makes a new runtime
+        PythonRuntimes.call("m", "add", 1.0, 2.0);
+        assertEquals(3, runtimes.size());
+        assertNull(runtimes.get(2).closedBy);
+    }
+
+    @Test
+    void errorOfTheFunctionIsThrown() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> PythonRuntimes.call("m", "fail"));
+        assertEquals("no such function", e.getMessage());
+    }
+
+    /**
+     * Adds its arguments, or waits on a latch, on the thread that made it.
+     */
+    private static final class FakeRuntime implements PythonRuntime {
+        final Thread owner = Thread.currentThread();
+        Thread closedBy;
+        int calls;
+
+        @Override
+        public double call(String module, String function, Object... args) throws Exception {
+            assertSame(owner, Thread.currentThread());
+            calls++;
+            if (function.equals("await")) {
+                CountDownLatch entered = (CountDownLatch) args[0];
+                entered.countDown();
+                assertTrue(entered.await(10, TimeUnit.SECONDS), "the other thread calls in parallel");
+                return (Double) args[1];
+            }
+            if (function.equals("add")) {
+                return (Double) args[0] + (Double) args[1];
+            }
+            throw new IllegalArgumentException("no such function");
+        }
+
+        @Override
+        public void close() {
+            closedBy = Thread.currentThread();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package gov.ca.water.wrims.engine.core.external;
+
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.evaluator.ValueEvaluation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Stack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A function written like the ANN functions, with call(ExternalArgs) and
+ * execute(Stack) on top of it, returns through call() what the same function
+ * written against the Stack protocol returns through a StackFunctionAdapter.
+ */
+final class TypedExternalFunctionTest {
+    private static final float[] FLOATS = {
+        0f, -0f, 1f, 3f, -2f, 0.1f, 1f / 3f, 123.456f, -7.25e-3f, 1e10f, 1e-8f, 16777217f,
+        Float.MIN_VALUE, Float.MIN_NORMAL, Float.MAX_VALUE, -Float.MAX_VALUE
+    };
+    private static final float[] NOT_NUMBERS = {Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY};
+
+    @Test
+    void typedAndStackPathsReturnTheSameFloatResult() {
+        StackFunctionAdapter legacy = new StackFunctionAdapter(new StackEcho());
+        TypedEcho typed = new TypedEcho();
+        for (float value : FLOATS) {
+            double expected = legacy.call(args(value));
+            ExternalArgs args = args(value);
+            double actual = typed.call(args);
+            assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(actual), "value " + value);
+            assertFalse(args.resultIsInt);
+            assertEquals(Double.parseDouble(Float.toString(value)), actual, 0, "value " + value);
+        }
+    }
+
+    @Test
+    void typedFunctionCalledThroughStackPushesTheSameValue() {
+        for (float value : FLOATS) {
+            Stack legacyStack = new Stack();
+            legacyStack.push((double) value);
+            new StackEcho().execute(legacyStack);
+
+            Stack typedStack = new Stack();
+            typedStack.push((double) value);
+            new TypedEcho().execute(typedStack);
+
+            assertEquals(legacyStack, typedStack, "value " + value);
+        }
+    }
+
+    @Test
+    void notANumberIsAnErrorOnBothPaths() {
+        StackFunctionAdapter legacy = new StackFunctionAdapter(new StackEcho());
+        TypedEcho typed = new TypedEcho();
+        for (float value : NOT_NUMBERS) {
+            assertThrows(NumberFormatException.class, () -> legacy.call(args(value)), "value " + value);
+            assertThrows(NumberFormatException.class, () -> typed.call(args(value)), "value " + value);
+        }
+    }
+
+    @Test
+    void doubleResultKeepsTheValue() {
+        assertEquals(0.1, ExternalArgs.doubleResult(0.1), 0);
+        assertEquals(Double.doubleToLongBits(-0.0), Double.doubleToLongBits(ExternalArgs.doubleResult(-0.0)));
+        assertThrows(NumberFormatException.class, () -> ExternalArgs.doubleResult(Double.NaN));
+        assertThrows(NumberFormatException.class, () -> ExternalArgs.doubleResult(Double.NEGATIVE_INFINITY));
+    }
+
+    @Test
+    void mixedArrayKeepsTheTypeOfEachValue() {
+        StackSum sum = new StackSum();
+        ExternalArgs args = new ExternalArgs();
+        args.reset(1);
+        double[] array = args.array(0, 3, true);
+        array[0] = 1;
+        array[1] = 2.5;
+        array[2] = 3;
+        args.arrayIsInt[0][1] = false;
+
+        assertEquals(6.5, new StackFunctionAdapter(sum).call(args), 0);
+        assertEquals(Arrays.asList(1, 2.5, 3), sum.received);
+    }
+
+    @Test
+    void mixedArrayGoesThroughTheStackUnchanged() {
+        Number[] values = {1, 2.5, 3, -0.0, 7};
+        Stack stack = new Stack();
+        stack.push(values);
+        stack.push(4);
+        ExternalArgs args = ExternalArgs.fromStack(stack, 2);
+        assertTrue(args.isInt[0], "the array is typed by its first value");
+        assertEquals("[true, false, true, false, true]", Arrays.toString(args.arrayIsInt[0]));
+
+        Stack pushed = new Stack();
+        args.toStack(pushed);
+        assertEquals(4, pushed.pop());
+        assertEquals(Arrays.asList(values), Arrays.asList((Number[]) pushed.pop()));
+        assertEquals(Arrays.toString(args.arrayIsInt[0]), Arrays.toString(args.copy().arrayIsInt[0]));
+    }
+
+    @Test
+    void mixedArrayIsPassedByTheEvaluator() {
+        StackSum sum = new StackSum();
+        ControlData.allExternalFunctionMap.put("typedmixedsum", sum);
+        ControlData.currSvMap = new HashMap<>();
+        ControlData.currTsMap = new HashMap<>();
+        ControlData.currDvMap = new HashMap<>();
+        ControlData.currAliasMap = new HashMap<>();
+        ArrayList<IntDouble> array = new ArrayList<>();
+        array.add(new IntDouble(1, true));
+        array.add(new IntDouble(2.5, false));
+        array.add(new IntDouble(3, true));
+        ArrayList<ArrayList<IntDouble>> arguments = new ArrayList<>();
+        arguments.add(array);
+
+        IntDouble result = ValueEvaluation.argFunction("typedmixedsum", arguments);
+        assertEquals(6.5, result.doubleValue(), 0);
+        assertEquals(Arrays.asList(1, 2.5, 3), sum.received);
+    }
+
+    @Test
+    void argumentKeyTellsMixedFromIntegerArrays() {
+        ExternalArgs ints = new ExternalArgs();
+        ints.reset(1);
+        double[] intArray = ints.array(0, 2, true);
+        intArray[0] = 1;
+        intArray[1] = 2;
+        ExternalArgs mixed = ints.copy();
+        mixed.arrayIsInt[0][1] = false;
+
+        ArgumentKey key = new ArgumentKey(ints);
+        assertTrue(key.matches(ArgumentKey.hash(ints), ints.copy()));
+        assertFalse(key.matches(ArgumentKey.hash(mixed), mixed));
+        assertNotEquals(key, new ArgumentKey(mixed));
+    }
+
+    private static ExternalArgs args(float value) {
+        ExternalArgs args = new ExternalArgs();
+        args.reset(1);
+        args.set(0, value, false);
+        return args;
+    }
+
+    /**
+     * Returns its argument as a float, through the Stack protocol only.
+     */
+    public static final class StackEcho extends ExternalFunction {
+
+        @Override
+        public void execute(Stack stack) {
+            float value = ((Number) stack.pop()).floatValue();
+            stack.push(new Float(value));
+        }
+    }
+
+    /**
+     * Returns the sum of the values of an array as a double, through the Stack
+     * protocol only, and keeps the values it received.
+     */
+    public static final class StackSum extends ExternalFunction {
+        List<Number> received;
+
+        @Override
+        public void execute(Stack stack) {
+            Number[] values = (Number[]) stack.pop();
+            received = Arrays.asList(values);
+            double sum = 0;
+            for (Number value : values) {
+                sum = sum + value.doubleValue();
+            }
+            stack.push(sum);
+        }
+    }
+
+    /**
+     * Returns its argument as a float, the way the ANN functions do.
+     */
+    public static final class TypedEcho extends ExternalFunction implements TypedExternalFunction {
+
+        @Override
+        public void execute(Stack stack) {
+            stack.push(new Float((float) call(ExternalArgs.fromStack(stack, 1))));
+        }
+
+        @Override
+        public double call(ExternalArgs args) {
+            float result = args.floatValue(0);
+            return ExternalArgs.floatResult(result);
+        }
+    }
+}
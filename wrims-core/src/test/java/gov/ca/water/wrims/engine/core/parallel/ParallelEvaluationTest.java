@@ -0,0 +1,162 @@
+package gov.ca.water.wrims.engine.core.parallel;
+
+import gov.ca.water.wrims.engine.core.commondata.solverdata.SolverData;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Dvar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Goal;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.ModelDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.StudyDataSet;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.Svar;
+import gov.ca.water.wrims.engine.core.commondata.wresldata.WeightElement;
+import gov.ca.water.wrims.engine.core.components.ControlData;
+import gov.ca.water.wrims.engine.core.components.Error;
+import gov.ca.water.wrims.engine.core.components.IntDouble;
+import gov.ca.water.wrims.engine.core.evaluator.EvalConstraint;
+import gov.ca.water.wrims.engine.core.evaluator.PreEvaluator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Stress test of the tasks of this package: the same cycle is evaluated with 1
+ * and with 16 threads and the svars, the solver data and the errors have to be
+ * the same.
+ */
+final class ParallelEvaluationTest {
+    private static final int N_SVARS = 400;
+    private static final int N_DVARS = 200;
+    private static final int ROUNDS = 5;
+
+    @AfterEach
+    void tearDown() {
+        ControlData.nThreads = 1;
+        ControlData.parallelSvar = false;
+        Error.error_evaluation.clear();
+    }
+
+    @Test
+    void resultsDoNotDependOnNumberOfThreads() {
+        List<String> serial = run(1, false);
+        assertFalse(serial.isEmpty());
+        for (int r = 0; r < ROUNDS; r++) {
+            assertEquals(serial, run(16, true), "round " + r);
+        }
+    }
+
+    private static List<String> run(int nThreads, boolean parallelSvar) {
+        ModelDataSet mds = model();
+        StudyDataSet sds = new StudyDataSet();
+        ArrayList<String> modelList = new ArrayList<>();
+        modelList.add("m1");
+        sds.setModelList(modelList);
+        Map<String, ModelDataSet> modelDataSetMap = new HashMap<>();
+        modelDataSetMap.put("m1", mds);
+        sds.setModelDataSetMap(modelDataSetMap);
+
+        ControlData.currStudyDataSet = sds;
+        ControlData.currModelDataSet = mds;
+        ControlData.currSvMap = mds.svMap;
+        ControlData.currTsMap = mds.tsMap;
+        ControlData.currDvMap = mds.dvMap;
+        ControlData.currAliasMap = mds.asMap;
+        ControlData.currCycleName = "m1";
+        ControlData.currCycleIndex = 0;
+        ControlData.currYear = 2000;
+        ControlData.currMonth = 3;
+        ControlData.currDay = 31;
+        new PreEvaluator(sds);
+
+        ControlData.nThreads = nThreads;
+        ControlData.parallelSvar = parallelSvar;
+        Error.error_evaluation.clear();
+        mds.processModel();
+
+        List<String> results = new ArrayList<>();
+        for (String svName : mds.svList) {
+            results.add(svName + "=" + text(mds.svMap.get(svName).getData()));
+        }
+        for (Map.Entry<String, Dvar> entry : new TreeMap<>(SolverData.getDvarMap()).entrySet()) {
+            results.add(entry.getKey() + " in [" + entry.getValue().lowerBoundValue + ", " + entry.getValue().upperBoundValue + "]");
+        }
+        for (Map.Entry<String, EvalConstraint> entry : new TreeMap<>(SolverData.getConstraintDataMap()).entrySet()) {
+            EvalConstraint constraint = entry.getValue();
+            StringBuilder terms = new StringBuilder();
+            for (Map.Entry<String, IntDouble> term : new TreeMap<>(constraint.getEvalExpression().getMultiplier()).entrySet()) {
+                terms.append(term.getKey()).append('*').append(text(term.getValue())).append(' ');
+            }
+            results.add(entry.getKey() + ": " + terms + "+" + text(constraint.getEvalExpression().getValue()) + " " + constraint.getSign() + " 0");
+        }
+        for (Map.Entry<String, WeightElement> entry : new TreeMap<>(SolverData.getWeightMap()).entrySet()) {
+            results.add(entry.getKey() + " weight " + entry.getValue().getValue());
+        }
+        results.addAll(Error.error_evaluation);
+        return results;
+    }
+
+    /**
+     * A chain of svars where every svar reads earlier ones, with a failing svar
+     * every 50 svars, and dvars, goals and weights that read the svars.
+     */
+    private static ModelDataSet model() {
+        ModelDataSet mds = new ModelDataSet();
+        for (int i = 0; i < N_SVARS; i++) {
+            String svName = "sv" + i;
+            Svar svar = new Svar();
+            if (i == 0) {
+                addCase(svar, "always", "1");
+            } else if (i % 50 == 0) {
+                addCase(svar, "month>20", "sv" + (i - 1));
+            } else {
+                addCase(svar, "month<" + (i % 12 + 1), "sv" + (i - 1) + "/2+" + i);
+                addCase(svar, "always", "max(sv" + (i / 2) + ";sv" + (i - 1) + "-" + (i % 7) + ")+" + (i % 5));
+            }
+            mds.svList.add(svName);
+            mds.svMap.put(svName, svar);
+        }
+        for (int i = 0; i < N_DVARS; i++) {
+            String dvName = "dv" + i;
+            Dvar dvar = new Dvar();
+            dvar.lowerBound = "0";
+            dvar.upperBound = "sv" + (i * 2) + "*3";
+            mds.dvList.add(dvName);
+            mds.dvMap.put(dvName, dvar);
+
+            String gName = "g" + i;
+            Goal goal = new Goal();
+            goal.caseName.add("default");
+            goal.caseCondition.add("sv" + i + ">" + (i % 10));
+            goal.caseExpression.add(dvName + "+sv" + i + "*2<" + (i + 100));
+            goal.caseName.add("otherwise");
+            goal.caseCondition.add("always");
+            goal.caseExpression.add(dvName + "-sv" + (i + 1) + ">0");
+            mds.gList.add(gName);
+            mds.gMap.put(gName, goal);
+
+            WeightElement weight = new WeightElement();
+            weight.weight = "sv" + (N_SVARS - 1 - i) + "+1";
+            mds.wtList.add(dvName);
+            mds.wtMap.put(dvName, weight);
+        }
+        return mds;
+    }
+
+    private static void addCase(Svar svar, String condition, String expression) {
+        svar.caseName.add("case" + svar.caseName.size());
+        svar.caseCondition.add(condition);
+        svar.caseExpression.add(expression);
+    }
+
+    private static String text(IntDouble value) {
+        if (value == null) {
+            return "null";
+        }
+        return (value.isInt() ? "i" : "d") + value.doubleValue();
+    }
+}